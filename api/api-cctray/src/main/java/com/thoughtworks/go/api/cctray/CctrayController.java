@@ -30,12 +30,11 @@ import spark.Request;
 import spark.Response;
 
 import java.io.IOException;
-import java.io.OutputStreamWriter;
 
 import static spark.Spark.*;
 
 @Component
-public class CctrayController implements SparkSpringController, SparkController {
+public class CctrayController implements SparkSpringController, SparkController, ControllerMethods {
 
     private static final String ACCESS_DENIED_XML_RESPONSE = "<access-denied>\n" +
             "  <message>You are not authenticated!</message>\n" +
@@ -63,18 +62,15 @@ public class CctrayController implements SparkSpringController, SparkController
     }
 
     public String index(Request req, Response res) throws IOException {
-        OutputStreamWriter appendable = new OutputStreamWriter(res.raw().getOutputStream());
-        ccTrayService.renderCCTrayXML(siteUrlPrefix(req), currentUsername().getUsername().toString(), appendable, etag -> setEtagHeader(res, etag));
-        appendable.flush();
-        // because we've streamed the ccontent already.
-        return ControllerMethods.NOTHING;
-    }
-
-    private void setEtagHeader(Response res, String value) {
-        if (value == null) {
-            return;
+        CcTrayService.Feed feed = ccTrayService.feedFor(siteUrlPrefix(req), currentUsername().getUsername().toString());
+        if (fresh(req, feed.etag())) {
+            return notModified(res);
         }
-        res.header("ETag", '"' + value + '"');
+
+        setEtagHeader(res, feed.etag());
+        feed.writeTo(res.raw().getOutputStream());
+        // because we've streamed the content already.
+        return NOTHING;
     }
 
     private String siteUrlPrefix(Request req) {
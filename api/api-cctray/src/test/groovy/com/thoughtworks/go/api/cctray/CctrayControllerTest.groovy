@@ -25,9 +25,8 @@ import org.junit.jupiter.api.BeforeEach
 import org.junit.jupiter.api.Nested
 import org.junit.jupiter.api.Test
 import org.mockito.Mock
-import org.mockito.invocation.InvocationOnMock
 
-import java.util.function.Consumer
+import java.nio.charset.StandardCharsets
 
 import static org.mockito.ArgumentMatchers.any
 import static org.mockito.ArgumentMatchers.eq
@@ -84,13 +83,7 @@ class CctrayControllerTest implements SecurityServiceTrait, ControllerTrait<Cctr
       void 'should render XML returned by cctray service'() {
         enableSecurity()
         loginAsUser()
-        when(ccTrayService.renderCCTrayXML(eq("http://test.host/go"), eq(currentUsernameString()), any() as Appendable, any() as Consumer<String>)).thenAnswer({ InvocationOnMock invocation ->
-          Appendable appendable = invocation.getArgument(2)
-          Consumer<String> etag = invocation.getArgument(3)
-          etag.accept("some-etag")
-
-          appendable.append("blah!")
-        })
+        when(ccTrayService.feedFor(eq("http://test.host/go"), eq(currentUsernameString()))).thenReturn(new CcTrayService.Feed("some-etag", "blah!".getBytes(StandardCharsets.UTF_8)))
 
         get("/cctray.xml")
 
@@ -100,6 +93,19 @@ class CctrayControllerTest implements SecurityServiceTrait, ControllerTrait<Cctr
           .hasContentType("application/xml")
           .hasBody("blah!")
       }
+
+      @Test
+      void 'should render 304 when the feed has not changed since the last request'() {
+        enableSecurity()
+        loginAsUser()
+        when(ccTrayService.feedFor(eq("http://test.host/go"), eq(currentUsernameString()))).thenReturn(new CcTrayService.Feed("some-etag", "blah!".getBytes(StandardCharsets.UTF_8)))
+
+        get("/cctray.xml", ['If-None-Match': '"some-etag"'])
+
+        assertThatResponse()
+          .isNotModified()
+          .hasNoBody()
+      }
     }
   }
 }
@@ -23,6 +23,7 @@ import com.thoughtworks.go.apiv4.dashboard.representers.DashboardFor;
 import com.thoughtworks.go.apiv4.dashboard.representers.DashboardRepresenter;
 import com.thoughtworks.go.server.dashboard.GoDashboardEnvironment;
 import com.thoughtworks.go.server.dashboard.GoDashboardPipelineGroup;
+import com.thoughtworks.go.server.dashboard.GoDashboardPipelines;
 import com.thoughtworks.go.server.domain.Username;
 import com.thoughtworks.go.server.domain.user.DashboardFilter;
 import com.thoughtworks.go.server.domain.user.PipelineSelections;
@@ -42,6 +43,7 @@ import java.io.IOException;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import static com.thoughtworks.go.api.util.HaltApiResponses.haltBecauseOfReason;
 import static com.thoughtworks.go.server.domain.user.DashboardFilter.DEFAULT_NAME;
 import static spark.Spark.*;
 
@@ -54,6 +56,7 @@ public class DashboardControllerV4 extends ApiController implements SparkSpringC
     private static final String COOKIE_NAME = "selected_pipelines";
     private static final String SEP_CHAR = "/";
     private static final String VIEW_NAME = "viewName";
+    private static final String SINCE = "since";
 
     private final PipelineSelectionsService pipelineSelectionsService;
     private final GoDashboardService goDashboardService;
@@ -98,10 +101,12 @@ public class DashboardControllerV4 extends ApiController implements SparkSpringC
         final boolean allowEmpty = Toggles.isToggleOn(Toggles.ALLOW_EMPTY_PIPELINE_GROUPS_DASHBOARD) &&
                 "true".equalsIgnoreCase(request.queryParams("allowEmpty"));
 
-        List<GoDashboardPipelineGroup> pipelineGroups = goDashboardService.allPipelineGroupsForDashboard(filter, userName, allowEmpty);
-        List<GoDashboardEnvironment> environments = goDashboardService.allEnvironmentsForDashboard(filter, userName);
+        GoDashboardPipelines allPipelines = goDashboardService.currentPipelines();
+        List<GoDashboardPipelineGroup> pipelineGroups = goDashboardService.allPipelineGroupsForDashboard(allPipelines, filter, userName, allowEmpty);
+        List<GoDashboardEnvironment> environments = goDashboardService.allEnvironmentsForDashboard(allPipelines, filter, userName);
+        Long since = getSince(request);
 
-        String etag = calcEtag(userName, pipelineGroups, environments);
+        String etag = calcEtag(userName, pipelineGroups, environments, since);
 
         if (fresh(request, etag)) {
             return notModified(response);
@@ -112,17 +117,37 @@ public class DashboardControllerV4 extends ApiController implements SparkSpringC
         return writerForTopLevelObject(request, response, outputWriter ->
                 DashboardRepresenter.toJSON(
                         outputWriter,
-                        new DashboardFor(pipelineGroups, environments, userName, personalization.etag())
+                        new DashboardFor(pipelineGroups, environments, userName, personalization.etag(), allPipelines, since)
                 )
         );
     }
 
-    private String calcEtag(Username username, List<GoDashboardPipelineGroup> pipelineGroups, List<GoDashboardEnvironment> environments) {
+    private String calcEtag(Username username, List<GoDashboardPipelineGroup> pipelineGroups, List<GoDashboardEnvironment> environments, Long since) {
         final String pipelineSegment = pipelineGroups.stream().
                 map(GoDashboardPipelineGroup::etag).collect(Collectors.joining(SEP_CHAR));
         final String environmentSegment = environments.stream().
                 map(GoDashboardEnvironment::etag).collect(Collectors.joining(SEP_CHAR));
-        return DigestUtils.md5Hex(StringUtils.joinWith(SEP_CHAR, username.getUsername(), pipelineSegment, environmentSegment));
+        if (since == null) {
+            return DigestUtils.md5Hex(StringUtils.joinWith(SEP_CHAR, username.getUsername(), pipelineSegment, environmentSegment));
+        }
+        return DigestUtils.md5Hex(StringUtils.joinWith(SEP_CHAR, username.getUsername(), pipelineSegment, environmentSegment, since));
+    }
+
+    /**
+     * The version of the dashboard ({@code _version} in an earlier response) that the client already has. When given,
+     * the groups and environments are listed in full but only the pipelines that changed since are embedded; the
+     * client keeps its copy of the others, and drops those that are no longer listed in any group.
+     */
+    private Long getSince(Request request) {
+        final String since = request.queryParams(SINCE);
+        if (StringUtils.isBlank(since)) {
+            return null;
+        }
+        try {
+            return Long.parseLong(since);
+        } catch (NumberFormatException e) {
+            throw haltBecauseOfReason("The query parameter 'since' must be a number.");
+        }
     }
 
     private String getViewName(Request request) {
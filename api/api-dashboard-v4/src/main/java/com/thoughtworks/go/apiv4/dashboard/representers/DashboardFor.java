@@ -17,6 +17,7 @@ package com.thoughtworks.go.apiv4.dashboard.representers;
 
 import com.thoughtworks.go.server.dashboard.DashboardGroup;
 import com.thoughtworks.go.server.dashboard.GoDashboardPipeline;
+import com.thoughtworks.go.server.dashboard.GoDashboardPipelines;
 import com.thoughtworks.go.server.domain.Username;
 
 import java.util.List;
@@ -27,12 +28,25 @@ public class DashboardFor {
     private final Username username;
     private List<? extends DashboardGroup> environments;
     private String personalizationEtag;
+    private final GoDashboardPipelines allPipelines;
+    private final Long changedSince;
 
     public DashboardFor(List<? extends DashboardGroup> pipelineGroups, List<? extends DashboardGroup> environments, Username username, String personalizationEtag) {
+        this(pipelineGroups, environments, username, personalizationEtag, null, null);
+    }
+
+    /**
+     * @param allPipelines the snapshot of the dashboard that the groups and environments were built from
+     * @param changedSince if not null, only the pipelines that changed after this version of the dashboard are included
+     */
+    public DashboardFor(List<? extends DashboardGroup> pipelineGroups, List<? extends DashboardGroup> environments, Username username, String personalizationEtag,
+                        GoDashboardPipelines allPipelines, Long changedSince) {
         this.pipelineGroups = pipelineGroups;
         this.environments = environments;
         this.username = username;
         this.personalizationEtag = personalizationEtag;
+        this.allPipelines = allPipelines;
+        this.changedSince = changedSince;
     }
 
     public List<? extends DashboardGroup> getPipelineGroups() {
@@ -44,7 +58,18 @@ public class DashboardFor {
     }
 
     public List<GoDashboardPipeline> getPipelines() {
-        return pipelineGroups.stream().flatMap(group -> group.allPipelines().stream()).collect(Collectors.toList());
+        return pipelineGroups.stream()
+                .flatMap(group -> group.allPipelines().stream())
+                .filter(pipeline -> changedSince == null || allPipelines.hasChangedSince(pipeline.name(), changedSince))
+                .collect(Collectors.toList());
+    }
+
+    public Long getVersion() {
+        return allPipelines == null ? null : allPipelines.lastUpdatedTimeStamp();
+    }
+
+    public Long getChangedSince() {
+        return changedSince;
     }
 
     public Username getUsername() {
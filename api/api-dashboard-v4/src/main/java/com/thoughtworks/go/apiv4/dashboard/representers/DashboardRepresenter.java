@@ -25,6 +25,8 @@ public class DashboardRepresenter {
                 .addLinks(linksWriter -> linksWriter.addLink("self", Routes.Dashboard.SELF)
                         .addAbsoluteLink("doc", Routes.Dashboard.DOC))
                 .add("_personalization", dashboardFor.getPersonalizationEtag())
+                .addIfNotNull("_version", dashboardFor.getVersion())
+                .addIfNotNull("_since", dashboardFor.getChangedSince())
                 .addChild("_embedded", childWriter -> {
                     childWriter
 
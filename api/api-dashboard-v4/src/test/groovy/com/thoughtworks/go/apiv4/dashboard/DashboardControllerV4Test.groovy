@@ -23,6 +23,8 @@ import com.thoughtworks.go.config.security.Permissions
 import com.thoughtworks.go.config.security.users.Everyone
 import com.thoughtworks.go.server.dashboard.GoDashboardEnvironment
 import com.thoughtworks.go.server.dashboard.GoDashboardPipelineGroup
+import com.thoughtworks.go.server.dashboard.GoDashboardPipelines
+import com.thoughtworks.go.server.dashboard.TimeStampBasedCounter
 import com.thoughtworks.go.server.domain.user.Filters
 import com.thoughtworks.go.server.domain.user.PipelineSelections
 import com.thoughtworks.go.server.service.GoDashboardService
@@ -32,6 +34,7 @@ import com.thoughtworks.go.server.service.support.toggle.Toggles
 import com.thoughtworks.go.spark.ControllerTrait
 import com.thoughtworks.go.spark.NormalUserSecurity
 import com.thoughtworks.go.spark.SecurityServiceTrait
+import com.thoughtworks.go.util.Clock
 import org.apache.commons.codec.digest.DigestUtils
 import org.junit.jupiter.api.AfterEach
 import org.junit.jupiter.api.BeforeEach
@@ -39,6 +42,7 @@ import org.junit.jupiter.api.Nested
 import org.junit.jupiter.api.Test
 import org.mockito.Mock
 
+import static org.assertj.core.api.Assertions.assertThat
 import static org.mockito.ArgumentMatchers.*
 import static org.mockito.Mockito.*
 import static org.mockito.MockitoAnnotations.initMocks
@@ -53,9 +57,15 @@ class DashboardControllerV4Test implements SecurityServiceTrait, ControllerTrait
   @Mock
   private PipelineSelectionsService pipelineSelectionsService
 
+  private GoDashboardPipelines allPipelines
+
   @BeforeEach
   void setup() {
     initMocks(this)
+    def clock = mock(Clock.class)
+    when(clock.currentTimeMillis()).thenReturn(2000L)
+    allPipelines = new GoDashboardPipelines([:], new TimeStampBasedCounter(clock))
+    when(goDashboardService.currentPipelines()).thenReturn(allPipelines)
     Toggles.initializeWith(featureToggleService);
     when(featureToggleService.isToggleOn(Toggles.ALLOW_EMPTY_PIPELINE_GROUPS_DASHBOARD)).thenReturn(false)
   }
@@ -98,14 +108,14 @@ class DashboardControllerV4Test implements SecurityServiceTrait, ControllerTrait
 
         when(pipelineSelectionsService.load((String) isNull(), any(Long.class))).thenReturn(PipelineSelections.ALL)
         when(goDashboardService.hasEverLoadedCurrentState()).thenReturn(true)
-        when(goDashboardService.allPipelineGroupsForDashboard(eq(Filters.WILDCARD_FILTER), eq(currentUsername()), anyBoolean())).thenReturn([group])
-        when(goDashboardService.allEnvironmentsForDashboard(eq(Filters.WILDCARD_FILTER), eq(currentUsername()))).thenReturn([env])
+        when(goDashboardService.allPipelineGroupsForDashboard(eq(allPipelines), eq(Filters.WILDCARD_FILTER), eq(currentUsername()), anyBoolean())).thenReturn([group])
+        when(goDashboardService.allEnvironmentsForDashboard(eq(allPipelines), eq(Filters.WILDCARD_FILTER), eq(currentUsername()))).thenReturn([env])
 
         getWithApiHeader(controller.controllerPath())
 
         assertThatResponse()
           .isOk()
-          .hasBodyWithJsonObject(new DashboardFor([group], [env], currentUsername(), PipelineSelections.ALL.etag()), DashboardRepresenter)
+          .hasBodyWithJsonObject(new DashboardFor([group], [env], currentUsername(), PipelineSelections.ALL.etag(), allPipelines, null), DashboardRepresenter)
       }
 
       @Test
@@ -117,8 +127,8 @@ class DashboardControllerV4Test implements SecurityServiceTrait, ControllerTrait
 
         when(pipelineSelectionsService.load((String) isNull(), any(Long.class))).thenReturn(PipelineSelections.ALL)
         when(goDashboardService.hasEverLoadedCurrentState()).thenReturn(true)
-        when(goDashboardService.allPipelineGroupsForDashboard(eq(Filters.WILDCARD_FILTER), eq(currentUsername()), anyBoolean())).thenReturn([group])
-        when(goDashboardService.allEnvironmentsForDashboard(eq(Filters.WILDCARD_FILTER), eq(currentUsername()))).thenReturn([env])
+        when(goDashboardService.allPipelineGroupsForDashboard(eq(allPipelines), eq(Filters.WILDCARD_FILTER), eq(currentUsername()), anyBoolean())).thenReturn([group])
+        when(goDashboardService.allEnvironmentsForDashboard(eq(allPipelines), eq(Filters.WILDCARD_FILTER), eq(currentUsername()))).thenReturn([env])
 
         def etag = computeEtag([group], [env])
         getWithApiHeader(controller.controllerBasePath(), ['if-none-match': etag])
@@ -129,12 +139,47 @@ class DashboardControllerV4Test implements SecurityServiceTrait, ControllerTrait
           .hasNoBody()
       }
 
+      @Test
+      void 'should only embed the pipelines that changed since the given version'() {
+        loginAsUser()
+
+        def group = pipelineGroup('group1')
+        def env = environment('env1')
+
+        when(pipelineSelectionsService.load((String) isNull(), any(Long.class))).thenReturn(PipelineSelections.ALL)
+        when(goDashboardService.hasEverLoadedCurrentState()).thenReturn(true)
+        when(goDashboardService.allPipelineGroupsForDashboard(eq(allPipelines), eq(Filters.WILDCARD_FILTER), eq(currentUsername()), anyBoolean())).thenReturn([group])
+        when(goDashboardService.allEnvironmentsForDashboard(eq(allPipelines), eq(Filters.WILDCARD_FILTER), eq(currentUsername()))).thenReturn([env])
+
+        getWithApiHeader(controller.controllerPath([since: allPipelines.lastUpdatedTimeStamp().toString()]))
+
+        def dashboard = new DashboardFor([group], [env], currentUsername(), PipelineSelections.ALL.etag(), allPipelines, allPipelines.lastUpdatedTimeStamp())
+        assertThat(dashboard.getPipelines()).isEmpty()
+        assertThatResponse()
+          .isOk()
+          .hasBodyWithJsonObject(dashboard, DashboardRepresenter)
+      }
+
+      @Test
+      void 'should render 422 when the given version is not a number'() {
+        loginAsUser()
+
+        when(pipelineSelectionsService.load((String) isNull(), any(Long.class))).thenReturn(PipelineSelections.ALL)
+        when(goDashboardService.hasEverLoadedCurrentState()).thenReturn(true)
+
+        getWithApiHeader(controller.controllerPath([since: 'yesterday']))
+
+        assertThatResponse()
+          .isUnprocessableEntity()
+          .hasJsonMessage("The query parameter 'since' must be a number.")
+      }
+
       @Test
       void 'should get empty json when dashboard is empty'() {
         def pipelineSelections = PipelineSelections.ALL
         when(pipelineSelectionsService.load((String) isNull(), any(Long.class))).thenReturn(pipelineSelections)
-        when(goDashboardService.allPipelineGroupsForDashboard(eq(Filters.WILDCARD_FILTER), eq(currentUsername()), anyBoolean())).thenReturn([])
-        when(goDashboardService.allEnvironmentsForDashboard(eq(Filters.WILDCARD_FILTER), eq(currentUsername()))).thenReturn([])
+        when(goDashboardService.allPipelineGroupsForDashboard(eq(allPipelines), eq(Filters.WILDCARD_FILTER), eq(currentUsername()), anyBoolean())).thenReturn([])
+        when(goDashboardService.allEnvironmentsForDashboard(eq(allPipelines), eq(Filters.WILDCARD_FILTER), eq(currentUsername()))).thenReturn([])
         when(goDashboardService.hasEverLoadedCurrentState()).thenReturn(true)
 
         loginAsUser()
@@ -143,7 +188,7 @@ class DashboardControllerV4Test implements SecurityServiceTrait, ControllerTrait
         assertThatResponse()
           .isOk()
           .hasContentType(controller.mimeType)
-          .hasBodyWithJsonObject(new DashboardFor([], [], currentUsername(), pipelineSelections.etag()), DashboardRepresenter)
+          .hasBodyWithJsonObject(new DashboardFor([], [], currentUsername(), pipelineSelections.etag(), allPipelines, null), DashboardRepresenter)
       }
 
       @Test
@@ -176,7 +221,7 @@ class DashboardControllerV4Test implements SecurityServiceTrait, ControllerTrait
         when(pipelineSelectionsService.load((String) isNull(), any(Long.class))).thenReturn(pipelineSelections)
         when(goDashboardService.hasEverLoadedCurrentState()).thenReturn(true)
         def pipelineGroups = [pipelineGroup]
-        when(goDashboardService.allPipelineGroupsForDashboard(eq(Filters.WILDCARD_FILTER), eq(currentUsername()), anyBoolean())).thenReturn(pipelineGroups)
+        when(goDashboardService.allPipelineGroupsForDashboard(eq(allPipelines), eq(Filters.WILDCARD_FILTER), eq(currentUsername()), anyBoolean())).thenReturn(pipelineGroups)
 
         String etag = computeEtag(pipelineGroups, [])
         getWithApiHeader(controller.controllerBasePath(), ['if-none-match': etag])
@@ -187,7 +232,7 @@ class DashboardControllerV4Test implements SecurityServiceTrait, ControllerTrait
 
         loginAsPipelineViewUser()
 
-        when(goDashboardService.allPipelineGroupsForDashboard(eq(Filters.WILDCARD_FILTER), eq(currentUsername()))).thenReturn(pipelineGroups)
+        when(goDashboardService.allPipelineGroupsForDashboard(eq(allPipelines), eq(Filters.WILDCARD_FILTER), eq(currentUsername()), anyBoolean())).thenReturn(pipelineGroups)
         getWithApiHeader(controller.controllerBasePath(), ['if-none-match': etag])
         assertThatResponse()
           .isOk()
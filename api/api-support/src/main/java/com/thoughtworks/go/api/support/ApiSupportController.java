@@ -18,6 +18,9 @@ package com.thoughtworks.go.api.support;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.thoughtworks.go.api.ControllerMethods;
+import com.thoughtworks.go.api.support.representers.CacheStatisticsRepresenter;
+import com.thoughtworks.go.server.cache.GoCache;
+import com.thoughtworks.go.server.cache.KeyFamilyStatistics;
 import com.thoughtworks.go.server.service.result.HttpLocalizedOperationResult;
 import com.thoughtworks.go.server.service.support.ServerStatusService;
 import com.thoughtworks.go.spark.Routes;
@@ -32,6 +35,7 @@ import spark.Response;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 import static com.thoughtworks.go.api.support.representers.ProcessListRepresenter.toJSON;
@@ -41,12 +45,14 @@ import static spark.Spark.path;
 @Component
 public class ApiSupportController implements SparkController, ControllerMethods, SparkSpringController {
     private ServerStatusService serverStatusService;
+    private GoCache goCache;
 
     private Gson gson = new GsonBuilder().setPrettyPrinting().serializeNulls().create();
 
     @Autowired
-    public ApiSupportController(ServerStatusService serverStatusService) {
+    public ApiSupportController(ServerStatusService serverStatusService, GoCache goCache) {
         this.serverStatusService = serverStatusService;
+        this.goCache = goCache;
     }
 
     @Override
@@ -59,6 +65,7 @@ public class ApiSupportController implements SparkController, ControllerMethods,
         path(controllerBasePath(), () -> {
             get("", this::show);
             get(Routes.Support.PROCESS_LIST, this::processList);
+            get(Routes.Support.CACHE_STATISTICS, this::cacheStatistics);
         });
     }
 
@@ -79,4 +86,10 @@ public class ApiSupportController implements SparkController, ControllerMethods,
         response.type("application/json");
         return writerForTopLevelObject(request, response, outputWriter -> toJSON(outputWriter, processList));
     }
+
+    public String cacheStatistics(Request request, Response response) throws IOException {
+        List<KeyFamilyStatistics.Family> families = goCache.keyFamilyStatistics();
+        response.type("application/json");
+        return writerForTopLevelObject(request, response, outputWriter -> CacheStatisticsRepresenter.toJSON(outputWriter, families));
+    }
 }
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2020 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.api.support.representers;
+
+import com.thoughtworks.go.api.base.OutputWriter;
+import com.thoughtworks.go.server.cache.KeyFamilyStatistics;
+
+import java.util.Collection;
+
+public class CacheStatisticsRepresenter {
+    public static void toJSON(OutputWriter writer, Collection<KeyFamilyStatistics.Family> families) {
+        writer.addChildList("key_families", listWriter -> {
+            families.forEach(family -> listWriter.addChild(childWriter -> childWriter
+                    .add("name", family.getName())
+                    .add("entries", family.getEntries())
+                    .add("approximate_size_in_bytes", family.getApproximateSizeInBytes())
+                    .add("hits", family.getHits())
+                    .add("misses", family.getMisses())
+                    .add("hit_ratio", family.getHitRatio())
+                    .add("puts", family.getPuts())
+                    .add("removals", family.getRemovals())
+                    .add("evictions", family.getEvictions())
+                    .add("eviction_rate", family.getEvictionRate())));
+        });
+    }
+}
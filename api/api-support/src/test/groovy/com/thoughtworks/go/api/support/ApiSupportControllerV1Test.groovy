@@ -16,6 +16,8 @@
 package com.thoughtworks.go.api.support
 
 
+import com.thoughtworks.go.server.cache.GoCache
+import com.thoughtworks.go.server.cache.KeyFamilyStatistics
 import com.thoughtworks.go.server.domain.Username
 import com.thoughtworks.go.server.service.result.HttpLocalizedOperationResult
 import com.thoughtworks.go.server.service.support.ServerStatusService
@@ -31,12 +33,15 @@ import org.mockito.invocation.InvocationOnMock
 import static org.mockito.ArgumentMatchers.any
 import static org.mockito.ArgumentMatchers.eq
 import static org.mockito.Mockito.doAnswer
+import static org.mockito.Mockito.mock
 import static org.mockito.Mockito.when
 import static org.mockito.MockitoAnnotations.initMocks
 
 class ApiSupportControllerV1Test implements SecurityServiceTrait, ControllerTrait<ApiSupportController> {
   @Mock
   private ServerStatusService serverStatusService
+  @Mock
+  private GoCache goCache
 
   @BeforeEach
   void setUp() {
@@ -45,7 +50,7 @@ class ApiSupportControllerV1Test implements SecurityServiceTrait, ControllerTrai
 
   @Override
   ApiSupportController createControllerInstance() {
-    new ApiSupportController(serverStatusService)
+    new ApiSupportController(serverStatusService, goCache)
   }
 
   @Nested
@@ -94,4 +99,41 @@ class ApiSupportControllerV1Test implements SecurityServiceTrait, ControllerTrai
         .hasContentType("application/json")
     }
   }
+
+  @Nested
+  class CacheStatistics {
+    @Test
+    void 'should return statistics of each cache key family'() {
+      def family = mock(KeyFamilyStatistics.Family.class)
+      when(family.getName()).thenReturn("StageSqlMapDao.\$stageHistory")
+      when(family.getEntries()).thenReturn(10L)
+      when(family.getApproximateSizeInBytes()).thenReturn(2048L)
+      when(family.getHits()).thenReturn(3L)
+      when(family.getMisses()).thenReturn(1L)
+      when(family.getHitRatio()).thenReturn(0.75d)
+      when(family.getPuts()).thenReturn(12L)
+      when(family.getRemovals()).thenReturn(1L)
+      when(family.getEvictions()).thenReturn(1L)
+      when(family.getEvictionRate()).thenReturn(0.25d)
+      when(goCache.keyFamilyStatistics()).thenReturn([family])
+
+      get(controller.controllerPath(Routes.Support.CACHE_STATISTICS))
+
+      assertThatResponse()
+        .isOk()
+        .hasContentType("application/json")
+        .hasJsonBody([key_families: [[
+          name                     : "StageSqlMapDao.\$stageHistory",
+          entries                  : 10,
+          approximate_size_in_bytes: 2048,
+          hits                     : 3,
+          misses                   : 1,
+          hit_ratio                : 0.75,
+          puts                     : 12,
+          removals                 : 1,
+          evictions                : 1,
+          eviction_rate            : 0.25
+        ]]])
+    }
+  }
 }
@@ -49,9 +49,6 @@ public class SystemEnvironment implements Serializable, ConfigDirProvider {
     private static final String CONFIG_REPO_DEFAULT_PATH = DB_BASE_DIR + "config.git";
     public static final String CRUISE_DB_CACHE_SIZE = "cruise.db.cache.size";
     public static final String CRUISE_DB_CACHE_SIZE_DEFAULT = String.valueOf(128 * 1024); // 128MB Cache Size by default
-    public static final String ACTIVEMQ_USE_JMX = "activemq.use.jmx";
-    public static final String ACTIVEMQ_QUEUE_PREFETCH = "activemq.queue.prefetch";
-    private static final String ACTIVEMQ_CONNECTOR_PORT = "activemq.conn.port";
 
     public static final String PARENT_LOADER_PRIORITY = "parent.loader.priority";
     public static final String AGENT_CONTENT_MD5_HEADER = "Agent-Content-MD5";
@@ -107,6 +104,7 @@ public class SystemEnvironment implements Serializable, ConfigDirProvider {
 
     public static GoSystemProperty<Integer> RESOLVE_FANIN_MAX_BACK_TRACK_LIMIT = new CachedProperty<>(new GoIntSystemProperty("resolve.fanin.max.backtrack.limit", 100));
     public static GoSystemProperty<Integer> MATERIAL_UPDATE_INACTIVE_TIMEOUT = new CachedProperty<>(new GoIntSystemProperty("material.update.inactive.timeout", 15));
+    public static GoSystemProperty<Integer> MATERIAL_UPDATE_MAX_PER_HOST = new GoIntSystemProperty("material.update.max.per.host", 0);
 
     public static GoSystemProperty<Integer> H2_DB_TRACE_LEVEL = new GoIntSystemProperty("h2.trace.level", 1);
     public static GoSystemProperty<Integer> H2_DB_TRACE_FILE_SIZE_MB = new GoIntSystemProperty("h2.trace.file.size.mb", 16);
@@ -143,6 +141,7 @@ public class SystemEnvironment implements Serializable, ConfigDirProvider {
     public static final GoSystemProperty<Boolean> GO_SERVER_SESSION_COOKIE_SECURE = new GoBooleanSystemProperty("go.sessioncookie.secure", false);
     public static final GoSystemProperty<String> AGENT_EXTRA_PROPERTIES = new GoStringSystemProperty("gocd.agent.extra.properties", "");
     public static final GoSystemProperty<Integer> JMS_LISTENER_BACKOFF_TIME = new GoIntSystemProperty("go.jms.listener.backoff.time.in.milliseconds", 5000);
+    public static final GoSystemProperty<Integer> MESSAGING_QUEUE_CAPACITY = new GoIntSystemProperty("go.messaging.queue.capacity", 10000);
 
     public static final GoSystemProperty<Integer> GO_SERVER_AUTHORIZATION_EXTENSION_CALLS_CACHE_TIMEOUT_IN_SECONDS = new GoIntSystemProperty("go.server.authorization.extension.calls.cache.timeout.in.secs", 60 * 30);
 
@@ -164,6 +163,11 @@ public class SystemEnvironment implements Serializable, ConfigDirProvider {
     public static GoSystemProperty<String> GO_LANDING_PAGE = new GoStringSystemProperty("go.landing.page", "/pipelines");
 
     public static GoSystemProperty<Boolean> FETCH_ARTIFACT_AUTO_SUGGEST = new GoBooleanSystemProperty("go.fetch-artifact.auto-suggest", true);
+    public static GoSystemProperty<Boolean> ARTIFACTS_DEDUPLICATION = new GoBooleanSystemProperty("go.artifacts.deduplicate", false);
+    public static GoSystemProperty<Boolean> FETCH_ARTIFACT_DELTA = new GoBooleanSystemProperty("go.fetch-artifact.delta", true);
+    public static GoSystemProperty<Boolean> FETCH_ARTIFACT_IN_RANGES = new GoBooleanSystemProperty("go.fetch-artifact.ranges", true);
+    public static GoSystemProperty<Integer> FETCH_ARTIFACT_RANGE_THREADS = new GoIntSystemProperty("go.fetch-artifact.range.threads", 4);
+    public static GoSystemProperty<Integer> ARTIFACT_UPLOAD_THREADS = new GoIntSystemProperty("go.artifact.upload.threads", 4);
     public static GoSystemProperty<Boolean> GO_FETCH_ARTIFACT_TEMPLATE_AUTO_SUGGEST = new GoBooleanSystemProperty("go.fetch-artifact.template.auto-suggest", true);
     public static GoSystemProperty<String> GO_SSL_TRANSPORT_PROTOCOL_TO_BE_USED_BY_AGENT = new GoStringSystemProperty("go.ssl.agent.protocol", "TLSv1.2");
     public static GoSystemProperty<String> GO_SSL_CERTS_ALGORITHM = new GoStringSystemProperty("go.ssl.cert.algorithm", "SHA512WITHRSA");
@@ -199,6 +203,8 @@ public class SystemEnvironment implements Serializable, ConfigDirProvider {
     public static GoSystemProperty<Boolean> GO_API_WITH_SAFE_MODE = new GoBooleanSystemProperty("go.api.with.safe.mode", true);
     public static GoSystemProperty<Integer> MAX_PENDING_AGENTS_ALLOWED = new GoIntSystemProperty("max.pending.agents.allowed", 100);
     public static GoSystemProperty<Boolean> CHECK_AND_REMOVE_DUPLICATE_MODIFICATIONS = new GoBooleanSystemProperty("go.modifications.removeDuplicates", true);
+    public static GoSystemProperty<Integer> MODIFICATIONS_INSERT_BATCH_SIZE = new GoIntSystemProperty("go.modifications.insert.batch.size", 500);
+    public static GoSystemProperty<Integer> PIPELINE_SEARCH_INDEX_MAX_PIPELINES = new GoIntSystemProperty("go.pipeline.search.index.max.pipelines", 100);
     public static GoSystemProperty<String> GO_AGENT_KEYSTORE_PASSWORD = new GoStringSystemProperty("go.agent.keystore.password", "agent5s0repa55w0rd");
     public static GoSystemProperty<String> GO_SERVER_KEYSTORE_PASSWORD = new GoStringSystemProperty("go.server.keystore.password", "serverKeystorepa55w0rd");
     private static final GoSystemProperty<Boolean> GO_AGENT_USE_SSL_CONTEXT = new GoBooleanSystemProperty("go.agent.reuse.ssl.context", true);
@@ -227,6 +233,7 @@ public class SystemEnvironment implements Serializable, ConfigDirProvider {
     private static GoSystemProperty<Boolean> GO_PLUGIN_CLASSLOADER_OLD = new GoBooleanSystemProperty("gocd.plugins.classloader.old", false);
     public static final GoSystemProperty<String> LOADING_PAGE = new GoStringSystemProperty("loading.page.resource.path", "/loading_pages/new.loading.page.html");
     public static GoSystemProperty<Long> NOTIFICATION_PLUGIN_MESSAGES_TTL = new GoLongSystemProperty("plugins.notification.message.ttl.millis", 2 * 60 * 1000L);
+    public static GoSystemProperty<Integer> PLUGIN_MAX_CONCURRENT_REQUESTS = new GoIntSystemProperty("plugins.max.concurrent.requests", 10);
 
     public static GoSystemProperty<Boolean> ENABLE_HSTS_HEADER = new GoBooleanSystemProperty("gocd.enable.hsts.header", false);
     public static GoSystemProperty<Long> HSTS_HEADER_MAX_AGE = new GoLongSystemProperty("gocd.hsts.header.max.age", ONE_YEAR);
@@ -440,22 +447,10 @@ public class SystemEnvironment implements Serializable, ConfigDirProvider {
         return Boolean.parseBoolean(getPropertyImpl("cruise.request.time.logging", "false"));
     }
 
-    public int getActivemqQueuePrefetch() {
-        return Integer.parseInt(getPropertyImpl(ACTIVEMQ_QUEUE_PREFETCH, "0"));
-    }
-
     public long getCommandRepoWarningTimeout() {
         return Long.parseLong(getPropertyImpl(COMMAND_REPOSITORY_WARNING_TIMEOUT, String.valueOf(Timeout.ONE_HOUR.inMillis())));
     }
 
-    public boolean getActivemqUseJmx() {
-        return Boolean.parseBoolean(getPropertyImpl(ACTIVEMQ_USE_JMX, "false"));
-    }
-
-    public int getActivemqConnectorPort() {
-        return Integer.parseInt(getPropertyImpl(ACTIVEMQ_CONNECTOR_PORT, "1099"));
-    }
-
     public String getScriptPath() {
         return new File(getDbPath(), "cruise").getAbsolutePath();
     }
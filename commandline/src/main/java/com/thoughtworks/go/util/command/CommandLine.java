@@ -418,6 +418,24 @@ public class CommandLine {
         return result;
     }
 
+    /**
+     * Like {@link #runOrBomb(ProcessTag, String...)}, but hands every line of standard output to the given consumer as
+     * it is read, instead of holding all of it in memory. Only standard error ends up in the exception on failure.
+     */
+    public void runOrBomb(StreamConsumer stdOutConsumer, ProcessTag processTag, String... input) {
+        LOG.debug("Running {}", this);
+        addInput(input);
+        InMemoryConsumer errors = new InMemoryConsumer();
+        ProcessWrapper process = execute(new ProcessOutputStreamConsumer<>(stdOutConsumer, errors), new EnvironmentVariableContext(), processTag);
+        int returnValue = process.waitForExit();
+
+        ConsoleResult result = new ConsoleResult(returnValue, Collections.emptyList(), errors.asList(), arguments, secrets);
+
+        if (result.failed()) {
+            throw new CommandLineException(this, result);
+        }
+    }
+
     private ProcessWrapper startProcess(EnvironmentVariableContext environmentVariableContext, ConsoleOutputStreamConsumer consumer, ProcessTag processTag) throws IOException {
         ProcessWrapper process = createProcess(environmentVariableContext, consumer, processTag, ERROR_STREAM_PREFIX_FOR_SCRIPTS);
         process.closeOutputStream();
@@ -0,0 +1,272 @@
+/*
+ * Copyright 2020 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.domain;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A sparse line-offset index kept alongside a console log while it is being appended to. The byte offset at which
+ * every {@link #STRIDE}th line starts is recorded as a long, so that a reader can seek close to any line without
+ * decoding the log from the beginning.
+ * <p>
+ * Line boundaries are counted the same way as {@link BufferedReader#readLine()}: {@code \n}, {@code \r} or
+ * {@code \r\n}. The index is only usable for charsets that encode these as single bytes, see {@link #supports(Charset)}.
+ */
+public class ConsoleLogIndex {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConsoleLogIndex.class);
+
+    static final int STRIDE = 1024;
+    private static final String EXTENSION = ".idx";
+    private static final int ENTRY_SIZE = Long.BYTES;
+
+    private ConsoleLogIndex() {
+    }
+
+    public static Path indexFor(Path log) {
+        return log.resolveSibling(log.getFileName() + EXTENSION);
+    }
+
+    public static boolean supports(Charset charset) {
+        return StandardCharsets.UTF_8.equals(charset) || charset.newEncoder().maxBytesPerChar() == 1.0f;
+    }
+
+    /**
+     * Finds the closest indexed line at or before {@code line}.
+     *
+     * @return the checkpoint to start reading from; line 0 at offset 0 if there is no usable index
+     */
+    public static Checkpoint seek(Path log, long line) throws IOException {
+        Path index = indexFor(log);
+        if (line < STRIDE || !Files.exists(index)) {
+            return Checkpoint.START;
+        }
+
+        try (FileChannel indexChannel = FileChannel.open(index, StandardOpenOption.READ);
+             FileChannel logChannel = FileChannel.open(log, StandardOpenOption.READ)) {
+            long logSize = logChannel.size();
+            long entry = Math.min(line / STRIDE, indexChannel.size() / ENTRY_SIZE) - 1;
+
+            ByteBuffer buffer = ByteBuffer.allocate(ENTRY_SIZE);
+            for (; entry >= 0; entry--) {
+                buffer.clear();
+                if (indexChannel.read(buffer, entry * ENTRY_SIZE) != ENTRY_SIZE) {
+                    continue;
+                }
+                long offset = buffer.getLong(0);
+
+                // the index is flushed after the log, but a concurrent reader may still see a checkpoint ahead of the data
+                if (offset <= logSize) {
+                    return new Checkpoint((entry + 1) * STRIDE, skipLineFeedOfCrLf(logChannel, offset, logSize));
+                }
+            }
+        }
+
+        return Checkpoint.START;
+    }
+
+    /**
+     * A checkpoint is recorded right after a {@code \r}; if that turns out to be the first half of a {@code \r\n}, the
+     * line actually starts one byte later.
+     */
+    private static long skipLineFeedOfCrLf(FileChannel logChannel, long offset, long logSize) throws IOException {
+        if (offset == 0 || offset >= logSize) {
+            return offset;
+        }
+
+        ByteBuffer pair = ByteBuffer.allocate(2);
+        logChannel.read(pair, offset - 1);
+        return (pair.get(0) == '\r' && pair.get(1) == '\n') ? offset + 1 : offset;
+    }
+
+    /**
+     * Opens an appender for the index of the given log. A new index is only started along with a new (empty) log;
+     * logs that were written without an index are left unindexed, and readers fall back to a sequential scan.
+     */
+    public static Appender appenderFor(Path log) {
+        Path index = indexFor(log);
+        try {
+            long logSize = Files.exists(log) ? Files.size(log) : 0L;
+
+            if (logSize == 0L) {
+                Files.deleteIfExists(index);
+                return new Appender(index, 0L, 0L, false);
+            }
+
+            if (!Files.exists(index)) {
+                return Appender.NO_OP;
+            }
+
+            return resume(log, index, logSize);
+        } catch (IOException e) {
+            LOGGER.warn("Could not open console log index [{}]; console log will be read without it.", index, e);
+            deleteQuietly(index);
+            return Appender.NO_OP;
+        }
+    }
+
+    private static Appender resume(Path log, Path index, long logSize) throws IOException {
+        long entries = Files.size(index) / ENTRY_SIZE;
+        long checkpoint = 0L;
+
+        if (entries > 0) {
+            try (FileChannel indexChannel = FileChannel.open(index, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.allocate(ENTRY_SIZE);
+                indexChannel.read(buffer, (entries - 1) * ENTRY_SIZE);
+                checkpoint = buffer.getLong(0);
+                // drop any partially written trailing entry
+                indexChannel.truncate(entries * ENTRY_SIZE);
+            }
+        }
+
+        if (checkpoint > logSize) {
+            throw new IOException("Index is ahead of the console log");
+        }
+
+        // recount the lines written since the last checkpoint; at most STRIDE lines need to be scanned
+        long lines = 0L;
+        boolean previousWasCarriageReturn = false;
+        try (FileChannel logChannel = FileChannel.open(log, StandardOpenOption.READ);
+             InputStream in = new BufferedInputStream(Channels.newInputStream(logChannel.position(Math.max(checkpoint - 1, 0L))))) {
+            if (checkpoint > 0) {
+                previousWasCarriageReturn = in.read() == '\r';
+            }
+
+            int b;
+            while ((b = in.read()) != -1) {
+                if (isLineEnd(b, previousWasCarriageReturn)) {
+                    lines++;
+                }
+                previousWasCarriageReturn = b == '\r';
+            }
+        }
+
+        return new Appender(index, logSize, lines, previousWasCarriageReturn);
+    }
+
+    private static boolean isLineEnd(int b, boolean previousWasCarriageReturn) {
+        return b == '\r' || (b == '\n' && !previousWasCarriageReturn);
+    }
+
+    private static void deleteQuietly(Path index) {
+        try {
+            Files.deleteIfExists(index);
+        } catch (IOException ignored) {
+        }
+    }
+
+    public static class Checkpoint {
+        static final Checkpoint START = new Checkpoint(0L, 0L);
+
+        private final long line;
+        private final long offset;
+
+        Checkpoint(long line, long offset) {
+            this.line = line;
+            this.offset = offset;
+        }
+
+        public long line() {
+            return line;
+        }
+
+        public long offset() {
+            return offset;
+        }
+    }
+
+    /**
+     * Tracks line boundaries in bytes as they are appended to the log. Any failure to write the index discards it,
+     * so that a stale index is never used to serve lines.
+     */
+    public static class Appender implements Closeable {
+        static final Appender NO_OP = new Appender();
+
+        private final Path index;
+        private DataOutputStream out;
+        private long position;
+        private long linesSinceCheckpoint;
+        private boolean previousWasCarriageReturn;
+
+        private Appender() {
+            this.index = null;
+        }
+
+        private Appender(Path index, long position, long linesSinceCheckpoint, boolean previousWasCarriageReturn) throws IOException {
+            this.index = index;
+            this.position = position;
+            this.linesSinceCheckpoint = linesSinceCheckpoint;
+            this.previousWasCarriageReturn = previousWasCarriageReturn;
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(index, StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+        }
+
+        public void update(byte[] bytes, int offset, int length) {
+            if (out == null) {
+                return;
+            }
+
+            try {
+                for (int i = offset; i < offset + length; i++) {
+                    byte b = bytes[i];
+                    position++;
+
+                    if (isLineEnd(b, previousWasCarriageReturn) && ++linesSinceCheckpoint == STRIDE) {
+                        out.writeLong(position);
+                        linesSinceCheckpoint = 0L;
+                    }
+                    previousWasCarriageReturn = b == '\r';
+                }
+            } catch (IOException e) {
+                discard(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (out == null) {
+                return;
+            }
+
+            try {
+                out.close();
+            } catch (IOException e) {
+                discard(e);
+            } finally {
+                out = null;
+            }
+        }
+
+        private void discard(IOException e) {
+            LOGGER.warn("Failed to update console log index [{}]; discarding it.", index, e);
+            try {
+                out.close();
+            } catch (IOException ignored) {
+            }
+            out = null;
+            deleteQuietly(index);
+        }
+    }
+}
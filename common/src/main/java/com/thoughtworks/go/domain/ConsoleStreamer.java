@@ -16,13 +16,16 @@
 package com.thoughtworks.go.domain;
 
 import com.thoughtworks.go.util.SystemEnvironment;
+import org.apache.commons.io.IOUtils;
 
+import java.io.BufferedReader;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.nio.file.Path;
-import java.util.Iterator;
+import java.nio.file.StandardOpenOption;
 import java.util.function.Consumer;
-import java.util.stream.Stream;
 
 /**
  * Encapsulates a stream of lines from a console log file while keeping track of the number of lines processed
@@ -30,8 +33,7 @@ import java.util.stream.Stream;
  */
 public class ConsoleStreamer implements ConsoleConsumer {
     private Path path;
-    private Stream stream;
-    private Iterator iterator;
+    private BufferedReader reader;
 
     private long start;
     private long count = 0L;
@@ -54,11 +56,11 @@ public class ConsoleStreamer implements ConsoleConsumer {
     public long stream(Consumer<String> action) throws IOException {
         long linesStreamed = 0L;
 
-        if (null == stream) stream = Files.lines(path, new SystemEnvironment().consoleLogCharsetAsCharset()).skip(start);
-        if (null == iterator) iterator = stream.iterator();
+        if (null == reader) reader = open();
 
-        while (iterator.hasNext()) {
-            action.accept((String) iterator.next());
+        String line;
+        while ((line = reader.readLine()) != null) {
+            action.accept(line);
             ++linesStreamed;
             ++count;
         }
@@ -66,14 +68,34 @@ public class ConsoleStreamer implements ConsoleConsumer {
         return linesStreamed;
     }
 
+    /**
+     * Seeks as close to the starting line as the {@link ConsoleLogIndex} allows (if there is one), and skips the
+     * remaining lines from there.
+     */
+    private BufferedReader open() throws IOException {
+        Charset charset = new SystemEnvironment().consoleLogCharsetAsCharset();
+        ConsoleLogIndex.Checkpoint checkpoint = ConsoleLogIndex.supports(charset) ? ConsoleLogIndex.seek(path, start) : ConsoleLogIndex.Checkpoint.START;
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ).position(checkpoint.offset());
+        BufferedReader reader = new BufferedReader(Channels.newReader(channel, charset.newDecoder(), -1));
+
+        try {
+            for (long line = checkpoint.line(); line < start; line++) {
+                if (null == reader.readLine()) break;
+            }
+        } catch (IOException e) {
+            IOUtils.closeQuietly(reader);
+            throw e;
+        }
+
+        return reader;
+    }
+
     @Override
     public void close() {
-        if (null != stream) {
-            stream.close();
-        }
+        IOUtils.closeQuietly(reader);
 
-        stream = null;
-        iterator = null;
+        reader = null;
     }
 
     @Override
@@ -15,6 +15,7 @@
  */
 package com.thoughtworks.go.domain;
 
+import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.ZipUtil;
 import com.thoughtworks.go.validation.ChecksumValidator;
 import com.thoughtworks.go.work.GoPublisher;
@@ -26,7 +27,11 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.zip.ZipEntry;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.stream.Stream;
 import java.util.zip.ZipInputStream;
 
 import static com.thoughtworks.go.util.CachedDigestUtils.md5Hex;
@@ -58,15 +63,39 @@ public class DirHandler implements FetchHandler {
             long before = System.currentTimeMillis();
             new ZipUtil((entry, stream1) -> {
                 LOG.info("[Agent Fetch Artifact] Downloading a directory from '{}' to '{}'. Handling the entry: '{}'", srcFile, destOnAgent.getAbsolutePath(), entry.getName());
-                new ChecksumValidator(artifactMd5Checksums).validate(getSrcFilePath(entry), md5Hex(stream1), checksumValidationPublisher);
+                new ChecksumValidator(artifactMd5Checksums).validate(getSrcFilePath(entry.getName()), md5Hex(stream1), checksumValidationPublisher);
             }).unzip(zipInputStream, destOnAgent);
             LOG.info("[Agent Fetch Artifact] Downloading a directory from '{}' to '{}'. Took: {}ms", srcFile, destOnAgent.getAbsolutePath(), System.currentTimeMillis() - before);
         }
     }
 
-    private String getSrcFilePath(ZipEntry entry) {
+    private String getSrcFilePath(String entryName) {
         String parent = new File(srcFile).getParent();
-        return FilenameUtils.separatorsToUnix(new File(parent, entry.getName()).getPath());
+        return FilenameUtils.separatorsToUnix(new File(parent, entryName).getPath());
+    }
+
+    @Override
+    public Properties checksumsOnAgent() throws IOException {
+        String folderName = new File(srcFile).getName();
+        File folderOnAgent = new File(destOnAgent, folderName);
+        if (!new SystemEnvironment().get(SystemEnvironment.FETCH_ARTIFACT_DELTA) || folderName.isEmpty() || ".".equals(folderName) || !folderOnAgent.isDirectory()) {
+            return null;
+        }
+
+        long before = System.currentTimeMillis();
+        Properties checksums = new Properties();
+        Path destination = destOnAgent.toPath();
+        try (Stream<Path> files = Files.walk(folderOnAgent.toPath())) {
+            Iterator<Path> iterator = files.filter(Files::isRegularFile).iterator();
+            while (iterator.hasNext()) {
+                Path file = iterator.next();
+                try (InputStream stream = Files.newInputStream(file)) {
+                    checksums.setProperty(getSrcFilePath(FilenameUtils.separatorsToUnix(destination.relativize(file).toString())), md5Hex(stream));
+                }
+            }
+        }
+        LOG.info("[Agent Fetch Artifact] Found {} files of '{}' already in '{}'. Took: {}ms", checksums.size(), srcFile, destOnAgent.getAbsolutePath(), System.currentTimeMillis() - before);
+        return checksums;
     }
 
     @Override
@@ -53,6 +53,7 @@ public class DownloadAction {
                 message = String.format("Caught an exception '%s'", e.getMessage());
             }
             if (retryCount > 3) {
+                discardPartialDownload(handler);
                 message = String.format("Giving up fetching resource '%s'. Tried 4 times and failed.", url);
                 LOG.error(message);
                 throw new RuntimeException(message);
@@ -63,6 +64,13 @@ public class DownloadAction {
         }
     }
 
+    private void discardPartialDownload(FetchHandler handler) {
+        PartialDownload partialDownload = handler.partialDownload();
+        if (partialDownload != null) {
+            partialDownload.discard();
+        }
+    }
+
     private void publishDownloadError(String url, String cause, long backout) {
         String message = String.format("Could not fetch artifact %s. Pausing %s seconds to retry. Error was : %s", url, backout, cause);
         goPublisher.taggedConsumeLineWithPrefix(GoPublisher.ERR, message);
@@ -17,9 +17,11 @@ package com.thoughtworks.go.domain;
 
 import com.thoughtworks.go.work.GoPublisher;
 
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
+import java.util.Properties;
 
 public interface FetchHandler extends Serializable {
     String url(String remoteHost, String workingUrl) throws IOException;
@@ -30,4 +32,31 @@ public interface FetchHandler extends Serializable {
 
     void useArtifactMd5Checksums(ArtifactMd5Checksums artifactMd5Checksums);
 
+    /**
+     * @return the md5 of every file of the artifact that is already on the agent, keyed by its path on the server, so
+     * that the server can leave those out; null to fetch all of it
+     */
+    default Properties checksumsOnAgent() throws IOException {
+        return null;
+    }
+
+    /**
+     * @return where to put the artifact when it can be fetched in byte ranges, which can then be fetched side by side
+     * and resumed after a failure; null to always fetch it in one go
+     */
+    default PartialDownload partialDownload() {
+        return null;
+    }
+
+    /**
+     * Called instead of {@link #handle(InputStream)} once all of the {@link #partialDownload()} has been fetched. By
+     * default the fetched bytes are handed to {@link #handle(InputStream)}, after which they are thrown away.
+     */
+    default void handle(PartialDownload download) throws IOException {
+        try (InputStream stream = new FileInputStream(download.file())) {
+            handle(stream);
+        }
+        // a retry, say after a checksum mismatch, has to fetch it all over again
+        download.discard();
+    }
 }
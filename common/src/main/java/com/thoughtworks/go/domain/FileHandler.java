@@ -16,18 +16,23 @@
 package com.thoughtworks.go.domain;
 
 import com.thoughtworks.go.util.FileUtil;
+import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.validation.ChecksumValidator;
 import com.thoughtworks.go.work.GoPublisher;
 import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.servlet.http.HttpServletResponse;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URLEncoder;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -42,6 +47,7 @@ public class FileHandler implements FetchHandler {
     private static final Logger LOG = LoggerFactory.getLogger(FileHandler.class);
     private ArtifactMd5Checksums artifactMd5Checksums;
     private ChecksumValidationPublisher checksumValidationPublisher;
+    private transient PartialDownload partialDownload;
 
     public FileHandler(File artifact, String srcFile) {
         this.artifact = artifact;
@@ -75,6 +81,32 @@ public class FileHandler implements FetchHandler {
         new ChecksumValidator(artifactMd5Checksums).validate(srcFile, artifactMD5, checksumValidationPublisher);
     }
 
+    @Override
+    public PartialDownload partialDownload() {
+        if (!new SystemEnvironment().get(SystemEnvironment.FETCH_ARTIFACT_IN_RANGES)) {
+            return null;
+        }
+        // kept across retries, so that they pick up where the previous attempt left off
+        if (partialDownload == null) {
+            partialDownload = new PartialDownload(artifact);
+        }
+        return partialDownload;
+    }
+
+    @Override
+    public void handle(PartialDownload download) throws IOException {
+        String artifactMD5;
+        try (InputStream stream = new FileInputStream(download.file())) {
+            artifactMD5 = DigestUtils.md5Hex(stream);
+        }
+        Files.move(download.file().toPath(), artifact.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        // a retry, say after a checksum mismatch, has to fetch it all over again
+        download.discard();
+        LOG.info("[Artifact File Download] [{}] Download of artifact {} ended", new Date(), artifact.getName());
+
+        new ChecksumValidator(artifactMd5Checksums).validate(srcFile, artifactMD5, checksumValidationPublisher);
+    }
+
     private MessageDigest getMd5() {
         try {
             return MessageDigest.getInstance("MD5");
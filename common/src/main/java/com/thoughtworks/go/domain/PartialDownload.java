@@ -0,0 +1,195 @@
+/*
+ * Copyright 2020 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.domain;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.lang.String.format;
+
+/**
+ * A file artifact that is being downloaded in byte ranges. The ranges that have already been fetched are remembered,
+ * so that a retry only asks for the ones that are still missing, and the missing ones can be fetched side by side.
+ * <p>
+ * The bytes are written into a hidden file next to the artifact, which is only put in place once all of it has been
+ * fetched and its md5 checked.
+ */
+public class PartialDownload {
+    static final long RANGE_SIZE = 8 * 1024 * 1024;
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+)");
+
+    private final String artifactName;
+    private final File file;
+    private final BitSet fetched = new BitSet();
+    private long length = -1;
+
+    public PartialDownload(File artifact) {
+        this.artifactName = artifact.getName();
+        this.file = new File(artifact.getParentFile(), "." + artifact.getName() + ".part");
+    }
+
+    public File file() {
+        return file;
+    }
+
+    public synchronized boolean knowsLength() {
+        return length >= 0;
+    }
+
+    /**
+     * @return the range to ask for when the length of the artifact is not known yet
+     */
+    public Range firstRange() {
+        return new Range(0, RANGE_SIZE - 1);
+    }
+
+    /**
+     * Prepares to receive an artifact of the given length. Whatever was fetched before is thrown away if the artifact
+     * turns out to have a different length this time.
+     */
+    private void start(long length) throws IOException {
+        fetched.clear();
+        File parent = file.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException(format("Failed to create folder %s", parent.getAbsolutePath()));
+        }
+        try (RandomAccessFile part = new RandomAccessFile(file, "rw")) {
+            part.setLength(length);
+        }
+        this.length = length;
+    }
+
+    public synchronized List<Range> missingRanges() {
+        List<Range> missing = new ArrayList<>();
+        for (int index = fetched.nextClearBit(0); index < rangeCount(); index = fetched.nextClearBit(index + 1)) {
+            missing.add(range(index));
+        }
+        return missing;
+    }
+
+    public synchronized boolean isComplete() {
+        return knowsLength() && fetched.nextClearBit(0) >= rangeCount();
+    }
+
+    private int rangeCount() {
+        return (int) ((length + RANGE_SIZE - 1) / RANGE_SIZE);
+    }
+
+    private Range range(int index) {
+        long first = index * RANGE_SIZE;
+        return new Range(first, Math.min(first + RANGE_SIZE, length) - 1);
+    }
+
+    /**
+     * Writes the bytes of one range. Ranges may be written concurrently, each through its own channel.
+     *
+     * @param contentRange the Content-Range header sent along with the bytes, such as {@code bytes 0-99/1000}
+     */
+    public void write(String contentRange, InputStream stream) throws IOException {
+        Matcher matcher = CONTENT_RANGE.matcher(contentRange == null ? "" : contentRange.trim());
+        if (!matcher.matches()) {
+            throw new IOException(format("Unexpected Content-Range [%s] for artifact %s", contentRange, artifactName));
+        }
+        long first = Long.parseLong(matcher.group(1));
+        long totalLength = Long.parseLong(matcher.group(3));
+
+        int index = (int) (first / RANGE_SIZE);
+        Range range;
+        synchronized (this) {
+            if (!knowsLength()) {
+                start(totalLength);
+            } else if (totalLength != length) {
+                discard();
+                throw new IOException(format("Artifact %s changed on the server while it was being downloaded", artifactName));
+            }
+            range = range(index);
+        }
+        if (first != range.first() || Long.parseLong(matcher.group(2)) != range.last()) {
+            throw new IOException(format("Expected range %s but got [%s] for artifact %s", range, contentRange, artifactName));
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            byte[] buffer = new byte[64 * 1024];
+            long position = range.first();
+            long remaining = range.length();
+            while (remaining > 0) {
+                int read = stream.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read == -1) {
+                    throw new IOException(format("Connection closed %d bytes short of the end of range %s", remaining, range));
+                }
+                ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, read);
+                while (bytes.hasRemaining()) {
+                    position += channel.write(bytes, position);
+                }
+                remaining -= read;
+            }
+        }
+
+        synchronized (this) {
+            fetched.set(index);
+        }
+    }
+
+    /**
+     * Forgets everything fetched so far, for when the artifact has been downloaded in one go instead.
+     */
+    public synchronized void discard() {
+        fetched.clear();
+        length = -1;
+        file.delete();
+    }
+
+    public static class Range {
+        private final long first;
+        private final long last;
+
+        Range(long first, long last) {
+            this.first = first;
+            this.last = last;
+        }
+
+        public long first() {
+            return first;
+        }
+
+        public long last() {
+            return last;
+        }
+
+        public long length() {
+            return last - first + 1;
+        }
+
+        public String header() {
+            return format("bytes=%d-%d", first, last);
+        }
+
+        @Override
+        public String toString() {
+            return first + "-" + last;
+        }
+    }
+}
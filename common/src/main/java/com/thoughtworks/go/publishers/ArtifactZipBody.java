@@ -0,0 +1,150 @@
+/*
+ * Copyright 2020 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.publishers;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.mime.MIME;
+import org.apache.http.entity.mime.content.AbstractContentBody;
+import org.apache.http.entity.mime.content.ContentBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.Function;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * The zip of an artifact, written straight into the body of the upload request instead of being staged on disk first.
+ * Entries are laid out the same way as {@link com.thoughtworks.go.util.ZipUtil#zip(File, OutputStream, int)}.
+ * <p>
+ * Every file is read once: its md5 is computed while it is deflated, and is then available to
+ * {@link #checksumsBody(Function)}, which has to be written after this body in the same request.
+ */
+class ArtifactZipBody extends AbstractContentBody {
+    private final File source;
+    private final int level;
+    private final Map<String, String> md5ByEntryName = new LinkedHashMap<>();
+
+    ArtifactZipBody(File source, int level) {
+        super(ContentType.DEFAULT_BINARY);
+        this.source = source;
+        this.level = level;
+    }
+
+    @Override
+    public String getFilename() {
+        return source.getName() + ".zip";
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        md5ByEntryName.clear();
+        try (ZipOutputStream zip = new ZipOutputStream(new CloseShieldOutputStream(out))) {
+            zip.setLevel(level);
+            add("", source, zip);
+        }
+    }
+
+    private void add(String parent, File file, ZipOutputStream zip) throws IOException {
+        String name = parent + file.getName();
+        if (file.isDirectory()) {
+            zip.putNextEntry(new ZipEntry(name + "/"));
+            File[] children = file.listFiles();
+            if (children == null) {
+                throw new IOException("Failed to list contents of " + file.getAbsolutePath());
+            }
+            for (File child : children) {
+                add(name + "/", child, zip);
+            }
+            return;
+        }
+
+        ZipEntry entry = new ZipEntry(name);
+        entry.setTime(file.lastModified());
+        zip.putNextEntry(entry);
+
+        MessageDigest md5 = md5();
+        try (InputStream in = new DigestInputStream(new FileInputStream(file), md5)) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                zip.write(buffer, 0, read);
+            }
+        }
+        md5ByEntryName.put(name, Hex.encodeHexString(md5.digest()));
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param keyForEntry turns the name of a zip entry into the path that its md5 is recorded against on the server
+     */
+    ContentBody checksumsBody(Function<String, String> keyForEntry) {
+        return new AbstractContentBody(ContentType.DEFAULT_BINARY) {
+            @Override
+            public String getFilename() {
+                return "checksum_file";
+            }
+
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                Properties checksums = new Properties();
+                md5ByEntryName.forEach((name, md5) -> checksums.setProperty(keyForEntry.apply(name), md5));
+                ByteArrayOutputStream stored = new ByteArrayOutputStream();
+                checksums.store(stored, "");
+                stored.writeTo(out);
+            }
+
+            @Override
+            public String getTransferEncoding() {
+                return MIME.ENC_BINARY;
+            }
+
+            @Override
+            public long getContentLength() {
+                return -1;
+            }
+        };
+    }
+
+    @Override
+    public String getTransferEncoding() {
+        return MIME.ENC_BINARY;
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+}
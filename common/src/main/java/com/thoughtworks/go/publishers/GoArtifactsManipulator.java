@@ -33,14 +33,9 @@ import org.springframework.stereotype.Component;
 
 import javax.servlet.http.HttpServletResponse;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.util.Collection;
-import java.util.Properties;
 import java.util.zip.Deflater;
 
 import static com.thoughtworks.go.util.ArtifactLogUtil.getConsoleOutputFolderAndFileNameUrl;
-import static com.thoughtworks.go.util.CachedDigestUtils.md5Hex;
 import static com.thoughtworks.go.util.ExceptionUtils.bomb;
 import static com.thoughtworks.go.util.GoConstants.PUBLISH_MAX_RETRIES;
 import static com.thoughtworks.go.util.command.TaggedStreamConsumer.PUBLISH;
@@ -51,14 +46,12 @@ import static org.apache.commons.lang3.StringUtils.removeStart;
 public class GoArtifactsManipulator {
     private final HttpService httpService;
     private final URLService urlService;
-    private final ZipUtil zipUtil;
     private static final Logger LOGGER = LoggerFactory.getLogger(GoArtifactsManipulator.class);
 
     @Autowired
-    public GoArtifactsManipulator(HttpService httpService, URLService urlService, ZipUtil zipUtil) {
+    public GoArtifactsManipulator(HttpService httpService, URLService urlService) {
         this.httpService = httpService;
         this.urlService = urlService;
-        this.zipUtil = zipUtil;
     }
 
     public void publish(DefaultGoPublisher goPublisher, String destPath, File source, JobIdentifier jobIdentifier) {
@@ -71,14 +64,9 @@ public class GoArtifactsManipulator {
         int publishingAttempts = 0;
         Throwable lastException = null;
         while (publishingAttempts < PUBLISH_MAX_RETRIES) {
-            File tmpDir = null;
             try {
                 publishingAttempts++;
 
-                tmpDir = FileUtil.createTempFolder();
-                File dataToUpload = new File(tmpDir, source.getName() + ".zip");
-                zipUtil.zip(source, dataToUpload, Deflater.BEST_SPEED);
-
                 long size = 0;
                 if (source.isDirectory()) {
                     size = FileUtils.sizeOfDirectory(source);
@@ -91,7 +79,9 @@ public class GoArtifactsManipulator {
                 String normalizedDestPath = FilenameUtils.separatorsToUnix(destPath);
                 String url = urlService.getUploadUrlOfAgent(jobIdentifier, normalizedDestPath, publishingAttempts);
 
-                int statusCode = httpService.upload(url, size, dataToUpload, artifactChecksums(source, normalizedDestPath));
+                // zipped straight into the request; the checksums are computed on the way and sent after the zip
+                ArtifactZipBody zip = new ArtifactZipBody(source, Deflater.BEST_SPEED);
+                int statusCode = httpService.upload(url, size, zip, zip.checksumsBody(entryName -> getEffectiveFileName(normalizedDestPath, entryName)));
 
                 if (statusCode == HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE) {
                     String message = String.format("Artifact upload for file %s (Size: %s) was denied by the server. This usually happens when server runs out of disk space.",
@@ -110,8 +100,6 @@ public class GoArtifactsManipulator {
                 LOGGER.error(message, e);
                 goPublisher.taggedConsumeLineWithPrefix(PUBLISH_ERR, message);
                 lastException = e;
-            } finally {
-                FileUtils.deleteQuietly(tmpDir);
             }
         }
         if (lastException != null) {
@@ -119,37 +107,6 @@ public class GoArtifactsManipulator {
         }
     }
 
-    private Properties artifactChecksums(File source, String destPath) throws IOException {
-        if (source.isDirectory()) {
-            return computeChecksumForContentsOfDirectory(source, destPath);
-        }
-
-        Properties properties = null;
-        try (FileInputStream inputStream = new FileInputStream(source)) {
-            properties = computeChecksumForFile(source.getName(), md5Hex(inputStream), destPath);
-        }
-        return properties;
-    }
-
-    private Properties computeChecksumForContentsOfDirectory(File directory, String destPath) throws IOException {
-        Collection<File> fileStructure = FileUtils.listFiles(directory, null, true);
-        Properties checksumProperties = new Properties();
-        for (File file : fileStructure) {
-            String filePath = removeStart(file.getAbsolutePath(), directory.getParentFile().getAbsolutePath());
-            try (FileInputStream inputStream = new FileInputStream(file)) {
-                checksumProperties.setProperty(getEffectiveFileName(destPath, FilenameUtils.separatorsToUnix(filePath)), md5Hex(inputStream));
-            }
-        }
-        return checksumProperties;
-    }
-
-    private Properties computeChecksumForFile(String sourceName, String md5, String destPath) {
-        String effectiveFileName = getEffectiveFileName(destPath, sourceName);
-        Properties properties = new Properties();
-        properties.setProperty(effectiveFileName, md5);
-        return properties;
-    }
-
     private String getEffectiveFileName(String computedDestPath, String filePath) {
         File artifactDest = computedDestPath.isEmpty() ? new File(filePath) : new File(computedDestPath, filePath);
         return removeLeadingSlash(artifactDest);
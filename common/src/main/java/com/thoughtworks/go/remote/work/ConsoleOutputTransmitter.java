@@ -17,24 +17,32 @@ package com.thoughtworks.go.remote.work;
 
 import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.command.TaggedStreamConsumer;
-import org.apache.commons.collections4.queue.CircularFifoQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
+import java.util.ArrayDeque;
 import java.util.Date;
-import java.util.List;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static java.lang.String.format;
 
+/**
+ * Buffers console output and sends it to the server in batches, on a timer or as soon as a batch worth of output has
+ * accumulated. The buffer is a ring bounded by size: if the server cannot keep up, the oldest output is dropped.
+ */
 public final class ConsoleOutputTransmitter implements TaggedStreamConsumer, Runnable {
     private static final Logger LOGGER = LoggerFactory.getLogger(ConsoleOutputTransmitter.class);
 
-    private final CircularFifoQueue buffer = new CircularFifoQueue(10 * 1024); // maximum 10k lines
+    static final int BATCH_SIZE = 256 * 1024; // characters
+    static final int MAX_BUFFER_SIZE = 16 * 1024 * 1024; // characters
+
+    private final ArrayDeque<String> buffer = new ArrayDeque<>();
+    private long bufferSize = 0L;
+    private final AtomicBoolean flushRequested = new AtomicBoolean(false);
     private final ConsoleAppender consoleAppender;
     private final SimpleDateFormat dateFormat = new SimpleDateFormat("HH:mm:ss.SSS");
     private final ScheduledThreadPoolExecutor executor;
@@ -63,12 +71,26 @@ public final class ConsoleOutputTransmitter implements TaggedStreamConsumer, Run
             String date = dateFormat.format(new Date());
             String prepend = format("%s|%s", tag, date);
             String multilineJoin = "\n" + prepend + " ";
-            buffer.add(format("%s %s", prepend, line).replaceAll("\n", multilineJoin));
+            add(format("%s %s", prepend, line).replaceAll("\n", multilineJoin));
+
+            if (bufferSize >= BATCH_SIZE && !executor.isShutdown() && flushRequested.compareAndSet(false, true)) {
+                executor.execute(this);
+            }
+        }
+    }
+
+    private void add(String line) {
+        buffer.addLast(line);
+        bufferSize += line.length() + 1;
+
+        while (bufferSize > MAX_BUFFER_SIZE && buffer.size() > 1) {
+            bufferSize -= buffer.removeFirst().length() + 1;
         }
     }
 
     @Override
     public void run() {
+        flushRequested.set(false);
         try {
             flushToServer();
         } catch (Throwable e) {
@@ -77,19 +99,20 @@ public final class ConsoleOutputTransmitter implements TaggedStreamConsumer, Run
     }
 
     public void flushToServer() {
-        if (buffer.isEmpty()) {
-            return;
+        ArrayDeque<String> sent;
+        StringBuilder result;
+        synchronized (buffer) {
+            if (buffer.isEmpty()) {
+                return;
+            }
+            sent = new ArrayDeque<>(buffer);
+            result = new StringBuilder((int) bufferSize);
+            buffer.clear();
+            bufferSize = 0L;
         }
 
-        List sent = new ArrayList();
         try {
-            synchronized (buffer) {
-                while (!buffer.isEmpty()) {
-                    sent.add(buffer.remove());
-                }
-            }
-            StringBuilder result = new StringBuilder();
-            for (Object string : sent) {
+            for (String string : sent) {
                 result.append(string);
                 result.append("\n");
             }
@@ -97,9 +120,11 @@ public final class ConsoleOutputTransmitter implements TaggedStreamConsumer, Run
         } catch (IOException e) {
             LOGGER.warn("Could not send console output to server", e);
             synchronized (buffer) {
-                sent.addAll(buffer);
+                ArrayDeque<String> newer = new ArrayDeque<>(buffer);
                 buffer.clear();
-                buffer.addAll(sent);
+                bufferSize = 0L;
+                sent.forEach(this::add);
+                newer.forEach(this::add);
             }
         }
     }
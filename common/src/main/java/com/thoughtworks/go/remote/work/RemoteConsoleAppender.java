@@ -16,17 +16,23 @@
 package com.thoughtworks.go.remote.work;
 
 import com.thoughtworks.go.util.HttpService;
+import org.apache.http.HttpHeaders;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPut;
-import org.apache.http.entity.StringEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.zip.GZIPOutputStream;
 
 public class RemoteConsoleAppender implements ConsoleAppender {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(RemoteConsoleAppender.class);
+    static final int GZIP_THRESHOLD = 1024;
 
     private String consoleUri;
     private HttpService httpService;
@@ -43,9 +49,15 @@ public class RemoteConsoleAppender implements ConsoleAppender {
         HttpPut putMethod = new HttpPut(consoleUri);
         try {
             LOGGER.debug("Appending console to URL -> {}", consoleUri);
-            StringEntity entity = new StringEntity(content, charset);
-            putMethod.setEntity(entity);
-            HttpService.setSizeHeader(putMethod, entity.getContentLength());
+            byte[] bytes = content.getBytes(Charset.forName(charset));
+            ContentType contentType = ContentType.create("text/plain", charset);
+            if (bytes.length >= GZIP_THRESHOLD) {
+                putMethod.setEntity(new ByteArrayEntity(gzip(bytes), contentType));
+                putMethod.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            } else {
+                putMethod.setEntity(new ByteArrayEntity(bytes, contentType));
+            }
+            HttpService.setSizeHeader(putMethod, bytes.length);
             try (CloseableHttpResponse response = httpService.execute(putMethod)) {
                 LOGGER.debug("Got {}", response.getStatusLine().getStatusCode());
             }
@@ -53,4 +65,12 @@ public class RemoteConsoleAppender implements ConsoleAppender {
             putMethod.releaseConnection();
         }
     }
+
+    private byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(bytes);
+        }
+        return compressed.toByteArray();
+    }
 }
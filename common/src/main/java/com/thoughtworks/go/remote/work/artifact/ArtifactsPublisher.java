@@ -22,6 +22,7 @@ import com.thoughtworks.go.domain.ArtifactPlanType;
 import com.thoughtworks.go.plugin.access.artifact.ArtifactExtension;
 import com.thoughtworks.go.plugin.access.artifact.model.PublishArtifactResponse;
 import com.thoughtworks.go.plugin.infra.PluginRequestProcessorRegistry;
+import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.command.EnvironmentVariableContext;
 import com.thoughtworks.go.work.GoPublisher;
 import org.apache.commons.io.FileUtils;
@@ -31,9 +32,14 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static com.thoughtworks.go.remote.work.artifact.ArtifactRequestProcessor.Request.CONSOLE_LOG;
 import static com.thoughtworks.go.util.GoConstants.PRODUCT_NAME;
@@ -67,16 +73,11 @@ public class ArtifactsPublisher implements Serializable {
             if (isMetadataFolderEmpty(pluggableArtifactFolder)) {
                 LOGGER.info("Pluggable metadata folder is empty.");
             } else if (pluggableArtifactFolder != null) {
-                mergedPlans.add(0, new ArtifactPlan(ArtifactPlanType.file, format("%s%s*", pluggableArtifactFolder.getName(), File.separator), PLUGGABLE_ARTIFACT_METADATA_FOLDER));
+                // uploaded on its own, ahead of the other plans
+                publishBuiltInArtifacts(Collections.singletonList(new ArtifactPlan(ArtifactPlanType.file, format("%s%s*", pluggableArtifactFolder.getName(), File.separator), PLUGGABLE_ARTIFACT_METADATA_FOLDER)));
             }
 
-            for (ArtifactPlan artifactPlan : mergedPlans) {
-                try {
-                    artifactPlan.publishBuiltInArtifacts(goPublisher, workingDirectory);
-                } catch (Exception e) {
-                    failedArtifact.add(artifactPlan);
-                }
-            }
+            publishBuiltInArtifacts(mergedPlans);
 
             if (!failedArtifact.isEmpty()) {
                 StringBuilder builder = new StringBuilder();
@@ -90,6 +91,55 @@ public class ArtifactsPublisher implements Serializable {
         }
     }
 
+    /**
+     * Uploads the plans side by side on a few threads, each of which streams its own artifacts to the server. Failures
+     * are still reported in the order of the plans.
+     */
+    private void publishBuiltInArtifacts(List<ArtifactPlan> plans) {
+        int threads = Math.min(plans.size(), new SystemEnvironment().get(SystemEnvironment.ARTIFACT_UPLOAD_THREADS));
+        if (threads <= 1) {
+            for (ArtifactPlan artifactPlan : plans) {
+                if (!publishBuiltInArtifact(artifactPlan)) {
+                    failedArtifact.add(artifactPlan);
+                }
+            }
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "artifact-upload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Boolean>> uploads = new ArrayList<>();
+            for (ArtifactPlan artifactPlan : plans) {
+                uploads.add(executor.submit(() -> publishBuiltInArtifact(artifactPlan)));
+            }
+            for (int i = 0; i < plans.size(); i++) {
+                if (!uploads.get(i).get()) {
+                    failedArtifact.add(plans.get(i));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private boolean publishBuiltInArtifact(ArtifactPlan artifactPlan) {
+        try {
+            artifactPlan.publishBuiltInArtifacts(goPublisher, workingDirectory);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
     private boolean isMetadataFolderEmpty(File pluggableArtifactFolder) {
         return pluggableArtifactFolder != null && pluggableArtifactFolder.list().length == 0;
     }
@@ -19,13 +19,18 @@ import com.thoughtworks.go.agent.common.ssl.GoAgentServerHttpClient;
 import com.thoughtworks.go.agent.common.ssl.GoAgentServerHttpClientBuilder;
 import com.thoughtworks.go.config.AgentRegistry;
 import com.thoughtworks.go.domain.FetchHandler;
+import com.thoughtworks.go.domain.PartialDownload;
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
 import org.apache.http.entity.mime.content.ByteArrayBody;
+import org.apache.http.entity.mime.content.ContentBody;
 import org.apache.http.entity.mime.content.FileBody;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,7 +39,13 @@ import org.springframework.stereotype.Component;
 
 import javax.servlet.http.HttpServletResponse;
 import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @Component
 public class HttpService {
@@ -70,29 +81,48 @@ public class HttpService {
         }
         LOGGER.info("Uploading file [{}] to url [{}]", absolutePath, url);
 
-        HttpPost filePost = createHttpPostForUpload(url, size, artifactFile, artifactChecksums);
+        return upload(createHttpPostForUpload(url, size, httpClientFactory.createMultipartRequestEntity(artifactFile, artifactChecksums)), absolutePath);
+    }
+
+    /**
+     * Uploads an artifact that is produced while it is being sent, such as a zip written straight into the request.
+     * The checksums are sent after the artifact, so they can be worked out while it is being written.
+     */
+    public int upload(String url, long size, ContentBody artifact, ContentBody artifactChecksums) throws IOException {
+        LOGGER.info("Uploading [{}] to url [{}]", artifact.getFilename(), url);
+
+        return upload(createHttpPostForUpload(url, size, httpClientFactory.createMultipartRequestEntity(artifact, artifactChecksums)), artifact.getFilename());
+    }
+
+    private int upload(HttpPost filePost, String artifact) throws IOException {
         try (CloseableHttpResponse response = execute(filePost)) {
             return response.getStatusLine().getStatusCode();
         } catch (IOException e) {
-            LOGGER.error("Error while uploading file [{}]", artifactFile.getAbsolutePath(), e);
+            LOGGER.error("Error while uploading file [{}]", artifact, e);
             throw e;
         } finally {
             filePost.releaseConnection();
         }
     }
 
-    private HttpPost createHttpPostForUpload(String url, long size, File artifactFile, Properties artifactChecksums) throws IOException {
+    private HttpPost createHttpPostForUpload(String url, long size, HttpEntity entity) {
         HttpPost filePost = httpClientFactory.createPost(url);
         setSizeHeader(filePost, size);
         filePost.setHeader("Confirm", "true");
-        filePost.setEntity(httpClientFactory.createMultipartRequestEntity(artifactFile, artifactChecksums));
+        filePost.setEntity(entity);
         return filePost;
     }
 
     public int download(String url, FetchHandler handler) throws IOException {
-        HttpGet toGet = null;
+        PartialDownload partialDownload = handler.partialDownload();
+        if (partialDownload != null) {
+            return downloadInRanges(url, handler, partialDownload);
+        }
+
+        HttpRequestBase toGet = null;
         try {
-            toGet = httpClientFactory.createGet(url);
+            Properties checksumsOnAgent = handler.checksumsOnAgent();
+            toGet = checksumsOnAgent == null ? httpClientFactory.createGet(url) : httpClientFactory.createPostForChangedFiles(url, checksumsOnAgent);
             PerfTimer timer = PerfTimer.start(String.format("Downloading from url [%s]", url));
             try (CloseableHttpResponse response = execute(toGet)) {
                 timer.stop();
@@ -117,6 +147,79 @@ public class HttpService {
         }
     }
 
+    /**
+     * Fetches the first range to find out how large the artifact is, and then the ranges that are still missing, side
+     * by side. Falls back to a plain download when the server sends the whole artifact instead of the range.
+     */
+    private int downloadInRanges(String url, FetchHandler handler, PartialDownload download) throws IOException {
+        if (!download.knowsLength()) {
+            int statusCode = downloadRange(url, handler, download, download.firstRange());
+            if (statusCode != HttpServletResponse.SC_PARTIAL_CONTENT) {
+                return statusCode;
+            }
+        }
+
+        List<PartialDownload.Range> missingRanges = download.missingRanges();
+        if (!missingRanges.isEmpty()) {
+            int threads = Math.max(1, Math.min(missingRanges.size(), new SystemEnvironment().get(SystemEnvironment.FETCH_ARTIFACT_RANGE_THREADS)));
+            ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "artifact-range-download");
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                List<Future<Integer>> ranges = new ArrayList<>();
+                for (PartialDownload.Range range : missingRanges) {
+                    ranges.add(executor.submit(() -> downloadRange(url, handler, download, range)));
+                }
+                for (Future<Integer> range : ranges) {
+                    int statusCode = range.get();
+                    if (statusCode != HttpServletResponse.SC_PARTIAL_CONTENT) {
+                        return statusCode;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        handler.handle(download);
+        return HttpServletResponse.SC_OK;
+    }
+
+    private int downloadRange(String url, FetchHandler handler, PartialDownload download, PartialDownload.Range range) throws IOException {
+        HttpGet toGet = httpClientFactory.createGet(url);
+        toGet.setHeader("Range", range.header());
+        try (CloseableHttpResponse response = execute(toGet)) {
+            int statusCode = response.getStatusLine().getStatusCode();
+
+            if (statusCode == HttpServletResponse.SC_PARTIAL_CONTENT) {
+                Header contentRange = response.getFirstHeader("Content-Range");
+                try (InputStream is = response.getEntity().getContent()) {
+                    download.write(contentRange == null ? null : contentRange.getValue(), is);
+                }
+            } else if (statusCode == HttpServletResponse.SC_OK) {
+                download.discard();
+                if (response.getEntity() != null) {
+                    try (InputStream is = response.getEntity().getContent()) {
+                        handler.handle(is);
+                    }
+                }
+            }
+            return statusCode;
+        } catch (IOException e) {
+            LOGGER.error("Error while downloading range [{}] of [{}]", range, url, e);
+            throw e;
+        } finally {
+            toGet.releaseConnection();
+        }
+    }
+
     public CloseableHttpResponse execute(HttpRequestBase httpMethod) throws IOException {
         GoAgentServerHttpClient client = httpClientFactory.httpClient();
 
@@ -156,13 +259,32 @@ public class HttpService {
             return new HttpGet(url);
         }
 
+        /**
+         * Asks for a zip of only those files of a directory artifact whose md5 differs from the ones given
+         */
+        public HttpPost createPostForChangedFiles(String url, Properties checksumsOnAgent) throws IOException {
+            HttpPost post = new HttpPost(url + "?delta=true");
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            checksumsOnAgent.store(outputStream, "");
+            post.setEntity(new ByteArrayEntity(outputStream.toByteArray(), ContentType.TEXT_PLAIN));
+            return post;
+        }
+
         public HttpEntity createMultipartRequestEntity(File artifact, Properties artifactChecksums) throws IOException {
-            MultipartEntityBuilder entityBuilder = MultipartEntityBuilder.create();
-            entityBuilder.addPart(GoConstants.ZIP_MULTIPART_FILENAME, new FileBody(artifact));
+            ContentBody checksumBody = null;
             if (artifactChecksums != null) {
                 ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
                 artifactChecksums.store(outputStream, "");
-                entityBuilder.addPart(GoConstants.CHECKSUM_MULTIPART_FILENAME, new ByteArrayBody(outputStream.toByteArray(), "checksum_file"));
+                checksumBody = new ByteArrayBody(outputStream.toByteArray(), "checksum_file");
+            }
+            return createMultipartRequestEntity(new FileBody(artifact), checksumBody);
+        }
+
+        public HttpEntity createMultipartRequestEntity(ContentBody artifact, ContentBody artifactChecksums) {
+            MultipartEntityBuilder entityBuilder = MultipartEntityBuilder.create();
+            entityBuilder.addPart(GoConstants.ZIP_MULTIPART_FILENAME, artifact);
+            if (artifactChecksums != null) {
+                entityBuilder.addPart(GoConstants.CHECKSUM_MULTIPART_FILENAME, artifactChecksums);
             }
             return entityBuilder.build();
         }
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.domain;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.*;
+
+public class ConsoleLogIndexTest {
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void shouldRecordOffsetOfEveryStrideLine() throws Exception {
+        Path log = temporaryFolder.getRoot().toPath().resolve("console.log");
+        append(log, lines(0, ConsoleLogIndex.STRIDE * 2 + 10));
+
+        ConsoleLogIndex.Checkpoint checkpoint = ConsoleLogIndex.seek(log, ConsoleLogIndex.STRIDE * 2 + 5);
+
+        assertEquals(ConsoleLogIndex.STRIDE * 2, checkpoint.line());
+        assertEquals(lines(0, ConsoleLogIndex.STRIDE * 2).length(), checkpoint.offset());
+    }
+
+    @Test
+    public void shouldResumeCountingLinesAcrossAppends() throws Exception {
+        Path log = temporaryFolder.getRoot().toPath().resolve("console.log");
+        append(log, lines(0, 1000));
+        append(log, lines(1000, 1500));
+
+        ConsoleLogIndex.Checkpoint checkpoint = ConsoleLogIndex.seek(log, 1200);
+
+        assertEquals(ConsoleLogIndex.STRIDE, checkpoint.line());
+        assertEquals(lines(0, ConsoleLogIndex.STRIDE).length(), checkpoint.offset());
+    }
+
+    @Test
+    public void shouldTreatCarriageReturnLineFeedSplitAcrossAppendsAsOneLineEnd() throws Exception {
+        Path log = temporaryFolder.getRoot().toPath().resolve("console.log");
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < ConsoleLogIndex.STRIDE - 1; i++) {
+            content.append("x\r\n");
+        }
+        append(log, content + "last\r");
+        append(log, "\nnext\r\n");
+
+        ConsoleLogIndex.Checkpoint checkpoint = ConsoleLogIndex.seek(log, ConsoleLogIndex.STRIDE);
+
+        assertEquals(ConsoleLogIndex.STRIDE, checkpoint.line());
+        assertEquals(content.length() + "last\r\n".length(), checkpoint.offset());
+    }
+
+    @Test
+    public void shouldNotStartIndexingALogThatAlreadyHasContent() throws Exception {
+        Path log = temporaryFolder.getRoot().toPath().resolve("console.log");
+        Files.write(log, lines(0, 10).getBytes(StandardCharsets.UTF_8));
+
+        append(log, lines(10, ConsoleLogIndex.STRIDE * 2));
+
+        assertFalse(Files.exists(ConsoleLogIndex.indexFor(log)));
+        assertEquals(0L, ConsoleLogIndex.seek(log, ConsoleLogIndex.STRIDE).line());
+    }
+
+    @Test
+    public void shouldIgnoreCheckpointsBeyondTheEndOfTheLog() throws Exception {
+        Path log = temporaryFolder.getRoot().toPath().resolve("console.log");
+        append(log, lines(0, ConsoleLogIndex.STRIDE + 1));
+        Files.write(ConsoleLogIndex.indexFor(log), new byte[]{0, 0, 0, 0, 0, 1, 0, 0}, StandardOpenOption.TRUNCATE_EXISTING);
+
+        assertEquals(0L, ConsoleLogIndex.seek(log, ConsoleLogIndex.STRIDE).line());
+    }
+
+    private void append(Path log, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        try (ConsoleLogIndex.Appender index = ConsoleLogIndex.appenderFor(log)) {
+            Files.write(log, bytes, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            index.update(bytes, 0, bytes.length);
+        }
+    }
+
+    private String lines(int from, int to) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            builder.append("line ").append(i).append('\n');
+        }
+        return builder.toString();
+    }
+}
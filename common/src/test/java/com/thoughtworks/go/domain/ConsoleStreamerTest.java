@@ -19,6 +19,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.junit.Test;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.util.ArrayList;
@@ -101,6 +102,55 @@ public class ConsoleStreamerTest {
         }
     }
 
+    @Test
+    public void streamSeeksToStartLineUsingIndex() throws Exception {
+        File console = makeIndexedConsoleFile(3000, "\n");
+        final ArrayList<String> actual = new ArrayList<>();
+
+        try (ConsoleStreamer streamer = new ConsoleStreamer(console.toPath(), 2500L)) {
+            streamer.stream(actual::add);
+            assertEquals(500, actual.size());
+            assertEquals("line 2500", actual.get(0));
+            assertEquals("line 2999", actual.get(499));
+        }
+    }
+
+    @Test
+    public void streamSeeksToStartLineUsingIndexWithCarriageReturns() throws Exception {
+        File console = makeIndexedConsoleFile(3000, "\r\n");
+        final ArrayList<String> actual = new ArrayList<>();
+
+        try (ConsoleStreamer streamer = new ConsoleStreamer(console.toPath(), 2048L)) {
+            streamer.stream(actual::add);
+            assertEquals(952, actual.size());
+            assertEquals("line 2048", actual.get(0));
+        }
+    }
+
+    private File makeIndexedConsoleFile(int lines, String lineSeparator) throws IOException {
+        File console = File.createTempFile("console", ".log");
+        console.delete();
+        console.deleteOnExit();
+        ConsoleLogIndex.indexFor(console.toPath()).toFile().deleteOnExit();
+
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            content.append("line ").append(i).append(lineSeparator);
+        }
+
+        // append in uneven chunks, the way agents upload console output
+        byte[] bytes = content.toString().getBytes();
+        for (int from = 0; from < bytes.length; from += 7001) {
+            int length = Math.min(7001, bytes.length - from);
+            try (ConsoleLogIndex.Appender index = ConsoleLogIndex.appenderFor(console.toPath());
+                 FileOutputStream out = new FileOutputStream(console, true)) {
+                out.write(bytes, from, length);
+                index.update(bytes, from, length);
+            }
+        }
+        return console;
+    }
+
     private File makeConsoleFile(String... message) throws IOException {
         File console = File.createTempFile("console", ".log");
         console.deleteOnExit();
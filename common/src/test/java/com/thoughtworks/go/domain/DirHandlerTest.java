@@ -26,11 +26,13 @@ import org.junit.rules.TemporaryFolder;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.Properties;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.*;
@@ -176,6 +178,25 @@ public class DirHandlerTest {
         assertArtifactWasSaved("fetch_dest");
     }
 
+    @Test
+    public void shouldSendChecksumsOfFilesAlreadyOnTheAgentKeyedByTheirPathOnTheServer() throws IOException {
+        DirHandler handler = new DirHandler("server/fetch_dest", agentDest);
+        FileUtils.writeStringToFile(new File(agentDest, "fetch_dest/first"), "First File", UTF_8);
+        FileUtils.writeStringToFile(new File(agentDest, "fetch_dest/under_dir/second"), "Second File", UTF_8);
+        FileUtils.writeStringToFile(new File(agentDest, "not_fetched/third"), "Third File", UTF_8);
+
+        Properties checksumsOnAgent = handler.checksumsOnAgent();
+
+        assertThat(checksumsOnAgent.size(), is(2));
+        assertThat(checksumsOnAgent.getProperty("server/fetch_dest/first"), is(DigestUtils.md5Hex("First File")));
+        assertThat(checksumsOnAgent.getProperty("server/fetch_dest/under_dir/second"), is(DigestUtils.md5Hex("Second File")));
+    }
+
+    @Test
+    public void shouldFetchTheWholeDirectoryWhenItIsNotOnTheAgentYet() throws IOException {
+        assertThat(dirHandler.checksumsOnAgent(), is(nullValue()));
+    }
+
     private File createZip(String subDirectoryName) throws IOException {
         File first = new File(artifactDest, "first");
         FileUtils.writeStringToFile(first, "First File", UTF_8);
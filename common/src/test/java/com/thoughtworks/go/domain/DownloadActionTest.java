@@ -97,6 +97,19 @@ public class DownloadActionTest {
         }
     }
 
+    @Test
+    public void shouldThrowAwayWhatWasFetchedOfAnArtifactWhenGivingUp() throws Exception {
+        PartialDownload partialDownload = mock(PartialDownload.class);
+        when(fetchHandler.partialDownload()).thenReturn(partialDownload);
+        FailSometimesHttpService httpService = new FailSometimesHttpService(99);
+        try {
+            new DownloadAction(httpService, new StubGoPublisher(), clock).perform("foo", fetchHandler);
+            fail("Expected to throw exception after four tries");
+        } catch (Exception e) {
+            verify(partialDownload).discard();
+        }
+    }
+
     @Test
     public void shouldReturnWithoutRetryingArtifactIsNotModified() throws Exception {
         fetchHandler = new FileHandler(new File(""), getSrc());
@@ -67,6 +67,22 @@ public class FileHandlerTest {
         verifyNoMoreInteractions(checksums);
     }
 
+    @Test
+    public void shouldCheckTheMD5OfAFileDownloadedInRanges() throws IOException {
+        when(checksums.md5For("src/file/path")).thenReturn(CachedDigestUtils.md5Hex(new ByteArrayInputStream("Hello world".getBytes())));
+        fileHandler.useArtifactMd5Checksums(checksums);
+
+        PartialDownload download = fileHandler.partialDownload();
+        download.write("bytes 0-10/11", new ByteArrayInputStream("Hello world".getBytes()));
+        fileHandler.handle(download);
+        fileHandler.handleResult(200, goPublisher);
+
+        assertThat(FileUtils.readFileToString(artifact, UTF_8), is("Hello world"));
+        assertThat(download.file().exists(), is(false));
+        assertThat(download.knowsLength(), is(false));
+        assertThat(goPublisher.getMessage(), containsString("Saved artifact to [foo] after verifying the integrity of its contents."));
+    }
+
     @Test
     public void shouldWarnWhenChecksumsFileIsNotPresent() throws IOException {
         fileHandler.handle(new ByteArrayInputStream("Hello world".getBytes()));
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2020 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.domain;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import static com.thoughtworks.go.domain.PartialDownload.RANGE_SIZE;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.*;
+
+public class PartialDownloadTest {
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private PartialDownload download;
+
+    @Before
+    public void setUp() throws Exception {
+        download = new PartialDownload(new File(temporaryFolder.newFolder("dest"), "artifact.jar"));
+    }
+
+    @Test
+    public void shouldLearnTheLengthOfTheArtifactFromTheFirstRange() throws IOException {
+        assertThat(download.knowsLength(), is(false));
+        assertThat(download.firstRange().header(), is("bytes=0-" + (RANGE_SIZE - 1)));
+
+        download.write("bytes 0-4/5", new ByteArrayInputStream("hello".getBytes()));
+
+        assertThat(download.knowsLength(), is(true));
+        assertThat(download.isComplete(), is(true));
+        assertThat(download.file().getName(), is(".artifact.jar.part"));
+        assertThat(FileUtils.readFileToByteArray(download.file()), is("hello".getBytes()));
+    }
+
+    @Test
+    public void shouldOnlyAskForTheRangesThatAreStillMissing() throws IOException {
+        long length = 2 * RANGE_SIZE + 10;
+        download.write("bytes 0-" + (RANGE_SIZE - 1) + "/" + length, new ByteArrayInputStream(new byte[(int) RANGE_SIZE]));
+
+        List<PartialDownload.Range> missing = download.missingRanges();
+        assertThat(missing.size(), is(2));
+        assertThat(missing.get(0).header(), is("bytes=" + RANGE_SIZE + "-" + (2 * RANGE_SIZE - 1)));
+        assertThat(missing.get(1).header(), is("bytes=" + (2 * RANGE_SIZE) + "-" + (length - 1)));
+
+        download.write("bytes " + 2 * RANGE_SIZE + "-" + (length - 1) + "/" + length, new ByteArrayInputStream(new byte[10]));
+
+        assertThat(download.missingRanges().size(), is(1));
+        assertThat(download.isComplete(), is(false));
+        assertThat(download.file().length(), is(length));
+    }
+
+    @Test
+    public void shouldNotMarkARangeAsFetchedWhenTheConnectionIsClosedBeforeItsEnd() throws IOException {
+        download.write("bytes 0-4/5", new ByteArrayInputStream("hello".getBytes()));
+        download.discard();
+
+        try {
+            download.write("bytes 0-4/5", new ByteArrayInputStream("hel".getBytes()));
+            fail("should have failed on a short range");
+        } catch (IOException e) {
+            assertThat(e.getMessage(), containsString("2 bytes short of the end of range 0-4"));
+        }
+        assertThat(download.isComplete(), is(false));
+        assertThat(download.missingRanges().size(), is(1));
+    }
+
+    @Test
+    public void shouldStartAllOverWhenTheArtifactChangesOnTheServer() throws IOException {
+        long length = RANGE_SIZE + 5;
+        download.write("bytes 0-" + (RANGE_SIZE - 1) + "/" + length, new ByteArrayInputStream(new byte[(int) RANGE_SIZE]));
+
+        try {
+            download.write("bytes " + RANGE_SIZE + "-" + (RANGE_SIZE + 5) + "/" + (length + 1), new ByteArrayInputStream(new byte[6]));
+            fail("should have failed when the length of the artifact changed");
+        } catch (IOException e) {
+            assertThat(e.getMessage(), containsString("changed on the server"));
+        }
+        assertThat(download.knowsLength(), is(false));
+        assertThat(download.file().exists(), is(false));
+    }
+
+    @Test
+    public void shouldHandTheFetchedBytesToAHandlerThatOnlyReadsStreamsAndThenThrowThemAway() throws IOException {
+        download.write("bytes 0-4/5", new ByteArrayInputStream("hello".getBytes()));
+        FetchHandler handler = mock(FetchHandler.class);
+        doCallRealMethod().when(handler).handle(any(PartialDownload.class));
+        doAnswer(invocation -> {
+            assertThat(IOUtils.toString((InputStream) invocation.getArgument(0), "UTF-8"), is("hello"));
+            return null;
+        }).when(handler).handle(any(InputStream.class));
+
+        handler.handle(download);
+
+        verify(handler).handle(any(InputStream.class));
+        assertThat(download.knowsLength(), is(false));
+        assertThat(download.file().exists(), is(false));
+    }
+
+    @Test
+    public void shouldRejectARangeThatWasNotAskedFor() throws IOException {
+        try {
+            download.write("bytes 1-4/5", new ByteArrayInputStream("ello".getBytes()));
+            fail("should have rejected a range that does not line up");
+        } catch (IOException e) {
+            assertThat(e.getMessage(), containsString("Expected range 0-4"));
+        }
+    }
+}
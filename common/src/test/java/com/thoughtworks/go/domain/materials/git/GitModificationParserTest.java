@@ -16,6 +16,8 @@
 package com.thoughtworks.go.domain.materials.git;
 
 import com.thoughtworks.go.domain.materials.Modification;
+import com.thoughtworks.go.domain.materials.ModifiedAction;
+import com.thoughtworks.go.domain.materials.ModifiedFile;
 import com.thoughtworks.go.junit5.FileSource;
 import com.thoughtworks.go.util.DateUtils;
 import org.junit.jupiter.api.Test;
@@ -24,6 +26,8 @@ import org.junit.jupiter.params.ParameterizedTest;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
 
 
 class GitModificationParserTest {
@@ -107,4 +111,87 @@ class GitModificationParserTest {
         assertThat(modifications.stream().map(Modification::getComment))
             .contains(lastCommit, secondLastCommit);
     }
+
+    @Test
+    void shouldAddTheModifiedFilesListedAfterEachCommit() {
+        GitModificationParser parser = new GitModificationParser();
+        for (String line : logWithModifiedFiles()) {
+            parser.consumeLine(line);
+        }
+
+        List<Modification> modifications = parser.modifications();
+
+        assertThat(modifications).hasSize(3);
+        assertThat(modifications.get(0).getRevision()).isEqualTo("c00eed72c8d52e74d467af96112753b7ddbe2878");
+        assertThat(modifications.get(0).getModifiedFiles()).isEmpty();
+
+        assertThat(modifications.get(1).getComment()).isEqualTo("Moved a to c");
+        assertThat(modifications.get(1).getModifiedFiles())
+            .extracting(ModifiedFile::getFileName, ModifiedFile::getAction)
+            .containsExactly(
+                tuple("a", ModifiedAction.deleted),
+                tuple("c", ModifiedAction.added),
+                tuple("dir with spaces/b", ModifiedAction.modified));
+
+        assertThat(modifications.get(2).getComment()).isEqualTo("first\n\nbody line");
+        assertThat(modifications.get(2).getModifiedFiles())
+            .extracting(ModifiedFile::getFileName)
+            .containsExactly("a");
+    }
+
+    @Test
+    void shouldKeepConsumingOutputAfterAFailureAndReportItAtTheEnd() {
+        GitModificationParser parser = new GitModificationParser();
+        parser.consumeLine("- !!com.thoughtworks.go.domain.materials.git.GitLog");
+        parser.consumeLine("  commitHash: : :");
+        parser.consumeLine("- !!com.thoughtworks.go.domain.materials.git.GitLog");
+        parser.consumeLine("M\tfile");
+
+        assertThatThrownBy(parser::modifications).isInstanceOf(RuntimeException.class);
+    }
+
+    private List<String> logWithModifiedFiles() {
+        return List.of(
+            "- !!com.thoughtworks.go.domain.materials.git.GitLog",
+            "  commitHash: c00eed72c8d52e74d467af96112753b7ddbe2878",
+            "  authorName: Bob Ford",
+            "  date: 2009-02-11 17:26:36 -0800",
+            "  subject: |-2",
+            "    Merge branch 'br'",
+            "  rawBody: |-2",
+            "    Merge branch 'br'",
+            "  additionalInfo:",
+            "    signed: N",
+            "",
+            "- !!com.thoughtworks.go.domain.materials.git.GitLog",
+            "  commitHash: 3c49a4934155d8672361c933f89cc64012b4f5fb",
+            "  authorName: Bob Ford",
+            "  date: 2009-02-11 17:26:36 -0800",
+            "  subject: |-2",
+            "    Moved a to c",
+            "  rawBody: |-2",
+            "    Moved a to c",
+            "  additionalInfo:",
+            "    signed: N",
+            "",
+            "D\ta",
+            "A\tc",
+            "M\tdir with spaces/b",
+            "",
+            "- !!com.thoughtworks.go.domain.materials.git.GitLog",
+            "  commitHash: 713ac62434206aa59dd087070be89ee294faa8e9",
+            "  authorName: Bob Ford",
+            "  date: 2009-02-11 17:26:36 -0800",
+            "  subject: |-2",
+            "    first",
+            "  rawBody: |-2",
+            "    first",
+            "    ",
+            "    body line",
+            "  additionalInfo:",
+            "    signed: N",
+            "",
+            "A\ta"
+        );
+    }
 }
@@ -27,12 +27,16 @@ import com.thoughtworks.go.util.ReflectionUtil;
 import com.thoughtworks.go.work.DefaultGoPublisher;
 import org.apache.commons.collections4.queue.CircularFifoQueue;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.http.entity.mime.content.ContentBody;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.util.Properties;
@@ -54,6 +58,7 @@ public class GoArtifactsManipulatorTest {
     private JobIdentifier jobIdentifier;
     private DefaultGoPublisher goPublisher;
     private File artifactFolder;
+    private Properties uploadedChecksums;
 
     @Before
     public void setUp() throws Exception {
@@ -69,7 +74,7 @@ public class GoArtifactsManipulatorTest {
 
     @Test
     public void shouldBombWithErrorWhenStatusCodeReturnedIsRequestEntityTooLarge() throws IOException, InterruptedException {
-        when(httpService.upload(any(String.class), eq(tempFile.length()), any(File.class), any(Properties.class))).thenReturn(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+        stubUpload(tempFile.length(), HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
 
         CircularFifoQueue buffer = (CircularFifoQueue) ReflectionUtil.getField(ReflectionUtil.getField(goPublisher, "consoleOutputTransmitter"), "buffer");
         synchronized (buffer) {
@@ -87,12 +92,12 @@ public class GoArtifactsManipulatorTest {
     @Test
     public void uploadShouldBeGivenFileSize() throws IOException {
 
-        when(httpService.upload(any(String.class), eq(tempFile.length()), any(File.class), any(Properties.class))).thenReturn(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+        stubUpload(tempFile.length(), HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
         try {
             goArtifactsManipulatorStub.publish(goPublisher, "dest", tempFile, jobIdentifier);
             fail("should have thrown request entity too large error");
         } catch (RuntimeException e) {
-            verify(httpService).upload(any(String.class), eq(tempFile.length()), any(File.class), any(Properties.class));
+            verify(httpService).upload(any(String.class), eq(tempFile.length()), any(ContentBody.class), any(ContentBody.class));
         }
     }
 
@@ -104,9 +109,11 @@ public class GoArtifactsManipulatorTest {
         Properties properties = new Properties();
         properties.setProperty("dest/path/file.txt", md5);
 
-        when(httpService.upload(any(String.class), eq(tempFile.length()), any(File.class), eq(properties))).thenReturn(HttpServletResponse.SC_OK);
+        stubUpload(tempFile.length(), HttpServletResponse.SC_OK);
 
         goArtifactsManipulatorStub.publish(goPublisher, "/dest/path", tempFile, jobIdentifier);
+
+        assertThat(uploadedChecksums, is(properties));
     }
 
     @Test
@@ -117,9 +124,11 @@ public class GoArtifactsManipulatorTest {
         Properties properties = new Properties();
         properties.setProperty("file.txt", md5);
 
-        when(httpService.upload(any(String.class), eq(tempFile.length()), any(File.class), eq(properties))).thenReturn(HttpServletResponse.SC_OK);
+        stubUpload(tempFile.length(), HttpServletResponse.SC_OK);
 
         goArtifactsManipulatorStub.publish(goPublisher, "", tempFile, jobIdentifier);
+
+        assertThat(uploadedChecksums, is(properties));
     }
 
     @Test
@@ -133,9 +142,23 @@ public class GoArtifactsManipulatorTest {
         FileUtils.writeStringToFile(anotherFile, secondData, UTF_8);
 
 
-        when(httpService.upload(any(String.class), eq(FileUtils.sizeOfDirectory(artifactFolder)), any(File.class), eq(expectedProperties(data, secondData)))).thenReturn(HttpServletResponse.SC_OK);
+        stubUpload(FileUtils.sizeOfDirectory(artifactFolder), HttpServletResponse.SC_OK);
 
         goArtifactsManipulatorStub.publish(goPublisher, "dest", artifactFolder, jobIdentifier);
+
+        assertThat(uploadedChecksums, is(expectedProperties(data, secondData)));
+    }
+
+    private void stubUpload(long size, int statusCode) throws IOException {
+        when(httpService.upload(any(String.class), eq(size), any(ContentBody.class), any(ContentBody.class))).thenAnswer(invocation -> {
+            invocation.<ContentBody>getArgument(2).writeTo(new NullOutputStream());
+
+            ByteArrayOutputStream checksums = new ByteArrayOutputStream();
+            invocation.<ContentBody>getArgument(3).writeTo(checksums);
+            uploadedChecksums = new Properties();
+            uploadedChecksums.load(new ByteArrayInputStream(checksums.toByteArray()));
+            return statusCode;
+        });
     }
 
     private Properties expectedProperties(String data, String secondData) {
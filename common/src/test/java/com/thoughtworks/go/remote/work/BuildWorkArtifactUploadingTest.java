@@ -37,12 +37,12 @@ import com.thoughtworks.go.server.service.AgentRuntimeInfo;
 import com.thoughtworks.go.util.FileUtil;
 import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.URLService;
-import com.thoughtworks.go.util.ZipUtil;
 import com.thoughtworks.go.util.command.CruiseControlException;
 import com.thoughtworks.go.util.command.EnvironmentVariableContext;
 import com.thoughtworks.go.utils.SvnRepoFixture;
 import com.thoughtworks.go.work.DefaultGoPublisher;
 import org.apache.commons.io.FileUtils;
+import org.apache.http.entity.mime.content.ContentBody;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
@@ -319,7 +319,7 @@ public class BuildWorkArtifactUploadingTest {
 
         BuildWork work = new BuildWork(buildAssigment, systemEnvironment.consoleLogCharset());
         GoArtifactsManipulatorStub manipulator = new GoArtifactsManipulatorStub(
-                new ArrayList<>(), new HttpServiceStub(), new URLService(), new ZipUtilThatRunsOutOfMemory());
+                new ArrayList<>(), new HttpServiceThatRunsOutOfMemory(), new URLService());
 
         AgentIdentifier agentIdentifier = new AgentIdentifier("somename", "127.0.0.1", AGENT_UUID);
         work.doWork(environmentVariableContext, new AgentWorkContext(agentIdentifier, new FakeBuildRepositoryRemote(), manipulator,
@@ -330,9 +330,9 @@ public class BuildWorkArtifactUploadingTest {
         assertThat(manipulator.consoleOut(), containsString("Failed to upload [**/*.png]"));
     }
 
-    private class ZipUtilThatRunsOutOfMemory extends ZipUtil {
+    private class HttpServiceThatRunsOutOfMemory extends HttpServiceStub {
         @Override
-        public File zip(File source, File destFile, int level) {
+        public int upload(String url, long size, ContentBody artifact, ContentBody artifactChecksums) {
             throw new OutOfMemoryError("#2824");
         }
     }
@@ -16,6 +16,7 @@
 package com.thoughtworks.go.remote.work;
 
 import com.thoughtworks.go.util.SystemEnvironment;
+import org.apache.commons.lang3.StringUtils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -25,6 +26,7 @@ import org.mockito.Mock;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.*;
 import static org.mockito.MockitoAnnotations.initMocks;
@@ -34,6 +36,7 @@ public class ConsoleOutputTransmitterTest {
     private ConsoleAppender consoleAppender;
     private ArgumentCaptor<String> requestArgumentCaptor;
     private ConsoleOutputTransmitter transmitter;
+    private ScheduledThreadPoolExecutor executor;
 
     @Before
     public void setup() throws Exception {
@@ -43,7 +46,8 @@ public class ConsoleOutputTransmitterTest {
 
         requestArgumentCaptor = ArgumentCaptor.forClass(String.class);
         doNothing().when(consoleAppender).append(requestArgumentCaptor.capture());
-        transmitter = new ConsoleOutputTransmitter(consoleAppender, 0, mock(ScheduledThreadPoolExecutor.class));
+        executor = mock(ScheduledThreadPoolExecutor.class);
+        transmitter = new ConsoleOutputTransmitter(consoleAppender, 0, executor);
     }
 
     @After
@@ -69,4 +73,27 @@ public class ConsoleOutputTransmitterTest {
 
         verify(consoleAppender, never()).append(any(String.class));
     }
+
+    @Test
+    public void shouldRequestAnEarlyFlushOnceABatchWorthOfOutputIsBuffered() {
+        String line = StringUtils.repeat('x', 1024);
+        for (int i = 0; i < ConsoleOutputTransmitter.BATCH_SIZE / line.length(); i++) {
+            transmitter.consumeLine(line);
+        }
+
+        verify(executor, times(1)).execute(transmitter);
+    }
+
+    @Test
+    public void shouldDropOldestOutputWhenBufferIsFull() throws Exception {
+        String line = StringUtils.repeat('x', 1024 * 1024);
+        transmitter.consumeLine("first line");
+        for (int i = 0; i < ConsoleOutputTransmitter.MAX_BUFFER_SIZE / line.length(); i++) {
+            transmitter.consumeLine(line);
+        }
+
+        transmitter.flushToServer();
+
+        assertThat(requestArgumentCaptor.getValue(), not(containsString("first line")));
+    }
 }
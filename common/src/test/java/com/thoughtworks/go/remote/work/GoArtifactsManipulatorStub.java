@@ -23,7 +23,6 @@ import com.thoughtworks.go.publishers.GoArtifactsManipulator;
 import com.thoughtworks.go.remote.AgentIdentifier;
 import com.thoughtworks.go.util.HttpService;
 import com.thoughtworks.go.util.URLService;
-import com.thoughtworks.go.util.ZipUtil;
 import com.thoughtworks.go.work.DefaultGoPublisher;
 
 import java.io.File;
@@ -37,17 +36,17 @@ public class GoArtifactsManipulatorStub extends GoArtifactsManipulator {
     private List<UploadEntry> uploads = new ArrayList<>();
 
     public GoArtifactsManipulatorStub() {
-        super(new HttpServiceStub(), new URLService(), new ZipUtil());
+        super(new HttpServiceStub(), new URLService());
         consoleOuts = new ArrayList<>();
     }
 
     public GoArtifactsManipulatorStub(HttpService service) {
-        super(service, new URLService(), new ZipUtil());
+        super(service, new URLService());
         consoleOuts = new ArrayList<>();
     }
 
-    public GoArtifactsManipulatorStub(List<String> consoleOuts, HttpService service, URLService urlService, ZipUtil zipUtil) {
-        super(service, urlService, zipUtil);
+    public GoArtifactsManipulatorStub(List<String> consoleOuts, HttpService service, URLService urlService) {
+        super(service, urlService);
         this.consoleOuts = consoleOuts;
     }
 
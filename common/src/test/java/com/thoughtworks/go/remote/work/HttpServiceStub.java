@@ -18,12 +18,17 @@ package com.thoughtworks.go.remote.work;
 import com.thoughtworks.go.domain.FetchHandler;
 import com.thoughtworks.go.util.HttpService;
 import org.apache.commons.io.IOUtils;
+import org.apache.http.entity.mime.content.ContentBody;
 
 import javax.servlet.http.HttpServletResponse;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.util.*;
 
 public class HttpServiceStub extends HttpService {
@@ -49,6 +54,22 @@ public class HttpServiceStub extends HttpService {
         return returnCode;
     }
 
+    @Override
+    public int upload(String url, long size, ContentBody artifact, ContentBody artifactChecksums) throws IOException {
+        File artifactFile = new File(Files.createTempDirectory("uploaded").toFile(), artifact.getFilename());
+        artifactFile.deleteOnExit();
+        try (OutputStream out = new FileOutputStream(artifactFile)) {
+            artifact.writeTo(out);
+        }
+        Properties checksums = new Properties();
+        if (artifactChecksums != null) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            artifactChecksums.writeTo(out);
+            checksums.load(new ByteArrayInputStream(out.toByteArray()));
+        }
+        return upload(url, size, artifactFile, checksums);
+    }
+
     public Map<String, File> getUploadedFiles() {
         return uploadedFiles;
     }
@@ -18,11 +18,14 @@ package com.thoughtworks.go.util;
 import com.thoughtworks.go.agent.common.ssl.GoAgentServerHttpClient;
 import com.thoughtworks.go.config.AgentRegistry;
 import com.thoughtworks.go.domain.FetchHandler;
+import com.thoughtworks.go.domain.PartialDownload;
+import org.apache.commons.io.FileUtils;
 import org.apache.http.HttpVersion;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.message.BasicHeader;
 import org.apache.http.message.BasicNameValuePair;
 import org.apache.http.message.BasicStatusLine;
 import org.junit.Before;
@@ -34,10 +37,14 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 
 import static com.thoughtworks.go.util.HttpService.GO_ARTIFACT_PAYLOAD_SIZE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.*;
 
@@ -111,6 +118,79 @@ public class HttpServiceTest {
         verify(fetchHandler).handle(instream);
     }
 
+    @Test
+    public void shouldDownloadArtifactInRangesWhenTheHandlerCanTakeThem() throws IOException, URISyntaxException {
+        String url = "http://blah";
+        FetchHandler fetchHandler = mock(FetchHandler.class);
+        PartialDownload partialDownload = new PartialDownload(new File(folderToSaveDowloadFiles, "artifact"));
+        when(fetchHandler.partialDownload()).thenReturn(partialDownload);
+
+        HttpGet mockGetMethod = mock(HttpGet.class);
+        CloseableHttpResponse response = mock(CloseableHttpResponse.class);
+        BasicHttpEntity basicHttpEntity = new BasicHttpEntity();
+        basicHttpEntity.setContent(new ByteArrayInputStream("hello".getBytes()));
+        when(response.getEntity()).thenReturn(basicHttpEntity);
+        when(response.getStatusLine()).thenReturn(new BasicStatusLine(HttpVersion.HTTP_1_1, 206, "Partial Content"));
+        when(response.getFirstHeader("Content-Range")).thenReturn(new BasicHeader("Content-Range", "bytes 0-4/5"));
+        when(httpClient.execute(mockGetMethod)).thenReturn(response);
+        when(httpClientFactory.createGet(url)).thenReturn(mockGetMethod);
+        when(mockGetMethod.getURI()).thenReturn(new URI(url));
+
+        int statusCode = service.download(url, fetchHandler);
+
+        assertThat(statusCode, is(200));
+        verify(mockGetMethod).setHeader("Range", partialDownload.firstRange().header());
+        verify(fetchHandler).handle(partialDownload);
+        verify(fetchHandler, never()).handle(any(InputStream.class));
+        assertThat(FileUtils.readFileToString(partialDownload.file(), UTF_8), is("hello"));
+    }
+
+    @Test
+    public void shouldFallBackToTheWholeArtifactWhenTheServerIgnoresTheRange() throws IOException, URISyntaxException {
+        String url = "http://blah";
+        FetchHandler fetchHandler = mock(FetchHandler.class);
+        PartialDownload partialDownload = new PartialDownload(new File(folderToSaveDowloadFiles, "artifact"));
+        when(fetchHandler.partialDownload()).thenReturn(partialDownload);
+
+        HttpGet mockGetMethod = mock(HttpGet.class);
+        CloseableHttpResponse response = mock(CloseableHttpResponse.class);
+        BasicHttpEntity basicHttpEntity = new BasicHttpEntity();
+        ByteArrayInputStream instream = new ByteArrayInputStream("hello".getBytes());
+        basicHttpEntity.setContent(instream);
+        when(response.getEntity()).thenReturn(basicHttpEntity);
+        when(response.getStatusLine()).thenReturn(new BasicStatusLine(HttpVersion.HTTP_1_1, 200, "OK"));
+        when(httpClient.execute(mockGetMethod)).thenReturn(response);
+        when(httpClientFactory.createGet(url)).thenReturn(mockGetMethod);
+        when(mockGetMethod.getURI()).thenReturn(new URI(url));
+
+        int statusCode = service.download(url, fetchHandler);
+
+        assertThat(statusCode, is(200));
+        verify(fetchHandler).handle(instream);
+        verify(fetchHandler, never()).handle(any(PartialDownload.class));
+    }
+
+    @Test
+    public void shouldPostChecksumsOnAgentWhenTheHandlerHasPartOfTheArtifactAlready() throws IOException, URISyntaxException {
+        String url = "http://blah";
+        FetchHandler fetchHandler = mock(FetchHandler.class);
+        java.util.Properties checksumsOnAgent = new java.util.Properties();
+        checksumsOnAgent.setProperty("dist/first", "some-md5");
+        when(fetchHandler.checksumsOnAgent()).thenReturn(checksumsOnAgent);
+
+        HttpPost mockPostMethod = mock(HttpPost.class);
+        CloseableHttpResponse response = mock(CloseableHttpResponse.class);
+        when(response.getStatusLine()).thenReturn(new BasicStatusLine(HttpVersion.HTTP_1_1, 200, "OK"));
+        when(httpClient.execute(mockPostMethod)).thenReturn(response);
+        when(httpClientFactory.createPostForChangedFiles(url, checksumsOnAgent)).thenReturn(mockPostMethod);
+        when(mockPostMethod.getURI()).thenReturn(new URI(url));
+
+        service.download(url, fetchHandler);
+
+        verify(httpClient).execute(mockPostMethod);
+        verify(httpClientFactory, never()).createGet(url);
+    }
+
     @Test
     public void shouldNotFailIfChecksumFileIsNotPresent() throws IOException {
         HttpService.HttpClientFactory factory = new HttpService.HttpClientFactory(null);
@@ -175,13 +175,6 @@ class SystemEnvironmentTest {
         assertThat(systemEnvironment.getUnresponsiveJobWarningThreshold()).isEqualTo(30 * 60 * 1000L);
     }
 
-    @Test
-    void shouldReturnTheDefaultValueForActiveMqUseJMX() {
-        assertThat(systemEnvironment.getActivemqUseJmx()).isFalse();
-        System.setProperty(SystemEnvironment.ACTIVEMQ_USE_JMX, "true");
-        assertThat(systemEnvironment.getActivemqUseJmx()).isTrue();
-    }
-
     @Test
     void shouldResolveRevisionsForDependencyGraph_byDefault() {
         assertThat(System.getProperty(SystemEnvironment.RESOLVE_FANIN_REVISIONS)).isNull();
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2020 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @understands how long each phase (clone, preprocess, validate, write...) of a config save took
+ */
+public class ConfigSaveTimings {
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+    private final long start;
+    private long phaseStart;
+
+    public ConfigSaveTimings() {
+        this.start = System.nanoTime();
+        this.phaseStart = start;
+    }
+
+    /**
+     * Ends the current phase, attributing the time since the previous phase ended to it.
+     */
+    public void phaseDone(String phase) {
+        long now = System.nanoTime();
+        phases.merge(phase, now - phaseStart, Long::sum);
+        phaseStart = now;
+    }
+
+    public long millis(String phase) {
+        return TimeUnit.NANOSECONDS.toMillis(phases.getOrDefault(phase, 0L));
+    }
+
+    public long totalMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(phaseStart - start);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder().append(totalMillis()).append("ms (");
+        String separator = "";
+        for (String phase : phases.keySet()) {
+            builder.append(separator).append(phase).append(": ").append(millis(phase)).append("ms");
+            separator = ", ";
+        }
+        return builder.append(")").toString();
+    }
+}
@@ -29,6 +29,8 @@ import com.thoughtworks.go.config.BasicCruiseConfig.PipelineNameToConfigMap;
 // Thing is BasicCruiseConfig.groups is a type of ArrayList.
 // ArrayList.elementData is a transient field which doesn't get cloned, causing NullPointerExceptions when `groups` is accessed from the cloned object.
 // This is one place to mark all the classes to be ignored during clone.
+// Immutable values are shared between the original and the clone rather than copied. Every name in the config is a
+// CaseInsensitiveString, so on a large config this saves a good part of the objects created by each clone.
 public class GoConfigCloner extends Cloner {
     public GoConfigCloner() {
         nullInsteadOfClone(AllPipelineConfigs.class,
@@ -36,5 +38,6 @@ public class GoConfigCloner extends Cloner {
                 PipelineNameToConfigMap.class,
                 CachedPluggableArtifactConfigs.class,
                 CachedFetchPluggableArtifactTasks.class);
+        registerImmutable(CaseInsensitiveString.class);
     }
 }
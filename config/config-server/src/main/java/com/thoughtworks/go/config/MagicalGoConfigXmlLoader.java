@@ -120,12 +120,16 @@ public class MagicalGoConfigXmlLoader {
     }
 
     public CruiseConfig preprocessAndValidate(CruiseConfig config) throws Exception {
+        ConfigSaveTimings timings = new ConfigSaveTimings();
         LOGGER.debug("[Config Validation] In preprocessAndValidate: Cloning.");
         CruiseConfig cloned = CLONER.deepClone(config);
+        timings.phaseDone("clone");
         LOGGER.debug("[Config Validation] In preprocessAndValidate: Validating.");
         validateCruiseConfig(cloned);
-        LOGGER.debug("[Config Validation] In preprocessAndValidate: Done.");
+        timings.phaseDone("preprocess and validate");
         config.encryptSecureProperties(cloned);
+        timings.phaseDone("encrypt");
+        LOGGER.debug("[Config Validation] In preprocessAndValidate: Done in {}.", timings);
         return cloned;
     }
 
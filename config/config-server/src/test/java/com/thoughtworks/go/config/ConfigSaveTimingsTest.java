@@ -0,0 +1,48 @@
+/*
+ * Copyright 2020 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.config;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class ConfigSaveTimingsTest {
+    @Test
+    public void shouldAttributeElapsedTimeToEachPhaseAndAddUpRepeatedPhases() throws Exception {
+        ConfigSaveTimings timings = new ConfigSaveTimings();
+        Thread.sleep(20);
+        timings.phaseDone("clone");
+        timings.phaseDone("validate");
+        Thread.sleep(20);
+        timings.phaseDone("clone");
+
+        assertThat(timings.millis("clone"), is(greaterThanOrEqualTo(40L)));
+        assertThat(timings.millis("validate"), is(lessThan(20L)));
+        assertThat(timings.millis("unknown"), is(0L));
+        assertThat(timings.totalMillis(), is(greaterThanOrEqualTo(timings.millis("clone"))));
+    }
+
+    @Test
+    public void shouldListPhasesInTheOrderTheyFirstCompleted() {
+        ConfigSaveTimings timings = new ConfigSaveTimings();
+        timings.phaseDone("clone");
+        timings.phaseDone("preprocess");
+        timings.phaseDone("write");
+
+        assertThat(timings.toString(), matchesPattern("\\d+ms \\(clone: \\d+ms, preprocess: \\d+ms, write: \\d+ms\\)"));
+    }
+}
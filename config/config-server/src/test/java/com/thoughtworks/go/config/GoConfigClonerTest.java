@@ -98,6 +98,17 @@ public class GoConfigClonerTest {
         assertThat(ReflectionUtil.getField(cloned.getAllPipelineConfigs().get(0), "fetchExternalArtifactTasks"), is(nullValue()));
     }
 
+    @Test
+    public void shouldShareCaseInsensitiveStringsWithTheClone() {
+        BasicCruiseConfig config = GoConfigMother.configWithPipelines("p1", "p2");
+
+        BasicCruiseConfig cloned = new GoConfigCloner().deepClone(config);
+        PipelineConfig original = config.getAllPipelineConfigs().get(0);
+        PipelineConfig clonedPipeline = cloned.getAllPipelineConfigs().get(0);
+        assertThat(clonedPipeline, is(not(sameInstance(original))));
+        assertThat(clonedPipeline.name(), is(sameInstance(original.name())));
+    }
+
     @Test
     public void shouldDeepCloneObject() {
         BasicCruiseConfig config = GoConfigMother.configWithPipelines("p1", "p2");
@@ -19,6 +19,7 @@ import com.thoughtworks.go.util.MaterialFingerprintTag;
 import com.thoughtworks.go.util.command.CommandLine;
 import com.thoughtworks.go.util.command.ConsoleOutputStreamConsumer;
 import com.thoughtworks.go.util.command.ConsoleResult;
+import com.thoughtworks.go.util.command.StreamConsumer;
 
 /**
  * @understands: SCMCommand
@@ -41,4 +42,8 @@ public abstract class SCMCommand {
     public ConsoleResult runOrBomb(CommandLine commandLine, String... input) {
         return commandLine.runOrBomb(new MaterialFingerprintTag(materialFingerprint), input);
     }
+
+    public void runOrBomb(CommandLine commandLine, StreamConsumer stdOutConsumer, String... input) {
+        commandLine.runOrBomb(stdOutConsumer, new MaterialFingerprintTag(materialFingerprint), input);
+    }
 }
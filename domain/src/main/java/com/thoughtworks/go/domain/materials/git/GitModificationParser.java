@@ -16,27 +16,107 @@
 package com.thoughtworks.go.domain.materials.git;
 
 import com.thoughtworks.go.domain.materials.Modification;
+import com.thoughtworks.go.util.command.StreamConsumer;
 import org.apache.commons.lang3.StringUtils;
 import org.yaml.snakeyaml.Yaml;
 
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
-public class GitModificationParser {
-    private Yaml yaml = new Yaml();
+import static com.thoughtworks.go.domain.materials.ModifiedAction.parseGitAction;
+import static com.thoughtworks.go.util.ExceptionUtils.bomb;
+
+/**
+ * Parses the output of {@code git log} in the YAML format of {@link com.thoughtworks.go.domain.materials.git.builder.GitLogCommandBuilder},
+ * one commit at a time, as it is read. Every YAML line of a commit is indented except the first; any unindented
+ * line that follows is a {@code --name-status} line of the files changed by that commit.
+ * <p>
+ * Lines are consumed on the thread pumping the process output, so a parse failure is kept until
+ * {@link #modifications()} instead of being thrown straight away; the process has to be drained regardless.
+ */
+public class GitModificationParser implements StreamConsumer {
+    private static final String ENTRY_START = "- !!";
+    private static final Pattern NAME_STATUS_PATTERN = Pattern.compile("^(.)\\S*\\s+(.+)$");
+
+    private final Yaml yaml = new Yaml();
+    private final List<Modification> modifications = new ArrayList<>();
+    private final StringBuilder entry = new StringBuilder();
+    private final List<String> nameStatusLines = new ArrayList<>();
+    private RuntimeException failure;
 
     public List<Modification> parse(String output) {
         if (StringUtils.isBlank(output)) {
             return Collections.emptyList();
         }
 
-        List<GitLog> gitLogs = yaml.load(output);
+        new BufferedReader(new StringReader(output)).lines().forEach(this::consumeLine);
+        return modifications();
+    }
 
-        if (gitLogs.isEmpty()) {
-            return Collections.emptyList();
+    @Override
+    public synchronized void consumeLine(String line) {
+        if (failure != null) {
+            return;
+        }
+
+        try {
+            if (line.startsWith(ENTRY_START)) {
+                finishEntry();
+                entry.append(line).append('\n');
+            } else if (line.isEmpty() || Character.isWhitespace(line.charAt(0))) {
+                entry.append(line).append('\n');
+            } else {
+                nameStatusLines.add(line);
+            }
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+    }
+
+    /**
+     * @return the commits parsed so far, once all output has been consumed
+     */
+    public synchronized List<Modification> modifications() {
+        if (failure == null) {
+            try {
+                finishEntry();
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+        return modifications;
+    }
+
+    private void finishEntry() {
+        if (StringUtils.isBlank(entry)) {
+            entry.setLength(0);
+            nameStatusLines.clear();
+            return;
+        }
+
+        List<GitLog> gitLogs = yaml.load(entry.toString());
+        for (GitLog gitLog : gitLogs) {
+            Modification modification = gitLog.toModification();
+            for (String nameStatusLine : nameStatusLines) {
+                Matcher m = NAME_STATUS_PATTERN.matcher(nameStatusLine);
+                if (!m.find()) {
+                    bomb("Unable to parse git-log output line: " + nameStatusLine + "\n" + "For revision: " + modification.getRevision());
+                }
+                modification.createModifiedFile(m.group(2), null, parseGitAction(m.group(1).charAt(0)));
+            }
+            modifications.add(modification);
         }
 
-        return gitLogs.stream().map(GitLog::toModification).collect(Collectors.toList());
+        entry.setLength(0);
+        nameStatusLines.clear();
     }
 }
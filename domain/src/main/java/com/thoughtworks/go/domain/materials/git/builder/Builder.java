@@ -27,6 +27,8 @@ public interface Builder {
 
     Builder outputFormatYaml();
 
+    Builder withModifiedFiles();
+
     Builder withNonArgSecrets(List<SecretString> secrets);
 
     CommandLine build();
@@ -25,6 +25,7 @@ import java.util.List;
 
 public class GitLogCommandBuilder implements Builder {
     private boolean isFormatted = false;
+    private boolean withModifiedFiles = false;
     private final CommandLine git = CommandLine.createCommandLine("git")
             .withEncoding("UTF-8")
             .withArg("log")
@@ -64,6 +65,20 @@ public class GitLogCommandBuilder implements Builder {
         return this;
     }
 
+    /**
+     * Lists the files changed by each commit, the way {@code git diff-tree --name-status -r} would. Renames are shown
+     * as a delete and an add, and merge commits list no files.
+     */
+    public Builder withModifiedFiles() {
+        if (withModifiedFiles) {
+            return this;
+        }
+
+        git.withArg("--name-status").withArg("--no-renames");
+        withModifiedFiles = true;
+        return this;
+    }
+
     @Override
     public Builder withWorkingDir(File workingDir) {
         this.git.withWorkingDir(workingDir);
@@ -46,6 +46,11 @@ public class WithBranchBuilder implements Builder {
         return mainBuilder.outputFormatYaml();
     }
 
+    @Override
+    public Builder withModifiedFiles() {
+        return mainBuilder.withModifiedFiles();
+    }
+
     @Override
     public Builder withNonArgSecrets(List<SecretString> secrets) {
         return mainBuilder.withNonArgSecrets(secrets);
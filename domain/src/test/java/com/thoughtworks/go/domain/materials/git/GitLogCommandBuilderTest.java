@@ -74,4 +74,15 @@ class GitLogCommandBuilderTest {
 
         assertThat(command.toString()).contains("--pretty=format:");
     }
+
+    @Test
+    void shouldListModifiedFilesWithoutDetectingRenames() {
+        CommandLine command = new GitLogCommandBuilder()
+                .between("45a76368ed", "origin/SomeBranch")
+                .withModifiedFiles()
+                .withModifiedFiles()
+                .build();
+
+        assertThat(command.toString()).isEqualTo("git log --no-color 45a76368ed..origin/SomeBranch --name-status --no-renames");
+    }
 }
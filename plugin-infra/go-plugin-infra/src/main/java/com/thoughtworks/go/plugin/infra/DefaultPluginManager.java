@@ -35,7 +35,9 @@ import org.springframework.stereotype.Service;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
+import static com.thoughtworks.go.util.SystemEnvironment.PLUGIN_MAX_CONCURRENT_REQUESTS;
 import static com.thoughtworks.go.util.SystemEnvironment.PLUGIN_WORK_DIR;
 import static java.lang.Double.parseDouble;
 
@@ -49,8 +51,10 @@ public class DefaultPluginManager implements PluginManager {
     private PluginLoader pluginLoader;
     private File bundleLocation;
     private GoPluginOSGiFramework goPluginOSGiFramework;
-    private final Map<PluginDescriptor, Set<String>> initializedPluginsWithTheirExtensionTypes = new HashMap<>();
+    private final Map<PluginDescriptor, Set<String>> initializedPluginsWithTheirExtensionTypes = new ConcurrentHashMap<>();
     private PluginRequestProcessorRegistry requestProcessRegistry;
+    private final PluginRequestLimiter requestLimiter;
+    private final PluginRequestLatencies requestLatencies = new PluginRequestLatencies();
 
     @Autowired
     public DefaultPluginManager(DefaultPluginJarLocationMonitor monitor, DefaultPluginRegistry registry, GoPluginOSGiFramework goPluginOSGiFramework,
@@ -64,6 +68,8 @@ public class DefaultPluginManager implements PluginManager {
         this.pluginLoader = pluginLoader;
         bundleLocation = bundlePath();
         this.goPluginOSGiFramework = goPluginOSGiFramework;
+        Integer maxConcurrentRequests = systemEnvironment.get(PLUGIN_MAX_CONCURRENT_REQUESTS);
+        this.requestLimiter = new PluginRequestLimiter(maxConcurrentRequests == null ? 0 : maxConcurrentRequests);
     }
 
     @Override
@@ -95,9 +101,9 @@ public class DefaultPluginManager implements PluginManager {
 
             @Override
             public void pluginUnLoaded(GoPluginDescriptor pluginDescriptor) {
-                synchronized (initializedPluginsWithTheirExtensionTypes) {
-                    initializedPluginsWithTheirExtensionTypes.remove(pluginDescriptor);
-                }
+                initializedPluginsWithTheirExtensionTypes.remove(pluginDescriptor);
+                requestLimiter.forget(pluginDescriptor.id());
+                requestLatencies.forget(pluginDescriptor.id());
             }
         });
 
@@ -130,33 +136,49 @@ public class DefaultPluginManager implements PluginManager {
     public GoPluginApiResponse submitTo(final String pluginId, String extensionType, final GoPluginApiRequest apiRequest) {
         return goPluginOSGiFramework.doOn(GoPlugin.class, pluginId, extensionType, (plugin, pluginDescriptor) -> {
             ensureInitializerInvoked(pluginDescriptor, plugin, extensionType);
-            try {
-                return plugin.handle(apiRequest);
-            } catch (UnhandledRequestTypeException e) {
-                LOGGER.error(e.getMessage());
-                LOGGER.debug(e.getMessage(), e);
-                throw new RuntimeException(e);
-            }
+            return requestLimiter.call(pluginId, () -> handle(pluginId, plugin, apiRequest));
         });
     }
 
+    private GoPluginApiResponse handle(String pluginId, GoPlugin plugin, GoPluginApiRequest apiRequest) {
+        long start = System.nanoTime();
+        try {
+            return plugin.handle(apiRequest);
+        } catch (UnhandledRequestTypeException e) {
+            LOGGER.error(e.getMessage());
+            LOGGER.debug(e.getMessage(), e);
+            throw new RuntimeException(e);
+        } finally {
+            requestLatencies.record(pluginId, String.valueOf(apiRequest.requestName()), System.nanoTime() - start);
+        }
+    }
+
     private void ensureInitializerInvoked(GoPluginDescriptor pluginDescriptor, GoPlugin plugin, String extensionType) {
-        synchronized (initializedPluginsWithTheirExtensionTypes) {
-            if (initializedPluginsWithTheirExtensionTypes.get(pluginDescriptor) == null) {
-                initializedPluginsWithTheirExtensionTypes.put(pluginDescriptor, new HashSet<>());
-            }
+        Set<String> initializedExtensions = initializedPluginsWithTheirExtensionTypes.computeIfAbsent(pluginDescriptor, descriptor -> ConcurrentHashMap.newKeySet());
+        if (initializedExtensions.contains(extensionType)) {
+            return;
+        }
 
-            Set<String> initializedExtensions = initializedPluginsWithTheirExtensionTypes.get(pluginDescriptor);
-            if (initializedExtensions == null || initializedExtensions.contains(extensionType)) {
+        // only the first request for a plugin and extension waits here; the extension is marked once it is initialized
+        synchronized (initializedExtensions) {
+            if (initializedExtensions.contains(extensionType)) {
                 return;
             }
-            initializedPluginsWithTheirExtensionTypes.get(pluginDescriptor).add(extensionType);
 
             PluginAwareDefaultGoApplicationAccessor accessor = new PluginAwareDefaultGoApplicationAccessor(pluginDescriptor, requestProcessRegistry);
             plugin.initializeGoApplicationAccessor(accessor);
+            initializedExtensions.add(extensionType);
         }
     }
 
+    public PluginRequestLimiter requestLimiter() {
+        return requestLimiter;
+    }
+
+    public PluginRequestLatencies requestLatencies() {
+        return requestLatencies;
+    }
+
     @Override
     public boolean isPluginOfType(final String extension, String pluginId) {
         return goPluginOSGiFramework.hasReferenceFor(GoPlugin.class, pluginId, extension);
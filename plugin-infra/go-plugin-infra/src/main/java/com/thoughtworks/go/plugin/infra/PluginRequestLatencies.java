@@ -0,0 +1,129 @@
+/*
+ * Copyright 2020 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.plugin.infra;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps a latency histogram of the requests sent to each plugin, per request type. Recording only updates counters,
+ * so that it never makes requests to different plugins, or of different types, wait on each other.
+ */
+public class PluginRequestLatencies {
+    static final long[] BUCKET_UPPER_BOUNDS_IN_MILLIS = {1, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000};
+
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, Histogram>> histogramsByPlugin = new ConcurrentHashMap<>();
+
+    void record(String pluginId, String requestName, long elapsedNanos) {
+        histogramsByPlugin.computeIfAbsent(pluginId, id -> new ConcurrentHashMap<>())
+                .computeIfAbsent(requestName, name -> new Histogram())
+                .record(TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+    }
+
+    void forget(String pluginId) {
+        histogramsByPlugin.remove(pluginId);
+    }
+
+    /**
+     * @return the histograms of each request type sent to the given plugin, sorted by request type
+     */
+    public Map<String, Histogram> of(String pluginId) {
+        Map<String, Histogram> histograms = histogramsByPlugin.get(pluginId);
+        return histograms == null ? Collections.emptyMap() : new TreeMap<>(histograms);
+    }
+
+    public static class Histogram {
+        private final LongAdder[] buckets = new LongAdder[BUCKET_UPPER_BOUNDS_IN_MILLIS.length + 1];
+        private final LongAdder totalMillis = new LongAdder();
+        private final LongAccumulator maxMillis = new LongAccumulator(Math::max, 0L);
+
+        Histogram() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long millis) {
+            buckets[bucketOf(millis)].increment();
+            totalMillis.add(millis);
+            maxMillis.accumulate(millis);
+        }
+
+        private static int bucketOf(long millis) {
+            int bucket = 0;
+            while (bucket < BUCKET_UPPER_BOUNDS_IN_MILLIS.length && millis > BUCKET_UPPER_BOUNDS_IN_MILLIS[bucket]) {
+                bucket++;
+            }
+            return bucket;
+        }
+
+        public long count() {
+            long count = 0L;
+            for (LongAdder bucket : buckets) {
+                count += bucket.sum();
+            }
+            return count;
+        }
+
+        public long meanMillis() {
+            long count = count();
+            return count == 0L ? 0L : totalMillis.sum() / count;
+        }
+
+        public long maxMillis() {
+            return maxMillis.get();
+        }
+
+        /**
+         * @return the upper bound of the bucket that the given fraction of requests completed within, or the slowest
+         * request seen if that lies beyond the last bucket
+         */
+        public long percentileMillis(double fraction) {
+            long count = count();
+            if (count == 0L) {
+                return 0L;
+            }
+
+            long target = (long) Math.ceil(fraction * count);
+            long seen = 0L;
+            for (int i = 0; i < BUCKET_UPPER_BOUNDS_IN_MILLIS.length; i++) {
+                seen += buckets[i].sum();
+                if (seen >= target) {
+                    return Math.min(BUCKET_UPPER_BOUNDS_IN_MILLIS[i], maxMillis());
+                }
+            }
+            return maxMillis();
+        }
+
+        /**
+         * @return the number of requests in each bucket, labelled by the bucket's upper bound
+         */
+        public Map<String, Long> buckets() {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            for (int i = 0; i < BUCKET_UPPER_BOUNDS_IN_MILLIS.length; i++) {
+                counts.put("<= " + BUCKET_UPPER_BOUNDS_IN_MILLIS[i] + "ms", buckets[i].sum());
+            }
+            counts.put("> " + BUCKET_UPPER_BOUNDS_IN_MILLIS[BUCKET_UPPER_BOUNDS_IN_MILLIS.length - 1] + "ms", buckets[BUCKET_UPPER_BOUNDS_IN_MILLIS.length].sum());
+            return counts;
+        }
+    }
+}
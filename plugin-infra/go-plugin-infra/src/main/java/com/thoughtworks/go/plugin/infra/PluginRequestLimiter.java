@@ -0,0 +1,82 @@
+/*
+ * Copyright 2020 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.plugin.infra;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+import static java.lang.String.format;
+
+/**
+ * Bounds the number of requests that can be in flight to any one plugin at a time. Requests beyond the limit queue up,
+ * in the order they arrived, for that plugin alone; a plugin that is slow to respond ties up at most that many server
+ * threads and does not hold up requests to any other plugin.
+ * <p>
+ * A thread that is already talking to a plugin (e.g. the plugin called back into the server, which in turn sends it
+ * another request) is always let through, since it would otherwise end up waiting on itself.
+ */
+public class PluginRequestLimiter {
+    private final int maxConcurrentRequests;
+    private final ConcurrentHashMap<String, Semaphore> permitsByPlugin = new ConcurrentHashMap<>();
+    private final ThreadLocal<Set<String>> pluginsInUseByThread = ThreadLocal.withInitial(HashSet::new);
+
+    /**
+     * @param maxConcurrentRequests the number of requests allowed in flight per plugin; no limit if not positive
+     */
+    PluginRequestLimiter(int maxConcurrentRequests) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
+    }
+
+    <R> R call(String pluginId, Supplier<R> request) {
+        Set<String> pluginsInUse = pluginsInUseByThread.get();
+        if (maxConcurrentRequests <= 0 || !pluginsInUse.add(pluginId)) {
+            return request.get();
+        }
+
+        Semaphore permits = permitsByPlugin.computeIfAbsent(pluginId, id -> new Semaphore(maxConcurrentRequests, true));
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            pluginsInUse.remove(pluginId);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(format("Interrupted while waiting to send a request to plugin [%s]", pluginId), e);
+        }
+
+        try {
+            return request.get();
+        } finally {
+            permits.release();
+            pluginsInUse.remove(pluginId);
+        }
+    }
+
+    public int requestsInFlight(String pluginId) {
+        Semaphore permits = permitsByPlugin.get(pluginId);
+        return permits == null ? 0 : maxConcurrentRequests - permits.availablePermits();
+    }
+
+    public int requestsWaiting(String pluginId) {
+        Semaphore permits = permitsByPlugin.get(pluginId);
+        return permits == null ? 0 : permits.getQueueLength();
+    }
+
+    void forget(String pluginId) {
+        permitsByPlugin.remove(pluginId);
+    }
+}
@@ -157,6 +157,30 @@ class DefaultPluginManagerTest {
         assertThat(accessor.pluginDescriptor()).isEqualTo(descriptor);
     }
 
+    @Test
+    void shouldInitializeAPluginOnlyOnceForAnExtensionAndRecordHowLongEachRequestTook() throws Exception {
+        String extensionType = "sample-extension";
+        GoPluginApiRequest request = mock(GoPluginApiRequest.class);
+        final GoPlugin goPlugin = mock(GoPlugin.class);
+        final GoPluginDescriptor descriptor = mock(GoPluginDescriptor.class);
+        when(request.requestName()).thenReturn("some-request");
+        when(goPlugin.handle(request)).thenReturn(mock(GoPluginApiResponse.class));
+
+        doAnswer(invocationOnMock -> {
+            ActionWithReturn<GoPlugin, GoPluginApiResponse> action = (ActionWithReturn<GoPlugin, GoPluginApiResponse>) invocationOnMock.getArguments()[3];
+            return action.execute(goPlugin, descriptor);
+        }).when(goPluginOSGiFramework).doOn(eq(GoPlugin.class), eq("plugin-id"), eq(extensionType), any(ActionWithReturn.class));
+
+        DefaultPluginManager pluginManager = new DefaultPluginManager(monitor, registry, goPluginOSGiFramework, jarChangeListener, pluginRequestProcessorRegistry, systemEnvironment, pluginLoader);
+        pluginManager.submitTo("plugin-id", extensionType, request);
+        pluginManager.submitTo("plugin-id", extensionType, request);
+
+        verify(goPlugin, times(1)).initializeGoApplicationAccessor(any(PluginAwareDefaultGoApplicationAccessor.class));
+        verify(goPlugin, times(2)).handle(request);
+        assertThat(pluginManager.requestLatencies().of("plugin-id").get("some-request").count()).isEqualTo(2);
+        assertThat(pluginManager.requestLimiter().requestsInFlight("plugin-id")).isEqualTo(0);
+    }
+
     @Test
     void shouldSayPluginIsOfGivenExtensionTypeWhenReferenceIsFound() {
         String pluginId = "plugin-id";
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2020 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.plugin.infra;
+
+import com.thoughtworks.go.plugin.infra.PluginRequestLatencies.Histogram;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PluginRequestLatenciesTest {
+    @Test
+    void shouldKeepAHistogramPerPluginAndRequestType() {
+        PluginRequestLatencies latencies = new PluginRequestLatencies();
+
+        latencies.record("docker", "create-agent", TimeUnit.MILLISECONDS.toNanos(3));
+        latencies.record("docker", "create-agent", TimeUnit.MILLISECONDS.toNanos(40));
+        latencies.record("docker", "server-ping", TimeUnit.MILLISECONDS.toNanos(1));
+        latencies.record("ldap", "authenticate-user", TimeUnit.MILLISECONDS.toNanos(200));
+
+        Map<String, Histogram> docker = latencies.of("docker");
+        assertThat(docker.keySet()).containsExactly("create-agent", "server-ping");
+        assertThat(docker.get("create-agent").count()).isEqualTo(2);
+        assertThat(docker.get("create-agent").meanMillis()).isEqualTo(21);
+        assertThat(docker.get("create-agent").maxMillis()).isEqualTo(40);
+        assertThat(docker.get("create-agent").buckets()).containsEntry("<= 5ms", 1L).containsEntry("<= 50ms", 1L);
+        assertThat(latencies.of("ldap").get("authenticate-user").count()).isEqualTo(1);
+        assertThat(latencies.of("unknown")).isEmpty();
+    }
+
+    @Test
+    void shouldEstimatePercentilesFromTheBuckets() {
+        PluginRequestLatencies latencies = new PluginRequestLatencies();
+        for (int i = 0; i < 99; i++) {
+            latencies.record("plugin", "request", TimeUnit.MILLISECONDS.toNanos(2));
+        }
+        latencies.record("plugin", "request", TimeUnit.SECONDS.toNanos(90));
+
+        Histogram histogram = latencies.of("plugin").get("request");
+        assertThat(histogram.percentileMillis(0.5)).isEqualTo(5);
+        assertThat(histogram.percentileMillis(0.99)).isEqualTo(5);
+        assertThat(histogram.percentileMillis(1.0)).isEqualTo(90000);
+        assertThat(histogram.buckets()).containsEntry("> 60000ms", 1L);
+    }
+
+    @Test
+    void shouldForgetAPlugin() {
+        PluginRequestLatencies latencies = new PluginRequestLatencies();
+        latencies.record("plugin", "request", 1000L);
+
+        latencies.forget("plugin");
+
+        assertThat(latencies.of("plugin")).isEmpty();
+    }
+}
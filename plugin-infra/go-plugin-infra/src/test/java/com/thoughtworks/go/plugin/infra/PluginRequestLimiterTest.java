@@ -0,0 +1,91 @@
+/*
+ * Copyright 2020 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.plugin.infra;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PluginRequestLimiterTest {
+    @Test
+    void shouldQueueRequestsToAPluginBeyondTheLimit() throws Exception {
+        PluginRequestLimiter limiter = new PluginRequestLimiter(1);
+        CountDownLatch firstRequestStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstRequest = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            Future<String> first = executor.submit(() -> limiter.call("slow-plugin", () -> {
+                firstRequestStarted.countDown();
+                await(releaseFirstRequest);
+                return "first";
+            }));
+            firstRequestStarted.await();
+            Future<String> second = executor.submit(() -> limiter.call("slow-plugin", () -> "second"));
+
+            waitUntilWaiting(limiter, "slow-plugin");
+            assertThat(limiter.requestsInFlight("slow-plugin")).isEqualTo(1);
+            assertThat(second.isDone()).isFalse();
+
+            assertThat(limiter.call("other-plugin", () -> "not held up")).isEqualTo("not held up");
+
+            releaseFirstRequest.countDown();
+            assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("first");
+            assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("second");
+            assertThat(limiter.requestsInFlight("slow-plugin")).isEqualTo(0);
+        } finally {
+            releaseFirstRequest.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldLetAThreadAlreadyTalkingToAPluginSendItAnotherRequest() {
+        PluginRequestLimiter limiter = new PluginRequestLimiter(1);
+
+        String response = limiter.call("plugin", () -> limiter.call("plugin", () -> "nested"));
+
+        assertThat(response).isEqualTo("nested");
+        assertThat(limiter.requestsInFlight("plugin")).isEqualTo(0);
+    }
+
+    @Test
+    void shouldNotLimitRequestsWhenNoLimitIsConfigured() {
+        PluginRequestLimiter limiter = new PluginRequestLimiter(0);
+
+        assertThat(limiter.call("plugin", () -> "response")).isEqualTo("response");
+        assertThat(limiter.requestsInFlight("plugin")).isEqualTo(0);
+        assertThat(limiter.requestsWaiting("plugin")).isEqualTo(0);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void waitUntilWaiting(PluginRequestLimiter limiter, String pluginId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (limiter.requestsWaiting(pluginId) == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(limiter.requestsWaiting(pluginId)).isEqualTo(1);
+    }
+}
@@ -33,12 +33,22 @@ import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static com.thoughtworks.go.server.service.GoConfigService.INVALID_CRUISE_CONFIG_XML;
 import static com.thoughtworks.go.util.ExceptionUtils.bomb;
 
 /**
  * @understands when to reload the config file or other config source
+ * <p>
+ * The loaded config is published as a single {@link GoConfigHolder}, so readers never wait on a writer and always see
+ * a config and config-for-edit that belong together. Config change listeners are notified in order on a dedicated
+ * thread, outside of any lock: a writer holding {@link GoConfigWriteLock} leaves it to {@link GoConfigDao} to wait for
+ * the listeners once the lock is released, so a slow listener no longer holds up the next config write.
  */
 @Component
 public class CachedGoConfig {
@@ -48,10 +58,9 @@ public class CachedGoConfig {
     private GoConfigMigrator goConfigMigrator;
     private MaintenanceModeService maintenanceModeService;
     private final ServerHealthService serverHealthService;
-    private List<ConfigChangedListener> listeners = new ArrayList<>();
-    private volatile CruiseConfig currentConfig;
-    private volatile CruiseConfig currentConfigForEdit;
-    private volatile CruiseConfig mergedCurrentConfigForEdit;
+    private final List<ConfigChangedListener> listeners = new CopyOnWriteArrayList<>();
+    private final ExecutorService listenerNotifier;
+    private volatile Thread listenerNotifierThread;
     private volatile GoConfigHolder configHolder;
     private volatile Exception lastException;
 
@@ -64,6 +73,12 @@ public class CachedGoConfig {
         this.cachedGoPartials = cachedGoPartials;
         this.goConfigMigrator = goConfigMigrator;
         this.maintenanceModeService = maintenanceModeService;
+        this.listenerNotifier = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "config-change-notifier");
+            thread.setDaemon(true);
+            listenerNotifierThread = thread;
+            return thread;
+        });
     }
 
     public static List<ConfigErrors> validate(CruiseConfig config) {
@@ -103,6 +118,7 @@ public class CachedGoConfig {
                 saveConfigError(e);
             }
         }
+        awaitListenerNotificationsUnlessWriteLockHeld();
     }
 
     private synchronized void saveConfigError(Exception e) {
@@ -113,71 +129,95 @@ public class CachedGoConfig {
 
     public CruiseConfig loadForEditing() {
         loadConfigIfNull();
-        return currentConfigForEdit;
+        return configHolder.configForEdit;
     }
 
     public CruiseConfig loadMergedForEditing() {
         loadConfigIfNull();
-        if (mergedCurrentConfigForEdit == null) {
+        GoConfigHolder holder = this.configHolder;
+        if (holder.mergedConfigForEdit == null) {
             // when there are no partials, just return standard config for edit
-            return currentConfigForEdit;
+            return holder.configForEdit;
         }
-        return mergedCurrentConfigForEdit;
+        return holder.mergedConfigForEdit;
     }
 
     public CruiseConfig currentConfig() {
-        if (currentConfig == null) {
-            currentConfig = new BasicCruiseConfig();
+        GoConfigHolder holder = this.configHolder;
+        if (holder == null) {
+            return new BasicCruiseConfig();
         }
-        return currentConfig;
+        return holder.config;
     }
 
     public void loadConfigIfNull() {
-        if (currentConfig == null || currentConfigForEdit == null || configHolder == null || (mergedCurrentConfigForEdit == null && !cachedGoPartials.lastValidPartials().isEmpty())) {
+        GoConfigHolder holder = this.configHolder;
+        if (holder == null || holder.config == null || holder.configForEdit == null || (holder.mergedConfigForEdit == null && !cachedGoPartials.lastValidPartials().isEmpty())) {
             forceReload();
         }
     }
 
-    public synchronized ConfigSaveState writeFullConfigWithLock(FullConfigUpdateCommand updateConfigCommand) {
-        GoFileConfigDataSource.GoConfigSaveResult saveResult = dataSource.writeFullConfigWithLock(updateConfigCommand, this.configHolder);
-        saveValidConfigToCacheAndNotifyConfigChangeListeners(saveResult.getConfigHolder());
-        return saveResult.getConfigSaveState();
+    public ConfigSaveState writeFullConfigWithLock(FullConfigUpdateCommand updateConfigCommand) {
+        ConfigSaveState configSaveState;
+        synchronized (this) {
+            GoFileConfigDataSource.GoConfigSaveResult saveResult = dataSource.writeFullConfigWithLock(updateConfigCommand, this.configHolder);
+            saveValidConfigToCacheAndNotifyConfigChangeListeners(saveResult.getConfigHolder());
+            configSaveState = saveResult.getConfigSaveState();
+        }
+        awaitListenerNotificationsUnlessWriteLockHeld();
+        return configSaveState;
     }
 
-    public synchronized void upgradeConfig() throws Exception {
-        GoConfigHolder goConfigHolder = goConfigMigrator.migrate();
-        saveValidConfigToCacheAndNotifyConfigChangeListeners(goConfigHolder);
+    public void upgradeConfig() throws Exception {
+        synchronized (this) {
+            GoConfigHolder goConfigHolder = goConfigMigrator.migrate();
+            saveValidConfigToCacheAndNotifyConfigChangeListeners(goConfigHolder);
+        }
+        awaitListenerNotificationsUnlessWriteLockHeld();
     }
 
-    public synchronized ConfigSaveState writeWithLock(UpdateConfigCommand updateConfigCommand) {
-        GoFileConfigDataSource.GoConfigSaveResult saveResult = dataSource.writeWithLock(updateConfigCommand, this.configHolder);
-        saveValidConfigToCacheAndNotifyConfigChangeListeners(saveResult.getConfigHolder());
-        return saveResult.getConfigSaveState();
+    public ConfigSaveState writeWithLock(UpdateConfigCommand updateConfigCommand) {
+        ConfigSaveState configSaveState;
+        synchronized (this) {
+            GoFileConfigDataSource.GoConfigSaveResult saveResult = dataSource.writeWithLock(updateConfigCommand, this.configHolder);
+            saveValidConfigToCacheAndNotifyConfigChangeListeners(saveResult.getConfigHolder());
+            configSaveState = saveResult.getConfigSaveState();
+        }
+        awaitListenerNotificationsUnlessWriteLockHeld();
+        return configSaveState;
     }
 
-    public synchronized EntityConfigSaveResult writeEntityWithLock(EntityConfigUpdateCommand updateConfigCommand, Username currentUser) {
-        EntityConfigSaveResult entityConfigSaveResult = dataSource.writeEntityWithLock(updateConfigCommand, this.configHolder, currentUser);
-        saveValidConfigToCacheAndNotifyEntityConfigChangeListeners(entityConfigSaveResult);
+    public EntityConfigSaveResult writeEntityWithLock(EntityConfigUpdateCommand updateConfigCommand, Username currentUser) {
+        EntityConfigSaveResult entityConfigSaveResult;
+        synchronized (this) {
+            entityConfigSaveResult = dataSource.writeEntityWithLock(updateConfigCommand, this.configHolder, currentUser);
+            saveValidConfigToCacheAndNotifyEntityConfigChangeListeners(entityConfigSaveResult);
+        }
+        awaitListenerNotificationsUnlessWriteLockHeld();
         return entityConfigSaveResult;
     }
 
     private <T> void saveValidConfigToCacheAndNotifyEntityConfigChangeListeners(EntityConfigSaveResult<T> saveResult) {
         saveValidConfigToCache(saveResult.getConfigHolder());
-        LOGGER.info("About to notify {} config listeners", saveResult.getEntityConfig().getClass().getName());
+        listenerNotifier.execute(() -> notifyEntityListeners(saveResult.getEntityConfig()));
+    }
+
+    private <T> void notifyEntityListeners(T entityConfig) {
+        LOGGER.info("About to notify {} config listeners", entityConfig.getClass().getName());
 
         for (ConfigChangedListener listener : listeners) {
-            if (listener instanceof EntityConfigChangedListener<?> && ((EntityConfigChangedListener) listener).shouldCareAbout(saveResult.getEntityConfig())) {
+            if (listener instanceof EntityConfigChangedListener<?> && ((EntityConfigChangedListener) listener).shouldCareAbout(entityConfig)) {
                 try {
                     long startTime = System.currentTimeMillis();
-                EntityConfigChangedListener<T> entityConfigChangedListener = (EntityConfigChangedListener<T>) listener;
-                    entityConfigChangedListener.onEntityConfigChange(saveResult.getEntityConfig());
+                    EntityConfigChangedListener<T> entityConfigChangedListener = (EntityConfigChangedListener<T>) listener;
+                    entityConfigChangedListener.onEntityConfigChange(entityConfig);
                     LOGGER.debug("Notifying {} took (in ms): {}", listener.getClass(), (System.currentTimeMillis() - startTime));
                 } catch (Exception e) {
                     LOGGER.error("failed to fire config changed event for listener: {}", listener, e);
                 }
             }
         }
-        LOGGER.info("Finished notifying {} config listeners", saveResult.getEntityConfig().getClass().getName());
+        LOGGER.info("Finished notifying {} config listeners", entityConfig.getClass().getName());
     }
 
     private synchronized void saveValidConfigToCache(GoConfigHolder configHolder) {
@@ -185,9 +225,6 @@ public class CachedGoConfig {
             LOGGER.debug("[Config Save] Saving config to the cache");
             this.lastException = null;
             this.configHolder = configHolder;
-            this.currentConfig = this.configHolder.config;
-            this.currentConfigForEdit = this.configHolder.configForEdit;
-            this.mergedCurrentConfigForEdit = configHolder.mergedConfigForEdit;
             serverHealthService.update(ServerHealthState.success(HealthStateType.invalidConfig()));
         }
     }
@@ -195,7 +232,35 @@ public class CachedGoConfig {
     private synchronized void saveValidConfigToCacheAndNotifyConfigChangeListeners(GoConfigHolder configHolder) {
         saveValidConfigToCache(configHolder);
         if (configHolder != null) {
-            notifyListeners(currentConfig);
+            CruiseConfig newCruiseConfig = configHolder.config;
+            listenerNotifier.execute(() -> notifyListeners(newCruiseConfig));
+        }
+    }
+
+    /**
+     * Waits until listeners have been told about every config change made so far. Writers that hold
+     * {@link GoConfigWriteLock} should only call this after releasing it.
+     */
+    public void awaitListenerNotifications() {
+        if (Thread.currentThread() == listenerNotifierThread) {
+            // a listener changed the config; its own notification is queued behind the one being delivered
+            return;
+        }
+
+        Future<?> notified = listenerNotifier.submit(() -> {
+        });
+        try {
+            notified.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOGGER.error("Failed to wait for config change listeners", e);
+        }
+    }
+
+    private void awaitListenerNotificationsUnlessWriteLockHeld() {
+        if (!Thread.holdsLock(GoConfigWriteLock.class)) {
+            awaitListenerNotifications();
         }
     }
 
@@ -211,14 +276,41 @@ public class CachedGoConfig {
         return GoConfigValidity.valid();
     }
 
-    public synchronized void registerListener(ConfigChangedListener listener) {
+    /**
+     * Adds the listener and tells it about the current config on the notifier thread, behind any notifications still
+     * queued, so that a listener never sees two configs at once or an older config after a newer one.
+     */
+    public void registerListener(ConfigChangedListener listener) {
+        if (Thread.currentThread() == listenerNotifierThread) {
+            addListenerAndNotify(listener);
+            return;
+        }
+
+        Future<?> registered = listenerNotifier.submit(() -> addListenerAndNotify(listener));
+        if (Thread.holdsLock(GoConfigWriteLock.class)) {
+            return;
+        }
+        try {
+            registered.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private void addListenerAndNotify(ConfigChangedListener listener) {
         this.listeners.add(listener);
-        if (currentConfig != null) {
-            listener.onConfigChange(currentConfig);
+        GoConfigHolder holder = this.configHolder;
+        if (holder != null && holder.config != null) {
+            listener.onConfigChange(holder.config);
         }
     }
 
-    private synchronized void notifyListeners(CruiseConfig newCruiseConfig) {
+    private void notifyListeners(CruiseConfig newCruiseConfig) {
         LOGGER.info("About to notify config listeners");
         for (ConfigChangedListener listener : listeners) {
             try {
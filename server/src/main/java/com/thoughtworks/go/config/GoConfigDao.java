@@ -100,6 +100,7 @@ public class GoConfigDao {
                 LOGGER.info("Entity update for request by {} is completed", currentUser);
             }
         }
+        cachedConfigService.awaitListenerNotifications();
     }
 
     public ConfigSaveState updateConfig(UpdateConfigCommand command) {
@@ -125,6 +126,7 @@ public class GoConfigDao {
                 LOGGER.info("Config update request by {} is completed", SessionUtils.currentUsername().getUsername());
             }
         }
+        cachedConfigService.awaitListenerNotifications();
         return configSaveState;
     }
 
@@ -143,6 +145,7 @@ public class GoConfigDao {
                 LOGGER.info("Config update request by {} is completed", SessionUtils.currentUsername().getUsername());
             }
         }
+        cachedConfigService.awaitListenerNotifications();
         return configSaveState;
     }
 
@@ -223,19 +223,22 @@ public class GoFileConfigDataSource {
     }
 
     public synchronized EntityConfigSaveResult writeEntityWithLock(EntityConfigUpdateCommand updatingCommand, GoConfigHolder configHolder, Username currentUser) {
+        ConfigSaveTimings timings = new ConfigSaveTimings();
         CruiseConfig modifiedConfig = cloner.deepClone(configHolder.configForEdit);
+        timings.phaseDone("clone");
         try {
             updatingCommand.update(modifiedConfig);
         } catch (Exception e) {
             bomb(e);
         }
+        timings.phaseDone("update");
         List<PartialConfig> lastValidPartials = cachedGoPartials.lastValidPartials();
         List<PartialConfig> lastKnownPartials = cachedGoPartials.lastKnownPartials();
         if (lastKnownPartials.isEmpty() || areKnownPartialsSameAsValidPartials(lastKnownPartials, lastValidPartials)) {
-            return trySavingEntity(updatingCommand, currentUser, modifiedConfig, lastValidPartials);
+            return trySavingEntity(updatingCommand, currentUser, modifiedConfig, lastValidPartials, timings);
         }
         try {
-            return trySavingEntity(updatingCommand, currentUser, modifiedConfig, lastValidPartials);
+            return trySavingEntity(updatingCommand, currentUser, modifiedConfig, lastValidPartials, timings);
         } catch (GoConfigInvalidException e) {
             StringBuilder errorMessageBuilder = new StringBuilder();
             try {
@@ -264,12 +267,16 @@ public class GoFileConfigDataSource {
 
     }
 
-    private EntityConfigSaveResult trySavingEntity(EntityConfigUpdateCommand updatingCommand, Username currentUser, CruiseConfig modifiedConfig, List<PartialConfig> partials) {
+    private EntityConfigSaveResult trySavingEntity(EntityConfigUpdateCommand updatingCommand, Username currentUser, CruiseConfig modifiedConfig, List<PartialConfig> partials, ConfigSaveTimings timings) {
         modifiedConfig.setPartials(partials);
         CruiseConfig preprocessedConfig = cloner.deepClone(modifiedConfig);
+        timings.phaseDone("clone");
         MagicalGoConfigXmlLoader.preprocess(preprocessedConfig);
         updatingCommand.encrypt(preprocessedConfig);
-        if (updatingCommand.isValid(preprocessedConfig)) {
+        timings.phaseDone("preprocess");
+        boolean valid = updatingCommand.isValid(preprocessedConfig);
+        timings.phaseDone("validate");
+        if (valid) {
             try {
                 LOGGER.info("[Configuration Changed] Saving updated configuration.");
                 String configAsXml = configAsXml(modifiedConfig, true);
@@ -277,7 +284,9 @@ public class GoFileConfigDataSource {
                 MagicalGoConfigXmlLoader.setMd5(modifiedConfig, md5);
                 MagicalGoConfigXmlLoader.setMd5(preprocessedConfig, md5);
                 writeToConfigXmlFile(configAsXml);
+                timings.phaseDone("write");
                 checkinConfigToGitRepo(partials, preprocessedConfig, configAsXml, md5, currentUser.getUsername().toString());
+                timings.phaseDone("checkin");
                 LOGGER.debug("[Config Save] Done writing with lock");
                 CruiseConfig mergedCruiseConfigForEdit = modifiedConfig;
                 if (!partials.isEmpty()) {
@@ -285,7 +294,9 @@ public class GoFileConfigDataSource {
                     mergedCruiseConfigForEdit = cloner.deepClone(modifiedConfig);
                     mergedCruiseConfigForEdit.merge(partials, true);
                     LOGGER.debug("[Config Save] Updating GoConfigHolder with mergedCruiseConfigForEdit: Done.");
+                    timings.phaseDone("merge");
                 }
+                LOGGER.info("[Config Save] Saved {} in {}", updatingCommand.getClass().getSimpleName(), timings);
                 return new EntityConfigSaveResult(updatingCommand.getPreprocessedEntityConfig(), new GoConfigHolder(preprocessedConfig, modifiedConfig, mergedCruiseConfigForEdit));
             } catch (Exception e) {
                 throw new RuntimeException("failed to save : " + e.getMessage());
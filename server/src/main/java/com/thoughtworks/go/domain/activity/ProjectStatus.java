@@ -22,8 +22,11 @@ import org.apache.commons.lang3.StringUtils;
 import org.jdom2.Element;
 import org.jdom2.output.XMLOutputter;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 public class ProjectStatus {
@@ -41,6 +44,7 @@ public class ProjectStatus {
     public static final String DEFAULT_LAST_BUILD_LABEL = "1";
     private volatile Users viewers;
     private String cachedXmlRepresentation;
+    private byte[][] cachedXmlFragments;
 
     public ProjectStatus(String name, String activity, String lastBuildStatus, String lastBuildLabel,
                          Date lastBuildTime, String webUrl) {
@@ -170,6 +174,33 @@ public class ProjectStatus {
         return cachedXmlRepresentation;
     }
 
+    /**
+     * The UTF-8 encoded {@link #xmlRepresentation()}, split at every {@link #SITE_URL_PREFIX}, so that it can be written
+     * out for any site URL without searching through or rewriting the XML. Empty if there is nothing to show.
+     */
+    public byte[][] xmlFragments() {
+        if (cachedXmlFragments == null) {
+            cachedXmlFragments = splitAtSiteUrlPrefix(xmlRepresentation());
+        }
+        return cachedXmlFragments;
+    }
+
+    private static byte[][] splitAtSiteUrlPrefix(String xml) {
+        if (StringUtils.isBlank(xml)) {
+            return new byte[0][];
+        }
+
+        List<byte[]> fragments = new ArrayList<>();
+        int start = 0;
+        int prefix;
+        while ((prefix = xml.indexOf(SITE_URL_PREFIX, start)) != -1) {
+            fragments.add(xml.substring(start, prefix).getBytes(StandardCharsets.UTF_8));
+            start = prefix + SITE_URL_PREFIX.length();
+        }
+        fragments.add(xml.substring(start).getBytes(StandardCharsets.UTF_8));
+        return fragments.toArray(new byte[0][]);
+    }
+
     public Set<String> getBreakers() {
         return breakers;
     }
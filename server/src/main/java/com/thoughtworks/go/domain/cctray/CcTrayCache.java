@@ -33,11 +33,11 @@ public class CcTrayCache {
      * to preserve insertion order.
      */
     private LinkedHashMap<String, ProjectStatus> cache;
-    private volatile List<ProjectStatus> orderedEntries;
+    private volatile Snapshot snapshot;
 
     public CcTrayCache() {
         this.cache = new LinkedHashMap<>();
-        this.orderedEntries = new ArrayList<>();
+        this.snapshot = new Snapshot(0L, new ArrayList<>());
     }
 
     ProjectStatus get(String projectName) {
@@ -61,11 +61,15 @@ public class CcTrayCache {
     }
 
     public List<ProjectStatus> allEntriesInOrder() {
-        return this.orderedEntries;
+        return this.snapshot.entries();
+    }
+
+    public Snapshot snapshot() {
+        return this.snapshot;
     }
 
     private void cacheHasChanged() {
-        this.orderedEntries = new ArrayList<>(cache.values());
+        this.snapshot = new Snapshot(snapshot.version() + 1, new ArrayList<>(cache.values()));
     }
 
     private Map<String, ProjectStatus> createReplacementItems(List<ProjectStatus> statuses) {
@@ -75,4 +79,23 @@ public class CcTrayCache {
         }
         return replacementItems;
     }
+
+    /* Understands the entries of the cache as of one change, and how many changes have been made up to it. */
+    public static class Snapshot {
+        private final long version;
+        private final List<ProjectStatus> entries;
+
+        public Snapshot(long version, List<ProjectStatus> entries) {
+            this.version = version;
+            this.entries = entries;
+        }
+
+        public long version() {
+            return version;
+        }
+
+        public List<ProjectStatus> entries() {
+            return entries;
+        }
+    }
 }
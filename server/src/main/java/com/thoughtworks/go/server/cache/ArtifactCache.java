@@ -61,7 +61,7 @@ public abstract class ArtifactCache<T> {
         return cachedFile(artifactLocation).exists();
     }
 
-    private boolean currentlyCreatingCache(T artifactLocation) {
+    public boolean currentlyCreatingCache(T artifactLocation) {
         return pendingCacheFiles.contains(artifactLocation);
     }
 
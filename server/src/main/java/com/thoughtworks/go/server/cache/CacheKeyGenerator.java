@@ -15,6 +15,8 @@
  */
 package com.thoughtworks.go.server.cache;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.thoughtworks.go.config.CaseInsensitiveString;
 import org.apache.commons.lang3.StringUtils;
 
@@ -23,7 +25,12 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 public class CacheKeyGenerator {
-    private static final String DELIMITER = ".$";
+    static final String DELIMITER = ".$";
+    /**
+     * Callers synchronize on the keys they generate, so equal keys have to be the same instance. Weakly held here
+     * rather than in the JVM string table, so that keys of pipelines, stages and jobs long gone can be collected.
+     */
+    private static final Interner<String> KEYS = Interners.newWeakInterner();
     private final Class<?> clazz;
 
     public CacheKeyGenerator(Class<?> clazz) {
@@ -47,7 +54,7 @@ public class CacheKeyGenerator {
         allArgs.add(0, clazz.getName());
         allArgs.add(1, identifier);
 
-        return StringUtils.join(allArgs, DELIMITER).intern();
+        return KEYS.intern(StringUtils.join(allArgs, DELIMITER));
     }
 
     private static boolean isAllowed(Object arg) {
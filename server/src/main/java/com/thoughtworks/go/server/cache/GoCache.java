@@ -22,14 +22,22 @@ import net.sf.ehcache.Ehcache;
 import net.sf.ehcache.Element;
 import net.sf.ehcache.config.CacheConfiguration;
 import net.sf.ehcache.event.CacheEventListener;
+import net.sf.ehcache.pool.SizeOfEngine;
+import net.sf.ehcache.pool.sizeof.DefaultSizeOfEngine;
 import net.sf.ehcache.statistics.StatisticsGateway;
-import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.transaction.support.TransactionSynchronizationAdapter;
 
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static com.thoughtworks.go.util.ExceptionUtils.bomb;
@@ -40,7 +48,9 @@ import static com.thoughtworks.go.util.ExceptionUtils.bomb;
 public class GoCache {
     private final ThreadLocal<Boolean> doNotServeForTransaction = new ThreadLocal<>();
 
-    public static final String SUB_KEY_DELIMITER = "!_#$#_!";
+    private static final int KEY_LOCK_STRIPES = 256;
+    private static final int SIZE_SAMPLES_PER_FAMILY = 32;
+    private static final int MAX_SIZE_OF_DEPTH = 100_000;
 
     private Ehcache ehCache;
 
@@ -48,8 +58,92 @@ public class GoCache {
     private TransactionSynchronizationManager transactionSynchronizationManager;
 
     private final Set<Class<? extends PersistentObject>> nullObjectClasses;
+    // guards the sub-key list of every key hashing to the same stripe; a fixed set, so unrelated keys never fill up the string table
+    private final Object[] keyLocks = new Object[KEY_LOCK_STRIPES];
+    private final KeyFamilyStatistics keyFamilyStatistics = new KeyFamilyStatistics();
+    private volatile SizeOfEngine sizeOfEngine;
 
-    static class KeyList extends HashSet<String> {
+    /**
+     * The sub-keys stored under a key. Never changed once cached: a changed copy replaces it, so a list that is being
+     * iterated by an eviction or a removal is never modified underneath.
+     */
+    static final class KeyList extends AbstractSet<String> implements Serializable {
+        private final Set<String> subKeys;
+
+        KeyList() {
+            this(Collections.emptySet());
+        }
+
+        private KeyList(Set<String> subKeys) {
+            this.subKeys = Collections.unmodifiableSet(subKeys);
+        }
+
+        KeyList with(String subKey) {
+            Set<String> copy = new HashSet<>(subKeys);
+            copy.add(subKey);
+            return new KeyList(copy);
+        }
+
+        KeyList without(String subKey) {
+            Set<String> copy = new HashSet<>(subKeys);
+            copy.remove(subKey);
+            return new KeyList(copy);
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return subKeys.iterator();
+        }
+
+        @Override
+        public int size() {
+            return subKeys.size();
+        }
+
+        @Override
+        public boolean contains(Object subKey) {
+            return subKeys.contains(subKey);
+        }
+    }
+
+    /**
+     * The cache key of a value stored under a key and sub-key. Kept apart from plain string keys, so no key or sub-key
+     * needs to be concatenated, escaped or parsed.
+     */
+    static final class CompositeKey implements Serializable {
+        private final String key;
+        private final String subKey;
+
+        CompositeKey(String key, String subKey) {
+            this.key = key;
+            this.subKey = subKey;
+        }
+
+        String key() {
+            return key;
+        }
+
+        String subKey() {
+            return subKey;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            CompositeKey that = (CompositeKey) o;
+            return key.equals(that.key) && subKey.equals(that.subKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * key.hashCode() + subKey.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return key + "/" + subKey;
+        }
     }
 
     /**
@@ -64,6 +158,9 @@ public class GoCache {
         this.transactionSynchronizationManager = transactionSynchronizationManager;
         this.nullObjectClasses = new HashSet<>();
         nullObjectClasses.add(NullUser.class);
+        for (int i = 0; i < keyLocks.length; i++) {
+            keyLocks[i] = new Object();
+        }
         registerAsCacheEvictionListener();
     }
 
@@ -95,16 +192,17 @@ public class GoCache {
         put(key, value, new TransactionActivityPredicate());
     }
 
-    private void put(String key, Object value, Predicate predicate) {
+    private void put(Object key, Object value, Predicate predicate) {
         logUnsavedPersistentObjectInteraction(value, "PersistentObject {} added to cache without an id.");
         if (predicate.isTrue()) {
             LOGGER.debug("transaction active during cache put for {} = {}", key, value, new IllegalStateException());
             return;
         }
         ehCache.put(new Element(key, value));
+        keyFamilyStatistics.put(key);
     }
 
-    public List<String> getKeys() {
+    public List<?> getKeys() {
         return ehCache.getKeys();
     }
 
@@ -145,10 +243,20 @@ public class GoCache {
         if (doNotServeForTransaction()) {
             return null;
         }
-        return getWithoutTransactionCheck(key);
+        return lookup(key);
+    }
+
+    private Object lookup(Object key) {
+        Object value = getWithoutTransactionCheck(key);
+        if (value == null) {
+            keyFamilyStatistics.miss(key);
+        } else {
+            keyFamilyStatistics.hit(key);
+        }
+        return value;
     }
 
-    private Object getWithoutTransactionCheck(String key) {
+    private Object getWithoutTransactionCheck(Object key) {
         Element element = ehCache.get(key);
         if (element == null) {
             return null;
@@ -164,22 +272,30 @@ public class GoCache {
 
     public void clear() {
         ehCache.removeAll();
+        keyFamilyStatistics.clear();
     }
 
     public boolean remove(String key) {
-        synchronized (key.intern()) {
+        synchronized (lockFor(key)) {
             Object value = getWithoutTransactionCheck(key);
             if (value instanceof KeyList) {
                 for (String subKey : (KeyList) value) {
-                    ehCache.remove(compositeKey(key, subKey));
+                    ehCache.remove(new CompositeKey(key, subKey));
                 }
             }
-            return ehCache.remove(key);
+            boolean removed = ehCache.remove(key);
+            if (removed) {
+                keyFamilyStatistics.removed(key);
+            }
+            return removed;
         }
     }
 
     public Object get(String key, String subKey) {
-        return get(compositeKey(key, subKey));
+        if (doNotServeForTransaction()) {
+            return null;
+        }
+        return lookup(new CompositeKey(key, subKey));
     }
 
     public <T> T getOrDefault(String key, T def) {
@@ -191,16 +307,47 @@ public class GoCache {
     }
 
     public void put(String key, String subKey, Object value) {
-        KeyList subKeys;
-        synchronized (key.intern()) {
-            subKeys = subKeyFamily(key);
-            if (subKeys == null) {
-                subKeys = new KeyList();
-                put(key, subKeys);
+        TransactionActivityPredicate transactionActive = new TransactionActivityPredicate();
+        synchronized (lockFor(key)) {
+            if (!transactionActive.isTrue()) {
+                addSubKey(key, subKey);
+            }
+            put(new CompositeKey(key, subKey), value, transactionActive);
+        }
+    }
+
+    /**
+     * Swaps in a copy of the sub-key list holding the new sub-key. Compares and swaps, as an eviction updates the list
+     * without the key lock.
+     */
+    private void addSubKey(String key, String subKey) {
+        while (true) {
+            Element current = ehCache.get(key);
+            if (current == null) {
+                if (ehCache.putIfAbsent(new Element(key, new KeyList().with(subKey))) == null) {
+                    keyFamilyStatistics.put(key);
+                    return;
+                }
+                continue;
+            }
+            KeyList subKeys = (KeyList) current.getObjectValue();
+            if (subKeys.contains(subKey) || ehCache.replace(current, new Element(key, subKeys.with(subKey)))) {
+                return;
+            }
+        }
+    }
+
+    private void removeSubKey(String key, String subKey) {
+        while (true) {
+            Element current = ehCache.get(key);
+            if (current == null) {
+                return;
+            }
+            KeyList subKeys = (KeyList) current.getObjectValue();
+            if (!subKeys.contains(subKey) || ehCache.replace(current, new Element(key, subKeys.without(subKey)))) {
+                return;
             }
-            subKeys.add(subKey);
         }
-        put(compositeKey(key, subKey), value);
     }
 
     public void removeAll(List<String> keys) {
@@ -209,25 +356,18 @@ public class GoCache {
         }
     }
 
-    public void removeAssociations(String key, Element element) {
+    /**
+     * Runs on whichever thread caused the eviction, which may hold the lock of another key, so it takes no key lock
+     * itself.
+     */
+    public void removeAssociations(Object key, Element element) {
         if (element.getObjectValue() instanceof KeyList) {
-            synchronized (key.intern()) {
-                for (String subkey : (KeyList) element.getObjectValue()) {
-                    remove(compositeKey(key, subkey));
-                }
-            }
-        } else if (key.contains(SUB_KEY_DELIMITER)) {
-            String[] parts = StringUtils.splitByWholeSeparator(key, SUB_KEY_DELIMITER);
-            String parentKey = parts[0];
-            String childKey = parts[1];
-            synchronized (parentKey.intern()) {
-                Element parent = ehCache.get(parentKey);
-                if (parent == null) {
-                    return;
-                }
-                KeyList subKeys = (KeyList) parent.getObjectValue();
-                subKeys.remove(childKey);
+            for (String subkey : (KeyList) element.getObjectValue()) {
+                ehCache.remove(new CompositeKey((String) key, subkey));
             }
+        } else if (key instanceof CompositeKey) {
+            CompositeKey compositeKey = (CompositeKey) key;
+            removeSubKey(compositeKey.key(), compositeKey.subKey());
         }
     }
 
@@ -235,27 +375,60 @@ public class GoCache {
         return ehCache.isKeyInCache(key);
     }
 
-    private KeyList subKeyFamily(String parentKey) {
-        return (KeyList) get(parentKey);
+    private Object lockFor(String key) {
+        return keyLocks[(key.hashCode() & Integer.MAX_VALUE) % keyLocks.length];
     }
 
-    private String compositeKey(String key, String subKey) {
-        String concat = key + subKey;
-        if (concat.contains(SUB_KEY_DELIMITER)) {
-            bomb(String.format("Base and sub key concatenation(key = %s, subkey = %s) must not have pattern %s", key, subKey, SUB_KEY_DELIMITER));
+    public void remove(String key, String subKey) {
+        synchronized (lockFor(key)) {
+            removeSubKey(key, subKey);
+            CompositeKey compositeKey = new CompositeKey(key, subKey);
+            if (ehCache.remove(compositeKey)) {
+                keyFamilyStatistics.removed(compositeKey);
+            }
         }
-        return key + SUB_KEY_DELIMITER + subKey;
     }
 
-    public void remove(String key, String subKey) {
-        synchronized (key.intern()) {
-            KeyList subKeys = subKeyFamily(key);
-            if(subKeys == null) {
-                return;
+    void evicted(Element element) {
+        keyFamilyStatistics.evicted(element.getObjectKey());
+        removeAssociations(element.getObjectKey(), element);
+    }
+
+    /**
+     * Computes the statistics of each key family. Entries are counted by walking all keys, and the retained size of
+     * each family is estimated from a sample of its entries, so this is meant for occasional diagnostics only.
+     */
+    public List<KeyFamilyStatistics.Family> keyFamilyStatistics() {
+        Map<String, Long> entries = new HashMap<>();
+        Map<String, List<Object>> samples = new HashMap<>();
+        for (Object key : ehCache.getKeys()) {
+            String family = KeyFamilyStatistics.familyOf(key);
+            entries.merge(family, 1L, Long::sum);
+            List<Object> sample = samples.computeIfAbsent(family, f -> new ArrayList<>());
+            if (sample.size() < SIZE_SAMPLES_PER_FAMILY) {
+                sample.add(key);
+            }
+        }
+
+        Map<String, Long> sizes = new HashMap<>();
+        samples.forEach((family, keys) -> sizes.put(family, approximateSize(keys) * entries.get(family) / keys.size()));
+        return keyFamilyStatistics.snapshot(entries, sizes);
+    }
+
+    private long approximateSize(List<Object> keys) {
+        if (sizeOfEngine == null) {
+            sizeOfEngine = new DefaultSizeOfEngine(MAX_SIZE_OF_DEPTH, true, true);
+        }
+
+        long size = 0;
+        for (Object key : keys) {
+            // getQuiet does not count as an access, so sampling leaves the eviction order and statistics alone
+            Element element = ehCache.getQuiet(key);
+            if (element != null) {
+                size += sizeOfEngine.sizeOf(element.getObjectKey(), element.getObjectValue(), null).getCalculated();
             }
-            subKeys.remove(subKey);
-            remove(compositeKey(key, subKey));
         }
+        return size;
     }
 
     public StatisticsGateway statistics() {
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2020 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.cache;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @understands hits, misses, puts, removals and evictions of {@link GoCache} entries, grouped by the family of their key
+ * <p>
+ * Keys made by {@link CacheKeyGenerator} belong to the family of their class and identifier, e.g.
+ * {@code StageSqlMapDao.$stageHistory}. Other keys belong to the family of everything before their first digit, and
+ * values stored under a sub-key belong to the family of their parent key.
+ */
+public class KeyFamilyStatistics {
+    static final int MAX_FAMILIES = 256;
+    static final String OTHER_FAMILY = "other";
+
+    private final ConcurrentHashMap<String, Counters> families = new ConcurrentHashMap<>();
+
+    public static String familyOf(Object key) {
+        if (key instanceof GoCache.CompositeKey) {
+            return familyOf(((GoCache.CompositeKey) key).key());
+        }
+
+        String name = String.valueOf(key);
+        int classEnd = name.indexOf(CacheKeyGenerator.DELIMITER);
+        if (classEnd >= 0) {
+            int identifierEnd = name.indexOf(CacheKeyGenerator.DELIMITER, classEnd + CacheKeyGenerator.DELIMITER.length());
+            // drop the package of the class that generated the key
+            return name.substring(name.lastIndexOf('.', classEnd - 1) + 1, identifierEnd < 0 ? name.length() : identifierEnd);
+        }
+
+        for (int i = 0; i < name.length(); i++) {
+            if (Character.isDigit(name.charAt(i))) {
+                return i == 0 ? OTHER_FAMILY : name.substring(0, i);
+            }
+        }
+        return name;
+    }
+
+    void hit(Object key) {
+        countersFor(key).hits.increment();
+    }
+
+    void miss(Object key) {
+        countersFor(key).misses.increment();
+    }
+
+    void put(Object key) {
+        countersFor(key).puts.increment();
+    }
+
+    void removed(Object key) {
+        countersFor(key).removals.increment();
+    }
+
+    void evicted(Object key) {
+        countersFor(key).evictions.increment();
+    }
+
+    public void clear() {
+        families.clear();
+    }
+
+    private Counters countersFor(Object key) {
+        String family = familyOf(key);
+        Counters counters = families.get(family);
+        if (counters != null) {
+            return counters;
+        }
+        // bound the number of families, in case some keys don't follow any pattern
+        return families.computeIfAbsent(families.size() < MAX_FAMILIES ? family : OTHER_FAMILY, f -> new Counters());
+    }
+
+    /**
+     * @param entries the number of entries currently cached in each family
+     * @param sizes   the approximate number of bytes retained by the entries of each family
+     * @return the statistics of every family, largest first
+     */
+    List<Family> snapshot(Map<String, Long> entries, Map<String, Long> sizes) {
+        List<Family> result = new ArrayList<>();
+        families.forEach((name, counters) -> result.add(new Family(name, entries.getOrDefault(name, 0L), sizes.getOrDefault(name, 0L), counters)));
+        entries.forEach((name, count) -> {
+            if (!families.containsKey(name)) {
+                result.add(new Family(name, count, sizes.getOrDefault(name, 0L), new Counters()));
+            }
+        });
+        result.sort(Comparator.comparingLong(Family::getApproximateSizeInBytes).thenComparingLong(Family::getEntries).reversed());
+        return result;
+    }
+
+    private static class Counters {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder puts = new LongAdder();
+        private final LongAdder removals = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+    }
+
+    public static class Family {
+        private final String name;
+        private final long entries;
+        private final long approximateSizeInBytes;
+        private final long hits;
+        private final long misses;
+        private final long puts;
+        private final long removals;
+        private final long evictions;
+
+        private Family(String name, long entries, long approximateSizeInBytes, Counters counters) {
+            this.name = name;
+            this.entries = entries;
+            this.approximateSizeInBytes = approximateSizeInBytes;
+            this.hits = counters.hits.sum();
+            this.misses = counters.misses.sum();
+            this.puts = counters.puts.sum();
+            this.removals = counters.removals.sum();
+            this.evictions = counters.evictions.sum();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getEntries() {
+            return entries;
+        }
+
+        public long getApproximateSizeInBytes() {
+            return approximateSizeInBytes;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public double getHitRatio() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0.0 : (double) hits / lookups;
+        }
+
+        public long getPuts() {
+            return puts;
+        }
+
+        public long getRemovals() {
+            return removals;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        /**
+         * @return the share of entries put into this family that were evicted or expired, rather than removed or still
+         * cached
+         */
+        public double getEvictionRate() {
+            return puts == 0 ? 0.0 : (double) evictions / puts;
+        }
+    }
+}
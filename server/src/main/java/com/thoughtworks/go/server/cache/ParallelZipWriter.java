@@ -0,0 +1,457 @@
+/*
+ * Copyright 2020 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import org.apache.commons.io.FilenameUtils;
+import org.springframework.stereotype.Component;
+
+/**
+ * Zips a folder the same way as {@link com.thoughtworks.go.util.ZipUtil#zip(File, File, int)}, but deflates on a pool of
+ * threads. Files are cut into chunks that are deflated independently and written out in order. Each chunk is primed
+ * with the tail of the one before it, so that every entry is still one ordinary deflate stream and compresses about as
+ * well as it would sequentially.
+ * <p>
+ * Files that are compressed already (archives, images) are wrapped in stored deflate blocks instead of being deflated
+ * again. Sizes and checksums follow each entry in a data descriptor, so the zip can be read while it is being written.
+ */
+@Component
+public class ParallelZipWriter {
+    static final int CHUNK_SIZE = 256 * 1024;
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    private static final Set<String> COMPRESSED_EXTENSIONS = new HashSet<>(Arrays.asList(
+            "jar", "war", "ear", "aar", "apk", "nupkg", "whl", "zip", "gz", "tgz", "bz2", "xz", "7z", "rar",
+            "png", "jpg", "jpeg", "gif", "webp", "mp3", "mp4", "woff", "woff2"));
+
+    private final ExecutorService executor;
+    private final int maxChunksInFlight;
+    private final int level;
+
+    public ParallelZipWriter() {
+        this(Executors.newFixedThreadPool(THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "parallel-zip-writer");
+            thread.setDaemon(true);
+            return thread;
+        }), THREADS, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    ParallelZipWriter(ExecutorService executor, int threads, int level) {
+        this.executor = executor;
+        this.maxChunksInFlight = threads * 4;
+        this.level = level;
+    }
+
+    public void zip(File source, OutputStream out) throws IOException {
+        zip(source, file -> true, out);
+    }
+
+    /**
+     * Zips only those files that are accepted by {@code include}. Folders are always added, even if they end up empty.
+     */
+    public void zip(File source, FileFilter include, OutputStream out) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        collect("", source, include, entries);
+
+        ZipStream zip = new ZipStream(out);
+        ArrayDeque<PendingChunk> pending = new ArrayDeque<>();
+        try {
+            for (Entry entry : entries) {
+                for (int index = 0; index < entry.chunks; index++) {
+                    if (pending.size() >= maxChunksInFlight) {
+                        write(pending.poll(), zip);
+                    }
+                    pending.add(new PendingChunk(entry, index, entry.isDirectory() ? null : executor.submit(deflateTask(entry, index))));
+                }
+            }
+            while (!pending.isEmpty()) {
+                write(pending.poll(), zip);
+            }
+            zip.finish();
+        } finally {
+            for (PendingChunk chunk : pending) {
+                if (chunk.future != null) {
+                    chunk.future.cancel(true);
+                }
+            }
+        }
+    }
+
+    private void collect(String parent, File source, FileFilter include, List<Entry> entries) throws IOException {
+        String name = parent + source.getName();
+        if (!source.isDirectory()) {
+            if (include.accept(source)) {
+                entries.add(new Entry(name, source, isCompressed(source)));
+            }
+            return;
+        }
+
+        entries.add(new Entry(name + "/", source, false));
+        File[] children = source.listFiles();
+        if (children == null) {
+            throw new IOException("Failed to list contents of " + source);
+        }
+        Arrays.sort(children);
+        for (File child : children) {
+            collect(name + "/", child, include, entries);
+        }
+    }
+
+    private boolean isCompressed(File file) {
+        return COMPRESSED_EXTENSIONS.contains(FilenameUtils.getExtension(file.getName()).toLowerCase());
+    }
+
+    private void write(PendingChunk pending, ZipStream zip) throws IOException {
+        Entry entry = pending.entry;
+        if (entry.isDirectory()) {
+            zip.writeDirectory(entry);
+            return;
+        }
+
+        Chunk chunk = get(pending.future);
+        if (pending.index == 0) {
+            zip.beginEntry(entry);
+        }
+        zip.writeChunk(entry, chunk);
+        if (pending.index == entry.chunks - 1) {
+            zip.endEntry(entry);
+        }
+    }
+
+    private Chunk get(Future<Chunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while zipping", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private Callable<Chunk> deflateTask(Entry entry, int index) {
+        return () -> deflate(entry, index);
+    }
+
+    private Chunk deflate(Entry entry, int index) throws IOException {
+        long offset = (long) index * CHUNK_SIZE;
+        boolean last = index == entry.chunks - 1;
+        int length = (int) Math.min(CHUNK_SIZE, Math.max(0L, entry.length - offset));
+        int dictionaryLength = entry.store ? 0 : (int) Math.min(offset, DICTIONARY_SIZE);
+
+        ByteBuffer buffer = ByteBuffer.allocate(dictionaryLength + length);
+        try (FileChannel channel = FileChannel.open(entry.file.toPath(), StandardOpenOption.READ)) {
+            long position = offset - dictionaryLength;
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    break;
+                }
+                position += read;
+            }
+        }
+        byte[] data = buffer.array();
+        int inputLength = Math.max(0, buffer.position() - dictionaryLength);
+
+        Deflater deflater = new Deflater(entry.store ? Deflater.NO_COMPRESSION : level, true);
+        try {
+            if (dictionaryLength > 0) {
+                deflater.setDictionary(data, 0, dictionaryLength);
+            }
+            deflater.setInput(data, dictionaryLength, inputLength);
+
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(inputLength / 2 + 64);
+            byte[] output = new byte[64 * 1024];
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    compressed.write(output, 0, deflater.deflate(output));
+                }
+            } else {
+                // end on a byte boundary without finishing the stream, so that the next chunk can follow it directly
+                int written;
+                do {
+                    written = deflater.deflate(output, 0, output.length, Deflater.SYNC_FLUSH);
+                    compressed.write(output, 0, written);
+                } while (written == output.length);
+            }
+            return new Chunk(data, dictionaryLength, inputLength, compressed);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static class Entry {
+        private final String name;
+        private final File file;
+        private final boolean store;
+        private final long length;
+        private final int chunks;
+        private final long time;
+
+        private final CRC32 crc = new CRC32();
+        private long size;
+        private long compressedSize;
+        private long headerOffset;
+
+        private Entry(String name, File file, boolean store) {
+            this.name = name;
+            this.file = file;
+            this.store = store;
+            this.length = isDirectory() ? 0L : file.length();
+            this.chunks = isDirectory() ? 1 : (int) Math.max(1L, (length + CHUNK_SIZE - 1) / CHUNK_SIZE);
+            this.time = file.lastModified();
+        }
+
+        private boolean isDirectory() {
+            return name.endsWith("/");
+        }
+    }
+
+    private static class PendingChunk {
+        private final Entry entry;
+        private final int index;
+        private final Future<Chunk> future;
+
+        private PendingChunk(Entry entry, int index, Future<Chunk> future) {
+            this.entry = entry;
+            this.index = index;
+            this.future = future;
+        }
+    }
+
+    private static class Chunk {
+        private final byte[] input;
+        private final int inputOffset;
+        private final int inputLength;
+        private final ByteArrayOutputStream compressed;
+
+        private Chunk(byte[] input, int inputOffset, int inputLength, ByteArrayOutputStream compressed) {
+            this.input = input;
+            this.inputOffset = inputOffset;
+            this.inputLength = inputLength;
+            this.compressed = compressed;
+        }
+    }
+
+    /**
+     * Writes the zip records, switching to their ZIP64 forms where sizes, offsets or the number of entries need it.
+     */
+    private static class ZipStream {
+        private static final long LOCAL_HEADER = 0x04034b50L;
+        private static final long DATA_DESCRIPTOR = 0x08074b50L;
+        private static final long CENTRAL_HEADER = 0x02014b50L;
+        private static final long ZIP64_END = 0x06064b50L;
+        private static final long ZIP64_LOCATOR = 0x07064b50L;
+        private static final long END = 0x06054b50L;
+        private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+        private static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+        private static final int UTF8_NAMES = 1 << 11;
+        private static final int HAS_DATA_DESCRIPTOR = 1 << 3;
+        private static final int STORED = 0;
+        private static final int DEFLATED = 8;
+
+        private final OutputStream out;
+        private final List<Entry> written = new ArrayList<>();
+        private final byte[] scratch = new byte[8];
+        private long offset;
+
+        private ZipStream(OutputStream out) {
+            this.out = out;
+        }
+
+        void writeDirectory(Entry entry) throws IOException {
+            entry.headerOffset = offset;
+            writeLocalHeader(entry, UTF8_NAMES, STORED);
+            written.add(entry);
+        }
+
+        void beginEntry(Entry entry) throws IOException {
+            entry.headerOffset = offset;
+            writeLocalHeader(entry, UTF8_NAMES | HAS_DATA_DESCRIPTOR, DEFLATED);
+        }
+
+        void writeChunk(Entry entry, Chunk chunk) throws IOException {
+            entry.crc.update(chunk.input, chunk.inputOffset, chunk.inputLength);
+            entry.size += chunk.inputLength;
+            entry.compressedSize += chunk.compressed.size();
+            chunk.compressed.writeTo(out);
+            offset += chunk.compressed.size();
+        }
+
+        void endEntry(Entry entry) throws IOException {
+            writeInt(DATA_DESCRIPTOR);
+            writeInt(entry.crc.getValue());
+            if (entry.size >= ZIP64_MAGIC || entry.compressedSize >= ZIP64_MAGIC) {
+                writeLong(entry.compressedSize);
+                writeLong(entry.size);
+            } else {
+                writeInt(entry.compressedSize);
+                writeInt(entry.size);
+            }
+            written.add(entry);
+        }
+
+        void finish() throws IOException {
+            long centralDirectoryOffset = offset;
+            for (Entry entry : written) {
+                writeCentralHeader(entry);
+            }
+            long centralDirectorySize = offset - centralDirectoryOffset;
+            int count = written.size();
+
+            if (count >= ZIP64_MAGIC_COUNT || centralDirectoryOffset >= ZIP64_MAGIC || centralDirectorySize >= ZIP64_MAGIC) {
+                long zip64EndOffset = offset;
+                writeInt(ZIP64_END);
+                writeLong(44);
+                writeShort(45);
+                writeShort(45);
+                writeInt(0);
+                writeInt(0);
+                writeLong(count);
+                writeLong(count);
+                writeLong(centralDirectorySize);
+                writeLong(centralDirectoryOffset);
+
+                writeInt(ZIP64_LOCATOR);
+                writeInt(0);
+                writeLong(zip64EndOffset);
+                writeInt(1);
+            }
+
+            writeInt(END);
+            writeShort(0);
+            writeShort(0);
+            writeShort(Math.min(count, ZIP64_MAGIC_COUNT));
+            writeShort(Math.min(count, ZIP64_MAGIC_COUNT));
+            writeInt(Math.min(centralDirectorySize, ZIP64_MAGIC));
+            writeInt(Math.min(centralDirectoryOffset, ZIP64_MAGIC));
+            writeShort(0);
+            out.flush();
+        }
+
+        private void writeLocalHeader(Entry entry, int flags, int method) throws IOException {
+            byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+            writeInt(LOCAL_HEADER);
+            writeShort(20);
+            writeShort(flags);
+            writeShort(method);
+            writeInt(dosTime(entry.time));
+            writeInt(0);
+            writeInt(0);
+            writeInt(0);
+            writeShort(name.length);
+            writeShort(0);
+            writeBytes(name);
+        }
+
+        private void writeCentralHeader(Entry entry) throws IOException {
+            boolean zip64Size = entry.size >= ZIP64_MAGIC || entry.compressedSize >= ZIP64_MAGIC;
+            boolean zip64Offset = entry.headerOffset >= ZIP64_MAGIC;
+            int extraLength = (zip64Size ? 16 : 0) + (zip64Offset ? 8 : 0);
+            int version = extraLength > 0 ? 45 : 20;
+            byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+
+            writeInt(CENTRAL_HEADER);
+            writeShort(version);
+            writeShort(version);
+            writeShort(entry.isDirectory() ? UTF8_NAMES : UTF8_NAMES | HAS_DATA_DESCRIPTOR);
+            writeShort(entry.isDirectory() ? STORED : DEFLATED);
+            writeInt(dosTime(entry.time));
+            writeInt(entry.crc.getValue());
+            writeInt(zip64Size ? ZIP64_MAGIC : entry.compressedSize);
+            writeInt(zip64Size ? ZIP64_MAGIC : entry.size);
+            writeShort(name.length);
+            writeShort(extraLength > 0 ? extraLength + 4 : 0);
+            writeShort(0);
+            writeShort(0);
+            writeShort(0);
+            writeInt(entry.isDirectory() ? 0x10 : 0);
+            writeInt(zip64Offset ? ZIP64_MAGIC : entry.headerOffset);
+            writeBytes(name);
+            if (extraLength > 0) {
+                writeShort(0x0001);
+                writeShort(extraLength);
+                if (zip64Size) {
+                    writeLong(entry.size);
+                    writeLong(entry.compressedSize);
+                }
+                if (zip64Offset) {
+                    writeLong(entry.headerOffset);
+                }
+            }
+        }
+
+        private static long dosTime(long millis) {
+            LocalDateTime time = LocalDateTime.ofInstant(new Date(millis).toInstant(), ZoneId.systemDefault());
+            if (time.getYear() < 1980) {
+                return (1 << 21) | (1 << 16);
+            }
+            return ((long) (time.getYear() - 1980) << 25) | (time.getMonthValue() << 21) | (time.getDayOfMonth() << 16)
+                    | (time.getHour() << 11) | (time.getMinute() << 5) | (time.getSecond() >> 1);
+        }
+
+        private void writeShort(int value) throws IOException {
+            scratch[0] = (byte) value;
+            scratch[1] = (byte) (value >>> 8);
+            out.write(scratch, 0, 2);
+            offset += 2;
+        }
+
+        private void writeInt(long value) throws IOException {
+            for (int i = 0; i < 4; i++) {
+                scratch[i] = (byte) (value >>> (8 * i));
+            }
+            out.write(scratch, 0, 4);
+            offset += 4;
+        }
+
+        private void writeLong(long value) throws IOException {
+            for (int i = 0; i < 8; i++) {
+                scratch[i] = (byte) (value >>> (8 * i));
+            }
+            out.write(scratch, 0, 8);
+            offset += 8;
+        }
+
+        private void writeBytes(byte[] bytes) throws IOException {
+            out.write(bytes);
+            offset += bytes.length;
+        }
+    }
+}
@@ -15,13 +15,19 @@
  */
 package com.thoughtworks.go.server.cache;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.zip.Deflater;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.thoughtworks.go.server.service.ArtifactsDirHolder;
 import com.thoughtworks.go.server.web.ArtifactFolder;
-import com.thoughtworks.go.util.ZipUtil;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -31,12 +37,15 @@ import static com.thoughtworks.go.util.StringUtil.removeTrailingSlash;
 
 @Component
 public class ZipArtifactCache extends ArtifactCache<ArtifactFolder> {
-    private final ZipUtil zipUtil;
+    private static final long TAIL_INTERVAL_MILLIS = 100L;
+
+    private final ParallelZipWriter zipWriter;
+    private final ConcurrentMap<ArtifactFolder, File> zipsBeingWritten = new ConcurrentHashMap<>();
 
     @Autowired
-    public ZipArtifactCache(ArtifactsDirHolder artifactsDirHolder, ZipUtil zipUtil) {
+    public ZipArtifactCache(ArtifactsDirHolder artifactsDirHolder, ParallelZipWriter zipWriter) {
         super(artifactsDirHolder);
-        this.zipUtil = zipUtil;
+        this.zipWriter = zipWriter;
     }
 
     @Override void createCachedFile(ArtifactFolder artifactFolder) throws IOException {
@@ -45,12 +54,66 @@ public class ZipArtifactCache extends ArtifactCache<ArtifactFolder> {
         File cachedTempZip = zipToTempFile(cachedZip);
         cachedTempZip.getParentFile().mkdirs();
         try {
-            zipUtil.zip(originalFolder, cachedTempZip, Deflater.DEFAULT_COMPRESSION);
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(cachedTempZip))) {
+                // only published once truncated, so that nobody streams what an earlier attempt left behind
+                zipsBeingWritten.put(artifactFolder, cachedTempZip);
+                zipWriter.zip(originalFolder, out);
+            }
+            FileUtils.moveFile(cachedTempZip, cachedZip);
         } catch (IOException e) {
             cachedTempZip.delete();
             throw e;
+        } finally {
+            zipsBeingWritten.remove(artifactFolder);
+        }
+    }
+
+    /**
+     * Copies the zip of a folder to {@code out} while it is still being created, so that whoever asked for it first
+     * does not have to wait for the whole zip to be written before the download starts.
+     *
+     * @return false, without having written anything, if the zip is not being created at the moment
+     * @throws IOException if creating the zip failed part way through
+     */
+    public boolean streamWhileCreating(ArtifactFolder artifactFolder, OutputStream out) throws IOException, InterruptedException {
+        File zip = zipsBeingWritten.get(artifactFolder);
+        // the creating thread may not have got round to opening the zip yet
+        while (zip == null && currentlyCreatingCache(artifactFolder)) {
+            Thread.sleep(TAIL_INTERVAL_MILLIS);
+            zip = zipsBeingWritten.get(artifactFolder);
+        }
+        if (zip == null) {
+            return false;
+        }
+
+        InputStream in;
+        try {
+            in = Files.newInputStream(zip.toPath());
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+
+        try (InputStream input = in) {
+            byte[] buffer = new byte[64 * 1024];
+            while (true) {
+                // checked before draining, so that nothing written just before creation finished is missed
+                boolean finished = !currentlyCreatingCache(artifactFolder);
+                int read;
+                while ((read = input.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+                if (finished) {
+                    break;
+                }
+                out.flush();
+                Thread.sleep(TAIL_INTERVAL_MILLIS);
+            }
+        }
+
+        if (!cachedFile(artifactFolder).exists()) {
+            throw new IOException("Failed to create zip of " + artifactFolder.getRootFolder());
         }
-        FileUtils.moveFile(cachedTempZip, cachedZip);
+        return true;
     }
 
     private File zipToTempFile(File cachedZip) {
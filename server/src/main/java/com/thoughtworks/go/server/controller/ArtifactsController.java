@@ -18,6 +18,7 @@ package com.thoughtworks.go.server.controller;
 import com.thoughtworks.go.domain.ConsoleConsumer;
 import com.thoughtworks.go.domain.JobIdentifier;
 import com.thoughtworks.go.domain.exception.IllegalArtifactLocationException;
+import com.thoughtworks.go.server.cache.ParallelZipWriter;
 import com.thoughtworks.go.server.cache.ZipArtifactCache;
 import com.thoughtworks.go.server.dao.JobInstanceDao;
 import com.thoughtworks.go.server.security.HeaderConstraint;
@@ -27,6 +28,7 @@ import com.thoughtworks.go.server.service.ConsoleService;
 import com.thoughtworks.go.server.service.RestfulService;
 import com.thoughtworks.go.server.util.ErrorHandler;
 import com.thoughtworks.go.server.view.artifacts.ArtifactsView;
+import com.thoughtworks.go.server.view.artifacts.ChangedArtifactFilesZip;
 import com.thoughtworks.go.server.view.artifacts.LocalArtifactsView;
 import com.thoughtworks.go.server.web.ArtifactFolderViewFactory;
 import com.thoughtworks.go.server.web.FileModelAndView;
@@ -36,6 +38,7 @@ import com.thoughtworks.go.util.SystemEnvironment;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
@@ -52,6 +55,8 @@ import java.io.InputStream;
 import java.nio.charset.Charset;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
 
 import static com.thoughtworks.go.server.web.ZipArtifactFolderViewFactory.zipViewFactory;
 import static com.thoughtworks.go.util.ArtifactLogUtil.isConsoleOutput;
@@ -68,13 +73,14 @@ public class ArtifactsController {
     private final ArtifactFolderViewFactory jsonViewFactory;
     private final ArtifactFolderViewFactory zipViewFactory;
     private final Charset consoleLogCharset;
+    private final ParallelZipWriter zipWriter;
     private ArtifactsService artifactsService;
     private RestfulService restfulService;
     private ConsoleService consoleService;
     private HeaderConstraint headerConstraint;
 
     @Autowired
-    ArtifactsController(ArtifactsService artifactsService, RestfulService restfulService, ZipArtifactCache zipArtifactCache, JobInstanceDao jobInstanceDao,
+    ArtifactsController(ArtifactsService artifactsService, RestfulService restfulService, ZipArtifactCache zipArtifactCache, ParallelZipWriter zipWriter, JobInstanceDao jobInstanceDao,
                         ConsoleActivityMonitor consoleActivityMonitor, ConsoleService consoleService, SystemEnvironment systemEnvironment) {
         this.artifactsService = artifactsService;
         this.restfulService = restfulService;
@@ -87,6 +93,7 @@ public class ArtifactsController {
         this.zipViewFactory = zipViewFactory(zipArtifactCache);
         this.headerConstraint = new HeaderConstraint(systemEnvironment);
         this.consoleLogCharset = systemEnvironment.consoleLogCharsetAsCharset();
+        this.zipWriter = zipWriter;
     }
 
 
@@ -130,6 +137,45 @@ public class ArtifactsController {
         return getArtifact(filePath, zipViewFactory, pipelineName, pipelineCounter, stageName, stageCounter, buildName, sha, null);
     }
 
+    /**
+     * For agents fetching a directory they already have part of. The agent posts the md5 of every file it has, and
+     * gets back a zip of only the files that are new or different.
+     */
+    @RequestMapping(value = "/repository/restful/artifact/POST/zip", method = RequestMethod.POST, params = "delta")
+    public ModelAndView getChangedArtifactsAsZip(@RequestParam("pipelineName") String pipelineName,
+                                                 @RequestParam("pipelineCounter") String pipelineCounter,
+                                                 @RequestParam("stageName") String stageName,
+                                                 @RequestParam(value = "stageCounter", required = false) String stageCounter,
+                                                 @RequestParam("buildName") String buildName,
+                                                 @RequestParam("filePath") String filePath,
+                                                 HttpServletRequest request) throws Exception {
+        JobIdentifier jobIdentifier;
+        try {
+            jobIdentifier = restfulService.findJob(pipelineName, pipelineCounter, stageName, stageCounter, buildName);
+        } catch (Exception e) {
+            return buildNotFound(pipelineName, pipelineCounter, stageName, stageCounter, buildName);
+        }
+
+        if (filePath.contains("..")) {
+            return FileModelAndView.forbiddenUrl(filePath);
+        }
+
+        try {
+            File folder = artifactsService.findArtifact(jobIdentifier, filePath.replaceFirst("\\.zip$", ""));
+            if (!folder.isDirectory()) {
+                return FileModelAndView.fileNotFound(filePath);
+            }
+
+            Properties checksumsOnAgent = new Properties();
+            try (InputStream inputStream = request.getInputStream()) {
+                checksumsOnAgent.load(inputStream);
+            }
+            return new ModelAndView(new ChangedArtifactFilesZip(zipWriter, folder, artifactsService.filesChangedOnServer(jobIdentifier, checksumsOnAgent)));
+        } catch (IllegalArtifactLocationException e) {
+            return FileModelAndView.forbiddenUrl(filePath);
+        }
+    }
+
     @RequestMapping(value = "/repository/restful/artifact/GET/*", method = RequestMethod.GET)
     public void fetch(HttpServletRequest request, HttpServletResponse response) throws Exception {
         request.getRequestDispatcher("/repository/restful/artifact/GET/html").forward(request, response);
@@ -232,7 +278,7 @@ public class ArtifactsController {
         }
 
         if (isConsoleOutput(filePath)) {
-            return putConsoleOutput(jobIdentifier, request.getInputStream());
+            return putConsoleOutput(jobIdentifier, consoleOutputStream(request));
         } else {
             return putArtifact(jobIdentifier, filePath, request.getInputStream());
         }
@@ -309,6 +355,14 @@ public class ArtifactsController {
         return request.getFile(CHECKSUM_MULTIPART_FILENAME);
     }
 
+    private InputStream consoleOutputStream(HttpServletRequest request) throws IOException {
+        // agents gzip larger batches of console output
+        if ("gzip".equalsIgnoreCase(request.getHeader(HttpHeaders.CONTENT_ENCODING))) {
+            return new GZIPInputStream(request.getInputStream());
+        }
+        return request.getInputStream();
+    }
+
     private ModelAndView putConsoleOutput(final JobIdentifier jobIdentifier, final InputStream inputStream) throws Exception {
         File consoleLogFile = consoleService.consoleLogFile(jobIdentifier);
         boolean updated = consoleService.updateConsoleLog(consoleLogFile, inputStream);
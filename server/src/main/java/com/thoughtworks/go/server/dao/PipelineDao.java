@@ -77,6 +77,14 @@ public interface PipelineDao {
 
     PipelineInstanceModels findMatchingPipelineInstances(String pipelineName, String pattern, int limit);
 
+    /**
+     * Same as {@link #findMatchingPipelineInstances(String, String, int)}, but only looks for partial matches among the
+     * given instances, which must be ordered by id, latest first.
+     */
+    PipelineInstanceModels findMatchingPipelineInstancesAmong(String pipelineName, String pattern, int limit, List<Long> candidatePipelineIds);
+
+    List<PipelineSearchText> getPipelineSearchTexts(String pipelineName, long afterPipelineId, int limit);
+
     BuildCause findBuildCauseOfPipelineByNameAndCounter(String name, int counter);
 
     StageIdentifier latestPassedStageIdentifier(long pipelineId, String stage);
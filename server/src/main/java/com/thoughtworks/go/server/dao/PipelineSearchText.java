@@ -0,0 +1,66 @@
+/*
+ * Copyright 2020 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.dao;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The text of a pipeline instance that can be searched for: its label and build cause message, along with the
+ * comment, committer and revision of one of the modifications it was built with (or the label of the upstream
+ * pipeline, for a dependency material).
+ */
+public class PipelineSearchText {
+    private long pipelineId;
+    private String label;
+    private String buildCauseMessage;
+    private String comment;
+    private String userName;
+    private String revision;
+    private String upstreamLabel;
+
+    public PipelineSearchText() {
+    }
+
+    public PipelineSearchText(long pipelineId, String label, String buildCauseMessage, String comment, String userName, String revision, String upstreamLabel) {
+        this();
+        this.pipelineId = pipelineId;
+        this.label = label;
+        this.buildCauseMessage = buildCauseMessage;
+        this.comment = comment;
+        this.userName = userName;
+        this.revision = revision;
+        this.upstreamLabel = upstreamLabel;
+    }
+
+    public long getPipelineId() {
+        return pipelineId;
+    }
+
+    /**
+     * @return the searchable fields, any of which may be null
+     */
+    public List<String> fields() {
+        return Arrays.asList(label, buildCauseMessage, comment, userName, revision, upstreamLabel);
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this);
+    }
+}
@@ -73,6 +73,7 @@ import static org.apache.commons.lang3.StringUtils.isBlank;
 public class PipelineSqlMapDao extends SqlMapClientDaoSupport implements Initializer, PipelineDao, StageStatusListener {
     private static final Logger LOGGER = LoggerFactory.getLogger(PipelineSqlMapDao.class);
     private static final Marker FATAL = MarkerFactory.getMarker("FATAL");
+    private static final int MATCH_CANDIDATES_BATCH_SIZE = 200;
     private final LazyCache pipelineByBuildIdCache;
     private final CacheKeyGenerator cacheKeyGenerator;
     private StageDao stageDao;
@@ -696,10 +697,7 @@ public class PipelineSqlMapDao extends SqlMapClientDaoSupport implements Initial
 
     @Override
     public PipelineInstanceModels findMatchingPipelineInstances(String pipelineName, String pattern, int limit) {
-        Map<String, Object> args = arguments("pipelineName", pipelineName).
-                and("pattern", "%" + pattern.toLowerCase() + "%").
-                and("rawPattern", pattern.toLowerCase()).
-                and("limit", limit).asMap();
+        Map<String, Object> args = matchingPipelineInstancesArguments(pipelineName, pattern, limit, null);
         long begin = System.currentTimeMillis();
         List<PipelineInstanceModel> matchingPIMs = (List<PipelineInstanceModel>) getSqlMapClientTemplate().queryForList("findMatchingPipelineInstances", args);
         List<PipelineInstanceModel> exactMatchingPims = (List<PipelineInstanceModel>) getSqlMapClientTemplate().queryForList("findExactMatchingPipelineInstances", args);
@@ -708,6 +706,38 @@ public class PipelineSqlMapDao extends SqlMapClientDaoSupport implements Initial
         return PipelineInstanceModels.createPipelineInstanceModels(exactMatchingPims);
     }
 
+    @Override
+    public PipelineInstanceModels findMatchingPipelineInstancesAmong(String pipelineName, String pattern, int limit, List<Long> candidatePipelineIds) {
+        long begin = System.currentTimeMillis();
+        List<PipelineInstanceModel> exactMatchingPims = (List<PipelineInstanceModel>) getSqlMapClientTemplate().queryForList("findExactMatchingPipelineInstances",
+                matchingPipelineInstancesArguments(pipelineName, pattern, limit, null));
+
+        // the candidates are in the order they are shown in, so only as many need to be checked as it takes to find enough matches
+        List<PipelineInstanceModel> matchingPIMs = new ArrayList<>();
+        for (int from = 0; from < candidatePipelineIds.size() && matchingPIMs.size() < limit; from += MATCH_CANDIDATES_BATCH_SIZE) {
+            List<Long> batch = candidatePipelineIds.subList(from, Math.min(from + MATCH_CANDIDATES_BATCH_SIZE, candidatePipelineIds.size()));
+            Map<String, Object> args = matchingPipelineInstancesArguments(pipelineName, pattern, limit - matchingPIMs.size(), StringUtils.join(batch, ','));
+            matchingPIMs.addAll((List<PipelineInstanceModel>) getSqlMapClientTemplate().queryForList("findMatchingPipelineInstances", args));
+        }
+        LOGGER.debug("[Compare Pipelines] Query initiated for pipeline {} with pattern {} among {} candidates. Query execution took {} milliseconds", pipelineName, pattern, candidatePipelineIds.size(), System.currentTimeMillis() - begin);
+        exactMatchingPims.addAll(matchingPIMs);
+        return PipelineInstanceModels.createPipelineInstanceModels(exactMatchingPims);
+    }
+
+    private Map<String, Object> matchingPipelineInstancesArguments(String pipelineName, String pattern, int limit, String candidateIds) {
+        return arguments("pipelineName", pipelineName).
+                and("pattern", "%" + pattern.toLowerCase() + "%").
+                and("rawPattern", pattern.toLowerCase()).
+                and("limit", limit).
+                and("candidateIds", candidateIds).asMap();
+    }
+
+    @Override
+    public List<PipelineSearchText> getPipelineSearchTexts(String pipelineName, long afterPipelineId, int limit) {
+        Map<String, Object> args = arguments("pipelineName", pipelineName).and("afterPipelineId", afterPipelineId).and("limit", limit).asMap();
+        return (List<PipelineSearchText>) getSqlMapClientTemplate().queryForList("getPipelineSearchTexts", args);
+    }
+
 
     List<Long> findPipelineIds(String pipelineName, int limit, int offset) {
         if (wantLatestIdOnly(limit, offset)) {
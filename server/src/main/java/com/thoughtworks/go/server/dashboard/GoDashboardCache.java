@@ -20,55 +20,45 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 /* Understands how to cache dashboard statuses, for every pipeline. */
 @Component
 public class GoDashboardCache {
     private final TimeStampBasedCounter timeStampBasedCounter;
     /**
-     * Assumption: The put() and replaceAllEntriesInCacheWith() methods, which change this cache,
-     * will always be called from the same thread (queueProcessor in GoDashboardActivityListener). Even get() will be.
-     * So, not surrounding it with a synchronizedMap. Also, uses {@link LinkedHashMap} to preserve insertion order. That
-     * order is not very important in this case, but it comes for free (almost) because of the map.
+     * Every change publishes a new immutable snapshot, which shares all but the one changed shard with the previous
+     * one (see {@link GoDashboardPipelines}). Readers just pick up the latest snapshot, and changes can be made from
+     * any thread without a lock.
      */
-    private LinkedHashMap<CaseInsensitiveString, GoDashboardPipeline> cache;
-    private volatile GoDashboardPipelines dashboardPipelines;
+    private final AtomicReference<GoDashboardPipelines> dashboardPipelines;
 
     @Autowired
     public GoDashboardCache(TimeStampBasedCounter timeStampBasedCounter) {
         this.timeStampBasedCounter = timeStampBasedCounter;
-        cache = new LinkedHashMap<>();
-        dashboardPipelines = new GoDashboardPipelines(new HashMap<>(), timeStampBasedCounter);
+        dashboardPipelines = new AtomicReference<>(new GoDashboardPipelines(new HashMap<>(), timeStampBasedCounter));
     }
 
     public void put(GoDashboardPipeline pipeline) {
-        cache.put(pipeline.name(), pipeline);
-        cacheHasChanged();
+        dashboardPipelines.updateAndGet(pipelines -> pipelines.with(pipeline, timeStampBasedCounter));
     }
 
     public void remove(CaseInsensitiveString pipelineName) {
-        cache.remove(pipelineName);
+        dashboardPipelines.updateAndGet(pipelines -> pipelines.without(pipelineName, timeStampBasedCounter));
     }
 
     public void replaceAllEntriesInCacheWith(List<GoDashboardPipeline> newPipelinesToCache) {
-        cache.clear();
-        cache.putAll(createMapFor(newPipelinesToCache));
-        cacheHasChanged();
+        dashboardPipelines.set(new GoDashboardPipelines(createMapFor(newPipelinesToCache), timeStampBasedCounter));
     }
 
     public GoDashboardPipelines allEntries() {
-        return dashboardPipelines;
-    }
-
-    private void cacheHasChanged() {
-        dashboardPipelines = new GoDashboardPipelines(new HashMap<>(cache), timeStampBasedCounter);
+        return dashboardPipelines.get();
     }
 
     private Map<CaseInsensitiveString, GoDashboardPipeline> createMapFor(List<GoDashboardPipeline> pipelines) {
-        Map<CaseInsensitiveString, GoDashboardPipeline> result = new LinkedHashMap<>();
+        Map<CaseInsensitiveString, GoDashboardPipeline> result = new HashMap<>();
         for (GoDashboardPipeline pipeline : pipelines) {
             result.put(pipeline.name(), pipeline);
         }
@@ -17,32 +17,136 @@ package com.thoughtworks.go.server.dashboard;
 
 import com.thoughtworks.go.config.CaseInsensitiveString;
 
-import java.util.Collection;
-import java.util.HashMap;
+import java.util.*;
 
+/**
+ * An immutable snapshot of the dashboard statuses of all pipelines. The pipelines are spread over a fixed number of
+ * shards, so that {@link #with(GoDashboardPipeline, TimeStampBasedCounter)} and
+ * {@link #without(CaseInsensitiveString, TimeStampBasedCounter)} only copy the one shard they change and share the
+ * rest with this snapshot.
+ * <p>
+ * Every snapshot also knows in which version (see {@link #lastUpdatedTimeStamp()}) each of its pipelines last changed,
+ * so that a client holding an older version can be sent just the pipelines that changed since.
+ */
 public class GoDashboardPipelines {
-    private HashMap<CaseInsensitiveString, GoDashboardPipeline> pipelines;
-    private long lastUpdatedTimeStamp;
+    static final int SHARDS = 64;
+
+    private final Map<CaseInsensitiveString, GoDashboardPipeline>[] shards;
+    private final int size;
+    private final long lastUpdatedTimeStamp;
+    /**
+     * The version in which each pipeline changed, for those that changed after all pipelines were last replaced (in
+     * {@link #replacedAllTimeStamp}). Sharded the same way as the pipelines.
+     */
+    private final Map<CaseInsensitiveString, Long>[] changedTimeStamps;
+    private final long replacedAllTimeStamp;
 
-    public GoDashboardPipelines(HashMap<CaseInsensitiveString, GoDashboardPipeline> pipelines, TimeStampBasedCounter timeStampBasedCounter) {
-        this.pipelines = pipelines;
+    public GoDashboardPipelines(Map<CaseInsensitiveString, GoDashboardPipeline> pipelines, TimeStampBasedCounter timeStampBasedCounter) {
+        this.shards = shard(pipelines);
+        this.size = pipelines.size();
         this.lastUpdatedTimeStamp = timeStampBasedCounter.getNext();
+        this.changedTimeStamps = shard(Collections.<CaseInsensitiveString, Long>emptyMap());
+        this.replacedAllTimeStamp = lastUpdatedTimeStamp;
+    }
+
+    private GoDashboardPipelines(Map<CaseInsensitiveString, GoDashboardPipeline>[] shards, int size, long lastUpdatedTimeStamp,
+                                 Map<CaseInsensitiveString, Long>[] changedTimeStamps, long replacedAllTimeStamp) {
+        this.shards = shards;
+        this.size = size;
+        this.lastUpdatedTimeStamp = lastUpdatedTimeStamp;
+        this.changedTimeStamps = changedTimeStamps;
+        this.replacedAllTimeStamp = replacedAllTimeStamp;
     }
 
     public long lastUpdatedTimeStamp() {
         return lastUpdatedTimeStamp;
     }
 
+    /**
+     * @return true if the pipeline has changed after the given version of this cache, or if that version is not one
+     * this snapshot descends from (e.g. it is from before a server restart)
+     */
+    public boolean hasChangedSince(CaseInsensitiveString name, long version) {
+        if (version > lastUpdatedTimeStamp) {
+            return true;
+        }
+        Long changedTimeStamp = changedTimeStamps[shardOf(name)].get(name);
+        return (changedTimeStamp == null ? replacedAllTimeStamp : changedTimeStamp) > version;
+    }
+
     public Collection<GoDashboardPipeline> getPipelines() {
-        return pipelines.values();
+        return new AbstractCollection<GoDashboardPipeline>() {
+            @Override
+            public Iterator<GoDashboardPipeline> iterator() {
+                return Arrays.stream(shards).flatMap(shard -> shard.values().stream()).iterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
     }
 
     public GoDashboardPipeline find(CaseInsensitiveString name) {
-        return pipelines.get(name);
+        return shards[shardOf(name)].get(name);
     }
 
     public boolean isEmpty() {
-        return pipelines.isEmpty();
+        return size == 0;
+    }
+
+    GoDashboardPipelines with(GoDashboardPipeline pipeline, TimeStampBasedCounter timeStampBasedCounter) {
+        int index = shardOf(pipeline.name());
+        HashMap<CaseInsensitiveString, GoDashboardPipeline> shard = new HashMap<>(shards[index]);
+        boolean added = shard.put(pipeline.name(), pipeline) == null;
+
+        long timeStamp = timeStampBasedCounter.getNext();
+        HashMap<CaseInsensitiveString, Long> changedTimeStampsOfShard = new HashMap<>(changedTimeStamps[index]);
+        changedTimeStampsOfShard.put(pipeline.name(), timeStamp);
+
+        return new GoDashboardPipelines(replace(shards, index, shard), added ? size + 1 : size, timeStamp,
+                replace(changedTimeStamps, index, changedTimeStampsOfShard), replacedAllTimeStamp);
     }
-}
 
+    GoDashboardPipelines without(CaseInsensitiveString name, TimeStampBasedCounter timeStampBasedCounter) {
+        int index = shardOf(name);
+        if (!shards[index].containsKey(name)) {
+            return this;
+        }
+
+        HashMap<CaseInsensitiveString, GoDashboardPipeline> shard = new HashMap<>(shards[index]);
+        shard.remove(name);
+
+        HashMap<CaseInsensitiveString, Long> changedTimeStampsOfShard = new HashMap<>(changedTimeStamps[index]);
+        changedTimeStampsOfShard.remove(name);
+
+        return new GoDashboardPipelines(replace(shards, index, shard), size - 1, timeStampBasedCounter.getNext(),
+                replace(changedTimeStamps, index, changedTimeStampsOfShard), replacedAllTimeStamp);
+    }
+
+    private static <V> Map<CaseInsensitiveString, V>[] replace(Map<CaseInsensitiveString, V>[] shards, int index, Map<CaseInsensitiveString, V> shard) {
+        Map<CaseInsensitiveString, V>[] result = shards.clone();
+        result[index] = shard;
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> Map<CaseInsensitiveString, V>[] shard(Map<CaseInsensitiveString, V> values) {
+        Map<CaseInsensitiveString, V>[] shards = new Map[SHARDS];
+        Arrays.fill(shards, Collections.emptyMap());
+
+        for (Map.Entry<CaseInsensitiveString, V> entry : values.entrySet()) {
+            int index = shardOf(entry.getKey());
+            if (shards[index].isEmpty()) {
+                shards[index] = new HashMap<>();
+            }
+            shards[index].put(entry.getKey(), entry.getValue());
+        }
+        return shards;
+    }
+
+    private static int shardOf(CaseInsensitiveString name) {
+        return (name.hashCode() & Integer.MAX_VALUE) % SHARDS;
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2020 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.materials;
+
+import com.thoughtworks.go.domain.materials.Material;
+import com.thoughtworks.go.server.messaging.GoMessageQueue;
+import com.thoughtworks.go.util.Clock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Decides the order in which SCM materials are handed to the material update queue. At most as many updates as there
+ * are listeners on the queue are in flight at a time, so that the rest wait here rather than in the queue, where they
+ * would be picked up first-come-first-served.
+ * <p>
+ * Waiting updates are picked by weighted fair queuing: every material is charged its expected update duration (a
+ * moving average of its past updates), so a handful of slow repositories cannot hold up the quick ones that are polled
+ * just as often. Optionally, only a limited number of updates run against the same host at a time.
+ */
+public class MaterialUpdateScheduler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MaterialUpdateScheduler.class);
+    private static final Pattern SCP_LIKE_URL = Pattern.compile("^(?:[^@/]+@)?([^:/]+):.*$");
+    private static final double DURATION_SMOOTHING = 0.3;
+
+    private final GoMessageQueue<MaterialUpdateMessage> queue;
+    private final int maxInFlight;
+    private final int maxInFlightPerHost;
+    private final Clock clock;
+    private final Consumer<Material> dispatchFailed;
+
+    private final List<Pending> pending = new ArrayList<>();
+    private final Map<Material, Deque<Long>> inFlightSince = new HashMap<>();
+    private final Map<String, Integer> inFlightPerHost = new HashMap<>();
+    private final Map<Material, MaterialStatistics> statistics = new HashMap<>();
+    private int inFlight;
+    private double virtualTime;
+
+    public MaterialUpdateScheduler(GoMessageQueue<MaterialUpdateMessage> queue, int maxInFlight, int maxInFlightPerHost, Clock clock, Consumer<Material> dispatchFailed) {
+        this.queue = queue;
+        this.maxInFlight = Math.max(maxInFlight, 1);
+        this.maxInFlightPerHost = maxInFlightPerHost;
+        this.clock = clock;
+        this.dispatchFailed = dispatchFailed;
+    }
+
+    /**
+     * Queues an update. If it can be started straight away and posting it fails, the failure is thrown to the caller
+     * and nothing is left scheduled.
+     */
+    public synchronized void schedule(MaterialUpdateMessage message) {
+        Material material = message.getMaterial();
+        MaterialStatistics stats = statistics.computeIfAbsent(material, MaterialStatistics::new);
+        double start = Math.max(virtualTime, stats.lastFinishTag);
+        stats.lastFinishTag = start + Math.max(stats.averageDurationMillis, 1.0);
+
+        Pending update = new Pending(message, hostOf(material), start, stats.lastFinishTag, clock.currentTimeMillis());
+        pending.add(update);
+        try {
+            dispatch(update);
+        } catch (RuntimeException e) {
+            pending.remove(update);
+            throw e;
+        }
+    }
+
+    /**
+     * Frees the slot of a material whose update has completed, and starts whatever can run next. Completions of
+     * materials that were not scheduled here are ignored.
+     */
+    public synchronized void completed(Material material) {
+        Deque<Long> started = inFlightSince.get(material);
+        if (started == null) {
+            return;
+        }
+
+        long startedAt = started.poll();
+        if (started.isEmpty()) {
+            inFlightSince.remove(material);
+        }
+        inFlight--;
+        inFlightPerHost.merge(hostOf(material), -1, Integer::sum);
+        inFlightPerHost.remove(hostOf(material), 0);
+        statistics.get(material).updated(clock.currentTimeMillis() - startedAt);
+
+        dispatch(null);
+    }
+
+    /**
+     * Forgets the statistics of the materials that are no longer configured, unless an update of theirs is still
+     * waiting or in flight.
+     */
+    public synchronized void retainMaterials(Set<String> fingerprints) {
+        Set<Material> busy = new HashSet<>(inFlightSince.keySet());
+        for (Pending update : pending) {
+            busy.add(update.material());
+        }
+        statistics.keySet().removeIf(material -> !busy.contains(material) && !fingerprints.contains(material.getFingerprint()));
+    }
+
+    public synchronized List<MaterialStatistics> statistics() {
+        List<MaterialStatistics> result = new ArrayList<>();
+        for (MaterialStatistics stats : statistics.values()) {
+            result.add(stats.copy());
+        }
+        result.sort(Comparator.comparingDouble(MaterialStatistics::getAverageDurationMillis).reversed());
+        return result;
+    }
+
+    public synchronized int waiting() {
+        return pending.size();
+    }
+
+    private void dispatch(Pending mustSucceed) {
+        while (inFlight < maxInFlight) {
+            Pending next = null;
+            for (Pending update : pending) {
+                if (hostHasCapacity(update.host) && (next == null || update.finishTag < next.finishTag)) {
+                    next = update;
+                }
+            }
+            if (next == null) {
+                return;
+            }
+
+            pending.remove(next);
+            try {
+                queue.post(next.message);
+            } catch (RuntimeException e) {
+                if (next == mustSucceed) {
+                    throw e;
+                }
+                LOGGER.error("[Material Update] Failed to post update of material {}", next.material(), e);
+                dispatchFailed.accept(next.material());
+                continue;
+            }
+
+            long now = clock.currentTimeMillis();
+            virtualTime = Math.max(virtualTime, next.startTag);
+            inFlight++;
+            inFlightPerHost.merge(next.host, 1, Integer::sum);
+            inFlightSince.computeIfAbsent(next.material(), material -> new ArrayDeque<>()).add(now);
+            statistics.get(next.material()).waited(now - next.queuedAt);
+        }
+    }
+
+    private boolean hostHasCapacity(String host) {
+        return maxInFlightPerHost <= 0 || inFlightPerHost.getOrDefault(host, 0) < maxInFlightPerHost;
+    }
+
+    static String hostOf(Material material) {
+        String uri = material.getUriForDisplay();
+        if (uri == null) {
+            return "";
+        }
+
+        try {
+            String host = new URI(uri).getHost();
+            if (host != null) {
+                return host.toLowerCase();
+            }
+        } catch (URISyntaxException ignored) {
+        }
+
+        Matcher scpLike = SCP_LIKE_URL.matcher(uri);
+        return scpLike.matches() ? scpLike.group(1).toLowerCase() : uri;
+    }
+
+    private static class Pending {
+        private final MaterialUpdateMessage message;
+        private final String host;
+        private final double startTag;
+        private final double finishTag;
+        private final long queuedAt;
+
+        private Pending(MaterialUpdateMessage message, String host, double startTag, double finishTag, long queuedAt) {
+            this.message = message;
+            this.host = host;
+            this.startTag = startTag;
+            this.finishTag = finishTag;
+            this.queuedAt = queuedAt;
+        }
+
+        private Material material() {
+            return message.getMaterial();
+        }
+    }
+
+    public static class MaterialStatistics {
+        private final Material material;
+        private long updates;
+        private long lastWaitMillis;
+        private double averageWaitMillis;
+        private long lastDurationMillis;
+        private double averageDurationMillis;
+        private double lastFinishTag;
+
+        private MaterialStatistics(Material material) {
+            this.material = material;
+        }
+
+        private void waited(long millis) {
+            lastWaitMillis = millis;
+            averageWaitMillis = smooth(averageWaitMillis, millis, updates == 0);
+        }
+
+        private void updated(long millis) {
+            lastDurationMillis = millis;
+            averageDurationMillis = smooth(averageDurationMillis, millis, updates == 0);
+            updates++;
+        }
+
+        private static double smooth(double average, long sample, boolean first) {
+            return first ? sample : average + DURATION_SMOOTHING * (sample - average);
+        }
+
+        private MaterialStatistics copy() {
+            MaterialStatistics copy = new MaterialStatistics(material);
+            copy.updates = updates;
+            copy.lastWaitMillis = lastWaitMillis;
+            copy.averageWaitMillis = averageWaitMillis;
+            copy.lastDurationMillis = lastDurationMillis;
+            copy.averageDurationMillis = averageDurationMillis;
+            copy.lastFinishTag = lastFinishTag;
+            return copy;
+        }
+
+        public Material getMaterial() {
+            return material;
+        }
+
+        public long getUpdates() {
+            return updates;
+        }
+
+        public long getLastWaitMillis() {
+            return lastWaitMillis;
+        }
+
+        public double getAverageWaitMillis() {
+            return averageWaitMillis;
+        }
+
+        public long getLastDurationMillis() {
+            return lastDurationMillis;
+        }
+
+        public double getAverageDurationMillis() {
+            return averageDurationMillis;
+        }
+    }
+}
@@ -42,6 +42,7 @@ import com.thoughtworks.go.serverhealth.ServerHealthState;
 import com.thoughtworks.go.util.MaterialFingerprintTag;
 import com.thoughtworks.go.util.ProcessManager;
 import com.thoughtworks.go.util.SystemEnvironment;
+import com.thoughtworks.go.util.SystemTimeClock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -64,6 +65,7 @@ public class MaterialUpdateService implements GoMessageListener<MaterialUpdateCo
     private static final Logger LOGGER = LoggerFactory.getLogger(MaterialUpdateService.class);
 
     private final MaterialUpdateQueue updateQueue;
+    private final MaterialUpdateScheduler updateScheduler;
     private final ConfigMaterialUpdateQueue configUpdateQueue;
     private final DependencyMaterialUpdateQueue dependencyMaterialUpdateQueue;
     private final MaintenanceModeService maintenanceModeService;
@@ -94,6 +96,8 @@ public class MaterialUpdateService implements GoMessageListener<MaterialUpdateCo
         this.goConfigService = goConfigService;
         this.systemEnvironment = systemEnvironment;
         this.updateQueue = queue;
+        this.updateScheduler = new MaterialUpdateScheduler(queue, systemEnvironment.getNumberOfMaterialCheckListener(),
+                systemEnvironment.get(SystemEnvironment.MATERIAL_UPDATE_MAX_PER_HOST), new SystemTimeClock(), inProgress::remove);
         this.configUpdateQueue = configUpdateQueue;
         this.serverHealthService = serverHealthService;
         this.postCommitHookMaterialType = postCommitHookMaterialType;
@@ -177,7 +181,7 @@ public class MaterialUpdateService implements GoMessageListener<MaterialUpdateCo
             LOGGER.debug("[Material Update] Starting update of material {}", material);
             try {
                 long trackingId = mduPerformanceLogger.materialSentToUpdateQueue(material);
-                queueFor(material).post(new MaterialUpdateMessage(material, trackingId));
+                post(new MaterialUpdateMessage(material, trackingId));
 
                 return true;
             } catch (RuntimeException e) {
@@ -212,6 +216,8 @@ public class MaterialUpdateService implements GoMessageListener<MaterialUpdateCo
 
     @Override
     public void onMessage(MaterialUpdateCompletedMessage message) {
+        updateScheduler.completed(message.getMaterial());
+
         if (message instanceof MaterialUpdateSkippedMessage) {
             inProgress.remove(message.getMaterial());
             return;
@@ -236,7 +242,10 @@ public class MaterialUpdateService implements GoMessageListener<MaterialUpdateCo
 
     @Override
     public void onConfigChange(CruiseConfig newCruiseConfig) {
-        Set<HealthStateScope> materialScopes = toHealthStateScopes(newCruiseConfig.getAllUniqueMaterials());
+        Set<MaterialConfig> materialConfigs = newCruiseConfig.getAllUniqueMaterials();
+        updateScheduler.retainMaterials(materialConfigs.stream().map(MaterialConfig::getFingerprint).collect(Collectors.toSet()));
+
+        Set<HealthStateScope> materialScopes = toHealthStateScopes(materialConfigs);
         for (ServerHealthState state : serverHealthService.logs()) {
             HealthStateScope currentScope = state.getType().getScope();
             if (currentScope.isForMaterial() && !materialScopes.contains(currentScope)) {
@@ -271,6 +280,15 @@ public class MaterialUpdateService implements GoMessageListener<MaterialUpdateCo
         return systemEnvironment.get(SystemEnvironment.MATERIAL_UPDATE_INACTIVE_TIMEOUT) * 60 * 1000L;
     }
 
+    private void post(MaterialUpdateMessage message) {
+        GoMessageQueue<MaterialUpdateMessage> queue = queueFor(message.getMaterial());
+        if (queue == updateQueue) {
+            updateScheduler.schedule(message);
+        } else {
+            queue.post(message);
+        }
+    }
+
     private GoMessageQueue<MaterialUpdateMessage> queueFor(Material material) {
         if (isConfigMaterial(material)) {
             return configUpdateQueue;
@@ -291,6 +309,17 @@ public class MaterialUpdateService implements GoMessageListener<MaterialUpdateCo
         return false;
     }
 
+    /**
+     * @return the time spent waiting to be picked and the time taken to update, for every SCM material updated so far
+     */
+    public List<MaterialUpdateScheduler.MaterialStatistics> materialUpdateStatistics() {
+        return updateScheduler.statistics();
+    }
+
+    public int materialUpdatesWaiting() {
+        return updateScheduler.waiting();
+    }
+
     public void registerMaterialUpdateCompleteListener(MaterialUpdateCompleteListener materialUpdateCompleteListener) {
         this.materialUpdateCompleteListeners.add(materialUpdateCompleteListener);
     }
@@ -15,8 +15,6 @@
  */
 package com.thoughtworks.go.server.messaging;
 
-import com.thoughtworks.go.server.messaging.activemq.JMSMessageListenerAdapter;
-
 public class GoMessageQueue<T extends GoMessage> implements GoMessageChannel<T> {
     private MessagingService messaging;
     protected String queueName;
@@ -35,7 +33,7 @@ public class GoMessageQueue<T extends GoMessage> implements GoMessageChannel<T>
     }
 
     @Override
-    public JMSMessageListenerAdapter addListener(GoMessageListener<T> listener) {
+    public MessageListenerHandle addListener(GoMessageListener<T> listener) {
         return messaging.addQueueListener(queueName, listener);
     }
 
@@ -15,20 +15,16 @@
  */
 package com.thoughtworks.go.server.messaging;
 
-import com.thoughtworks.go.server.messaging.activemq.JMSMessageListenerAdapter;
-
-import javax.jms.JMSException;
-
 public interface MessagingService {
     MessageSender createSender(String topic);
 
-    JMSMessageListenerAdapter addListener(String topic, GoMessageListener listener);
+    MessageListenerHandle addListener(String topic, GoMessageListener listener);
 
     void removeQueue(String queueName);
 
-    void stop() throws JMSException;
+    void stop();
 
-    JMSMessageListenerAdapter addQueueListener(String topic, GoMessageListener listener);
+    MessageListenerHandle addQueueListener(String topic, GoMessageListener listener);
 
     MessageSender createQueueSender(String queueName);
 
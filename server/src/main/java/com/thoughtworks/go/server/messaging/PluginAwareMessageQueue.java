@@ -15,26 +15,19 @@
  */
 package com.thoughtworks.go.server.messaging;
 
-import com.thoughtworks.go.server.messaging.activemq.JMSMessageListenerAdapter;
-import org.slf4j.LoggerFactory;
-
-import javax.jms.JMSException;
 import java.util.ArrayList;
 import java.util.HashMap;
 
-import static com.thoughtworks.go.util.ExceptionUtils.bomb;
-
 public class PluginAwareMessageQueue extends GoMessageQueue {
-    protected final HashMap<String, ArrayList<JMSMessageListenerAdapter>> listeners = new HashMap<>();
+    protected final HashMap<String, ArrayList<MessageListenerHandle>> listeners = new HashMap<>();
     private final String pluginId;
-    private static final org.slf4j.Logger LOGGER = LoggerFactory.getLogger(PluginAwareMessageQueue.class.getName());
 
 
     public PluginAwareMessageQueue(MessagingService messaging, String pluginId, String queueName, Integer numberOfListeners, ListenerFactory listenerFactory) {
         super(messaging, queueName);
         this.pluginId = pluginId;
         for (int i = 0; i < numberOfListeners; i++) {
-            JMSMessageListenerAdapter listenerAdapter = this.addListener(listenerFactory.create());
+            MessageListenerHandle listenerAdapter = this.addListener(listenerFactory.create());
             if (!listeners.containsKey(pluginId)) {
                 this.listeners.put(pluginId, new ArrayList<>());
             }
@@ -45,16 +38,10 @@ public class PluginAwareMessageQueue extends GoMessageQueue {
     @Override
     public void stop() {
         super.stop();
-        ArrayList<JMSMessageListenerAdapter> listenerAdapters = listeners.get(pluginId);
-        for (JMSMessageListenerAdapter listenerAdapter : listenerAdapters) {
-            try {
-                listenerAdapter.stop();
-            } catch (JMSException e) {
-                LOGGER.error("Unable to stop listener for {} {}, ERROR: {}", queueName, listenerAdapter.thread.getName(), e.getMessage(), e);
-                bomb(e);
-            } finally {
-                this.listeners.remove(pluginId);
-            }
+        ArrayList<MessageListenerHandle> listenerAdapters = listeners.get(pluginId);
+        for (MessageListenerHandle listenerAdapter : listenerAdapters) {
+            listenerAdapter.stop();
         }
+        this.listeners.remove(pluginId);
     }
 }
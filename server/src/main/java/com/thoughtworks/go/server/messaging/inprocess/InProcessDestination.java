@@ -0,0 +1,267 @@
+/*
+ * Copyright 2020 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.messaging.inprocess;
+
+import com.thoughtworks.go.server.messaging.GoMessage;
+import com.thoughtworks.go.server.messaging.GoMessageListener;
+import com.thoughtworks.go.server.messaging.MessageListenerHandle;
+import com.thoughtworks.go.server.messaging.inprocess.InProcessMessagingService.DestinationStatistics;
+import com.thoughtworks.go.server.service.support.DaemonThreadStatsCollector;
+import com.thoughtworks.go.util.Clock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.thoughtworks.go.util.ExceptionUtils.bomb;
+
+/**
+ * A bounded buffer of messages for a queue, or for a single subscriber of a topic. Listeners compete for its messages
+ * and each listener handles one message at a time, just as it did on its own thread. A listener only occupies a thread
+ * of the shared executor while there are messages for it to work through.
+ * <p>
+ * Senders block while the buffer is full, the same way a broker applies producer flow control.
+ */
+class InProcessDestination {
+    private static final Logger LOG = LoggerFactory.getLogger(InProcessDestination.class);
+
+    private final String name;
+    private final int capacity;
+    private final Executor executor;
+    private final DaemonThreadStatsCollector daemonThreadStatsCollector;
+    private final Clock clock;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final ArrayDeque<Envelope> pending = new ArrayDeque<>();
+    private final List<Consumer> consumers = new ArrayList<>();
+    private final ArrayDeque<Consumer> idle = new ArrayDeque<>();
+    private boolean removed;
+
+    private long sent;
+    private long delivered;
+    private long expired;
+    private long totalWaitMillis;
+    private long maxWaitMillis;
+    private long totalHandlingMillis;
+
+    InProcessDestination(String name, int capacity, Executor executor, DaemonThreadStatsCollector daemonThreadStatsCollector, Clock clock) {
+        this.name = name;
+        this.capacity = capacity;
+        this.executor = executor;
+        this.daemonThreadStatsCollector = daemonThreadStatsCollector;
+        this.clock = clock;
+    }
+
+    /**
+     * @param timeToLive milliseconds after which the message is dropped if no listener has picked it up; 0 to keep it
+     *                   until it is handled
+     */
+    void send(GoMessage message, long timeToLive) {
+        long now = clock.currentTimeMillis();
+        Consumer consumer;
+
+        lock.lock();
+        try {
+            while (pending.size() >= capacity && !removed) {
+                notFull.await();
+            }
+            if (removed) {
+                LOG.debug("Dropping message {} sent to removed destination {}", message, name);
+                return;
+            }
+            pending.add(new Envelope(message, now, timeToLive > 0 ? now + timeToLive : Long.MAX_VALUE));
+            sent++;
+            consumer = idle.poll();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw bomb(e);
+        } finally {
+            lock.unlock();
+        }
+
+        if (consumer != null) {
+            executor.execute(consumer);
+        }
+    }
+
+    MessageListenerHandle addListener(GoMessageListener listener) {
+        Consumer consumer = new Consumer(listener);
+        boolean hasWork;
+
+        lock.lock();
+        try {
+            consumers.add(consumer);
+            hasWork = !pending.isEmpty();
+            if (!hasWork) {
+                idle.add(consumer);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (hasWork) {
+            executor.execute(consumer);
+        }
+        return consumer;
+    }
+
+    /**
+     * Drops all pending messages and listeners. Messages that are being handled right now are allowed to finish.
+     */
+    void remove() {
+        lock.lock();
+        try {
+            removed = true;
+            pending.clear();
+            consumers.clear();
+            idle.clear();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    DestinationStatistics statistics(String type) {
+        lock.lock();
+        try {
+            List<String> listeners = new ArrayList<>();
+            for (Consumer consumer : consumers) {
+                listeners.add(consumer.listener.getClass().getSimpleName());
+            }
+            return new DestinationStatistics(name, type, listeners, pending.size(), sent, delivered, expired,
+                    delivered == 0 ? 0.0 : (double) totalWaitMillis / delivered, maxWaitMillis,
+                    delivered == 0 ? 0.0 : (double) totalHandlingMillis / delivered);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Envelope next(Consumer consumer) {
+        lock.lock();
+        try {
+            long now = clock.currentTimeMillis();
+            while (!removed && !consumer.stopped) {
+                Envelope envelope = pending.poll();
+                if (envelope == null) {
+                    idle.add(consumer);
+                    return null;
+                }
+                notFull.signal();
+
+                if (envelope.expiresAt <= now) {
+                    expired++;
+                    continue;
+                }
+
+                long waitMillis = now - envelope.sentAt;
+                delivered++;
+                totalWaitMillis += waitMillis;
+                maxWaitMillis = Math.max(maxWaitMillis, waitMillis);
+                return envelope;
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void handled(long handlingMillis) {
+        lock.lock();
+        try {
+            totalHandlingMillis += handlingMillis;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void stop(Consumer consumer) {
+        lock.lock();
+        try {
+            consumer.stopped = true;
+            consumers.remove(consumer);
+            idle.remove(consumer);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static class Envelope {
+        private final GoMessage message;
+        private final long sentAt;
+        private final long expiresAt;
+
+        private Envelope(GoMessage message, long sentAt, long expiresAt) {
+            this.message = message;
+            this.sentAt = sentAt;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private class Consumer implements Runnable, MessageListenerHandle {
+        private final GoMessageListener listener;
+        private final String name;
+        private boolean stopped;
+
+        private Consumer(GoMessageListener listener) {
+            this.listener = listener;
+            this.name = "MessageListener for " + listener.getClass().getSimpleName();
+        }
+
+        @Override
+        public void run() {
+            Thread thread = Thread.currentThread();
+            String threadName = thread.getName();
+            thread.setName(thread.getId() + "@" + name);
+            try {
+                Envelope envelope;
+                while ((envelope = next(this)) != null) {
+                    handle(envelope, thread.getId());
+                }
+            } finally {
+                thread.setName(threadName);
+            }
+        }
+
+        private void handle(Envelope envelope, long threadId) {
+            long start = clock.currentTimeMillis();
+            try {
+                daemonThreadStatsCollector.captureStats(threadId);
+                listener.onMessage(envelope.message);
+            } catch (Exception e) {
+                LOG.error("Exception thrown in message handling by listener {}", listener, e);
+            } finally {
+                daemonThreadStatsCollector.clearStats(threadId);
+                handled(clock.currentTimeMillis() - start);
+            }
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public void stop() {
+            InProcessDestination.this.stop(this);
+        }
+    }
+}
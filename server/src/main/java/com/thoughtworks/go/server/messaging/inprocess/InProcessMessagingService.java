@@ -0,0 +1,252 @@
+/*
+ * Copyright 2020 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.messaging.inprocess;
+
+import com.thoughtworks.go.server.messaging.*;
+import com.thoughtworks.go.server.service.support.DaemonThreadStatsCollector;
+import com.thoughtworks.go.util.Clock;
+import com.thoughtworks.go.util.SystemEnvironment;
+import com.thoughtworks.go.util.SystemTimeClock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
+
+/**
+ * Delivers messages between the producers and listeners inside the server without a broker. Messages are handed over
+ * as they are, without being serialized, and nothing is persisted; pending messages are lost on shutdown, just like
+ * the non-persistent messages that were sent through the embedded broker.
+ * <p>
+ * A queue delivers each message to one of its listeners. A topic delivers each message to every listener that was
+ * subscribed when the message was sent, and every subscriber has its own buffer, so a slow subscriber does not hold up
+ * the others. All listeners share one executor, which only keeps threads around for listeners that have work.
+ */
+@Component
+public class InProcessMessagingService implements MessagingService {
+    private static final String QUEUE = "Queue";
+    private static final String TOPIC = "Topic";
+
+    private final DaemonThreadStatsCollector daemonThreadStatsCollector;
+    private final ExecutorService executor;
+    private final Clock clock;
+    private final int capacity;
+    private final ConcurrentHashMap<String, InProcessDestination> queues = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, List<InProcessDestination>> topics = new ConcurrentHashMap<>();
+
+    @Autowired
+    public InProcessMessagingService(DaemonThreadStatsCollector daemonThreadStatsCollector, SystemEnvironment systemEnvironment) {
+        this(daemonThreadStatsCollector, new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "message-listener");
+            thread.setDaemon(true);
+            return thread;
+        }), new SystemTimeClock(), systemEnvironment.get(SystemEnvironment.MESSAGING_QUEUE_CAPACITY));
+    }
+
+    InProcessMessagingService(DaemonThreadStatsCollector daemonThreadStatsCollector, ExecutorService executor, Clock clock, int capacity) {
+        this.daemonThreadStatsCollector = daemonThreadStatsCollector;
+        this.executor = executor;
+        this.clock = clock;
+        this.capacity = capacity;
+    }
+
+    @Override
+    public MessageSender createSender(String topic) {
+        return new InProcessMessageSender((message, timeToLive) -> {
+            for (InProcessDestination subscription : subscriptionsOf(topic)) {
+                subscription.send(message, timeToLive);
+            }
+        });
+    }
+
+    @Override
+    public MessageListenerHandle addListener(String topic, GoMessageListener listener) {
+        InProcessDestination subscription = newDestination(topic);
+        List<InProcessDestination> subscriptions = subscriptionsOf(topic);
+        MessageListenerHandle handle = subscription.addListener(listener);
+        subscriptions.add(subscription);
+
+        return new MessageListenerHandle() {
+            @Override
+            public String getName() {
+                return handle.getName();
+            }
+
+            @Override
+            public void stop() {
+                subscriptions.remove(subscription);
+                subscription.remove();
+            }
+        };
+    }
+
+    @Override
+    public MessageSender createQueueSender(String queueName) {
+        return new InProcessMessageSender((message, timeToLive) -> queue(queueName).send(message, timeToLive));
+    }
+
+    @Override
+    public MessageListenerHandle addQueueListener(String queueName, GoMessageListener listener) {
+        return queue(queueName).addListener(listener);
+    }
+
+    @Override
+    public void removeQueue(String queueName) {
+        InProcessDestination queue = queues.remove(queueName);
+        if (queue != null) {
+            queue.remove();
+        }
+    }
+
+    @Override
+    public void stop() {
+        for (InProcessDestination queue : queues.values()) {
+            queue.remove();
+        }
+        for (List<InProcessDestination> subscriptions : topics.values()) {
+            for (InProcessDestination subscription : subscriptions) {
+                subscription.remove();
+            }
+        }
+        queues.clear();
+        topics.clear();
+        executor.shutdown();
+    }
+
+    public List<DestinationStatistics> statistics() {
+        List<DestinationStatistics> statistics = new ArrayList<>();
+        for (InProcessDestination queue : queues.values()) {
+            statistics.add(queue.statistics(QUEUE));
+        }
+        for (Map.Entry<String, List<InProcessDestination>> topic : topics.entrySet()) {
+            for (InProcessDestination subscription : topic.getValue()) {
+                statistics.add(subscription.statistics(TOPIC));
+            }
+        }
+        return statistics;
+    }
+
+    private InProcessDestination queue(String queueName) {
+        return queues.computeIfAbsent(queueName, this::newDestination);
+    }
+
+    private List<InProcessDestination> subscriptionsOf(String topic) {
+        return topics.computeIfAbsent(topic, name -> new CopyOnWriteArrayList<>());
+    }
+
+    private InProcessDestination newDestination(String name) {
+        return new InProcessDestination(name, capacity, executor, daemonThreadStatsCollector, clock);
+    }
+
+    private static class InProcessMessageSender implements MessageSender {
+        private final BiConsumer<GoMessage, Long> destination;
+
+        private InProcessMessageSender(BiConsumer<GoMessage, Long> destination) {
+            this.destination = destination;
+        }
+
+        @Override
+        public void sendMessage(GoMessage message) {
+            destination.accept(message, 0L);
+        }
+
+        @Override
+        public void sendMessage(GoMessage message, long timeToLive) {
+            destination.accept(message, timeToLive);
+        }
+
+        @Override
+        public void sendText(String message) {
+            destination.accept(new GoTextMessage(message), 0L);
+        }
+    }
+
+    public static class DestinationStatistics {
+        private final String name;
+        private final String type;
+        private final List<String> listeners;
+        private final int depth;
+        private final long sent;
+        private final long delivered;
+        private final long expired;
+        private final double averageWaitMillis;
+        private final long maxWaitMillis;
+        private final double averageHandlingMillis;
+
+        DestinationStatistics(String name, String type, List<String> listeners, int depth, long sent, long delivered, long expired,
+                              double averageWaitMillis, long maxWaitMillis, double averageHandlingMillis) {
+            this.name = name;
+            this.type = type;
+            this.listeners = listeners;
+            this.depth = depth;
+            this.sent = sent;
+            this.delivered = delivered;
+            this.expired = expired;
+            this.averageWaitMillis = averageWaitMillis;
+            this.maxWaitMillis = maxWaitMillis;
+            this.averageHandlingMillis = averageHandlingMillis;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public List<String> getListeners() {
+            return listeners;
+        }
+
+        /**
+         * @return the number of messages waiting for a listener
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        public long getSent() {
+            return sent;
+        }
+
+        public long getDelivered() {
+            return delivered;
+        }
+
+        public long getExpired() {
+            return expired;
+        }
+
+        /**
+         * @return how long messages waited for a listener to pick them up
+         */
+        public double getAverageWaitMillis() {
+            return averageWaitMillis;
+        }
+
+        public long getMaxWaitMillis() {
+            return maxWaitMillis;
+        }
+
+        public double getAverageHandlingMillis() {
+            return averageHandlingMillis;
+        }
+    }
+}
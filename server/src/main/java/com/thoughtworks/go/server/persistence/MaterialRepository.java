@@ -762,9 +762,7 @@ List<Modification> findModificationsFor(PipelineMaterialRevision pmr) {
 
         try {
             checkAndRemoveDuplicates(materialInstance, newChanges, list);
-            for (Modification modification : list) {
-                getHibernateTemplate().saveOrUpdate(modification);
-            }
+            insertModifications(materialInstance, list);
         } catch (Exception e) {
             String message = "Cannot save modification: ";
             LOGGER.error(message, e);
@@ -777,26 +775,49 @@ List<Modification> findModificationsFor(PipelineMaterialRevision pmr) {
         removeCachedModificationsFor(materialInstance);
     }
 
+    private void insertModifications(MaterialInstance materialInstance, List<Modification> modifications) {
+        List<Modification> newModifications = new ArrayList<>();
+        for (Modification modification : modifications) {
+            if (modification.hasId()) {
+                getHibernateTemplate().saveOrUpdate(modification);
+            } else {
+                newModifications.add(modification);
+            }
+        }
+        if (newModifications.isEmpty()) {
+            return;
+        }
+
+        int batchSize = new SystemEnvironment().get(SystemEnvironment.MODIFICATIONS_INSERT_BATCH_SIZE);
+        getHibernateTemplate().execute((HibernateCallback) session -> {
+            session.flush();
+            session.doWork(connection -> new ModificationBatchInserter(connection, batchSize).insert(materialInstance.getId(), newModifications));
+            return null;
+        });
+    }
+
     private void checkAndRemoveDuplicates(MaterialInstance materialInstance,
                                           List<Modification> newChanges,
                                           ArrayList<Modification> list) {
         if (!new SystemEnvironment().get(SystemEnvironment.CHECK_AND_REMOVE_DUPLICATE_MODIFICATIONS)) {
             return;
         }
-        DetachedCriteria criteria = DetachedCriteria.forClass(Modification.class);
-        criteria.setProjection(Projections.projectionList().add(Projections.property("revision")));
-        criteria.add(Restrictions.eq("materialInstance.id", materialInstance.getId()));
         ArrayList<String> revisions = new ArrayList<>();
         for (Modification modification : newChanges) {
             revisions.add(modification.getRevision());
         }
-        criteria.add(Restrictions.in("revision", revisions));
-        List<String> matchingRevisionsFromDb = (List<String>) getHibernateTemplate().findByCriteria(criteria);
+
+        Set<String> matchingRevisionsFromDb = new HashSet<>();
+        int batchSize = new SystemEnvironment().get(SystemEnvironment.MODIFICATIONS_INSERT_BATCH_SIZE);
+        for (int from = 0; from < revisions.size(); from += batchSize) {
+            DetachedCriteria criteria = DetachedCriteria.forClass(Modification.class);
+            criteria.setProjection(Projections.projectionList().add(Projections.property("revision")));
+            criteria.add(Restrictions.eq("materialInstance.id", materialInstance.getId()));
+            criteria.add(Restrictions.in("revision", revisions.subList(from, Math.min(from + batchSize, revisions.size()))));
+            matchingRevisionsFromDb.addAll((List<String>) getHibernateTemplate().findByCriteria(criteria));
+        }
         if (!matchingRevisionsFromDb.isEmpty()) {
-            for (final String revision : matchingRevisionsFromDb) {
-                Modification modification = list.stream().filter(item -> item.getRevision().equals(revision)).findFirst().orElse(null);
-                list.remove(modification);
-            }
+            list.removeIf(modification -> matchingRevisionsFromDb.contains(modification.getRevision()));
         }
         if (!newChanges.isEmpty() && list.isEmpty()) {
             LOGGER.debug("All modifications already exist in db [{}]", revisions);
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2020 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.persistence;
+
+import com.thoughtworks.go.domain.materials.Modification;
+import com.thoughtworks.go.domain.materials.ModifiedFile;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.thoughtworks.go.util.ExceptionUtils.bomb;
+
+/**
+ * Inserts new modifications, and the files they changed, in JDBC batches of a bounded size. Hibernate cannot batch
+ * inserts into tables with identity columns, so the ids generated for each batch are taken from the driver instead.
+ * <p>
+ * H2 only hands back the key of the last row of a batch, so there every row goes in a batch of its own; being
+ * in-process, it gains little from batching anyway.
+ */
+class ModificationBatchInserter {
+    private static final String INSERT_MODIFICATION = "INSERT INTO modifications " +
+            "(revision, comment, emailAddress, modifiedTime, userName, pipelineLabel, pipelineId, additionalData, materialId) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_MODIFIED_FILE = "INSERT INTO modifiedFiles (modificationId, action, fileName, folderName) VALUES (?, ?, ?, ?)";
+
+    private final Connection connection;
+    private final int batchSize;
+
+    ModificationBatchInserter(Connection connection, int batchSize) {
+        this.connection = connection;
+        this.batchSize = Math.max(batchSize, 1);
+    }
+
+    /**
+     * Inserts the modifications in the given order, and sets the ids of the modifications and their files.
+     */
+    void insert(long materialId, List<Modification> modifications) throws SQLException {
+        int rowsPerBatch = "H2".equals(connection.getMetaData().getDatabaseProductName()) ? 1 : batchSize;
+
+        for (int from = 0; from < modifications.size(); from += batchSize) {
+            List<Modification> batch = modifications.subList(from, Math.min(from + batchSize, modifications.size()));
+            insertModifications(materialId, batch, rowsPerBatch);
+            insertModifiedFiles(batch, rowsPerBatch);
+        }
+    }
+
+    private void insertModifications(long materialId, List<Modification> batch, int rowsPerBatch) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_MODIFICATION, Statement.RETURN_GENERATED_KEYS)) {
+            for (int from = 0; from < batch.size(); from += rowsPerBatch) {
+                List<Modification> rows = batch.subList(from, Math.min(from + rowsPerBatch, batch.size()));
+                for (Modification modification : rows) {
+                    statement.setString(1, modification.getRevision());
+                    statement.setString(2, modification.getComment());
+                    statement.setString(3, modification.getEmailAddress());
+                    statement.setTimestamp(4, modification.getModifiedTime() == null ? null : new Timestamp(modification.getModifiedTime().getTime()));
+                    statement.setString(5, modification.getUserName());
+                    statement.setString(6, modification.getPipelineLabel());
+                    if (modification.getPipelineId() == null) {
+                        statement.setNull(7, Types.BIGINT);
+                    } else {
+                        statement.setLong(7, modification.getPipelineId());
+                    }
+                    statement.setString(8, modification.getAdditionalData());
+                    statement.setLong(9, materialId);
+                    statement.addBatch();
+                }
+
+                List<Long> ids = executeForIds(statement, rows.size(), "modifications");
+                for (int i = 0; i < rows.size(); i++) {
+                    rows.get(i).setId(ids.get(i));
+                }
+            }
+        }
+    }
+
+    private void insertModifiedFiles(List<Modification> batch, int rowsPerBatch) throws SQLException {
+        List<ModifiedFile> files = new ArrayList<>();
+        List<Long> modificationIds = new ArrayList<>();
+        for (Modification modification : batch) {
+            for (ModifiedFile file : modification.getModifiedFiles()) {
+                file.setModificationId(modification.getId());
+                files.add(file);
+                modificationIds.add(modification.getId());
+            }
+        }
+        if (files.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_MODIFIED_FILE, Statement.RETURN_GENERATED_KEYS)) {
+            for (int from = 0; from < files.size(); from += rowsPerBatch) {
+                List<ModifiedFile> rows = files.subList(from, Math.min(from + rowsPerBatch, files.size()));
+                for (int i = 0; i < rows.size(); i++) {
+                    ModifiedFile file = rows.get(i);
+                    statement.setLong(1, modificationIds.get(from + i));
+                    statement.setString(2, file.getAction().name());
+                    statement.setString(3, file.getFileName());
+                    statement.setString(4, file.getFolderName());
+                    statement.addBatch();
+                }
+
+                List<Long> ids = executeForIds(statement, rows.size(), "modified files");
+                for (int i = 0; i < rows.size(); i++) {
+                    rows.get(i).setId(ids.get(i));
+                }
+            }
+        }
+    }
+
+    private List<Long> executeForIds(PreparedStatement statement, int rows, String table) throws SQLException {
+        statement.executeBatch();
+        List<Long> ids = new ArrayList<>(rows);
+        try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
+            while (generatedKeys.next()) {
+                ids.add(generatedKeys.getLong(1));
+            }
+        }
+        if (ids.size() != rows) {
+            bomb(String.format("Expected the ids of %s new %s, got %s", rows, table, ids.size()));
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2020 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.service;
+
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static com.thoughtworks.go.util.ArtifactLogUtil.CRUISE_OUTPUT_FOLDER;
+import static com.thoughtworks.go.util.ArtifactLogUtil.PLUGGABLE_ARTIFACT_METADATA_FOLDER;
+import static com.thoughtworks.go.util.CachedDigestUtils.md5Hex;
+
+/**
+ * Keeps a single copy of every distinct artifact file. An uploaded file whose content is already in the store is
+ * replaced by a hard link to the stored blob, so the same jar published by every pipeline run only takes up disk space
+ * once, while everything that reads artifacts keeps working on plain paths.
+ * <p>
+ * Blobs are named after the MD5 of their content, which is also what agents record in the {@code md5.checksum} of a
+ * job, so purging a job can find the blobs it used without reading its files. A blob is deleted once no artifact links
+ * to it any more. Files that are appended to after upload (the contents of {@code cruise-output}) are never shared, and
+ * a shared file is copied before anything writes to it.
+ */
+@Component
+public class ArtifactBlobStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArtifactBlobStore.class);
+    static final String BLOBS_FOLDER = "blobs";
+    private static final Pattern MD5 = Pattern.compile("[0-9a-f]{32}");
+
+    private final ArtifactsDirHolder artifactsDirHolder;
+    private final boolean enabled;
+
+    @Autowired
+    public ArtifactBlobStore(ArtifactsDirHolder artifactsDirHolder, SystemEnvironment systemEnvironment) {
+        this.artifactsDirHolder = artifactsDirHolder;
+        this.enabled = systemEnvironment.get(SystemEnvironment.ARTIFACTS_DEDUPLICATION);
+    }
+
+    /**
+     * @return true if artifacts are being deduplicated, or have been in the past, so that some may be shared
+     */
+    public boolean isInUse() {
+        return enabled || blobsDir().isDirectory();
+    }
+
+    /**
+     * Moves the content of an artifact file, or of all files under an artifact directory, into the store. This is a
+     * best effort; files that cannot be shared are left as they are.
+     */
+    public void deduplicate(File artifact) {
+        if (!enabled || !artifact.exists()) {
+            return;
+        }
+
+        try (Stream<Path> files = Files.walk(artifact.toPath())) {
+            Iterator<Path> iterator = files.filter(Files::isRegularFile).iterator();
+            while (iterator.hasNext()) {
+                Path file = iterator.next();
+                if (!isAppendedTo(file)) {
+                    deduplicate(file);
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            LOGGER.warn("Could not deduplicate artifacts at [{}]", artifact.getAbsolutePath(), e);
+        }
+    }
+
+    private void deduplicate(Path file) {
+        try {
+            if (linkCount(file) > 1) {
+                return;
+            }
+
+            String md5;
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+                md5 = md5Hex(in);
+            }
+
+            Path blob = blobFor(md5);
+            Files.createDirectories(blob.getParent());
+            try {
+                Files.createLink(blob, file);
+                return;
+            } catch (FileAlreadyExistsException e) {
+                // the content is already stored, the file can be replaced by a link to it
+            }
+
+            if (Files.size(blob) != Files.size(file) || !FileUtils.contentEquals(blob.toFile(), file.toFile())) {
+                LOGGER.warn("Artifact [{}] has the same MD5 as [{}] but different content. It will not be deduplicated.", file, blob);
+                return;
+            }
+
+            Path link = temporarySibling(file);
+            Files.createLink(link, blob);
+            Files.move(link, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | UnsupportedOperationException e) {
+            LOGGER.warn("Could not deduplicate artifact [{}]", file, e);
+        }
+    }
+
+    /**
+     * Gives an artifact file its own copy of its content if it is shared, so that it can be written to without changing
+     * other artifacts.
+     */
+    public void detach(File artifact) throws IOException {
+        Path file = artifact.toPath();
+        if (!Files.isRegularFile(file) || !isShared(file)) {
+            return;
+        }
+
+        Path copy = temporarySibling(file);
+        try {
+            Files.copy(file, copy, StandardCopyOption.COPY_ATTRIBUTES);
+            Files.move(copy, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(copy);
+        }
+    }
+
+    /**
+     * Deletes the blobs of the files listed in a job's checksum file that are no longer linked from any artifact.
+     */
+    public void release(File checksumFile) {
+        if (!checksumFile.isFile() || !blobsDir().isDirectory()) {
+            return;
+        }
+
+        Properties checksums = new Properties();
+        try (Reader reader = new BufferedReader(new FileReader(checksumFile))) {
+            checksums.load(reader);
+        } catch (IOException e) {
+            LOGGER.warn("Could not read checksums from [{}] to release their blobs", checksumFile.getAbsolutePath(), e);
+            return;
+        }
+
+        for (String path : checksums.stringPropertyNames()) {
+            String md5 = checksums.getProperty(path);
+            if (MD5.matcher(md5).matches()) {
+                deleteIfUnreferenced(blobFor(md5));
+            }
+        }
+    }
+
+    /**
+     * Deletes all blobs that are no longer linked from any artifact, including those of jobs without a checksum file.
+     */
+    public void removeUnreferencedBlobs() {
+        if (!blobsDir().isDirectory()) {
+            return;
+        }
+
+        try (Stream<Path> blobs = Files.walk(blobsDir().toPath())) {
+            Iterator<Path> iterator = blobs.filter(Files::isRegularFile).iterator();
+            while (iterator.hasNext()) {
+                deleteIfUnreferenced(iterator.next());
+            }
+        } catch (IOException | UncheckedIOException e) {
+            LOGGER.warn("Could not remove unreferenced artifact blobs", e);
+        }
+    }
+
+    private void deleteIfUnreferenced(Path blob) {
+        try {
+            if (Files.exists(blob) && !isShared(blob)) {
+                Files.deleteIfExists(blob);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Could not delete artifact blob [{}]", blob, e);
+        }
+    }
+
+    private boolean isAppendedTo(Path file) {
+        for (Path element : file) {
+            String name = element.toString();
+            if (name.equals(CRUISE_OUTPUT_FOLDER) || name.equals(PLUGGABLE_ARTIFACT_METADATA_FOLDER)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isShared(Path file) throws IOException {
+        try {
+            return linkCount(file) > 1;
+        } catch (UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @throws UnsupportedOperationException on file systems that cannot tell, where nothing is ever deduplicated
+     */
+    private int linkCount(Path file) throws IOException {
+        return (Integer) Files.getAttribute(file, "unix:nlink");
+    }
+
+    private Path blobFor(String md5) {
+        return blobsDir().toPath().resolve(md5.substring(0, 2)).resolve(md5);
+    }
+
+    private Path temporarySibling(Path file) {
+        return file.resolveSibling("." + file.getFileName() + "." + UUID.randomUUID() + ".tmp");
+    }
+
+    private File blobsDir() {
+        return new File(artifactsDirHolder.getArtifactsDir(), BLOBS_FOLDER);
+    }
+}
@@ -76,6 +76,7 @@ public class ArtifactsDiskCleaner extends DiskSpaceChecker {
                     artifactService.purgeArtifactsForStage(stage);
                 }
             } while ((availableSpace() < requiredSpace) && !stages.isEmpty());
+            artifactService.removeUnreferencedArtifactBlobs();
             if (availableSpace() < requiredSpace) {
                 LOGGER.warn("Ran out of stages to clear artifacts from but the disk space is still low");
             }
@@ -15,6 +15,7 @@
  */
 package com.thoughtworks.go.server.service;
 
+import com.thoughtworks.go.domain.ArtifactMd5Checksums;
 import com.thoughtworks.go.domain.ArtifactUrlReader;
 import com.thoughtworks.go.domain.JobIdentifier;
 import com.thoughtworks.go.domain.Stage;
@@ -26,14 +27,23 @@ import com.thoughtworks.go.server.view.artifacts.BuildIdArtifactLocator;
 import com.thoughtworks.go.server.view.artifacts.PathBasedArtifactsLocator;
 import com.thoughtworks.go.util.*;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
+import java.io.FileFilter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.stream.Stream;
 import java.util.zip.ZipInputStream;
 
 import static java.lang.String.format;
@@ -45,23 +55,25 @@ public class ArtifactsService implements ArtifactUrlReader {
     private final JobResolverService jobResolverService;
     private final StageDao stageDao;
     private SystemService systemService;
+    private final ArtifactBlobStore artifactBlobStore;
     public static final Logger LOGGER = LoggerFactory.getLogger(ArtifactsService.class);
     public static final String LOG_XML_NAME = "log.xml";
     private ArtifactDirectoryChooser chooser;
 
     @Autowired
     public ArtifactsService(JobResolverService jobResolverService, StageDao stageDao,
-                            ArtifactsDirHolder artifactsDirHolder, ZipUtil zipUtil, SystemService systemService) {
-        this(jobResolverService, stageDao, artifactsDirHolder, zipUtil, systemService, new ArtifactDirectoryChooser());
+                            ArtifactsDirHolder artifactsDirHolder, ZipUtil zipUtil, SystemService systemService, ArtifactBlobStore artifactBlobStore) {
+        this(jobResolverService, stageDao, artifactsDirHolder, zipUtil, systemService, artifactBlobStore, new ArtifactDirectoryChooser());
     }
 
     protected ArtifactsService(JobResolverService jobResolverService, StageDao stageDao,
-                               ArtifactsDirHolder artifactsDirHolder, ZipUtil zipUtil, SystemService systemService, ArtifactDirectoryChooser chooser) {
+                               ArtifactsDirHolder artifactsDirHolder, ZipUtil zipUtil, SystemService systemService, ArtifactBlobStore artifactBlobStore, ArtifactDirectoryChooser chooser) {
         this.artifactsDirHolder = artifactsDirHolder;
         this.zipUtil = zipUtil;
         this.jobResolverService = jobResolverService;
         this.stageDao = stageDao;
         this.systemService = systemService;
+        this.artifactBlobStore = artifactBlobStore;
 
         //This is a Chain of Responsibility to decide which view should be shown for a particular artifact URL
         this.chooser = chooser;
@@ -78,9 +90,11 @@ public class ArtifactsService implements ArtifactUrlReader {
         try {
             LOGGER.trace("Saving file [{}]", destPath);
             if (shouldUnzip) {
-                zipUtil.unzip(new ZipInputStream(stream), dest);
+                unzip(stream, dest);
             } else {
+                artifactBlobStore.detach(dest);
                 systemService.streamToFile(stream, dest);
+                artifactBlobStore.deduplicate(dest);
             }
             LOGGER.trace("File [{}] saved.", destPath);
             return true;
@@ -99,10 +113,43 @@ public class ArtifactsService implements ArtifactUrlReader {
         }
     }
 
+    private void unzip(InputStream stream, File dest) throws IOException {
+        if (!artifactBlobStore.isInUse()) {
+            zipUtil.unzip(new ZipInputStream(stream), dest);
+            return;
+        }
+
+        // files already in the destination may be shared with other artifacts, so they are replaced rather than overwritten
+        File staging = new File(dest, ".unzip-" + UUID.randomUUID());
+        try {
+            zipUtil.unzip(new ZipInputStream(stream), staging);
+            artifactBlobStore.deduplicate(staging);
+            moveContents(staging.toPath(), dest.toPath());
+        } finally {
+            FileUtils.deleteQuietly(staging);
+        }
+    }
+
+    private void moveContents(Path source, Path destination) throws IOException {
+        try (Stream<Path> files = Files.walk(source)) {
+            Iterator<Path> iterator = files.iterator();
+            while (iterator.hasNext()) {
+                Path file = iterator.next();
+                Path target = destination.resolve(source.relativize(file));
+                if (Files.isDirectory(file)) {
+                    Files.createDirectories(target);
+                } else {
+                    Files.move(file, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        }
+    }
+
     public boolean saveOrAppendFile(File dest, InputStream stream) {
         String destPath = dest.getAbsolutePath();
         try {
             LOGGER.trace("Appending file [{}]", destPath);
+            artifactBlobStore.detach(dest);
             systemService.streamToFile(stream, dest);
             LOGGER.trace("File [{}] appended.", destPath);
             return true;
@@ -116,6 +163,35 @@ public class ArtifactsService implements ArtifactUrlReader {
         return chooser.findArtifact(identifier, path);
     }
 
+    /**
+     * Picks out the files of a job's artifacts that an agent does not have, or has a different version of. The agent
+     * tells which files it has by their md5, keyed by path the same way as in the md5 checksum file of the job.
+     */
+    public FileFilter filesChangedOnServer(JobIdentifier identifier, Properties checksumsOnAgent) throws IllegalArtifactLocationException {
+        Path jobRoot = findArtifact(identifier, "").toPath();
+        File checksumFile = findArtifact(identifier, format("%s/%s", ArtifactLogUtil.CRUISE_OUTPUT_FOLDER, ArtifactLogUtil.MD5_CHECKSUM_FILENAME));
+        ArtifactMd5Checksums checksumsOnServer = checksumFile.isFile() ? new ArtifactMd5Checksums(checksumFile) : null;
+
+        return file -> {
+            String path = FilenameUtils.separatorsToUnix(jobRoot.relativize(file.toPath()).toString());
+            String md5OnAgent = checksumsOnAgent.getProperty(path);
+            if (md5OnAgent == null) {
+                return true;
+            }
+
+            String md5OnServer = checksumsOnServer == null ? null : checksumsOnServer.md5For(path);
+            if (md5OnServer == null) {
+                try (InputStream stream = Files.newInputStream(file.toPath())) {
+                    md5OnServer = CachedDigestUtils.md5Hex(stream);
+                } catch (IOException e) {
+                    LOGGER.warn("Failed to compute md5 of [{}]; sending it to the agent regardless.", file, e);
+                    return true;
+                }
+            }
+            return !md5OnAgent.equals(md5OnServer);
+        };
+    }
+
     @Override
     public String findArtifactRoot(JobIdentifier identifier) throws IllegalArtifactLocationException {
         JobIdentifier id = jobResolverService.actualJobIdentifier(identifier);
@@ -191,10 +267,15 @@ public class ArtifactsService implements ArtifactUrlReader {
                 }
                 didDelete &= deleteFile(artifact);
             }
+            artifactBlobStore.release(new File(new File(jobRoot, ArtifactLogUtil.CRUISE_OUTPUT_FOLDER), ArtifactLogUtil.MD5_CHECKSUM_FILENAME));
         }
         return didDelete;
     }
 
+    public void removeUnreferencedArtifactBlobs() {
+        artifactBlobStore.removeUnreferencedBlobs();
+    }
+
     private boolean deleteFile(File file) {
         return FileUtils.deleteQuietly(file);
     }
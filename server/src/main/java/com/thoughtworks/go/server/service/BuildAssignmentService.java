@@ -44,6 +44,8 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.thoughtworks.go.util.command.EnvironmentVariableContext.GO_ENVIRONMENT_NAME;
 import static java.lang.String.format;
@@ -69,7 +71,13 @@ public class BuildAssignmentService implements ConfigChangedListener {
     private TransactionTemplate transactionTemplate;
     private final ScheduledPipelineLoader scheduledPipelineLoader;
 
-    private List<JobPlan> jobPlans = new ArrayList<>();
+    // an immutable snapshot of scheduled jobs, replaced on every reload or config change
+    private volatile List<JobPlan> jobPlans = new ArrayList<>();
+    private final Object jobPlansMutex = new Object();
+    // job -> the reload count at the time its assignment finished, or IN_FLIGHT while it is being assigned
+    private final ConcurrentHashMap<JobIdentifier, Long> claimedJobs = new ConcurrentHashMap<>();
+    private final AtomicLong reloadCount = new AtomicLong();
+    private static final long IN_FLIGHT = Long.MAX_VALUE;
     private final UpstreamPipelineResolver resolver;
     private final BuilderFactory builderFactory;
     private MaintenanceModeService maintenanceModeService;
@@ -117,12 +125,12 @@ public class BuildAssignmentService implements ConfigChangedListener {
             public void onEntityConfigChange(PipelineConfig pipelineConfig) {
                 LOGGER.info("[Configuration Changed] Removing deleted jobs for pipeline {}.", pipelineConfig.name());
 
-                synchronized (BuildAssignmentService.this) {
+                synchronized (jobPlansMutex) {
                     List<JobPlan> jobsToRemove;
                     if (goConfigService.hasPipelineNamed(pipelineConfig.name())) {
-                        jobsToRemove = getMismatchingJobPlansFromUpdatedPipeline(pipelineConfig, jobPlans);
+                        jobsToRemove = getMismatchingJobPlansFromUpdatedPipeline(pipelineConfig, jobPlans());
                     } else {
-                        jobsToRemove = getAllJobPlansFromDeletedPipeline(pipelineConfig, jobPlans);
+                        jobsToRemove = getAllJobPlansFromDeletedPipeline(pipelineConfig, jobPlans());
                     }
 
                     IterableUtils.forEach(jobsToRemove, o -> removeJob(o));
@@ -170,15 +178,11 @@ public class BuildAssignmentService implements ConfigChangedListener {
             return new DeniedAgentWork(agent.getUuid());
         }
 
-        synchronized (this) {
-//          check to ensure agent is not disabled after entering the synchronized block
-            if (agent.isDisabled()) {
-                return new DeniedAgentWork(agent.getUuid());
-            }
-            //check if agent already has assigned build, if so, reschedule it
-            scheduleService.rescheduleAbandonedBuildIfNecessary(agent.getAgentIdentifier());
-            final JobPlan job = findMatchingJob(agent);
-            if (job != null) {
+        //check if agent already has assigned build, if so, reschedule it
+        scheduleService.rescheduleAbandonedBuildIfNecessary(agent.getAgentIdentifier());
+        final JobPlan job = findMatchingJob(agent);
+        if (job != null) {
+            try {
                 Work buildWork = createWork(agent, job);
                 AgentBuildingInfo buildingInfo = new AgentBuildingInfo(job.getIdentifier().buildLocatorForDisplay(),
                         job.getIdentifier().buildLocator());
@@ -186,28 +190,51 @@ public class BuildAssignmentService implements ConfigChangedListener {
                 LOGGER.info("[Agent Assignment] Assigned job [{}] to agent [{}]", job.getIdentifier(), agent.getAgent().getAgentIdentifier());
 
                 return buildWork;
+            } finally {
+                releaseClaim(job);
             }
         }
         return NO_WORK;
     }
 
+    /**
+     * Finds the first scheduled job this agent can run and claims it, so that no other agent is handed the same job.
+     * Agents never wait on each other here: if another agent claimed the match first, the next match is tried.
+     */
     JobPlan findMatchingJob(AgentInstance agent) {
-        List<JobPlan> filteredJobPlans = environmentConfigService.filterJobsByAgent(jobPlans, agent.getUuid());
-        JobPlan match = null;
-        if (!agent.isElastic()) {
-            match = agent.firstMatching(filteredJobPlans);
-        } else {
-            for (JobPlan jobPlan : filteredJobPlans) {
-                if (jobPlan.requiresElasticAgent() && elasticAgentPluginService.shouldAssignWork(agent.elasticAgentMetadata(), environmentConfigService.envForPipeline(jobPlan.getPipelineName()), jobPlan.getElasticProfile(), jobPlan.getClusterProfile(), jobPlan.getIdentifier())) {
-                    match = jobPlan;
-                    break;
-                }
+        List<JobPlan> filteredJobPlans = new ArrayList<>(environmentConfigService.filterJobsByAgent(jobPlans(), agent.getUuid()));
+        while (true) {
+            JobPlan match = firstMatching(agent, filteredJobPlans);
+            if (match == null || claim(match)) {
+                return match;
             }
+            filteredJobPlans.remove(match);
         }
-        if (match != null) {
-            jobPlans.remove(match);
+    }
+
+    private JobPlan firstMatching(AgentInstance agent, List<JobPlan> filteredJobPlans) {
+        if (!agent.isElastic()) {
+            return agent.firstMatching(filteredJobPlans);
         }
-        return match;
+
+        for (JobPlan jobPlan : filteredJobPlans) {
+            if (jobPlan.requiresElasticAgent() && elasticAgentPluginService.shouldAssignWork(agent.elasticAgentMetadata(), environmentConfigService.envForPipeline(jobPlan.getPipelineName()), jobPlan.getElasticProfile(), jobPlan.getClusterProfile(), jobPlan.getIdentifier())) {
+                return jobPlan;
+            }
+        }
+        return null;
+    }
+
+    private boolean claim(JobPlan jobPlan) {
+        return claimedJobs.putIfAbsent(jobPlan.getIdentifier(), IN_FLIGHT) == null;
+    }
+
+    /**
+     * A job stays claimed until a reload that started after its assignment finished, as only such a reload is sure to
+     * see the job as assigned rather than scheduled. Jobs that could not be assigned become available again then.
+     */
+    private void releaseClaim(JobPlan jobPlan) {
+        claimedJobs.replace(jobPlan.getIdentifier(), IN_FLIGHT, reloadCount.get());
     }
 
     public void onTimer() {
@@ -220,25 +247,23 @@ public class BuildAssignmentService implements ConfigChangedListener {
     }
 
     private void reloadJobPlans() {
-        synchronized (this) {
-            if (jobPlans == null) {
-                jobPlans = jobInstanceService.orderedScheduledBuilds();
-                elasticAgentPluginService.createAgentsFor(jobPlans, new ArrayList<>());
-            } else {
-                List<JobPlan> old = jobPlans;
-                List<JobPlan> newPlan = jobInstanceService.orderedScheduledBuilds();
-                jobPlans = newPlan;
-                elasticAgentPluginService.createAgentsFor(old, newPlan);
-            }
+        synchronized (jobPlansMutex) {
+            long reload = reloadCount.incrementAndGet();
+            // claimed jobs are still scheduled, and already have an agent on its way; they must not look new
+            List<JobPlan> old = jobPlans;
+            List<JobPlan> newPlan = jobInstanceService.orderedScheduledBuilds();
+            jobPlans = newPlan;
+            claimedJobs.values().removeIf(finishedAt -> finishedAt < reload);
+            elasticAgentPluginService.createAgentsFor(old, newPlan);
         }
     }
 
     @Override
     public void onConfigChange(CruiseConfig newCruiseConfig) {
         LOGGER.info("[Configuration Changed] Removing jobs for pipelines that no longer exist in configuration.");
-        synchronized (this) {
+        synchronized (jobPlansMutex) {
             List<JobPlan> jobsToRemove = new ArrayList<>();
-            for (JobPlan jobPlan : jobPlans) {
+            for (JobPlan jobPlan : jobPlans()) {
                 if (!newCruiseConfig.hasBuildPlan(new CaseInsensitiveString(jobPlan.getPipelineName()), new CaseInsensitiveString(jobPlan.getStageName()), jobPlan.getName(), true)) {
                     jobsToRemove.add(jobPlan);
                 }
@@ -255,7 +280,11 @@ public class BuildAssignmentService implements ConfigChangedListener {
 
     private void removeJob(JobPlan jobPlan) {
         try {
-            jobPlans.remove(jobPlan);
+            synchronized (jobPlansMutex) {
+                List<JobPlan> remaining = new ArrayList<>(jobPlans);
+                remaining.remove(jobPlan);
+                jobPlans = remaining;
+            }
             LOGGER.info("Removing job plan {} that no longer exists in the config", jobPlan);
             JobInstance instance = jobInstanceService.buildByIdWithTransitions(jobPlan.getJobId());
             //#2846 - remove this hack
@@ -372,7 +401,10 @@ public class BuildAssignmentService implements ConfigChangedListener {
         return storeIds;
     }
 
+    /**
+     * @return the scheduled jobs that have not been claimed by an agent
+     */
     List<JobPlan> jobPlans() {
-        return jobPlans;
+        return jobPlans.stream().filter(jobPlan -> !claimedJobs.containsKey(jobPlan.getIdentifier())).collect(toList());
     }
 }
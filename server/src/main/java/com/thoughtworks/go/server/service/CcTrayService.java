@@ -18,20 +18,35 @@ package com.thoughtworks.go.server.service;
 import com.thoughtworks.go.domain.activity.ProjectStatus;
 import com.thoughtworks.go.domain.cctray.CcTrayCache;
 import org.apache.commons.codec.digest.DigestUtils;
-import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
 import java.util.List;
-import java.util.function.Consumer;
-import java.util.stream.Collectors;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 /* Understands how to serve a request for the CcTray XML for the current user. */
 @Service
 public class CcTrayService {
+    static final int MAX_CACHED_FEEDS = 64;
+    private static final byte[] HEADER = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<Projects>\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] FOOTER = "</Projects>".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] INDENT = "  ".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NEW_LINE = "\n".getBytes(StandardCharsets.UTF_8);
+
     private CcTrayCache ccTrayCache;
     private GoConfigService goConfigService;
+    /**
+     * Most users of a server can see the same projects, so the feed is rendered once for everyone who sees the same
+     * projects through the same site URL, until the next change to the cache.
+     */
+    private final ConcurrentHashMap<Audience, Feed> feeds = new ConcurrentHashMap<>();
+    private volatile long versionOfCachedFeeds = -1L;
 
     @Autowired
     public CcTrayService(CcTrayCache ccTrayCache, GoConfigService goConfigService) {
@@ -39,33 +54,91 @@ public class CcTrayService {
         this.goConfigService = goConfigService;
     }
 
-    public Appendable renderCCTrayXML(String siteUrlPrefix, String userName, Appendable appendable, Consumer<String> etagConsumer) {
+    public Feed feedFor(String siteUrlPrefix, String userName) {
+        CcTrayCache.Snapshot snapshot = ccTrayCache.snapshot();
+        List<ProjectStatus> statuses = snapshot.entries();
         boolean isSecurityEnabled = goConfigService.isSecurityEnabled();
-        List<ProjectStatus> statuses = ccTrayCache.allEntriesInOrder();
-
-        String hashCodes = statuses.stream().map(ProjectStatus::hashCode).map(Object::toString).collect(Collectors.joining("/"));
-        String etag = DigestUtils.sha256Hex(siteUrlPrefix + "/" + hashCodes);
-        etagConsumer.accept(etag);
-
-        try {
-            appendable.append("<?xml version=\"1.0\" encoding=\"utf-8\"?>");
-            appendable.append("\n");
-            appendable.append("<Projects>");
-            appendable.append("\n");
-            for (ProjectStatus status : statuses) {
-                if (!isSecurityEnabled || status.canBeViewedBy(userName)) {
-                    String xmlRepresentation = status.xmlRepresentation().replaceAll(ProjectStatus.SITE_URL_PREFIX, siteUrlPrefix);
-                    if (!StringUtils.isBlank(xmlRepresentation)) {
-                        appendable.append("  ").append(xmlRepresentation).append("\n");
-                    }
+
+        BitSet visibleProjects = new BitSet(statuses.size());
+        for (int i = 0; i < statuses.size(); i++) {
+            ProjectStatus status = statuses.get(i);
+            if (status.xmlFragments().length > 0 && (!isSecurityEnabled || status.canBeViewedBy(userName))) {
+                visibleProjects.set(i);
+            }
+        }
+
+        if (versionOfCachedFeeds != snapshot.version() || feeds.size() >= MAX_CACHED_FEEDS) {
+            feeds.clear();
+            versionOfCachedFeeds = snapshot.version();
+        }
+        return feeds.computeIfAbsent(new Audience(snapshot.version(), siteUrlPrefix, visibleProjects), audience -> render(statuses, siteUrlPrefix, visibleProjects));
+    }
+
+    private Feed render(List<ProjectStatus> statuses, String siteUrlPrefix, BitSet visibleProjects) {
+        byte[] prefix = siteUrlPrefix.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        out.write(HEADER, 0, HEADER.length);
+        for (int i = visibleProjects.nextSetBit(0); i >= 0; i = visibleProjects.nextSetBit(i + 1)) {
+            byte[][] fragments = statuses.get(i).xmlFragments();
+            out.write(INDENT, 0, INDENT.length);
+            for (int fragment = 0; fragment < fragments.length; fragment++) {
+                if (fragment > 0) {
+                    out.write(prefix, 0, prefix.length);
                 }
+                out.write(fragments[fragment], 0, fragments[fragment].length);
             }
+            out.write(NEW_LINE, 0, NEW_LINE.length);
+        }
+        out.write(FOOTER, 0, FOOTER.length);
+
+        byte[] bytes = out.toByteArray();
+        return new Feed(DigestUtils.sha256Hex(bytes), bytes);
+    }
 
-            appendable.append("</Projects>");
-        } catch (IOException e) {
-            // ignore. `StringBuilder#append` does not throw
+    /* Understands the CcTray XML rendered for one audience, ready to be sent as is. */
+    public static class Feed {
+        private final String etag;
+        private final byte[] bytes;
+
+        public Feed(String etag, byte[] bytes) {
+            this.etag = etag;
+            this.bytes = bytes;
+        }
+
+        public String etag() {
+            return etag;
+        }
+
+        public void writeTo(OutputStream out) throws IOException {
+            out.write(bytes);
+        }
+    }
+
+    private static class Audience {
+        private final long version;
+        private final String siteUrlPrefix;
+        private final BitSet visibleProjects;
+
+        Audience(long version, String siteUrlPrefix, BitSet visibleProjects) {
+            this.version = version;
+            this.siteUrlPrefix = siteUrlPrefix;
+            this.visibleProjects = visibleProjects;
         }
 
-        return appendable;
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Audience audience = (Audience) o;
+            return version == audience.version &&
+                    Objects.equals(siteUrlPrefix, audience.siteUrlPrefix) &&
+                    Objects.equals(visibleProjects, audience.visibleProjects);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(version, siteUrlPrefix, visibleProjects);
+        }
     }
 }
@@ -16,6 +16,7 @@
 package com.thoughtworks.go.server.service;
 
 import com.thoughtworks.go.domain.ConsoleConsumer;
+import com.thoughtworks.go.domain.ConsoleLogIndex;
 import com.thoughtworks.go.domain.ConsoleStreamer;
 import com.thoughtworks.go.domain.JobIdentifier;
 import com.thoughtworks.go.domain.LocatableEntity;
@@ -32,6 +33,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.*;
+import java.nio.file.Files;
 import java.nio.file.Path;
 
 import static com.thoughtworks.go.util.ArtifactLogUtil.getConsoleOutputFolderAndFileName;
@@ -43,10 +45,14 @@ public class ConsoleService {
     private ArtifactDirectoryChooser chooser;
     public static final int DEFAULT_CONSOLE_LOG_LINE_BUFFER_SIZE = 1024;
     private ArtifactsDirHolder artifactsDirHolder;
+    private final Object[] consoleLogLocks = new Object[64];
 
 
     public ConsoleService(ArtifactDirectoryChooser chooser) {
         this.chooser = chooser;
+        for (int i = 0; i < consoleLogLocks.length; i++) {
+            consoleLogLocks[i] = new Object();
+        }
     }
 
     @Autowired
@@ -91,16 +97,29 @@ public class ConsoleService {
         parentFile.mkdirs();
 
         LOGGER.trace("Updating console log [{}]", dest.getAbsolutePath());
-        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(dest, dest.exists()))) {
-            IOUtils.copy(in, out);
-        } catch (IOException e) {
-            LOGGER.error("Failed to update console log at : [{}]", dest.getAbsolutePath(), e);
-            return false;
+        // appends to the same log must not interleave, or the line index would no longer match the log
+        synchronized (lockFor(dest)) {
+            try (ConsoleLogIndex.Appender index = ConsoleLogIndex.appenderFor(dest.toPath());
+                 OutputStream out = new BufferedOutputStream(new FileOutputStream(dest, dest.exists()))) {
+                byte[] buffer = new byte[IOUtils.DEFAULT_BUFFER_SIZE];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                    index.update(buffer, 0, read);
+                }
+            } catch (IOException e) {
+                LOGGER.error("Failed to update console log at : [{}]", dest.getAbsolutePath(), e);
+                return false;
+            }
         }
         LOGGER.trace("Console log [{}] saved.", dest.getAbsolutePath());
         return true;
     }
 
+    private Object lockFor(File dest) {
+        return consoleLogLocks[(dest.getAbsolutePath().hashCode() & Integer.MAX_VALUE) % consoleLogLocks.length];
+    }
+
     public void moveConsoleArtifacts(LocatableEntity locatableEntity) {
         try {
             File from = chooser.temporaryConsoleFile(locatableEntity);
@@ -110,6 +129,9 @@ public class ConsoleService {
 
             File to = consoleLogArtifact(locatableEntity);
             FileUtils.moveFile(from, to);
+
+            // the index is only kept while the job is running; completed logs are read sequentially
+            Files.deleteIfExists(ConsoleLogIndex.indexFor(from.toPath()));
         } catch (IOException | IllegalArtifactLocationException e) {
             throw new RuntimeException(e);
         }
@@ -47,8 +47,19 @@ public class GoDashboardService {
         this.goConfigService = goConfigService;
     }
 
+    /**
+     * @return the current snapshot of the dashboard statuses; passing the same snapshot to the methods below gives a
+     * consistent view of the dashboard, as of {@link GoDashboardPipelines#lastUpdatedTimeStamp()}
+     */
+    public GoDashboardPipelines currentPipelines() {
+        return cache.allEntries();
+    }
+
     public List<GoDashboardEnvironment> allEnvironmentsForDashboard(DashboardFilter filter, Username user) {
-        GoDashboardPipelines allPipelines = cache.allEntries();
+        return allEnvironmentsForDashboard(cache.allEntries(), filter, user);
+    }
+
+    public List<GoDashboardEnvironment> allEnvironmentsForDashboard(GoDashboardPipelines allPipelines, DashboardFilter filter, Username user) {
         List<GoDashboardEnvironment> environments = new ArrayList<>();
 
         final Users admins = superAdmins();
@@ -69,7 +80,10 @@ public class GoDashboardService {
     }
 
     public List<GoDashboardPipelineGroup> allPipelineGroupsForDashboard(DashboardFilter filter, Username user, final boolean allowEmpty) {
-        GoDashboardPipelines allPipelines = cache.allEntries();
+        return allPipelineGroupsForDashboard(cache.allEntries(), filter, user, allowEmpty);
+    }
+
+    public List<GoDashboardPipelineGroup> allPipelineGroupsForDashboard(GoDashboardPipelines allPipelines, DashboardFilter filter, Username user, final boolean allowEmpty) {
         List<GoDashboardPipelineGroup> pipelineGroups = new ArrayList<>();
 
         goConfigService.groups().accept(group -> {
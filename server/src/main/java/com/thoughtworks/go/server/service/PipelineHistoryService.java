@@ -47,6 +47,7 @@ import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 
 import static com.thoughtworks.go.server.service.ServiceConstants.History.BAD_CURSOR_MSG;
@@ -65,6 +66,7 @@ public class PipelineHistoryService {
     private SchedulingCheckerService schedulingCheckerService;
     private PipelineLockService pipelineLockService;
     private PipelinePauseService pipelinePauseService;
+    private PipelineInstanceSearchIndex pipelineInstanceSearchIndex;
     private static final String NOT_AUTHORIZED_TO_VIEW_PIPELINE = "Not authorized to view pipeline";
 
     @Autowired
@@ -77,7 +79,8 @@ public class PipelineHistoryService {
                                   PipelineTimeline pipelineTimeline,
                                   PipelineUnlockApiService pipelineUnlockService,
                                   SchedulingCheckerService schedulingCheckerService, PipelineLockService pipelineLockService,
-                                  PipelinePauseService pipelinePauseService) {
+                                  PipelinePauseService pipelinePauseService,
+                                  PipelineInstanceSearchIndex pipelineInstanceSearchIndex) {
         this.pipelineDao = pipelineDao;
         this.goConfigService = goConfigService;
         this.securityService = securityService;
@@ -89,6 +92,7 @@ public class PipelineHistoryService {
         this.schedulingCheckerService = schedulingCheckerService;
         this.pipelineLockService = pipelineLockService;
         this.pipelinePauseService = pipelinePauseService;
+        this.pipelineInstanceSearchIndex = pipelineInstanceSearchIndex;
     }
 
     public int totalCount(String pipelineName) {
@@ -528,12 +532,16 @@ public class PipelineHistoryService {
     }
 
     public PipelineInstanceModels findMatchingPipelineInstances(String pipelineName, String pattern, int limit, Username userName, HttpLocalizedOperationResult result) {
-        pattern = escapeWildCardsAndTrim(pattern.trim());
+        String searchText = pattern.trim();
+        pattern = escapeWildCardsAndTrim(searchText);
         if (!securityService.hasViewPermissionForPipeline(userName, pipelineName)) {
             result.forbidden(LocalizedMessage.forbiddenToViewPipeline(pipelineName), HealthStateType.general(HealthStateScope.forPipeline(pipelineName)));
             return PipelineInstanceModels.createPipelineInstanceModels();
         }
-        PipelineInstanceModels models = pipelineDao.findMatchingPipelineInstances(pipelineName, pattern, limitForPipeline(pipelineName, limit));
+        Optional<List<Long>> candidates = pipelineInstanceSearchIndex.candidates(pipelineName, searchText);
+        PipelineInstanceModels models = candidates.isPresent()
+                ? pipelineDao.findMatchingPipelineInstancesAmong(pipelineName, pattern, limitForPipeline(pipelineName, limit), candidates.get())
+                : pipelineDao.findMatchingPipelineInstances(pipelineName, pattern, limitForPipeline(pipelineName, limit));
         for (PipelineInstanceModel model : models) {
             populatePlaceHolderStages(model);
             populateMaterialRevisionsOnBuildCause(model);
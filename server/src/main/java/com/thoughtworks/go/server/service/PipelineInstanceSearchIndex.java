@@ -0,0 +1,259 @@
+/*
+ * Copyright 2020 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.service;
+
+import com.thoughtworks.go.domain.PipelineRunIdInfo;
+import com.thoughtworks.go.server.dao.PipelineDao;
+import com.thoughtworks.go.server.dao.PipelineSearchText;
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * An in-memory trigram index over the text that {@link PipelineDao#findMatchingPipelineInstances(String, String, int)}
+ * searches: labels, build cause messages, and the comments, committers, revisions and upstream labels of the
+ * modifications each pipeline instance was built with.
+ * <p>
+ * The index only narrows the search down to the instances that contain every three-character sequence of the pattern;
+ * the database still checks those candidates, so results are exactly what a full scan would find. The index of a
+ * pipeline is built on its first search and then catches up with the instances scheduled since, on every search.
+ * Instances never change once saved, and new modifications only become searchable along with the instance that is
+ * built with them, so there is nothing else to keep up with. Only the most recently searched pipelines are kept
+ * indexed (see {@link SystemEnvironment#PIPELINE_SEARCH_INDEX_MAX_PIPELINES}).
+ */
+@Component
+public class PipelineInstanceSearchIndex {
+    static final int GRAM_LENGTH = 3;
+    static final int LOAD_BATCH_SIZE = 500;
+
+    private final PipelineDao pipelineDao;
+    private final Map<String, PipelineIndex> indexes;
+
+    @Autowired
+    public PipelineInstanceSearchIndex(PipelineDao pipelineDao, SystemEnvironment systemEnvironment) {
+        this(pipelineDao, systemEnvironment.get(SystemEnvironment.PIPELINE_SEARCH_INDEX_MAX_PIPELINES));
+    }
+
+    PipelineInstanceSearchIndex(PipelineDao pipelineDao, int maxPipelines) {
+        this.pipelineDao = pipelineDao;
+        this.indexes = new LinkedHashMap<String, PipelineIndex>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PipelineIndex> eldest) {
+                return size() > maxPipelines;
+            }
+        };
+    }
+
+    /**
+     * @return the ids of the instances of the pipeline that may match the pattern, latest first; or nothing, if the
+     * pattern is too short to be looked up
+     */
+    public Optional<List<Long>> candidates(String pipelineName, String pattern) {
+        if (pattern.length() < GRAM_LENGTH) {
+            return Optional.empty();
+        }
+
+        PipelineIndex index;
+        synchronized (indexes) {
+            index = indexes.computeIfAbsent(pipelineName.toLowerCase(), name -> new PipelineIndex(pipelineName));
+        }
+        return Optional.of(index.candidates(gramsOf(pattern)));
+    }
+
+    int indexedPipelines() {
+        synchronized (indexes) {
+            return indexes.size();
+        }
+    }
+
+    /**
+     * Case is folded one character at a time, the way the database lowers text before matching it.
+     */
+    private static Set<Long> gramsOf(String text) {
+        Set<Long> grams = new HashSet<>();
+        addGramsOf(text, grams);
+        return grams;
+    }
+
+    private static void addGramsOf(String text, Set<Long> grams) {
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            long gram = 0L;
+            for (int j = i; j < i + GRAM_LENGTH; j++) {
+                gram = (gram << Character.SIZE) | Character.toLowerCase(text.charAt(j));
+            }
+            grams.add(gram);
+        }
+    }
+
+    private class PipelineIndex {
+        private final String pipelineName;
+        private final Map<Long, Postings> postings = new HashMap<>();
+        private long[] pipelineIds = new long[64];
+        private int size;
+
+        PipelineIndex(String pipelineName) {
+            this.pipelineName = pipelineName;
+        }
+
+        synchronized List<Long> candidates(Set<Long> grams) {
+            catchUp();
+
+            List<Postings> lists = new ArrayList<>();
+            for (Long gram : grams) {
+                Postings list = postings.get(gram);
+                if (list == null) {
+                    return emptyList();
+                }
+                lists.add(list);
+            }
+            lists.sort(Comparator.comparingInt(Postings::count));
+
+            int[] ordinals = lists.get(0).decode();
+            for (int i = 1; i < lists.size() && ordinals.length > 0; i++) {
+                ordinals = intersect(ordinals, lists.get(i).decode());
+            }
+
+            List<Long> result = new ArrayList<>(ordinals.length);
+            for (int i = ordinals.length - 1; i >= 0; i--) {
+                result.add(pipelineIds[ordinals[i]]);
+            }
+            return result;
+        }
+
+        private void catchUp() {
+            PipelineRunIdInfo runs = pipelineDao.getOldestAndLatestPipelineId(pipelineName);
+            if (runs == null || runs.getLatestRunId() < lastIndexedId()) {
+                // the history has been removed from under the index, e.g. by restoring an older backup
+                postings.clear();
+                size = 0;
+            }
+            if (runs == null) {
+                return;
+            }
+
+            while (runs.getLatestRunId() > lastIndexedId()) {
+                List<PipelineSearchText> texts = pipelineDao.getPipelineSearchTexts(pipelineName, lastIndexedId(), LOAD_BATCH_SIZE);
+                if (texts.isEmpty()) {
+                    return;
+                }
+                addAll(texts);
+            }
+        }
+
+        private void addAll(List<PipelineSearchText> texts) {
+            Set<Long> grams = new HashSet<>();
+            for (int i = 0; i < texts.size(); i++) {
+                PipelineSearchText text = texts.get(i);
+                for (String field : text.fields()) {
+                    if (field != null) {
+                        addGramsOf(field, grams);
+                    }
+                }
+
+                boolean lastTextOfPipeline = i == texts.size() - 1 || texts.get(i + 1).getPipelineId() != text.getPipelineId();
+                if (lastTextOfPipeline) {
+                    add(text.getPipelineId(), grams);
+                    grams.clear();
+                }
+            }
+        }
+
+        private void add(long pipelineId, Set<Long> grams) {
+            if (size == pipelineIds.length) {
+                pipelineIds = Arrays.copyOf(pipelineIds, size * 2);
+            }
+            int ordinal = size++;
+            pipelineIds[ordinal] = pipelineId;
+
+            for (Long gram : grams) {
+                postings.computeIfAbsent(gram, g -> new Postings()).add(ordinal);
+            }
+        }
+
+        private long lastIndexedId() {
+            return size == 0 ? 0L : pipelineIds[size - 1];
+        }
+    }
+
+    private static int[] intersect(int[] left, int[] right) {
+        int[] result = new int[Math.min(left.length, right.length)];
+        int count = 0;
+        for (int i = 0, j = 0; i < left.length && j < right.length; ) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                result[count++] = left[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * The ordinals of the instances that contain a gram, in ascending order. Stored as variable-length deltas, as most
+     * grams occur in runs of consecutive instances and most deltas fit in a byte.
+     */
+    private static class Postings {
+        private byte[] bytes = new byte[4];
+        private int length;
+        private int count;
+        private int last = -1;
+
+        void add(int ordinal) {
+            int delta = ordinal - last;
+            last = ordinal;
+            count++;
+
+            if (length + 5 > bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            while ((delta & ~0x7F) != 0) {
+                bytes[length++] = (byte) ((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            bytes[length++] = (byte) delta;
+        }
+
+        int count() {
+            return count;
+        }
+
+        int[] decode() {
+            int[] ordinals = new int[count];
+            int ordinal = -1;
+            for (int i = 0, position = 0; i < count; i++) {
+                int delta = 0;
+                for (int shift = 0; ; shift += 7) {
+                    byte b = bytes[position++];
+                    delta |= (b & 0x7F) << shift;
+                    if ((b & 0x80) == 0) {
+                        break;
+                    }
+                }
+                ordinal += delta;
+                ordinals[i] = ordinal;
+            }
+            return ordinals;
+        }
+    }
+}
@@ -33,6 +33,7 @@ import com.thoughtworks.go.server.domain.PipelineConfigDependencyGraph;
 import com.thoughtworks.go.server.domain.PipelineTimeline;
 import com.thoughtworks.go.server.persistence.MaterialRepository;
 import com.thoughtworks.go.server.service.dd.FanInGraph;
+import com.thoughtworks.go.server.service.dd.FanInGraphCache;
 import com.thoughtworks.go.server.transaction.TransactionTemplate;
 import com.thoughtworks.go.util.SystemEnvironment;
 import org.apache.commons.lang.StringUtils;
@@ -59,6 +60,7 @@ public class PipelineService implements UpstreamPipelineResolver {
     private final SystemEnvironment systemEnvironment;
     private final GoConfigService goConfigService;
     private MaterialConfigConverter materialConfigConverter;
+    private final FanInGraphCache fanInGraphCache = new FanInGraphCache();
 
     @Autowired
     public PipelineService(PipelineSqlMapDao pipelineDao, StageService stageService, PipelineLockService pipelineLockService, PipelineTimeline pipelineTimeline, MaterialRepository materialRepository,
@@ -216,7 +218,7 @@ public class PipelineService implements UpstreamPipelineResolver {
     /* DIAMOND BEGIN */
 
     public MaterialRevisions getRevisionsBasedOnDependencies(MaterialRevisions actualRevisions, CruiseConfig cruiseConfig, CaseInsensitiveString pipelineName) {
-        FanInGraph fanInGraph = new FanInGraph(cruiseConfig, pipelineName, materialRepository, pipelineDao, systemEnvironment, materialConfigConverter);
+        FanInGraph fanInGraph = new FanInGraph(fanInGraphCache.indexFor(cruiseConfig, pipelineName), materialRepository, pipelineDao, systemEnvironment, materialConfigConverter);
         final MaterialRevisions computedRevisions = fanInGraph.computeRevisions(actualRevisions, pipelineTimeline);
         fillUpNonOverridableRevisions(actualRevisions, computedRevisions);
         return restoreOriginalMaterialConfigAndMaterialOrderUsingFingerprint(actualRevisions, computedRevisions);
@@ -225,7 +227,7 @@ public class PipelineService implements UpstreamPipelineResolver {
     // This is for debugging purposes
     public String getRevisionsBasedOnDependenciesForDebug(CaseInsensitiveString pipelineName, final Integer targetIterationCount) {
         CruiseConfig cruiseConfig = goConfigService.getCurrentConfig();
-        FanInGraph fanInGraph = new FanInGraph(cruiseConfig, pipelineName, materialRepository, pipelineDao, systemEnvironment, materialConfigConverter);
+        FanInGraph fanInGraph = new FanInGraph(fanInGraphCache.indexFor(cruiseConfig, pipelineName), materialRepository, pipelineDao, systemEnvironment, materialConfigConverter);
         final String[] iterationData = {null};
         fanInGraph.setFanInEventListener((iterationCount, dependencyFanInNodes) -> {
             if (iterationCount == targetIterationCount) {
@@ -266,7 +268,7 @@ public class PipelineService implements UpstreamPipelineResolver {
     //Srikant & Sachin
     @Deprecated
     public Collection<MaterialRevision> getRevisionsBasedOnDependenciesForReporting(CruiseConfig cruiseConfig, CaseInsensitiveString pipelineName) {
-        FanInGraph fanInGraph = new FanInGraph(cruiseConfig, pipelineName, materialRepository, pipelineDao, systemEnvironment, materialConfigConverter);
+        FanInGraph fanInGraph = new FanInGraph(fanInGraphCache.indexFor(cruiseConfig, pipelineName), materialRepository, pipelineDao, systemEnvironment, materialConfigConverter);
         return fanInGraph.computeRevisionsForReporting(pipelineName, pipelineTimeline);
     }
 
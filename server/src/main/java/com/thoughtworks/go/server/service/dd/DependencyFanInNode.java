@@ -132,28 +132,39 @@ public class DependencyFanInNode extends FanInNode {
     }
 
     private Pair<StageIdentifier, List<FaninScmMaterial>> getRevisionNthFor(int n, FanInGraphContext context) {
-        List<FaninScmMaterial> scmMaterials = new ArrayList<>();
-        PipelineTimeline pipelineTimeline = context.pipelineTimeline;
-        Queue<PipelineTimelineEntry.Revision> revisionQueue = new ConcurrentLinkedQueue<>();
         DependencyMaterialConfig dependencyMaterial = (DependencyMaterialConfig) materialConfig;
-        PipelineTimelineEntry entry = pipelineTimeline.instanceFor(dependencyMaterial.getPipelineName(), totalInstanceCount - n);
-
-        Set<CaseInsensitiveString> visitedNodes = new HashSet<>();
+        PipelineTimelineEntry entry = context.pipelineTimeline.instanceFor(dependencyMaterial.getPipelineName(), totalInstanceCount - n);
 
         StageIdentifier dependentStageIdentifier = dependentStageIdentifier(context, entry, CaseInsensitiveString.str(dependencyMaterial.getStageName()));
-        if (!StageIdentifier.NULL.equals(dependentStageIdentifier)) {
-            addToRevisionQueue(entry, revisionQueue, scmMaterials, context, visitedNodes);
-        } else {
+        if (StageIdentifier.NULL.equals(dependentStageIdentifier)) {
             return null;
         }
+
+        if (entry.getId() == null) {
+            return new Pair<>(dependentStageIdentifier, scmMaterialsUpstreamOf(entry, context));
+        }
+        List<FaninScmMaterial> scmMaterials = context.scmMaterialsUpstreamOfPipeline.get(entry.getId());
+        if (scmMaterials == null) {
+            scmMaterials = Collections.unmodifiableList(scmMaterialsUpstreamOf(entry, context));
+            context.scmMaterialsUpstreamOfPipeline.put(entry.getId(), scmMaterials);
+        }
+        return new Pair<>(dependentStageIdentifier, scmMaterials);
+    }
+
+    private List<FaninScmMaterial> scmMaterialsUpstreamOf(PipelineTimelineEntry entry, FanInGraphContext context) {
+        List<FaninScmMaterial> scmMaterials = new ArrayList<>();
+        PipelineTimeline pipelineTimeline = context.pipelineTimeline;
+        Queue<PipelineTimelineEntry.Revision> revisionQueue = new ConcurrentLinkedQueue<>();
+        Set<CaseInsensitiveString> visitedNodes = new HashSet<>();
+
+        addToRevisionQueue(entry, revisionQueue, scmMaterials, context, visitedNodes);
         while (!revisionQueue.isEmpty()) {
             PipelineTimelineEntry.Revision revision = revisionQueue.poll();
             DependencyMaterialRevision dmr = DependencyMaterialRevision.create(revision.revision, null);
             PipelineTimelineEntry pte = pipelineTimeline.getEntryFor(new CaseInsensitiveString(dmr.getPipelineName()), dmr.getPipelineCounter());
             addToRevisionQueue(pte, revisionQueue, scmMaterials, context, visitedNodes);
         }
-
-        return new Pair<>(dependentStageIdentifier, scmMaterials);
+        return scmMaterials;
     }
 
     private boolean validateAllScmRevisionsAreSameWithinAFingerprint(Pair<StageIdentifier, List<FaninScmMaterial>> pIdScmPair) {
@@ -268,6 +279,14 @@ public class DependencyFanInNode extends FanInNode {
         return NEED_MORE_REVISIONS;
     }
 
+    /**
+     * Settles on a revision that an earlier resolution came to, without going through the history again.
+     */
+    void resolveTo(StageIdentifier revision, Set<FaninScmMaterial> scmMaterials) {
+        stageIdentifierScmMaterial.put(revision, scmMaterials);
+        currentRevision = revision;
+    }
+
     public List<StageIdFaninScmMaterialPair> getCurrentFaninScmMaterials() {
         List<StageIdFaninScmMaterialPair> stageIdScmPairs = new ArrayList<>();
         Set<FaninScmMaterial> faninScmMaterials = stageIdentifierScmMaterial.get(currentRevision);
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2020 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.service.dd;
+
+import com.thoughtworks.go.config.CaseInsensitiveString;
+import com.thoughtworks.go.config.CruiseConfig;
+import com.thoughtworks.go.config.PipelineConfig;
+import com.thoughtworks.go.config.materials.dependency.DependencyMaterialConfig;
+import com.thoughtworks.go.domain.StageIdentifier;
+import com.thoughtworks.go.domain.materials.MaterialConfig;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Everything a {@link FanInGraph} needs to know about the config: the materials of the pipeline and of each pipeline
+ * upstream of it, and the SCM materials each of those pipelines is built from. None of it changes until the config
+ * does, so one index is shared by all the graphs built for a pipeline (see {@link FanInGraphCache}).
+ * <p>
+ * The index also remembers what earlier graphs worked out from the pipeline history, since that only depends on
+ * the config and on history that does not change.
+ */
+public class DependencyGraphIndex {
+    static final int MAX_REMEMBERED_PIPELINE_INSTANCES = 10000;
+
+    final DependencyMaterialConfig root;
+    final Map<CaseInsensitiveString, List<MaterialConfig>> materialsByPipeline = new HashMap<>();
+    final Map<String, MaterialConfig> fingerprintScmMaterialMap = new HashMap<>();
+    final Map<String, DependencyMaterialConfig> fingerprintDepMaterialMap = new HashMap<>();
+    final Map<DependencyMaterialConfig, Set<String>> dependencyMaterialFingerprintMap = new HashMap<>();
+    final Map<DependencyMaterialConfig, Set<MaterialConfig>> pipelineScmDepMap = new HashMap<>();
+
+    private final Map<Long, List<FaninScmMaterial>> scmMaterialsUpstreamOfPipeline = new ConcurrentHashMap<>();
+    private volatile Resolution lastResolution;
+
+    DependencyGraphIndex(CruiseConfig cruiseConfig, CaseInsensitiveString pipelineName) {
+        PipelineConfig target = cruiseConfig.pipelineConfigByName(pipelineName);
+        this.root = new DependencyMaterialConfig(target.name(), target.get(0).name());
+
+        Set<String> scmMaterials = new HashSet<>();
+        index(cruiseConfig, target, scmMaterials, new HashSet<>());
+        dependencyMaterialFingerprintMap.put(root, scmMaterials);
+
+        for (Map.Entry<DependencyMaterialConfig, Set<String>> materialSetEntry : dependencyMaterialFingerprintMap.entrySet()) {
+            Set<MaterialConfig> scmMaterialConfigs = new HashSet<>();
+            for (String fingerprint : materialSetEntry.getValue()) {
+                scmMaterialConfigs.add(fingerprintScmMaterialMap.get(fingerprint));
+            }
+            pipelineScmDepMap.put(materialSetEntry.getKey(), scmMaterialConfigs);
+        }
+    }
+
+    private void index(CruiseConfig cruiseConfig, PipelineConfig pipeline, Set<String> scmMaterialSet, Set<DependencyMaterialConfig> visitedNodes) {
+        List<MaterialConfig> materials = new ArrayList<>(pipeline.materialConfigs());
+        materialsByPipeline.put(pipeline.name(), materials);
+
+        for (MaterialConfig material : materials) {
+            if (material instanceof DependencyMaterialConfig) {
+                DependencyMaterialConfig dependencyMaterial = (DependencyMaterialConfig) material;
+                fingerprintDepMaterialMap.put(dependencyMaterial.getFingerprint(), dependencyMaterial);
+                indexDependencyMaterial(cruiseConfig, scmMaterialSet, dependencyMaterial, visitedNodes);
+            } else {
+                String fingerprint = material.getFingerprint();
+                scmMaterialSet.add(fingerprint);
+                fingerprintScmMaterialMap.put(fingerprint, material);
+            }
+        }
+    }
+
+    private void indexDependencyMaterial(CruiseConfig cruiseConfig, Set<String> scmMaterialSet, DependencyMaterialConfig depMaterial, Set<DependencyMaterialConfig> visitedNodes) {
+        if (visitedNodes.contains(depMaterial)) {
+            scmMaterialSet.addAll(dependencyMaterialFingerprintMap.get(depMaterial));
+            return;
+        }
+        visitedNodes.add(depMaterial);
+
+        Set<String> scmMaterialFingerprintSet = new HashSet<>();
+        index(cruiseConfig, cruiseConfig.pipelineConfigByName(depMaterial.getPipelineName()), scmMaterialFingerprintSet, visitedNodes);
+        dependencyMaterialFingerprintMap.put(depMaterial, scmMaterialFingerprintSet);
+        scmMaterialSet.addAll(scmMaterialFingerprintSet);
+    }
+
+    List<MaterialConfig> materialsOf(CaseInsensitiveString pipelineName) {
+        return materialsByPipeline.get(pipelineName);
+    }
+
+    /**
+     * The SCM revisions that went into an instance of an upstream pipeline, through all the pipelines upstream of it,
+     * keyed by the id of that instance. An instance never changes its materials, so this can be kept for as long as
+     * the config stays the same.
+     */
+    Map<Long, List<FaninScmMaterial>> scmMaterialsUpstreamOfPipeline() {
+        if (scmMaterialsUpstreamOfPipeline.size() > MAX_REMEMBERED_PIPELINE_INSTANCES) {
+            scmMaterialsUpstreamOfPipeline.clear();
+        }
+        return scmMaterialsUpstreamOfPipeline;
+    }
+
+    Resolution lastResolution() {
+        return lastResolution;
+    }
+
+    void remember(Resolution resolution) {
+        this.lastResolution = resolution;
+    }
+
+    /**
+     * The upstream revisions that fan-in resolution settled on for a given set of revisions of the materials of the
+     * pipeline. As long as the materials are at the same revisions and no pipeline has run since, resolving again
+     * would come to the same answer.
+     */
+    static class Resolution {
+        private final Map<String, String> actualRevisions;
+        private final long pipelineTimelineVersion;
+        final Map<String, StageIdentifier> stageByFingerprint = new HashMap<>();
+        final Map<String, Set<FaninScmMaterial>> scmMaterialsByFingerprint = new HashMap<>();
+
+        Resolution(Map<String, String> actualRevisions, long pipelineTimelineVersion) {
+            this.actualRevisions = actualRevisions;
+            this.pipelineTimelineVersion = pipelineTimelineVersion;
+        }
+
+        boolean isFor(Map<String, String> actualRevisions, long pipelineTimelineVersion) {
+            return this.pipelineTimelineVersion == pipelineTimelineVersion && this.actualRevisions.equals(actualRevisions);
+        }
+    }
+}
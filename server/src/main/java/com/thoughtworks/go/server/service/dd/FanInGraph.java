@@ -17,7 +17,6 @@ package com.thoughtworks.go.server.service.dd;
 
 import com.thoughtworks.go.config.CaseInsensitiveString;
 import com.thoughtworks.go.config.CruiseConfig;
-import com.thoughtworks.go.config.PipelineConfig;
 import com.thoughtworks.go.config.materials.MaterialConfigs;
 import com.thoughtworks.go.config.materials.ScmMaterialConfig;
 import com.thoughtworks.go.config.materials.dependency.DependencyMaterialConfig;
@@ -46,14 +45,11 @@ public class FanInGraph {
     private static final int REVISION_BUFFER_SIZE = 5;
 
     private final PipelineDao pipelineDao;
-    private final CruiseConfig cruiseConfig;
+    private final DependencyGraphIndex index;
     private final MaterialRepository materialRepository;
     private MaterialConfigConverter materialConfigConverter;
 
     private final Map<String, FanInNode> nodes = new HashMap<>();
-    private final Map<String, MaterialConfig> fingerprintScmMaterialMap = new HashMap<>();
-    private final Map<String, DependencyMaterialConfig> fingerprintDepMaterialMap = new HashMap<>();
-    private final Map<DependencyMaterialConfig, Set<String>> dependencyMaterialFingerprintMap = new HashMap<>();
 
     private final DependencyFanInNode root;
     private final CaseInsensitiveString pipelineName;
@@ -62,60 +58,39 @@ public class FanInGraph {
 
     public FanInGraph(CruiseConfig cruiseConfig, CaseInsensitiveString root, MaterialRepository materialRepository, PipelineDao pipelineDao, SystemEnvironment systemEnvironment,
                       MaterialConfigConverter materialConfigConverter) {
-        this.cruiseConfig = cruiseConfig;
+        this(new DependencyGraphIndex(cruiseConfig, root), materialRepository, pipelineDao, systemEnvironment, materialConfigConverter);
+    }
+
+    public FanInGraph(DependencyGraphIndex index, MaterialRepository materialRepository, PipelineDao pipelineDao, SystemEnvironment systemEnvironment,
+                      MaterialConfigConverter materialConfigConverter) {
+        this.index = index;
         this.materialRepository = materialRepository;
         this.pipelineDao = pipelineDao;
-        this.pipelineName = root;
+        this.pipelineName = index.root.getPipelineName();
         this.systemEnvironment = systemEnvironment;
         this.materialConfigConverter = materialConfigConverter;
 
-        PipelineConfig target = cruiseConfig.pipelineConfigByName(root);
-        this.root = (DependencyFanInNode) FanInNodeFactory.create(new DependencyMaterialConfig(target.name(), target.get(0).name()));
+        this.root = (DependencyFanInNode) FanInNodeFactory.create(index.root);
 
-        buildGraph(target);
+        buildGraph();
     }
 
-    private void buildGraph(PipelineConfig target) {
+    private void buildGraph() {
         nodes.put(this.root.materialConfig.getFingerprint(), this.root);
-        final Set<String> scmMaterials = new HashSet<>();
-        buildRestOfTheGraph(this.root, target, scmMaterials, new HashSet<>());
-        dependencyMaterialFingerprintMap.put((DependencyMaterialConfig) this.root.materialConfig, scmMaterials);
+        buildRestOfTheGraph(this.root, pipelineName, new HashSet<>());
     }
 
-    private void buildRestOfTheGraph(DependencyFanInNode root, PipelineConfig target, Set<String> scmMaterialSet, Set<DependencyMaterialConfig> visitedNodes) {
-        for (MaterialConfig material : target.materialConfigs()) {
+    private void buildRestOfTheGraph(DependencyFanInNode root, CaseInsensitiveString pipeline, Set<DependencyMaterialConfig> visitedNodes) {
+        for (MaterialConfig material : index.materialsOf(pipeline)) {
             FanInNode node = createNode(material);
             root.children.add(node);
             node.parents.add(root);
-            if (node instanceof DependencyFanInNode) {
-                DependencyMaterialConfig dependencyMaterial = (DependencyMaterialConfig) material;
-                fingerprintDepMaterialMap.put(dependencyMaterial.getFingerprint(), dependencyMaterial);
-                handleDependencyMaterial(scmMaterialSet, dependencyMaterial, (DependencyFanInNode) node, visitedNodes);
-            } else {
-                handleScmMaterial(scmMaterialSet, material);
+            if (node instanceof DependencyFanInNode && visitedNodes.add((DependencyMaterialConfig) material)) {
+                buildRestOfTheGraph((DependencyFanInNode) node, ((DependencyMaterialConfig) material).getPipelineName(), visitedNodes);
             }
         }
     }
 
-    private void handleScmMaterial(Set<String> scmMaterialSet, MaterialConfig material) {
-        final String fingerprint = material.getFingerprint();
-        scmMaterialSet.add(fingerprint);
-        fingerprintScmMaterialMap.put(fingerprint, material);
-    }
-
-    private void handleDependencyMaterial(Set<String> scmMaterialSet, DependencyMaterialConfig depMaterial, DependencyFanInNode node, Set<DependencyMaterialConfig> visitedNodes) {
-        if (visitedNodes.contains(depMaterial)) {
-            scmMaterialSet.addAll(dependencyMaterialFingerprintMap.get(depMaterial));
-            return;
-        }
-        visitedNodes.add(depMaterial);
-
-        final Set<String> scmMaterialFingerprintSet = new HashSet<>();
-        buildRestOfTheGraph(node, cruiseConfig.pipelineConfigByName(depMaterial.getPipelineName()), scmMaterialFingerprintSet, visitedNodes);
-        dependencyMaterialFingerprintMap.put(depMaterial, scmMaterialFingerprintSet);
-        scmMaterialSet.addAll(scmMaterialFingerprintSet);
-    }
-
     private FanInNode createNode(MaterialConfig material) {
         FanInNode node = nodes.get(material.getFingerprint());
         if (node == null) {
@@ -142,17 +117,7 @@ public class FanInGraph {
     }
 
     public Map<DependencyMaterialConfig, Set<MaterialConfig>> getPipelineScmDepMap() {
-        Map<DependencyMaterialConfig, Set<MaterialConfig>> dependencyMaterialListMap = new HashMap<>();
-
-        for (Map.Entry<DependencyMaterialConfig, Set<String>> materialSetEntry : dependencyMaterialFingerprintMap.entrySet()) {
-            Set<MaterialConfig> scmMaterials = new HashSet<>();
-            for (String fingerprint : materialSetEntry.getValue()) {
-                scmMaterials.add(fingerprintScmMaterialMap.get(fingerprint));
-            }
-            dependencyMaterialListMap.put(materialSetEntry.getKey(), scmMaterials);
-        }
-
-        return dependencyMaterialListMap;
+        return index.pipelineScmDepMap;
     }
 
     public MaterialRevisions computeRevisions(MaterialRevisions actualRevisions, PipelineTimeline pipelineTimeline) {
@@ -170,13 +135,26 @@ public class FanInGraph {
         FanInGraphContext context = buildContext(pipelineTimeline);
         root.initialize(context);
 
-        initChildren(depChildren, pipelineName, context);
+        Map<String, String> actualRevisionsByFingerprint = revisionsByFingerprint(actualRevisions);
+        DependencyGraphIndex.Resolution resolution = index.lastResolution();
+        if (fanInEventListener == null && resolution != null && resolution.isFor(actualRevisionsByFingerprint, pipelineTimeline.maximumId())) {
+            for (DependencyFanInNode child : depChildren) {
+                String fingerprint = child.materialConfig.getFingerprint();
+                child.resolveTo(resolution.stageByFingerprint.get(fingerprint), resolution.scmMaterialsByFingerprint.get(fingerprint));
+            }
+        } else {
+            long pipelineTimelineVersion = pipelineTimeline.maximumId();
 
-        if (fanInEventListener != null) {
-            fanInEventListener.iterationComplete(0, depChildren);
-        }
+            initChildren(depChildren, pipelineName, context);
 
-        iterateAndMakeAllUniqueScmRevisionsForChildrenSame(depChildren, pipelineName, context);
+            if (fanInEventListener != null) {
+                fanInEventListener.iterationComplete(0, depChildren);
+            }
+
+            iterateAndMakeAllUniqueScmRevisionsForChildrenSame(depChildren, pipelineName, context);
+
+            index.remember(resolutionOf(depChildren, actualRevisionsByFingerprint, pipelineTimelineVersion));
+        }
 
         List<MaterialRevision> finalRevisionsForScmChildren = createFinalRevisionsForScmChildren(root.latestPipelineTimelineEntry(context), scmChildren, depChildren);
 
@@ -185,6 +163,24 @@ public class FanInGraph {
         return new MaterialRevisions(CollectionUtils.union(getMaterialsFromCurrentPipeline(finalRevisionsForScmChildren, actualRevisions), finalRevisionsForDepChildren));
     }
 
+    private Map<String, String> revisionsByFingerprint(MaterialRevisions actualRevisions) {
+        Map<String, String> revisions = new HashMap<>();
+        for (MaterialRevision actualRevision : actualRevisions) {
+            revisions.put(actualRevision.getMaterial().getFingerprint(), actualRevision.getLatestRevisionString());
+        }
+        return revisions;
+    }
+
+    private DependencyGraphIndex.Resolution resolutionOf(List<DependencyFanInNode> depChildren, Map<String, String> actualRevisions, long pipelineTimelineVersion) {
+        DependencyGraphIndex.Resolution resolution = new DependencyGraphIndex.Resolution(actualRevisions, pipelineTimelineVersion);
+        for (DependencyFanInNode child : depChildren) {
+            String fingerprint = child.materialConfig.getFingerprint();
+            resolution.stageByFingerprint.put(fingerprint, child.currentRevision);
+            resolution.scmMaterialsByFingerprint.put(fingerprint, new HashSet<>(child.stageIdentifierScmMaterialForCurrentRevision()));
+        }
+        return resolution;
+    }
+
     //This whole method is repeated for reporting and it does not use actual revisions for determining final revisions
     //Used in rails view
     //Do not delete
@@ -382,9 +378,10 @@ public class FanInGraph {
         FanInGraphContext context = new FanInGraphContext();
         context.revBatchCount = REVISION_BUFFER_SIZE;
         context.pipelineTimeline = pipelineTimeline;
-        context.fingerprintScmMaterialMap = fingerprintScmMaterialMap;
-        context.pipelineScmDepMap = getPipelineScmDepMap();
-        context.fingerprintDepMaterialMap = fingerprintDepMaterialMap;
+        context.fingerprintScmMaterialMap = index.fingerprintScmMaterialMap;
+        context.pipelineScmDepMap = index.pipelineScmDepMap;
+        context.fingerprintDepMaterialMap = index.fingerprintDepMaterialMap;
+        context.scmMaterialsUpstreamOfPipeline = index.scmMaterialsUpstreamOfPipeline();
         context.pipelineDao = pipelineDao;
         context.maxBackTrackLimit = systemEnvironment.get(SystemEnvironment.RESOLVE_FANIN_MAX_BACK_TRACK_LIMIT);
         return context;
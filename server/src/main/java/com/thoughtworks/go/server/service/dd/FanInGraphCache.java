@@ -0,0 +1,40 @@
+/*
+ * Copyright 2020 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.service.dd;
+
+import com.thoughtworks.go.config.CaseInsensitiveString;
+import com.thoughtworks.go.config.CruiseConfig;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the {@link DependencyGraphIndex} of every pipeline that fan-in resolution has been done for, until the config
+ * changes. A config change always comes with a new {@link CruiseConfig}, so the indexes are dropped as soon as they
+ * are asked for with a config other than the one they were built from.
+ */
+public class FanInGraphCache {
+    private CruiseConfig cruiseConfig;
+    private final Map<CaseInsensitiveString, DependencyGraphIndex> indexes = new HashMap<>();
+
+    public synchronized DependencyGraphIndex indexFor(CruiseConfig cruiseConfig, CaseInsensitiveString pipelineName) {
+        if (this.cruiseConfig != cruiseConfig) {
+            indexes.clear();
+            this.cruiseConfig = cruiseConfig;
+        }
+        return indexes.computeIfAbsent(pipelineName, name -> new DependencyGraphIndex(cruiseConfig, name));
+    }
+}
@@ -15,6 +15,8 @@
  */
 package com.thoughtworks.go.server.service.dd;
 
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -31,4 +33,5 @@ public class FanInGraphContext {
     public Map<String, DependencyMaterialConfig> fingerprintDepMaterialMap;
     public PipelineDao pipelineDao;
     public int maxBackTrackLimit;
+    Map<Long, List<FaninScmMaterial>> scmMaterialsUpstreamOfPipeline = new HashMap<>();
 }
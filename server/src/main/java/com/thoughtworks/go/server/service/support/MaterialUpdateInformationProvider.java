@@ -0,0 +1,70 @@
+/*
+ * Copyright 2020 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.service.support;
+
+import com.thoughtworks.go.server.materials.MaterialUpdateScheduler.MaterialStatistics;
+import com.thoughtworks.go.server.materials.MaterialUpdateService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @understands how long SCM material updates wait to be picked up and how long they take
+ */
+@Component
+public class MaterialUpdateInformationProvider implements ServerInfoProvider {
+    private final MaterialUpdateService materialUpdateService;
+
+    @Autowired
+    public MaterialUpdateInformationProvider(MaterialUpdateService materialUpdateService) {
+        this.materialUpdateService = materialUpdateService;
+    }
+
+    @Override
+    public double priority() {
+        return 7.6;
+    }
+
+    @Override
+    public Map<String, Object> asJson() {
+        LinkedHashMap<String, Object> json = new LinkedHashMap<>();
+        json.put("Waiting Updates", materialUpdateService.materialUpdatesWaiting());
+
+        List<Map<String, Object>> materials = new ArrayList<>();
+        for (MaterialStatistics statistics : materialUpdateService.materialUpdateStatistics()) {
+            LinkedHashMap<String, Object> material = new LinkedHashMap<>();
+            material.put("Material", statistics.getMaterial().getUriForDisplay());
+            material.put("Fingerprint", statistics.getMaterial().getFingerprint());
+            material.put("Updates", statistics.getUpdates());
+            material.put("Average Wait in milliseconds", Math.round(statistics.getAverageWaitMillis()));
+            material.put("Last Wait in milliseconds", statistics.getLastWaitMillis());
+            material.put("Average Update Duration in milliseconds", Math.round(statistics.getAverageDurationMillis()));
+            material.put("Last Update Duration in milliseconds", statistics.getLastDurationMillis());
+            materials.add(material);
+        }
+        json.put("Materials", materials);
+        return json;
+    }
+
+    @Override
+    public String name() {
+        return "Material Update Information";
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2020 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.service.support;
+
+import com.thoughtworks.go.server.messaging.inprocess.InProcessMessagingService;
+import com.thoughtworks.go.server.messaging.inprocess.InProcessMessagingService.DestinationStatistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @understands how many messages are waiting on each queue and topic, and how long they wait for a listener
+ */
+@Component
+public class MessagingInformationProvider implements ServerInfoProvider {
+    private final InProcessMessagingService messagingService;
+
+    @Autowired
+    public MessagingInformationProvider(InProcessMessagingService messagingService) {
+        this.messagingService = messagingService;
+    }
+
+    @Override
+    public double priority() {
+        return 7.7;
+    }
+
+    @Override
+    public Map<String, Object> asJson() {
+        List<Map<String, Object>> destinations = new ArrayList<>();
+        for (DestinationStatistics statistics : messagingService.statistics()) {
+            LinkedHashMap<String, Object> destination = new LinkedHashMap<>();
+            destination.put("Name", statistics.getName());
+            destination.put("Type", statistics.getType());
+            destination.put("Listeners", statistics.getListeners());
+            destination.put("Depth", statistics.getDepth());
+            destination.put("Sent", statistics.getSent());
+            destination.put("Delivered", statistics.getDelivered());
+            destination.put("Expired", statistics.getExpired());
+            destination.put("Average Wait in milliseconds", Math.round(statistics.getAverageWaitMillis()));
+            destination.put("Max Wait in milliseconds", statistics.getMaxWaitMillis());
+            destination.put("Average Handling Time in milliseconds", Math.round(statistics.getAverageHandlingMillis()));
+            destinations.add(destination);
+        }
+
+        LinkedHashMap<String, Object> json = new LinkedHashMap<>();
+        json.put("Destinations", destinations);
+        return json;
+    }
+
+    @Override
+    public String name() {
+        return "Messaging Information";
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2020 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.service.support;
+
+import com.thoughtworks.go.plugin.infra.DefaultPluginManager;
+import com.thoughtworks.go.plugin.infra.PluginRequestLatencies.Histogram;
+import com.thoughtworks.go.plugin.infra.PluginRequestLimiter;
+import com.thoughtworks.go.plugin.infra.plugininfo.GoPluginDescriptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @understands how many requests each plugin is handling and how long they take
+ */
+@Component
+public class PluginRequestInformationProvider implements ServerInfoProvider {
+    private final DefaultPluginManager pluginManager;
+
+    @Autowired
+    public PluginRequestInformationProvider(DefaultPluginManager pluginManager) {
+        this.pluginManager = pluginManager;
+    }
+
+    @Override
+    public double priority() {
+        return 14.5;
+    }
+
+    @Override
+    public Map<String, Object> asJson() {
+        PluginRequestLimiter limiter = pluginManager.requestLimiter();
+
+        List<Map<String, Object>> plugins = new ArrayList<>();
+        for (GoPluginDescriptor descriptor : pluginManager.plugins()) {
+            LinkedHashMap<String, Object> plugin = new LinkedHashMap<>();
+            plugin.put("Plugin", descriptor.id());
+            plugin.put("Requests in flight", limiter.requestsInFlight(descriptor.id()));
+            plugin.put("Requests waiting", limiter.requestsWaiting(descriptor.id()));
+
+            Map<String, Object> requests = new LinkedHashMap<>();
+            for (Map.Entry<String, Histogram> entry : pluginManager.requestLatencies().of(descriptor.id()).entrySet()) {
+                Histogram histogram = entry.getValue();
+                LinkedHashMap<String, Object> latency = new LinkedHashMap<>();
+                latency.put("Count", histogram.count());
+                latency.put("Mean in milliseconds", histogram.meanMillis());
+                latency.put("50th percentile in milliseconds", histogram.percentileMillis(0.5));
+                latency.put("95th percentile in milliseconds", histogram.percentileMillis(0.95));
+                latency.put("99th percentile in milliseconds", histogram.percentileMillis(0.99));
+                latency.put("Max in milliseconds", histogram.maxMillis());
+                latency.put("Histogram", histogram.buckets());
+                requests.put(entry.getKey(), latency);
+            }
+            plugin.put("Requests", requests);
+            plugins.add(plugin);
+        }
+
+        LinkedHashMap<String, Object> json = new LinkedHashMap<>();
+        json.put("Plugins", plugins);
+        return json;
+    }
+
+    @Override
+    public String name() {
+        return "Plugin Request Information";
+    }
+}
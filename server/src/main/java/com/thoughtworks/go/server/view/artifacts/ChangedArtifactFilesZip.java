@@ -0,0 +1,55 @@
+/*
+ * Copyright 2020 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.view.artifacts;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.OutputStream;
+import java.util.Map;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.thoughtworks.go.server.cache.ParallelZipWriter;
+import org.springframework.web.servlet.view.AbstractView;
+
+/**
+ * @understands sending a zip of only those files of an artifact folder that an agent does not have yet
+ */
+public class ChangedArtifactFilesZip extends AbstractView {
+    private final ParallelZipWriter zipWriter;
+    private final File folder;
+    private final FileFilter changedFiles;
+
+    public ChangedArtifactFilesZip(ParallelZipWriter zipWriter, File folder, FileFilter changedFiles) {
+        this.zipWriter = zipWriter;
+        this.folder = folder;
+        this.changedFiles = changedFiles;
+        setContentType("application/zip");
+    }
+
+    public File getFolder() {
+        return folder;
+    }
+
+    @Override
+    protected void renderMergedOutputModel(Map model, HttpServletRequest request, HttpServletResponse response) throws Exception {
+        response.setContentType(getContentType());
+        try (OutputStream out = new BufferedOutputStream(response.getOutputStream())) {
+            zipWriter.zip(folder, changedFiles, out);
+        }
+    }
+}
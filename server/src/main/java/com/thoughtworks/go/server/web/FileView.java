@@ -32,6 +32,8 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.zip.Deflater;
 
 @Component
@@ -41,6 +43,7 @@ public class FileView implements View, ServletContextAware {
 
     private ServletContext servletContext;
     public static final String NEED_TO_ZIP = "need_to_zip";
+    private static final Pattern SINGLE_BYTE_RANGE = Pattern.compile("bytes=(\\d*)-(\\d*)");
 
     private ServletContext getServletContext() {
         return this.servletContext;
@@ -56,14 +59,72 @@ public class FileView implements View, ServletContextAware {
         return "application/octet-stream";
     }
 
-    private void handleFile(File file, boolean needToZip, HttpServletResponse response) throws Exception {
+    private void handleFile(File file, boolean needToZip, HttpServletRequest request, HttpServletResponse response) throws Exception {
         String filename = file.getName();
         seContentType(needToZip, response, filename);
         setHeaders(response, filename);
+        if (!needToZip) {
+            response.setHeader("Accept-Ranges", "bytes");
+            if (handleRange(file, request.getHeader("Range"), response)) {
+                return;
+            }
+        }
         setContentLength(needToZip, file, response);
         setOutput(needToZip, file, response);
     }
 
+    /**
+     * Sends only the requested bytes of the file, so that agents can fetch large artifacts in parts and resume them.
+     * Only a single range is supported; anything else is ignored and the whole file is sent, which is allowed by the spec.
+     *
+     * @return true if the range has been handled
+     */
+    private boolean handleRange(File file, String rangeHeader, HttpServletResponse response) throws IOException {
+        long length = file.length();
+        if (rangeHeader == null || length == 0) {
+            return false;
+        }
+        Matcher matcher = SINGLE_BYTE_RANGE.matcher(rangeHeader.trim());
+        if (!matcher.matches() || (matcher.group(1).isEmpty() && matcher.group(2).isEmpty())) {
+            return false;
+        }
+
+        long first;
+        long last;
+        try {
+            if (matcher.group(1).isEmpty()) {
+                first = Math.max(0, length - Long.parseLong(matcher.group(2)));
+                last = length - 1;
+            } else {
+                first = Long.parseLong(matcher.group(1));
+                last = matcher.group(2).isEmpty() ? length - 1 : Math.min(Long.parseLong(matcher.group(2)), length - 1);
+            }
+        } catch (NumberFormatException e) {
+            return false;
+        }
+
+        if (first >= length) {
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            response.setHeader("Content-Range", "bytes */" + length);
+            return true;
+        }
+        if (last < first) {
+            return false;
+        }
+
+        long count = last - first + 1;
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setHeader("Content-Range", "bytes " + first + "-" + last + "/" + length);
+        response.addHeader("Content-Length", Long.toString(count));
+
+        ServletOutputStream out = response.getOutputStream();
+        try (FileInputStream input = new FileInputStream(file)) {
+            IOUtils.copyLarge(input, out, first, count, new byte[32 * 1024]);
+        }
+        out.flush();
+        return true;
+    }
+
     private void setOutput(boolean needToZip, File file, HttpServletResponse response) throws IOException {
         ServletOutputStream out = response.getOutputStream();
         if (needToZip) {
@@ -108,14 +169,14 @@ public class FileView implements View, ServletContextAware {
     public void render(Map map, HttpServletRequest httpServletRequest, HttpServletResponse httpServletResponse) throws Exception {
         File file = (File) map.get("targetFile");
         boolean needToZip = map.containsKey(NEED_TO_ZIP);
-        handleFileWithLogging(httpServletResponse, file, needToZip);
+        handleFileWithLogging(httpServletRequest, httpServletResponse, file, needToZip);
     }
 
-    private void handleFileWithLogging(HttpServletResponse httpServletResponse, File file, boolean needToZip) throws Exception {
+    private void handleFileWithLogging(HttpServletRequest httpServletRequest, HttpServletResponse httpServletResponse, File file, boolean needToZip) throws Exception {
         LOGGER.info("[Artifact Download] About to download: {}. ShouldZip? = {}", file.getAbsolutePath(), needToZip);
         long before = System.currentTimeMillis();
 
-        handleFile(file, needToZip, httpServletResponse);
+        handleFile(file, needToZip, httpServletRequest, httpServletResponse);
 
         long timeTaken = System.currentTimeMillis() - before;
         LOGGER.info("[Artifact Download] Finished downloading: {}. ShouldZip? = {}. The time taken is: {}ms", file.getAbsolutePath(), needToZip, timeTaken);
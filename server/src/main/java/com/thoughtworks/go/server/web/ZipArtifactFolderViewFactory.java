@@ -19,6 +19,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import com.thoughtworks.go.server.view.artifacts.PreparingArtifactFile;
+import com.thoughtworks.go.server.view.artifacts.StreamingArtifactZip;
 import com.thoughtworks.go.server.cache.ZipArtifactCache;
 import org.springframework.web.servlet.ModelAndView;
 import com.thoughtworks.go.domain.JobIdentifier;
@@ -36,6 +37,8 @@ public class ZipArtifactFolderViewFactory implements ArtifactFolderViewFactory {
             Map<String, Object> data = new HashMap<>();
             data.put("targetFile", zipArtifactCache.cachedFile(artifactFolder));
             return new ModelAndView("fileView", data);
+        } else if (zipArtifactCache.currentlyCreatingCache(artifactFolder)) {
+            return new ModelAndView(new StreamingArtifactZip(zipArtifactCache, artifactFolder));
         } else {
             return new ModelAndView(new PreparingArtifactFile());
         }
@@ -0,0 +1,279 @@
+/*
+ * Copyright 2020 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.websocket;
+
+import com.thoughtworks.go.domain.ConsoleConsumer;
+import com.thoughtworks.go.domain.JobIdentifier;
+import com.thoughtworks.go.server.dao.JobInstanceDao;
+import com.thoughtworks.go.server.service.ConsoleService;
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tails the console log of each running job once, no matter how many websockets are watching it. New lines are framed
+ * and gzipped once per poll and the same frames are handed to every {@link Subscription}.
+ * <p>
+ * A subscription only buffers a bounded number of frames. A viewer that falls behind has its pending frames dropped and
+ * is asked to catch up by reading the missed lines from the log itself, so a slow client never holds up the tail or the
+ * other viewers.
+ */
+@Component
+public class ConsoleLogBroadcaster {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConsoleLogBroadcaster.class);
+
+    static final int FILL_INTERVAL = 500;
+    static final int MAX_PENDING_FRAMES = 16;
+    private static final int TAILER_THREADS = 2;
+
+    private final ConsoleService consoleService;
+    private final JobInstanceDao jobInstanceDao;
+    private final ConsoleLogFramer framer;
+    private final ScheduledExecutorService executor;
+    private final ConcurrentHashMap<JobIdentifier, JobTail> tails = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ConsoleLogBroadcaster(ConsoleService consoleService, JobInstanceDao jobInstanceDao, SystemEnvironment systemEnvironment) {
+        this(consoleService, jobInstanceDao, systemEnvironment, new ScheduledThreadPoolExecutor(TAILER_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "console-log-tailer");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    ConsoleLogBroadcaster(ConsoleService consoleService, JobInstanceDao jobInstanceDao, SystemEnvironment systemEnvironment, ScheduledExecutorService executor) {
+        this.consoleService = consoleService;
+        this.jobInstanceDao = jobInstanceDao;
+        this.framer = new ConsoleLogFramer(systemEnvironment.consoleLogCharsetAsCharset());
+        this.executor = executor;
+    }
+
+    /**
+     * Subscribes to the console log of a running job, starting at the given line. Lines that the shared tail has
+     * already gone past are left for the subscriber to catch up on (see {@link Subscription#catchUpUntil()}).
+     */
+    public Subscription subscribe(JobIdentifier jobIdentifier, long startingLine) {
+        Subscription subscription = new Subscription(startingLine);
+
+        while (true) {
+            JobTail tail = tails.computeIfAbsent(jobIdentifier, identifier -> new JobTail(identifier, startingLine));
+            if (tail.add(subscription)) {
+                return subscription;
+            }
+            // the tail stopped in the meantime; it will already have removed itself
+            tails.remove(jobIdentifier, tail);
+        }
+    }
+
+    public void unsubscribe(JobIdentifier jobIdentifier, Subscription subscription) {
+        JobTail tail = tails.get(jobIdentifier);
+        if (tail != null) {
+            tail.remove(subscription);
+        }
+    }
+
+    int activeTails() {
+        return tails.size();
+    }
+
+    static class Frame {
+        private final byte[] bytes;
+        private final long firstLine;
+        private final long endLine;
+
+        Frame(byte[] bytes, long firstLine, long endLine) {
+            this.bytes = bytes;
+            this.firstLine = firstLine;
+            this.endLine = endLine;
+        }
+
+        byte[] bytes() {
+            return bytes;
+        }
+
+        long firstLine() {
+            return firstLine;
+        }
+
+        /**
+         * @return the line just after the last line in this frame
+         */
+        long endLine() {
+            return endLine;
+        }
+    }
+
+    /**
+     * The frames published for a single viewer, waiting to be sent. All state is guarded by the subscription itself so
+     * that a viewer can {@link Object#wait()} on it for new frames.
+     */
+    public static class Subscription {
+        private final ArrayDeque<Frame> frames = new ArrayDeque<>();
+        private long catchUpUntil;
+        private boolean finished;
+
+        private Subscription(long startingLine) {
+            this.catchUpUntil = startingLine;
+        }
+
+        synchronized Frame poll() {
+            return frames.poll();
+        }
+
+        /**
+         * Waits up to the given time for anything beyond {@code nextLine} to be sent.
+         *
+         * @return false once the tail has finished and everything has been sent
+         */
+        synchronized boolean await(long nextLine, long timeoutMillis) throws InterruptedException {
+            if (catchUpUntil <= nextLine && frames.isEmpty()) {
+                if (finished) return false;
+                wait(timeoutMillis);
+            }
+            return true;
+        }
+
+        /**
+         * @return the line up to which the viewer has to read the log on its own, because the shared tail had already
+         * gone past those lines when it subscribed, or because it fell too far behind
+         */
+        synchronized long catchUpUntil() {
+            return catchUpUntil;
+        }
+
+        private synchronized void behindBy(long line) {
+            catchUpUntil = Math.max(catchUpUntil, line);
+            notifyAll();
+        }
+
+        private synchronized void publish(Frame frame) {
+            if (frames.size() >= MAX_PENDING_FRAMES) {
+                frames.clear();
+                catchUpUntil = Math.max(catchUpUntil, frame.endLine());
+            } else {
+                frames.add(frame);
+            }
+            notifyAll();
+        }
+
+        private synchronized void finish() {
+            finished = true;
+            notifyAll();
+        }
+    }
+
+    private class JobTail implements Runnable {
+        private final JobIdentifier jobIdentifier;
+        private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+        private ScheduledFuture<?> future;
+        private ConsoleConsumer streamer;
+        private long nextLine;
+        private boolean stopped;
+
+        JobTail(JobIdentifier jobIdentifier, long startingLine) {
+            this.jobIdentifier = jobIdentifier;
+            this.nextLine = startingLine;
+        }
+
+        synchronized boolean add(Subscription subscription) {
+            if (stopped) {
+                return false;
+            }
+            subscription.behindBy(nextLine);
+            subscriptions.add(subscription);
+
+            if (future == null) {
+                future = executor.scheduleWithFixedDelay(this, 0L, FILL_INTERVAL, TimeUnit.MILLISECONDS);
+            }
+            return true;
+        }
+
+        void remove(Subscription subscription) {
+            subscriptions.remove(subscription);
+        }
+
+        @Override
+        public synchronized void run() {
+            if (stopped) {
+                return;
+            }
+
+            try {
+                if (subscriptions.isEmpty()) {
+                    stop();
+                    return;
+                }
+
+                if (null == streamer) streamer = consoleService.getStreamer(nextLine, jobIdentifier);
+                publishNewLines(streamer);
+
+                if (jobInstanceDao.isJobCompleted(jobIdentifier)) {
+                    // empty the tail end of the file because the build could have been marked completed before we've
+                    // seen the last content update
+                    publishNewLines(streamer);
+
+                    // send the remaining logs if any, as the log may since have been moved to the artifacts directory
+                    try (ConsoleConsumer consoleFileStreamer = consoleService.getStreamer(nextLine, jobIdentifier)) {
+                        publishNewLines(consoleFileStreamer);
+                    }
+                    LOGGER.debug("Finished tailing {} log lines for {}", nextLine, jobIdentifier);
+                    stop();
+                }
+            } catch (Exception e) {
+                LOGGER.error("Failed to tail console log for {}", jobIdentifier, e);
+                stop();
+            }
+        }
+
+        private void publishNewLines(ConsoleConsumer console) throws IOException {
+            framer.frame(console, Long.MAX_VALUE, (bytes, lines) -> {
+                Frame frame = new Frame(bytes, nextLine, nextLine + lines);
+                nextLine = frame.endLine();
+                for (Subscription subscription : subscriptions) {
+                    subscription.publish(frame);
+                }
+            });
+        }
+
+        private void stop() {
+            stopped = true;
+            future.cancel(false);
+            tails.remove(jobIdentifier, this);
+
+            try {
+                if (streamer != null) streamer.close();
+            } catch (Exception e) {
+                LOGGER.warn("Failed to close console log for {}", jobIdentifier, e);
+            }
+
+            for (Subscription subscription : subscriptions) {
+                subscription.finish();
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2020 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.websocket;
+
+import com.thoughtworks.go.domain.ConsoleConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Packs console log lines into websocket frames of at most {@link #BUF_SIZE} bytes, gzipping frames that are large
+ * enough to benefit from it.
+ */
+class ConsoleLogFramer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConsoleLogFramer.class);
+
+    static final int BUF_SIZE = 1024 * 1024; // 1MB
+    private final Charset charset;
+
+    interface FrameHandler {
+        void handle(byte[] frame, long lines) throws IOException;
+    }
+
+    ConsoleLogFramer(Charset charset) {
+        this.charset = charset;
+    }
+
+    /**
+     * Streams lines from the console, handing over a frame whenever the buffer fills up and once more at EOF.
+     *
+     * @param maxLines lines beyond this many are read but not framed
+     * @return the number of lines framed
+     */
+    long frame(ConsoleConsumer console, long maxLines, FrameHandler handler) throws IOException {
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream(BUF_SIZE);
+        final long[] lines = {0L, 0L}; // lines framed in total, lines in the current buffer
+
+        console.stream(line -> {
+            if (lines[0] >= maxLines) return;
+
+            try {
+                byte[] bytes = line.getBytes(charset);
+                if (buffer.size() + bytes.length + 1 >= BUF_SIZE) {
+                    flush(buffer, lines[1], handler);
+                    lines[1] = 0L;
+                }
+                buffer.write(bytes);
+                buffer.write('\n');
+                lines[0]++;
+                lines[1]++;
+            } catch (IOException e) {
+                LOGGER.error("Failed to send log line {}", console.totalLinesConsumed(), e);
+            }
+        });
+
+        flush(buffer, lines[1], handler);
+        return lines[0];
+    }
+
+    private void flush(ByteArrayOutputStream buffer, long lines, FrameHandler handler) throws IOException {
+        if (buffer.size() == 0) return;
+        handler.handle(maybeGzipIfLargeEnough(buffer.toByteArray()), lines);
+        buffer.reset();
+    }
+
+    static byte[] maybeGzipIfLargeEnough(byte[] input) {
+        if (input.length < 512) {
+            return input;
+        }
+        // To avoid having to re-allocate the internal byte array, allocate an initial buffer assuming a safe 10:1 compression ratio
+        final ByteArrayOutputStream gzipBytes = new ByteArrayOutputStream(input.length / 10);
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(gzipBytes, 1024 * 8)) {
+            gzipOutputStream.write(input);
+        } catch (IOException e) {
+            LOGGER.error("Could not gzip {}", input);
+        }
+        return gzipBytes.toByteArray();
+    }
+}
@@ -21,18 +21,13 @@ import com.thoughtworks.go.server.dao.JobInstanceDao;
 import com.thoughtworks.go.server.service.ConsoleService;
 import com.thoughtworks.go.server.util.Retryable;
 import com.thoughtworks.go.util.SystemEnvironment;
-import org.apache.commons.io.output.ProxyOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.nio.ByteBuffer;
-import java.nio.charset.Charset;
-import java.util.zip.GZIPOutputStream;
 
 @Component
 public class ConsoleLogSender {
@@ -40,19 +35,21 @@ public class ConsoleLogSender {
 
     private static final int LOG_DOES_NOT_EXIST = 4004;
     private static final int LOG_FILE_DOES_NOT_EXIST = 4410;
-    private static final int BUF_SIZE = 1024 * 1024; // 1MB
-    private static final int FILL_INTERVAL = 500;
-    private final Charset charset;
+    private static final int FILL_INTERVAL = ConsoleLogBroadcaster.FILL_INTERVAL;
+    private final ConsoleLogFramer framer;
 
     private ConsoleService consoleService;
 
     private JobInstanceDao jobInstanceDao;
 
+    private ConsoleLogBroadcaster broadcaster;
+
     @Autowired
-    ConsoleLogSender(ConsoleService consoleService, JobInstanceDao jobInstanceDao, SystemEnvironment systemEnvironment) {
+    ConsoleLogSender(ConsoleService consoleService, JobInstanceDao jobInstanceDao, ConsoleLogBroadcaster broadcaster, SystemEnvironment systemEnvironment) {
         this.consoleService = consoleService;
         this.jobInstanceDao = jobInstanceDao;
-        this.charset = systemEnvironment.consoleLogCharsetAsCharset();
+        this.broadcaster = broadcaster;
+        this.framer = new ConsoleLogFramer(systemEnvironment.consoleLogCharsetAsCharset());
     }
 
     public void process(final SocketEndpoint webSocket, JobIdentifier jobIdentifier, long start) throws Exception {
@@ -66,8 +63,6 @@ public class ConsoleLogSender {
             return;
         }
 
-        boolean isRunningBuild = !detectCompleted;
-
         // Sometimes the log file may not have been created yet; leave it up to the client to handle reconnect logic.
         try {
             waitForLogToExist(webSocket, jobIdentifier);
@@ -76,33 +71,60 @@ public class ConsoleLogSender {
             return;
         }
 
-        try (ConsoleConsumer streamer = consoleService.getStreamer(start, jobIdentifier)) {
-            do {
-                start += sendLogs(webSocket, streamer, jobIdentifier);
+        try {
+            if (detectCompleted) {
+                try (ConsoleConsumer streamer = consoleService.getStreamer(start, jobIdentifier)) {
+                    sendLogs(webSocket, streamer, Long.MAX_VALUE);
+                    LOGGER.debug("Sent {} log lines for {} from {}", streamer.totalLinesConsumed(), jobIdentifier, consoleService.consoleLogFile(jobIdentifier).toPath());
+                }
+            } else {
+                tail(webSocket, jobIdentifier, start);
+            }
+        } finally {
+            webSocket.close();
+        }
+    }
+
+    /**
+     * Forwards the frames of the shared tail of a running build, reading the log directly only for the lines this
+     * viewer has missed.
+     */
+    private void tail(SocketEndpoint webSocket, JobIdentifier jobIdentifier, long start) throws Exception {
+        ConsoleLogBroadcaster.Subscription subscription = broadcaster.subscribe(jobIdentifier, start);
+        long nextLine = start;
 
-                // allow buffers to fill to avoid sending 1 line at a time for running builds
-                if (isRunningBuild) {
-                    Thread.sleep(FILL_INTERVAL);
+        try {
+            while (webSocket.isOpen() && subscription.await(nextLine, FILL_INTERVAL)) {
+                long catchUpUntil = subscription.catchUpUntil();
+                if (catchUpUntil > nextLine) {
+                    nextLine = catchUp(webSocket, jobIdentifier, nextLine, catchUpUntil);
+                    continue;
                 }
-            } while (webSocket.isOpen() && !detectCompleted(jobIdentifier));
 
-            LOGGER.debug("Sent {} log lines for {} from {}", streamer.totalLinesConsumed(), jobIdentifier, consoleService.consoleLogFile(jobIdentifier).toPath());
-            // empty the tail end of the file because the build could have been marked completed, and exited the
-            // loop before we've seen the last content update
-            if (isRunningBuild) sendLogs(webSocket, streamer, jobIdentifier);
+                ConsoleLogBroadcaster.Frame frame = subscription.poll();
+                if (frame == null || frame.endLine() <= nextLine) {
+                    continue;
+                }
 
-            //send the remaining logs if any
-            if (detectCompleted(jobIdentifier)) {
-                try (ConsoleConsumer consoleFileStreamer = consoleService.getStreamer(start, jobIdentifier)) {
-                    start += sendLogs(webSocket, consoleFileStreamer, jobIdentifier);
-                    LOGGER.debug("Sent {} log lines for {} from {}", streamer.totalLinesConsumed(), jobIdentifier, consoleService.consoleLogFile(jobIdentifier).toPath());
+                if (frame.firstLine() == nextLine) {
+                    webSocket.send(ByteBuffer.wrap(frame.bytes()));
+                    nextLine = frame.endLine();
+                } else {
+                    nextLine = catchUp(webSocket, jobIdentifier, nextLine, frame.endLine());
                 }
             }
 
-            LOGGER.debug("Sent {} log lines for {} from all sources", start, jobIdentifier);
+            LOGGER.debug("Sent {} log lines for {} from all sources", nextLine, jobIdentifier);
         } finally {
-            webSocket.close();
+            broadcaster.unsubscribe(jobIdentifier, subscription);
+        }
+    }
+
+    private long catchUp(SocketEndpoint webSocket, JobIdentifier jobIdentifier, long from, long until) throws Exception {
+        try (ConsoleConsumer streamer = consoleService.getStreamer(from, jobIdentifier)) {
+            sendLogs(webSocket, streamer, until - from);
         }
+        return until;
     }
 
     private boolean doesLogExists(JobIdentifier jobIdentifier) {
@@ -117,72 +139,11 @@ public class ConsoleLogSender {
         return jobInstanceDao.isJobCompleted(jobIdentifier);
     }
 
-    private long sendLogs(final SocketEndpoint webSocket, final ConsoleConsumer console, final JobIdentifier jobIdentifier) throws IOException {
-        final ByteArrayOutputStream buffer = new ByteArrayOutputStream(BUF_SIZE);
-        final OutputStream proxyOutputStream = new AutoFlushingStream(buffer, webSocket, BUF_SIZE);
-        long linesProcessed = console.stream(line -> {
-            try {
-                byte[] bytes = line.getBytes(charset);
-                ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(bytes.length);
-                byteArrayOutputStream.write(bytes);
-                byteArrayOutputStream.write('\n');
-                proxyOutputStream.write(byteArrayOutputStream.toByteArray());
-            } catch (IOException e) {
-                LOGGER.error("Failed to send log line {} for {}", console.totalLinesConsumed(), jobIdentifier, e);
-            }
-        });
-
-        flushBuffer(buffer, webSocket);
-        return linesProcessed;
-    }
-
-    private void flushBuffer(ByteArrayOutputStream buffer, SocketEndpoint webSocket) throws IOException {
-        if (buffer.size() == 0) return;
-        webSocket.send(ByteBuffer.wrap(maybeGzipIfLargeEnough(buffer.toByteArray())));
-        buffer.reset();
+    private long sendLogs(final SocketEndpoint webSocket, final ConsoleConsumer console, long maxLines) throws IOException {
+        return framer.frame(console, maxLines, (frame, lines) -> webSocket.send(ByteBuffer.wrap(frame)));
     }
 
     byte[] maybeGzipIfLargeEnough(byte[] input) {
-        if (input.length < 512) {
-            return input;
-        }
-        // To avoid having to re-allocate the internal byte array, allocate an initial buffer assuming a safe 10:1 compression ratio
-        final ByteArrayOutputStream gzipBytes = new ByteArrayOutputStream(input.length / 10);
-        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(gzipBytes, 1024 * 8)) {
-            gzipOutputStream.write(input);
-        } catch (IOException e) {
-            LOGGER.error("Could not gzip {}", input);
-        }
-        return gzipBytes.toByteArray();
-    }
-
-    // Flushes stream just before it becomes larger than `bufSize`
-    private class AutoFlushingStream extends ProxyOutputStream {
-        private final ByteArrayOutputStream buffer;
-        private final SocketEndpoint webSocket;
-        private final int bufSize;
-
-        public AutoFlushingStream(ByteArrayOutputStream buffer, SocketEndpoint webSocket, int bufSize) {
-            super(buffer);
-            this.buffer = buffer;
-            this.webSocket = webSocket;
-            this.bufSize = bufSize;
-        }
-
-        @Override
-        protected void beforeWrite(int n) throws IOException {
-            maybeFlush(n);
-        }
-
-        @Override
-        protected void afterWrite(int n) throws IOException {
-            maybeFlush(n);
-        }
-
-        private void maybeFlush(int n) throws IOException {
-            if (buffer.size() + n >= bufSize) {
-                flushBuffer(buffer, webSocket);
-            }
-        }
+        return ConsoleLogFramer.maybeGzipIfLargeEnough(input);
     }
 }
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2020 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.websocket;
+
+import com.google.gson.Gson;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketClose;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketConnect;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketError;
+import org.eclipse.jetty.websocket.api.annotations.WebSocket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Pushes dashboard changes to a browser. Messages are sent asynchronously, and at most one is in flight at a time;
+ * changes that come in meanwhile are merged into the next message. A client that is slow to read therefore never
+ * holds up the broadcaster, and never has more than one message queued up for it.
+ */
+@WebSocket
+public class DashboardSocket implements SocketEndpoint, DashboardUpdatesBroadcaster.Subscriber {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DashboardSocket.class);
+    private static final Gson GSON = new Gson();
+
+    private final String userName;
+    private final DashboardUpdatesBroadcaster broadcaster;
+    private final SocketHealthService socketHealthService;
+    private final String key;
+    private Session session;
+
+    private boolean sending;
+    private long pendingVersion;
+    private Set<String> pendingPipelines = new LinkedHashSet<>();
+
+    DashboardSocket(String userName, DashboardUpdatesBroadcaster broadcaster, SocketHealthService socketHealthService) {
+        this.userName = userName;
+        this.broadcaster = broadcaster;
+        this.socketHealthService = socketHealthService;
+        this.key = String.format("dashboard:%s:%d", userName, hashCode());
+    }
+
+    @OnWebSocketConnect
+    public void onConnect(Session session) {
+        this.session = session;
+        socketHealthService.register(this);
+        broadcaster.subscribe(this);
+        LOGGER.debug("{} connected", key);
+    }
+
+    @OnWebSocketError
+    public void onError(Throwable error) {
+        LOGGER.error("{} closing session because an error was thrown", key, error);
+        try {
+            close(StatusCode.SERVER_ERROR, error.getMessage());
+        } finally {
+            disconnect();
+        }
+    }
+
+    @OnWebSocketClose
+    public void onClose(int status, String reason) {
+        disconnect();
+    }
+
+    @Override
+    public String userName() {
+        return userName;
+    }
+
+    @Override
+    public void pipelinesChanged(long version, Collection<String> pipelineNames) {
+        synchronized (this) {
+            pendingVersion = version;
+            pendingPipelines.addAll(pipelineNames);
+            if (sending) {
+                return;
+            }
+            sending = true;
+        }
+        sendPending();
+    }
+
+    private void sendPending() {
+        String message;
+        Set<String> batch;
+        synchronized (this) {
+            if (pendingPipelines.isEmpty() || !isOpen()) {
+                sending = false;
+                return;
+            }
+            batch = pendingPipelines;
+            message = GSON.toJson(new PipelinesChanged(pendingVersion, batch));
+            pendingPipelines = new LinkedHashSet<>();
+        }
+
+        session.getRemote().sendString(message, new WriteCallback() {
+            @Override
+            public void writeFailed(Throwable error) {
+                LOGGER.debug("{} failed to send dashboard update, closing session", key, error);
+                synchronized (DashboardSocket.this) {
+                    batch.addAll(pendingPipelines);
+                    pendingPipelines = batch;
+                    sending = false;
+                }
+                // the browser cannot tell what it missed, so make it reconnect and catch up from its last version
+                if (isOpen()) {
+                    close(StatusCode.SERVER_ERROR, "Failed to send dashboard update");
+                }
+            }
+
+            @Override
+            public void writeSuccess() {
+                sendPending();
+            }
+        });
+    }
+
+    private void disconnect() {
+        broadcaster.unsubscribe(this);
+        socketHealthService.deregister(this);
+    }
+
+    @Override
+    public void send(ByteBuffer data) throws IOException {
+        session.getRemote().sendBytes(data);
+    }
+
+    @Override
+    public void ping() {
+        // sent asynchronously, as a blocking send is not allowed while a dashboard update is in flight
+        session.getRemote().sendStringByFuture(WebsocketMessages.PING);
+    }
+
+    @Override
+    public boolean isOpen() {
+        return session != null && session.isOpen();
+    }
+
+    @Override
+    public void close() {
+        close(StatusCode.NORMAL, null);
+    }
+
+    @Override
+    public void close(int code, String reason) {
+        session.close(code, reason);
+    }
+
+    @Override
+    public String key() {
+        return key;
+    }
+
+    private static class PipelinesChanged {
+        private final String type = "pipelines_changed";
+        private final long version;
+        private final Set<String> pipelines;
+
+        PipelinesChanged(long version, Set<String> pipelines) {
+            this.version = version;
+            this.pipelines = pipelines;
+        }
+    }
+}
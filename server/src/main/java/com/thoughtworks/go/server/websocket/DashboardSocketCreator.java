@@ -0,0 +1,44 @@
+/*
+ * Copyright 2020 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.websocket;
+
+import com.thoughtworks.go.server.newsecurity.utils.SessionUtils;
+import org.eclipse.jetty.websocket.servlet.ServletUpgradeRequest;
+import org.eclipse.jetty.websocket.servlet.ServletUpgradeResponse;
+import org.eclipse.jetty.websocket.servlet.WebSocketCreator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+@Component
+public class DashboardSocketCreator implements WebSocketCreator {
+
+    private final DashboardUpdatesBroadcaster broadcaster;
+    private final SocketHealthService socketHealthService;
+
+    @Autowired
+    public DashboardSocketCreator(DashboardUpdatesBroadcaster broadcaster, SocketHealthService socketHealthService) {
+        this.broadcaster = broadcaster;
+        this.socketHealthService = socketHealthService;
+    }
+
+    /**
+     * The upgrade is accepted on the thread that is serving the request, so the current user is still known here.
+     */
+    @Override
+    public Object createWebSocket(ServletUpgradeRequest req, ServletUpgradeResponse resp) {
+        return new DashboardSocket(SessionUtils.currentUsername().getUsername().toString(), broadcaster, socketHealthService);
+    }
+}
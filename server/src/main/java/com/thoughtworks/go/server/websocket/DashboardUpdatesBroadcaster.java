@@ -0,0 +1,156 @@
+/*
+ * Copyright 2020 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.websocket;
+
+import com.thoughtworks.go.server.dashboard.GoDashboardCache;
+import com.thoughtworks.go.server.dashboard.GoDashboardPipeline;
+import com.thoughtworks.go.server.dashboard.GoDashboardPipelines;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.groupingBy;
+
+/**
+ * Watches the {@link GoDashboardCache} for changes made by the dashboard change handlers and tells every subscribed
+ * dashboard which of the pipelines it can see have changed. Changes are picked up at most once per
+ * {@link #PUSH_INTERVAL}, so a burst of stage updates is sent as one message.
+ * <p>
+ * The changed pipelines are worked out once per check, and are filtered once per user no matter how many dashboards
+ * that user has open. Subscribers are only sent pipeline names and the new version of the cache; they fetch the
+ * pipelines themselves, asking just for those changed since the version they already have.
+ */
+@Component
+public class DashboardUpdatesBroadcaster implements Runnable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DashboardUpdatesBroadcaster.class);
+
+    static final int PUSH_INTERVAL = 1000;
+
+    private final GoDashboardCache cache;
+    private final ScheduledExecutorService executor;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private GoDashboardPipelines lastBroadcast;
+    private boolean started;
+
+    @Autowired
+    public DashboardUpdatesBroadcaster(GoDashboardCache cache) {
+        this(cache, new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "dashboard-updates-broadcaster");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    DashboardUpdatesBroadcaster(GoDashboardCache cache, ScheduledExecutorService executor) {
+        this.cache = cache;
+        this.executor = executor;
+    }
+
+    public synchronized void subscribe(Subscriber subscriber) {
+        subscribers.add(subscriber);
+
+        if (!started) {
+            lastBroadcast = cache.allEntries();
+            executor.scheduleWithFixedDelay(this, PUSH_INTERVAL, PUSH_INTERVAL, TimeUnit.MILLISECONDS);
+            started = true;
+        }
+    }
+
+    public void unsubscribe(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @Override
+    public synchronized void run() {
+        try {
+            GoDashboardPipelines current = cache.allEntries();
+            if (current.lastUpdatedTimeStamp() == lastBroadcast.lastUpdatedTimeStamp()) {
+                return;
+            }
+
+            if (!subscribers.isEmpty()) {
+                broadcast(changedPipelines(lastBroadcast, current), current.lastUpdatedTimeStamp());
+            }
+            lastBroadcast = current;
+        } catch (Exception e) {
+            LOGGER.error("Failed to push dashboard updates", e);
+        }
+    }
+
+    private void broadcast(List<GoDashboardPipeline> changed, long version) {
+        if (changed.isEmpty()) {
+            return;
+        }
+
+        Map<String, List<Subscriber>> subscribersByUser = subscribers.stream().collect(groupingBy(Subscriber::userName));
+        subscribersByUser.forEach((userName, subscribersOfUser) -> {
+            List<String> visible = new ArrayList<>();
+            for (GoDashboardPipeline pipeline : changed) {
+                if (pipeline.canBeViewedBy(userName)) {
+                    visible.add(pipeline.name().toString());
+                }
+            }
+
+            if (!visible.isEmpty()) {
+                for (Subscriber subscriber : subscribersOfUser) {
+                    subscriber.pipelinesChanged(version, visible);
+                }
+            }
+        });
+    }
+
+    /**
+     * @return the pipelines that were added or changed in {@code current}, along with those removed from
+     * {@code previous}, so that a dashboard still showing a removed pipeline knows to drop it
+     */
+    private static List<GoDashboardPipeline> changedPipelines(GoDashboardPipelines previous, GoDashboardPipelines current) {
+        List<GoDashboardPipeline> changed = new ArrayList<>();
+        for (GoDashboardPipeline pipeline : current.getPipelines()) {
+            if (current.hasChangedSince(pipeline.name(), previous.lastUpdatedTimeStamp())) {
+                changed.add(pipeline);
+            }
+        }
+        for (GoDashboardPipeline pipeline : previous.getPipelines()) {
+            if (current.find(pipeline.name()) == null) {
+                changed.add(pipeline);
+            }
+        }
+        return changed;
+    }
+
+    public interface Subscriber {
+        String userName();
+
+        /**
+         * Called from the broadcaster thread, so implementations must not block on the client.
+         */
+        void pipelinesChanged(long version, Collection<String> pipelineNames);
+    }
+}
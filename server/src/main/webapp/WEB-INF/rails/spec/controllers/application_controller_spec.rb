@@ -323,22 +323,24 @@ describe ApplicationController do
       it "should cache the url" do
         Services.go_cache.clear
         expect(controller.url_for(controller: 'pipelines', action: :build_cause)).to eq("http://test.host/pipelines/build_cause")
-        key = Services.go_cache.getKeys.grep(/#{Regexp.quote(com.thoughtworks.go.listener.BaseUrlChangeListener::URLS_CACHE_KEY)}#{Regexp.quote(GoCache::SUB_KEY_DELIMITER)}/).last
-        expect(key).to be_present
-        Services.go_cache.put(key, "some-random-url")
+        key = com.thoughtworks.go.listener.BaseUrlChangeListener::URLS_CACHE_KEY
+        sub_key = Services.go_cache.get(key).to_a.last
+        expect(sub_key).to be_present
+        Services.go_cache.put(key, sub_key, "some-random-url")
         expect(controller.url_for(controller: 'pipelines', action: :build_cause)).to eq("some-random-url")
-        expect(Services.go_cache.get(key)).to eq('some-random-url')
+        expect(Services.go_cache.get(key, sub_key)).to eq('some-random-url')
       end
 
       it "should cache the url irrespective of option key type" do
         Services.go_cache.clear
         url_options = {controller: 'pipelines', action: :build_cause, foo: 'bar', boo: 'baz'}
         expect(controller.url_for(url_options)).to eq("http://test.host/pipelines/build_cause?boo=baz&foo=bar")
-        key = Services.go_cache.getKeys.grep(/#{Regexp.quote(com.thoughtworks.go.listener.BaseUrlChangeListener::URLS_CACHE_KEY)}#{Regexp.quote(GoCache::SUB_KEY_DELIMITER)}/).last
-        expect(key).to be_present
-        Services.go_cache.put(key, "some-random-url")
+        key = com.thoughtworks.go.listener.BaseUrlChangeListener::URLS_CACHE_KEY
+        sub_key = Services.go_cache.get(key).to_a.last
+        expect(sub_key).to be_present
+        Services.go_cache.put(key, sub_key, "some-random-url")
         expect(controller.url_for(Hash[url_options.stringify_keys.to_a.shuffle])).to eq("some-random-url")
-        expect(Services.go_cache.get(key)).to eq('some-random-url')
+        expect(Services.go_cache.get(key, sub_key)).to eq('some-random-url')
       end
 
       it "should contain flash message in the session upon redirect and forwards the params" do
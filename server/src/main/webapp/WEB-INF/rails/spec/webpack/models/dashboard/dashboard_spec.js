@@ -64,6 +64,31 @@ describe("Dashboard", () => {
       expect(actualPipeline.name).toEqual(expectedPipeline.name);
     });
 
+    it("should keep the pipelines that did not change when only the changes since its version are sent", () => {
+      const up42      = dashboard.findPipeline("up42");
+      const withNewer = _.cloneDeep(dashboardData);
+      withNewer._embedded.pipeline_groups[0].pipelines = ["up42", "up43"];
+      withNewer._embedded.pipelines = [_.assign(_.cloneDeep(dashboardData._embedded.pipelines[0]), {name: "up43"})];
+      withNewer._version = 2;
+      withNewer._since   = 1;
+
+      dashboard.initialize(withNewer);
+
+      expect(dashboard.version()).toEqual(2);
+      expect(dashboard.findPipeline("up42")).toBe(up42);
+      expect(dashboard.findPipeline("up43").name).toEqual("up43");
+
+      const withoutUp42 = _.cloneDeep(withNewer);
+      withoutUp42._embedded.pipeline_groups[0].pipelines = ["up43"];
+      withoutUp42._embedded.pipelines = [];
+      withoutUp42._version = 3;
+      withoutUp42._since   = 2;
+
+      dashboard.initialize(withoutUp42);
+
+      expect(dashboard.allPipelineNames()).toEqual(["up43"]);
+    });
+
     it('should get new dashboard json', () => {
       jasmine.Ajax.withMock(() => {
         jasmine.Ajax.stubRequest('/go/api/dashboard?allowEmpty=false', undefined, 'GET').andReturn({
@@ -118,7 +118,7 @@ export class SparkRoutes {
     }
   }
 
-  static showDashboardPath(viewName?: string, allowEmpty?: boolean): string {
+  static showDashboardPath(viewName?: string, allowEmpty?: boolean, since?: number): string {
     const params: any = {};
 
     if (viewName) {
@@ -129,6 +129,10 @@ export class SparkRoutes {
       Object.assign(params, {allowEmpty});
     }
 
+    if ("number" === typeof since) {
+      Object.assign(params, {since});
+    }
+
     return Object.keys(params).length ?
       `/go/api/dashboard?${m.buildQueryString(params)}` :
       "/go/api/dashboard";
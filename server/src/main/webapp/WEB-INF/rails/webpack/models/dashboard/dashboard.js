@@ -27,6 +27,7 @@ export function Dashboard() {
   let pipelines      = Pipelines.fromJSON([]);
 
   this.message           = Stream();
+  this.version           = Stream();
   this.getPipelineGroups = () => pipelineGroups;
   this.getEnvironments   = () => environments;
 
@@ -37,7 +38,8 @@ export function Dashboard() {
   this.initialize = (json, showEmptyGroups) => {
     const newPipelineGroups = DashboardGroups.fromPipelineGroupsJSON(_.get(json, '_embedded.pipeline_groups', []), showEmptyGroups);
     const newEnvironments   = DashboardGroups.fromEnvironmentsJSON(_.get(json, '_embedded.environments', []));
-    const newPipelines      = Pipelines.fromJSON(_.get(json, '_embedded.pipelines', []));
+    const changedPipelines  = Pipelines.fromJSON(_.get(json, '_embedded.pipelines', []));
+    const newPipelines      = _.has(json, '_since') ? keepUnchanged(changedPipelines, newPipelineGroups) : changedPipelines;
 
     const pipelinesNoEnv = _.difference(Object.keys(newPipelines.pipelines), _.reduce(newEnvironments.groups, (memo, group) => memo.concat(group.pipelines), []));
     newEnvironments.groups.push(new DashboardGroups.Environment({
@@ -50,14 +52,21 @@ export function Dashboard() {
     pipelineGroups = newPipelineGroups;
     environments   = newEnvironments;
     pipelines      = newPipelines;
+    this.version(_.get(json, '_version'));
   };
+
+  // a response with `_since` only embeds the pipelines that changed; the others that are still listed stay as they were
+  function keepUnchanged(changedPipelines, newPipelineGroups) {
+    const listed = _.reduce(newPipelineGroups.groups, (memo, group) => memo.concat(group.pipelines), []);
+    return new Pipelines(_.assign(_.pick(pipelines.pipelines, listed), changedPipelines.pipelines));
+  }
 }
 
 Dashboard.API_VERSION = "v4";
 
-Dashboard.get = (viewName, etag, allowEmpty) => {
+Dashboard.get = (viewName, etag, allowEmpty, since) => {
   return AjaxHelper.GET({
-    url:        SparkRoutes.showDashboardPath(viewName, !!allowEmpty),
+    url:        SparkRoutes.showDashboardPath(viewName, !!allowEmpty, since),
     apiVersion: Dashboard.API_VERSION,
     etag
   });
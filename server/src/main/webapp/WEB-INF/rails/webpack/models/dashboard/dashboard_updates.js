@@ -0,0 +1,70 @@
+/*
+ * Copyright 2019 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+const RECONNECT_DELAY_MILLIS = 5000;
+
+/**
+ * Listens for the dashboard changes the server pushes over its websocket. A message only carries the new version of
+ * the dashboard and the names of the pipelines that changed; the pipelines themselves are still fetched over the API.
+ * Reconnects on its own whenever the connection drops, and tells the caller, so that it can poll in the meantime.
+ */
+export function DashboardUpdates({onChange, onConnect, onDisconnect}) {
+  let socket;
+  let stopped = false;
+
+  function url() {
+    const protocol = window.location.protocol.replace("http", "ws");
+    return `${protocol}//${window.location.host}/go/dashboard-websocket`;
+  }
+
+  function onMessage(e) {
+    let message;
+    try {
+      message = JSON.parse(e.data);
+    } catch (ignored) {
+      return;
+    }
+    if (message.type === "pipelines_changed") {
+      onChange(message.version, message.pipelines);
+    }
+  }
+
+  function connect() {
+    socket           = new WebSocket(url());
+    socket.onopen    = onConnect;
+    socket.onmessage = onMessage;
+    socket.onclose   = () => {
+      onDisconnect();
+      if (!stopped) {
+        window.setTimeout(connect, RECONNECT_DELAY_MILLIS);
+      }
+    };
+  }
+
+  this.start = () => {
+    if ("WebSocket" in window) {
+      stopped = false;
+      connect();
+    }
+  };
+
+  this.stop = () => {
+    stopped = true;
+    if (socket) {
+      socket.close();
+    }
+  };
+}
@@ -18,6 +18,7 @@ import m from "mithril";
 import Stream from "mithril/stream";
 import {DashboardViewModel as DashboardVM} from "views/dashboard/models/dashboard_view_model";
 import {Dashboard} from "models/dashboard/dashboard";
+import {DashboardUpdates} from "models/dashboard/dashboard_updates";
 import {DashboardWidget} from "views/dashboard/dashboard_widget";
 import {AjaxPoller} from "helpers/ajax_poller";
 import {PageLoadError} from "views/shared/page_load_error";
@@ -97,9 +98,52 @@ $(() => {
     // Explicit set always refreshes; even if the viewName didn't change,
     // we should refresh because the filter definition may have changed as
     // currentView() is called after every personalization save operation.
+    // The pipelines of another view or filter are not known yet, so fetch them all.
+    dashboard.version(undefined);
+    refreshNow();
+  }
+
+  /**
+   * While the server pushes dashboard changes, a poll only fetches the dashboard when a change was pushed, when it is
+   * asked to refresh, or every few polls just in case; otherwise it polls as usual. Either way it only fetches the
+   * pipelines that changed since the version it already has.
+   */
+  const MAX_SKIPPED_POLLS = 5;
+  let pushConnected       = false;
+  let refreshRequested    = true;
+  let skippedPolls        = 0;
+
+  function shouldFetch() {
+    if (pushConnected && !refreshRequested && skippedPolls < MAX_SKIPPED_POLLS) {
+      skippedPolls++;
+      return false;
+    }
+    refreshRequested = false;
+    skippedPolls     = 0;
+    return true;
+  }
+
+  function refreshNow() {
+    refreshRequested = true;
     repeater().restart();
   }
 
+  const dashboardUpdates = new DashboardUpdates({
+    onChange:     (version) => {
+      if (version !== dashboard.version()) {
+        refreshNow();
+      }
+    },
+    onConnect:    () => {
+      pushConnected = true;
+      // changes may have been missed while disconnected
+      refreshNow();
+    },
+    onDisconnect: () => {
+      pushConnected = false;
+    }
+  });
+
   $(document.body).on("click", () => {
     dashboardVM.dropdown.hide();
     personalizeVM.hideAllDropdowns();
@@ -186,12 +230,18 @@ $(() => {
       onResponse({}, message);
     };
 
-    return new AjaxPoller(() => Dashboard.get(currentView(), dashboardVM.etag(), true)
-      .then(onsuccess, onerror)
-      .always(() => {
-        personalizeVM.loadingView(false);
-        showSpinner(false);
-      }));
+    return new AjaxPoller(() => {
+      if (!shouldFetch()) {
+        return $.Deferred().resolve();
+      }
+
+      return Dashboard.get(currentView(), dashboardVM.etag(), true, dashboard.version())
+        .then(onsuccess, onerror)
+        .always(() => {
+          personalizeVM.loadingView(false);
+          showSpinner(false);
+        });
+    });
   }
 
   const repeater    = Stream(createRepeater());
@@ -209,7 +259,7 @@ $(() => {
           testDrive,
           vm:                   dashboardVM,
           doCancelPolling:      () => repeater().stop(),
-          doRefreshImmediately: () => repeater().restart()
+          doRefreshImmediately: refreshNow
         });
       }
     };
@@ -234,6 +284,7 @@ $(() => {
 
     renderView();
     repeater().start();
+    dashboardUpdates.start();
   };
 
   const onInitialAPIsFailure = (response) => {
@@ -28,6 +28,10 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.*;
@@ -103,6 +107,74 @@ public class CachedGoConfigTest {
         verify(listener, times(2)).onConfigChange(any(BasicCruiseConfig.class));
     }
 
+    @Test
+    public void shouldNotWaitForListenersWhileHoldingTheConfigWriteLock() throws Exception {
+        when(dataSource.writeWithLock(any(UpdateConfigCommand.class), any(GoConfigHolder.class))).thenReturn(new GoFileConfigDataSource.GoConfigSaveResult(configHolder, ConfigSaveState.UPDATED));
+        cachedGoConfig.forceReload();
+        CountDownLatch listenerMayFinish = new CountDownLatch(1);
+        AtomicBoolean slowListener = new AtomicBoolean(false);
+        AtomicInteger notifications = new AtomicInteger();
+        cachedGoConfig.registerListener(newCruiseConfig -> {
+            try {
+                if (slowListener.get()) listenerMayFinish.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            notifications.incrementAndGet();
+        });
+        slowListener.set(true);
+        notifications.set(0);
+
+        synchronized (GoConfigWriteLock.class) {
+            cachedGoConfig.writeWithLock(cruiseConfig -> cruiseConfig);
+        }
+        assertThat(cachedGoConfig.loadConfigHolder(), is(configHolder));
+        assertThat(notifications.get(), is(0));
+
+        listenerMayFinish.countDown();
+        cachedGoConfig.awaitListenerNotifications();
+        assertThat(notifications.get(), is(1));
+    }
+
+    @Test
+    public void shouldTellListenersRegisteredWhileANotificationIsPendingAboutTheCurrentConfigOnlyAfterIt() throws Exception {
+        GoConfigHolder newerConfigHolder = new GoConfigHolder(new BasicCruiseConfig(), new BasicCruiseConfig());
+        when(dataSource.writeWithLock(any(UpdateConfigCommand.class), any(GoConfigHolder.class))).thenReturn(new GoFileConfigDataSource.GoConfigSaveResult(newerConfigHolder, ConfigSaveState.UPDATED));
+        cachedGoConfig.forceReload();
+        CountDownLatch notificationStarted = new CountDownLatch(1);
+        CountDownLatch listenerMayFinish = new CountDownLatch(1);
+        AtomicBoolean slowListener = new AtomicBoolean(false);
+        cachedGoConfig.registerListener(newCruiseConfig -> {
+            try {
+                if (slowListener.get()) {
+                    notificationStarted.countDown();
+                    listenerMayFinish.await();
+                }
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        slowListener.set(true);
+        synchronized (GoConfigWriteLock.class) {
+            cachedGoConfig.writeWithLock(cruiseConfig -> cruiseConfig);
+        }
+        notificationStarted.await();
+
+        ConfigChangedListener lateListener = mock(ConfigChangedListener.class);
+        Thread registration = new Thread(() -> cachedGoConfig.registerListener(lateListener));
+        registration.start();
+        registration.join(200);
+
+        assertThat(registration.isAlive(), is(true));
+        verifyZeroInteractions(lateListener);
+
+        listenerMayFinish.countDown();
+        registration.join();
+        verify(lateListener, times(1)).onConfigChange(newerConfigHolder.config);
+        verifyNoMoreInteractions(lateListener);
+        assertThat(cachedGoConfig.hasListener(lateListener), is(true));
+    }
+
     @Test
     public void shouldNotNotifyWhenConfigIsNullDuringRegistration() throws Exception {
         final ConfigChangedListener listener = mock(ConfigChangedListener.class);
@@ -171,4 +171,24 @@ public class CcTrayCacheTest {
         assertThat(allProjects.get(1), is(status2_changed));
         assertThat(allProjects.get(2), is(status3));
     }
+
+    @Test
+    public void shouldMoveToANewVersionOnEveryChange() throws Exception {
+        ProjectStatus status1 = new ProjectStatus("item1", "Sleeping 1", "last-build-status 1", "last-build-label 1", new Date(), "web-url 1");
+        ProjectStatus status2 = new ProjectStatus("item2", "Sleeping 2", "last-build-status 2", "last-build-label 2", new Date(), "web-url 2");
+        CcTrayCache.Snapshot initial = cache.snapshot();
+
+        cache.put(status1);
+        CcTrayCache.Snapshot afterPut = cache.snapshot();
+        cache.putAll(asList(status1, status2));
+        CcTrayCache.Snapshot afterPutAll = cache.snapshot();
+        cache.replaceAllEntriesInCacheWith(asList(status2));
+
+        assertThat(initial.version(), is(0L));
+        assertThat(afterPut.version(), is(1L));
+        assertThat(afterPut.entries(), is(asList(status1)));
+        assertThat(afterPutAll.version(), is(2L));
+        assertThat(cache.snapshot().version(), is(3L));
+        assertThat(cache.snapshot().entries(), is(asList(status2)));
+    }
 }
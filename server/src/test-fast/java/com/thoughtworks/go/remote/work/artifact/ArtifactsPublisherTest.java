@@ -278,10 +278,14 @@ public class ArtifactsPublisherTest {
         new ArtifactsPublisher(publisher, artifactExtension, artifactStores, registry, workingFolder)
                 .publishArtifacts(artifactPlans, env);
 
-        InOrder inOrder = inOrder(publisher);
-        inOrder.verify(publisher).upload(any(), eq("pluggable-artifact-metadata"));
-        inOrder.verify(publisher).upload(any(), eq("dist"));
-        inOrder.verify(publisher).upload(any(), eq("testreports"));
+        // the other plans are uploaded concurrently, but only once the metadata has been uploaded
+        InOrder distAfterMetadata = inOrder(publisher);
+        distAfterMetadata.verify(publisher).upload(any(), eq("pluggable-artifact-metadata"));
+        distAfterMetadata.verify(publisher).upload(any(), eq("dist"));
+
+        InOrder testReportsAfterMetadata = inOrder(publisher);
+        testReportsAfterMetadata.verify(publisher).upload(any(), eq("pluggable-artifact-metadata"));
+        testReportsAfterMetadata.verify(publisher).upload(any(), eq("testreports"));
     }
 
     @Test
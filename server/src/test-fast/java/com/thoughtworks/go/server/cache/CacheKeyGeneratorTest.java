@@ -50,10 +50,9 @@ class CacheKeyGeneratorTest {
     }
 
     @Test
-    void shouldAlwaysReturnInternedString() {
+    void shouldReturnTheSameInstanceForEqualKeysSoThatCallersCanSynchronizeOnThem() {
         final String generatedCacheKey = cacheKeyGenerator.generate("foo", "bar", new CaseInsensitiveString("1"), 1L);
-        assertThat(generatedCacheKey == "com.thoughtworks.go.domain.Pipeline.$foo.$bar.$1.$1")
-                .describedAs("Using '==' to check returned key is interned String").isTrue();
+        assertThat(cacheKeyGenerator.generate("foo", "bar", "1", 1L)).isSameAs(generatedCacheKey);
     }
 
     @Test
@@ -32,6 +32,7 @@ import org.junit.*;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.List;
 
 import static com.thoughtworks.go.util.LogFixture.logFixtureFor;
 import static org.hamcrest.Matchers.containsString;
@@ -196,6 +197,21 @@ public class GoCacheTest {
         assertThat(goCache.get("foo", "baz"), is(nullValue()));
     }
 
+    @Test
+    public void put_shouldReplaceTheCachedSubKeyListRatherThanChangeIt() {
+        goCache.put("foo", "bar", "baz");
+        GoCache.KeyList before = (GoCache.KeyList) goCache.get("foo");
+
+        goCache.put("foo", "baz", "quux");
+        goCache.remove("foo", "bar");
+
+        assertThat(before.size(), is(1));
+        assertThat(before.contains("bar"), is(true));
+        GoCache.KeyList after = (GoCache.KeyList) goCache.get("foo");
+        assertThat(after.size(), is(1));
+        assertThat(after.contains("baz"), is(true));
+    }
+
     @Test
     public void delete_shouldNotThrowAnExceptionWhenNoFamilySubKeysAreFound() {
         goCache.remove("foo", "baz");
@@ -213,16 +229,44 @@ public class GoCacheTest {
     }
 
     @Test
-    public void put_shouldNotAllowAdditionOfBaseAndSubKeyPairThatUserInternalDemarkator() {
-        try {
-            goCache.put("foo!_#$", "#_!bar", "baz");
-            fail("should not have allowed use of internal key seperator");
-        } catch (Exception e) {
-            assertThat(e.getMessage(), is("Base and sub key concatenation(key = foo!_#$, subkey = #_!bar) must not have pattern !_#$#_!"));
-        }
+    public void put_shouldKeepSubKeysApartFromOtherKeysThatConcatenateTheSame() {
+        goCache.put("foo", "bar", "baz");
+        goCache.put("foob", "ar", "quux");
+        goCache.put("foobar", "plain");
+        assertThat(goCache.get("foo", "bar"), is("baz"));
+        assertThat(goCache.get("foob", "ar"), is("quux"));
+        assertThat(goCache.get("foobar"), is("plain"));
+
+        goCache.remove("foob");
+        assertThat(goCache.get("foo", "bar"), is("baz"));
+        assertThat(goCache.get("foob", "ar"), is(nullValue()));
     }
 
 
+    @Test
+    public void shouldReportStatisticsPerKeyFamily() {
+        goCache.put("pipeline_1", "p1");
+        goCache.put("pipeline_2", "p2");
+        goCache.put("stage_1", "s1", "value");
+        goCache.get("pipeline_1");
+        goCache.get("pipeline_3");
+        goCache.get("stage_1", "s1");
+        goCache.remove("pipeline_2");
+
+        List<KeyFamilyStatistics.Family> families = goCache.keyFamilyStatistics();
+        KeyFamilyStatistics.Family pipelines = families.stream().filter(family -> family.getName().equals("pipeline_")).findFirst().get();
+        KeyFamilyStatistics.Family stages = families.stream().filter(family -> family.getName().equals("stage_")).findFirst().get();
+
+        assertThat(pipelines.getEntries(), is(1L));
+        assertThat(pipelines.getPuts(), is(2L));
+        assertThat(pipelines.getHits(), is(1L));
+        assertThat(pipelines.getMisses(), is(1L));
+        assertThat(pipelines.getRemovals(), is(1L));
+        assertThat(pipelines.getApproximateSizeInBytes() > 0, is(true));
+        assertThat(stages.getEntries(), is(2L));
+        assertThat(stages.getHits(), is(1L));
+    }
+
     @Test
     public void shouldRemoveSpecifiedKeysFromCache() {
         goCache.put("foo", "1");
@@ -240,13 +284,13 @@ public class GoCacheTest {
         String parentKey = "parent";
         goCache.put(parentKey, "child1", "value");
         assertThat(goCache.get(parentKey), is(not(nullValue())));
-        assertThat(goCache.get(parentKey + GoCache.SUB_KEY_DELIMITER + "child1"), is(not(nullValue())));
+        assertThat(goCache.get(parentKey, "child1"), is(not(nullValue())));
         Thread.sleep(1);//so that the timestamps on the cache entries are different
         goCache.put(parentKey, "child2", "value");
 
         assertThat(goCache.get(parentKey), is(not(nullValue())));
-        assertThat(goCache.get(parentKey + GoCache.SUB_KEY_DELIMITER + "child1"), is(nullValue()));
-        assertThat(goCache.get(parentKey + GoCache.SUB_KEY_DELIMITER + "child2"), is(not(nullValue())));
+        assertThat(goCache.get(parentKey, "child1"), is(nullValue()));
+        assertThat(goCache.get(parentKey, "child2"), is(not(nullValue())));
         GoCache.KeyList list = (GoCache.KeyList) goCache.get(parentKey);
         assertThat(list.size(), is(1));
         assertThat(list.contains("child2"), is(true));
@@ -259,13 +303,13 @@ public class GoCacheTest {
         String parentKey = "parent";
         goCache.put(parentKey, "child1", "value");
         assertThat(goCache.get(parentKey), is(not(nullValue())));
-        assertThat(goCache.get(parentKey + GoCache.SUB_KEY_DELIMITER + "child1"), is(not(nullValue())));
+        assertThat(goCache.get(parentKey, "child1"), is(not(nullValue())));
         waitForCacheElementsToExpire();
 
         goCache.put(parentKey, "child2", "value");
         assertThat(goCache.get(parentKey), is(not(nullValue())));
-        assertThat(goCache.get(parentKey + GoCache.SUB_KEY_DELIMITER + "child1"), is(nullValue()));
-        assertThat(goCache.get(parentKey + GoCache.SUB_KEY_DELIMITER + "child2"), is(not(nullValue())));
+        assertThat(goCache.get(parentKey, "child1"), is(nullValue()));
+        assertThat(goCache.get(parentKey, "child2"), is(not(nullValue())));
         GoCache.KeyList list = (GoCache.KeyList) goCache.get(parentKey);
         assertThat(list.size(), is(1));
         assertThat(list.contains("child2"), is(true));
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.cache;
+
+import com.thoughtworks.go.server.dao.StageSqlMapDao;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class KeyFamilyStatisticsTest {
+    @Test
+    public void shouldGroupGeneratedKeysByClassAndIdentifier() {
+        String key = new CacheKeyGenerator(StageSqlMapDao.class).generate("stageHistory", "up42", 1L);
+
+        assertThat(KeyFamilyStatistics.familyOf(key), is("StageSqlMapDao.$stageHistory"));
+        assertThat(KeyFamilyStatistics.familyOf(new CacheKeyGenerator(StageSqlMapDao.class).generate("allStages")), is("StageSqlMapDao.$allStages"));
+    }
+
+    @Test
+    public void shouldGroupOtherKeysByWhatComesBeforeTheFirstDigit() {
+        assertThat(KeyFamilyStatistics.familyOf("pipelineHistory_42"), is("pipelineHistory_"));
+        assertThat(KeyFamilyStatistics.familyOf("ENABLED_USER_COUNT"), is("ENABLED_USER_COUNT"));
+        assertThat(KeyFamilyStatistics.familyOf("42"), is(KeyFamilyStatistics.OTHER_FAMILY));
+    }
+
+    @Test
+    public void shouldCountSubKeyEntriesUnderTheFamilyOfTheirParentKey() {
+        assertThat(KeyFamilyStatistics.familyOf(new GoCache.CompositeKey("urls_cache", "1")), is("urls_cache"));
+    }
+
+    @Test
+    public void shouldTrackCountsPerFamily() {
+        KeyFamilyStatistics statistics = new KeyFamilyStatistics();
+        statistics.put("foo1");
+        statistics.put("foo2");
+        statistics.hit("foo1");
+        statistics.hit("foo1");
+        statistics.hit("foo2");
+        statistics.miss("foo3");
+        statistics.evicted("foo2");
+        statistics.removed("foo1");
+
+        List<KeyFamilyStatistics.Family> families = statistics.snapshot(Collections.singletonMap("foo", 0L), Collections.emptyMap());
+
+        assertThat(families.size(), is(1));
+        KeyFamilyStatistics.Family foo = families.get(0);
+        assertThat(foo.getName(), is("foo"));
+        assertThat(foo.getHits(), is(3L));
+        assertThat(foo.getMisses(), is(1L));
+        assertThat(foo.getHitRatio(), is(0.75));
+        assertThat(foo.getPuts(), is(2L));
+        assertThat(foo.getRemovals(), is(1L));
+        assertThat(foo.getEvictions(), is(1L));
+        assertThat(foo.getEvictionRate(), is(0.5));
+    }
+
+    @Test
+    public void shouldBoundTheNumberOfFamilies() {
+        KeyFamilyStatistics statistics = new KeyFamilyStatistics();
+        for (int i = 0; i < KeyFamilyStatistics.MAX_FAMILIES + 10; i++) {
+            statistics.put("family_" + (char) ('a' + i % 26) + (char) ('a' + i / 26));
+        }
+
+        List<KeyFamilyStatistics.Family> families = statistics.snapshot(Collections.emptyMap(), Collections.emptyMap());
+        assertThat(families.size(), is(KeyFamilyStatistics.MAX_FAMILIES + 1));
+    }
+
+    @Test
+    public void shouldStartCountingAfreshOnceCleared() {
+        KeyFamilyStatistics statistics = new KeyFamilyStatistics();
+        statistics.hit("foo_1");
+        statistics.clear();
+        statistics.hit("foo_2");
+        statistics.miss(new String("foo_3"));
+
+        List<KeyFamilyStatistics.Family> families = statistics.snapshot(Collections.emptyMap(), Collections.emptyMap());
+        assertThat(families.size(), is(1));
+        assertThat(families.get(0).getName(), is("foo_"));
+        assertThat(families.get(0).getHits(), is(1L));
+        assertThat(families.get(0).getMisses(), is(1L));
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2020 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.cache;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ParallelZipWriterTest {
+    private ExecutorService executor;
+    private ParallelZipWriter writer;
+    private File folder;
+
+    @BeforeEach
+    void setUp(@TempDir Path tempDir) throws IOException {
+        executor = Executors.newFixedThreadPool(3);
+        writer = new ParallelZipWriter(executor, 3, Deflater.DEFAULT_COMPRESSION);
+
+        folder = tempDir.resolve("dir").toFile();
+        FileUtils.writeStringToFile(new File(folder, "small.txt"), "some text", "UTF-8");
+        FileUtils.writeByteArrayToFile(new File(folder, "empty.txt"), new byte[0]);
+        FileUtils.writeByteArrayToFile(new File(folder, "sub/large.log"), compressibleBytes(ParallelZipWriter.CHUNK_SIZE * 3 + 17));
+        FileUtils.writeByteArrayToFile(new File(folder, "sub/library.jar"), randomBytes(ParallelZipWriter.CHUNK_SIZE + 5));
+        new File(folder, "sub/nested/empty-dir").mkdirs();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldZipFolderWithTheSameEntriesAsZipUtil() throws IOException {
+        Map<String, byte[]> entries = readWithZipInputStream(zip());
+
+        assertThat(entries.keySet()).containsExactly(
+                "dir/", "dir/empty.txt", "dir/small.txt", "dir/sub/", "dir/sub/large.log", "dir/sub/library.jar",
+                "dir/sub/nested/", "dir/sub/nested/empty-dir/");
+        assertThat(entries.get("dir/small.txt")).isEqualTo("some text".getBytes());
+        assertThat(entries.get("dir/empty.txt")).isEmpty();
+        assertThat(entries.get("dir/sub/large.log")).isEqualTo(FileUtils.readFileToByteArray(new File(folder, "sub/large.log")));
+        assertThat(entries.get("dir/sub/library.jar")).isEqualTo(FileUtils.readFileToByteArray(new File(folder, "sub/library.jar")));
+    }
+
+    @Test
+    void shouldWriteACentralDirectoryWithSizesAndChecksums(@TempDir Path tempDir) throws IOException {
+        File zip = tempDir.resolve("dir.zip").toFile();
+        FileUtils.writeByteArrayToFile(zip, zip());
+
+        try (ZipFile zipFile = new ZipFile(zip)) {
+            ZipEntry large = zipFile.getEntry("dir/sub/large.log");
+            assertThat(large.getSize()).isEqualTo(ParallelZipWriter.CHUNK_SIZE * 3 + 17);
+            assertThat(large.getCompressedSize()).isLessThan(large.getSize() / 4);
+            assertThat(IOUtils.toByteArray(zipFile.getInputStream(large))).isEqualTo(FileUtils.readFileToByteArray(new File(folder, "sub/large.log")));
+
+            assertThat(zipFile.getEntry("dir/sub/nested/empty-dir/").isDirectory()).isTrue();
+        }
+    }
+
+    @Test
+    void shouldNotDeflateFilesThatAreAlreadyCompressed(@TempDir Path tempDir) throws IOException {
+        File zip = tempDir.resolve("dir.zip").toFile();
+        FileUtils.writeByteArrayToFile(zip, zip());
+
+        try (ZipFile zipFile = new ZipFile(zip)) {
+            ZipEntry jar = zipFile.getEntry("dir/sub/library.jar");
+            // stored deflate blocks only add a few bytes of framing
+            assertThat(jar.getCompressedSize()).isBetween(jar.getSize(), jar.getSize() + 64);
+        }
+    }
+
+    @Test
+    void shouldOnlyZipFilesThatAreAcceptedButKeepAllFolders() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.zip(folder, file -> file.getName().equals("small.txt"), out);
+
+        assertThat(readWithZipInputStream(out.toByteArray()).keySet()).containsExactly(
+                "dir/", "dir/small.txt", "dir/sub/", "dir/sub/nested/", "dir/sub/nested/empty-dir/");
+    }
+
+    private byte[] zip() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.zip(folder, out);
+        return out.toByteArray();
+    }
+
+    private Map<String, byte[]> readWithZipInputStream(byte[] zip) throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                entries.put(entry.getName(), IOUtils.toByteArray(in));
+            }
+        }
+        return entries;
+    }
+
+    private static byte[] compressibleBytes(int length) {
+        StringBuilder builder = new StringBuilder();
+        for (int line = 0; builder.length() < length; line++) {
+            builder.append("[go] line ").append(line).append(" of a long build log\n");
+        }
+        return Arrays.copyOf(builder.toString().getBytes(), length);
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+}
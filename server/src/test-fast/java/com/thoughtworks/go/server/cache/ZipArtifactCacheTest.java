@@ -27,8 +27,13 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.thoughtworks.go.matchers.FileExistsMatcher.exists;
 import static org.hamcrest.Matchers.*;
@@ -55,7 +60,7 @@ public class ZipArtifactCacheTest {
 
         artifactsDirHolder = mock(ArtifactsDirHolder.class);
         when(artifactsDirHolder.getArtifactsDir()).thenReturn(folder);
-        zipArtifactCache = new ZipArtifactCache(this.artifactsDirHolder, new ZipUtil());
+        zipArtifactCache = new ZipArtifactCache(this.artifactsDirHolder, new ParallelZipWriter());
         artifactFolder = new ArtifactFolder(JOB_IDENTIFIER, new File(artifact, "dir"), "dir");
     }
 
@@ -105,6 +110,52 @@ public class ZipArtifactCacheTest {
         assertThat(new File(cacheDir, "dir/file1"), exists());
     }
 
+    @Test public void shouldStreamZipWhileItIsBeingCreated() throws Exception {
+        CountDownLatch firstHalfWritten = new CountDownLatch(1);
+        CountDownLatch secondHalfAllowed = new CountDownLatch(1);
+        zipArtifactCache = new ZipArtifactCache(artifactsDirHolder, new ParallelZipWriter(null, 1, 0) {
+            @Override
+            public void zip(File source, OutputStream out) throws IOException {
+                try {
+                    out.write("first half ".getBytes());
+                    out.flush();
+                    firstHalfWritten.countDown();
+                    secondHalfAllowed.await();
+                    out.write("second half".getBytes());
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+        });
+
+        assertThat(zipArtifactCache.cacheCreated(artifactFolder), is(false));
+        firstHalfWritten.await();
+
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        AtomicBoolean wasStreamed = new AtomicBoolean();
+        Thread streamer = new Thread(() -> {
+            try {
+                wasStreamed.set(zipArtifactCache.streamWhileCreating(artifactFolder, streamed));
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        streamer.start();
+        secondHalfAllowed.countDown();
+        streamer.join(5000);
+
+        assertThat(wasStreamed.get(), is(true));
+        assertThat(streamed.toString(), is("first half second half"));
+        assertThat(FileUtils.readFileToString(zipArtifactCache.cachedFile(artifactFolder), "UTF-8"), is("first half second half"));
+    }
+
+    @Test public void shouldNotStreamZipWhenItIsNotBeingCreated() throws Exception {
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+
+        assertThat(zipArtifactCache.streamWhileCreating(artifactFolder, streamed), is(false));
+        assertThat(streamed.size(), is(0));
+    }
+
     private void waitForCacheCreated() throws Exception {
         int timesTried = 10;
         while (timesTried > 0 && !zipArtifactCache.cacheCreated(artifactFolder)) {
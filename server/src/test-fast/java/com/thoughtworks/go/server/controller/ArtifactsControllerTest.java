@@ -16,15 +16,18 @@
 package com.thoughtworks.go.server.controller;
 
 import com.thoughtworks.go.domain.JobIdentifier;
+import com.thoughtworks.go.server.cache.ParallelZipWriter;
 import com.thoughtworks.go.server.cache.ZipArtifactCache;
 import com.thoughtworks.go.server.dao.JobInstanceDao;
 import com.thoughtworks.go.server.service.ArtifactsService;
 import com.thoughtworks.go.server.service.ConsoleActivityMonitor;
 import com.thoughtworks.go.server.service.ConsoleService;
 import com.thoughtworks.go.server.service.RestfulService;
+import com.thoughtworks.go.server.view.artifacts.ChangedArtifactFilesZip;
 import com.thoughtworks.go.server.web.ArtifactFolderViewFactory;
 import com.thoughtworks.go.server.web.ResponseCodeView;
 import com.thoughtworks.go.util.SystemEnvironment;
+import org.apache.commons.io.IOUtils;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.mock.web.MockHttpServletRequest;
@@ -34,8 +37,11 @@ import org.springframework.web.multipart.MultipartHttpServletRequest;
 import org.springframework.web.servlet.ModelAndView;
 
 import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.InputStream;
+import java.util.Properties;
+import java.util.zip.GZIPOutputStream;
 
 import static com.thoughtworks.go.util.GoConstants.*;
 import static javax.servlet.http.HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
@@ -65,7 +71,7 @@ public class ArtifactsControllerTest {
         consoleService = mock(ConsoleService.class);
         jobInstanceDao = mock(JobInstanceDao.class);
         systemEnvironment = mock(SystemEnvironment.class);
-        artifactsController = new ArtifactsController(artifactService, restfulService, mock(ZipArtifactCache.class), jobInstanceDao, consoleActivityMonitor, consoleService, systemEnvironment);
+        artifactsController = new ArtifactsController(artifactService, restfulService, mock(ZipArtifactCache.class), mock(ParallelZipWriter.class), jobInstanceDao, consoleActivityMonitor, consoleService, systemEnvironment);
 
         request = new MockHttpServletRequest();
     }
@@ -84,6 +90,29 @@ public class ArtifactsControllerTest {
         verify(consoleActivityMonitor).consoleUpdatedFor(jobIdentifier);
     }
 
+    @Test
+    public void shouldInflateGzippedConsoleLogPut() throws Exception {
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+            out.write("Testing:".getBytes());
+        }
+        request.setContent(gzipped.toByteArray());
+        request.addHeader("Content-Encoding", "gzip");
+        JobIdentifier jobIdentifier = new JobIdentifier("pipeline", 10, "label-10", "stage", "2", "build", 103l);
+        when(restfulService.findJob("pipeline", "10", "stage", "2", "build", 103l)).thenReturn(jobIdentifier);
+        File artifactFile = new File("junk");
+        when(consoleService.consoleLogFile(jobIdentifier)).thenReturn(artifactFile);
+        ByteArrayOutputStream appended = new ByteArrayOutputStream();
+        when(consoleService.updateConsoleLog(eq(artifactFile), any(InputStream.class))).then(invocation -> {
+            IOUtils.copy((InputStream) invocation.getArgument(1), appended);
+            return true;
+        });
+
+        artifactsController.putArtifact("pipeline", "10", "stage", "2", "build", 103l, "cruise-output/console.log", "agent-id", request);
+
+        assertThat(appended.toString(), is("Testing:"));
+    }
+
     @Test
     public void testConsoleOutShouldReturnErrorWhenJobHasBeenCompletedAndLogsNotFound() throws Exception {
         JobIdentifier jobIdentifier = new JobIdentifier("pipeline", 10, "label-10", "stage", "2", "build", 103l);
@@ -123,7 +152,7 @@ public class ArtifactsControllerTest {
     @Test
     public void shouldFunnelAll_GET_calls() throws Exception {
         final ModelAndView returnVal = new ModelAndView();
-        ArtifactsController controller = new ArtifactsController(artifactService, restfulService, mock(ZipArtifactCache.class), jobInstanceDao, consoleActivityMonitor, consoleService, systemEnvironment) {
+        ArtifactsController controller = new ArtifactsController(artifactService, restfulService, mock(ZipArtifactCache.class), mock(ParallelZipWriter.class), jobInstanceDao, consoleActivityMonitor, consoleService, systemEnvironment) {
             @Override
             ModelAndView getArtifact(String filePath, ArtifactFolderViewFactory folderViewFactory, String pipelineName, String counterOrLabel, String stageName, String stageCounter,
                                      String buildName, String sha, String serverAlias) throws Exception {
@@ -136,6 +165,28 @@ public class ArtifactsControllerTest {
         assertThat(controller.getArtifactAsJson("pipeline", "counter", "stage", "2", "job", "file_name", "sha1"), sameInstance(returnVal));
     }
 
+    @Test
+    public void shouldZipOnlyFilesThatChangedSinceWhatTheAgentHas() throws Exception {
+        File folder = new File("dist") {
+            @Override
+            public boolean isDirectory() {
+                return true;
+            }
+        };
+        request.setContent("dist/first=some-md5\n".getBytes());
+        JobIdentifier jobIdentifier = new JobIdentifier("pipeline", 10, "label-10", "stage", "2", "build", 103l);
+        when(restfulService.findJob("pipeline", "10", "stage", "2", "build")).thenReturn(jobIdentifier);
+        when(artifactService.findArtifact(jobIdentifier, "dist")).thenReturn(folder);
+
+        ModelAndView modelAndView = artifactsController.getChangedArtifactsAsZip("pipeline", "10", "stage", "2", "build", "dist.zip", request);
+
+        assertThat(modelAndView.getView(), is(instanceOf(ChangedArtifactFilesZip.class)));
+        assertThat(((ChangedArtifactFilesZip) modelAndView.getView()).getFolder(), is(folder));
+        Properties checksumsOnAgent = new Properties();
+        checksumsOnAgent.setProperty("dist/first", "some-md5");
+        verify(artifactService).filesChangedOnServer(jobIdentifier, checksumsOnAgent);
+    }
+
     @Test
     public void shouldReturnBadRequestIfRequiredHeadersAreMissingOnACreateArtifactRequest() throws Exception {
         MultipartHttpServletRequest multipartHttpServletRequest = new MockMultipartHttpServletRequest();
@@ -19,8 +19,14 @@ import com.thoughtworks.go.config.CaseInsensitiveString;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
 import static com.thoughtworks.go.server.dashboard.GoDashboardPipelineMother.pipeline;
 import static java.util.Arrays.asList;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.Matchers.sameInstance;
@@ -86,6 +92,66 @@ public class GoDashboardCacheTest {
         assertThat(cache.allEntries().find(cis("pipeline5")), is(sameInstance(pipeline5)));
     }
 
+    @Test
+    public void shouldBeAbleToRemoveAPipeline() {
+        GoDashboardPipeline pipeline1 = pipeline("pipeline1");
+        GoDashboardPipeline pipeline2 = pipeline("pipeline2");
+        cache.put(pipeline1);
+        cache.put(pipeline2);
+
+        cache.remove(cis("pipeline1"));
+
+        assertThat(cache.allEntries().find(cis("pipeline1")), is(nullValue()));
+        assertThat(cache.allEntries().getPipelines(), containsInAnyOrder(pipeline2));
+    }
+
+    @Test
+    public void shouldNotChangeASnapshotThatHasAlreadyBeenHandedOut() {
+        GoDashboardPipeline pipeline1 = pipeline("pipeline1");
+        GoDashboardPipeline newPipeline1 = pipeline("pipeline1");
+        cache.put(pipeline1);
+
+        GoDashboardPipelines snapshot = cache.allEntries();
+        cache.put(newPipeline1);
+        cache.put(pipeline("pipeline2"));
+
+        assertThat(snapshot.find(cis("pipeline1")), is(sameInstance(pipeline1)));
+        assertThat(snapshot.find(cis("pipeline2")), is(nullValue()));
+        assertThat(snapshot.getPipelines(), containsInAnyOrder(pipeline1));
+        assertThat(cache.allEntries().find(cis("pipeline1")), is(sameInstance(newPipeline1)));
+        assertThat(cache.allEntries().getPipelines(), hasSize(2));
+    }
+
+    @Test
+    public void shouldKeepPipelinesPutConcurrentlyFromDifferentThreads() throws Exception {
+        int threadCount = 8;
+        int pipelinesPerThread = 200;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+
+        for (int i = 0; i < threadCount; i++) {
+            int thread = i;
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                for (int j = 0; j < pipelinesPerThread; j++) {
+                    cache.put(pipeline("pipeline-" + thread + "-" + j));
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(cache.allEntries().getPipelines(), hasSize(threadCount * pipelinesPerThread));
+        assertThat(cache.allEntries().find(cis("PIPELINE-7-199")).name(), is(cis("pipeline-7-199")));
+    }
+
     private CaseInsensitiveString cis(String value) {
         return new CaseInsensitiveString(value);
     }
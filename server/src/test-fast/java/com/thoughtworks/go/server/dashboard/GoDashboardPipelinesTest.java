@@ -15,9 +15,13 @@
  */
 package com.thoughtworks.go.server.dashboard;
 
+import com.thoughtworks.go.config.CaseInsensitiveString;
 import org.junit.Test;
 
 import java.util.HashMap;
+import java.util.Map;
+
+import static com.thoughtworks.go.server.dashboard.GoDashboardPipelineMother.pipeline;
 
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.*;
@@ -32,4 +36,41 @@ public class GoDashboardPipelinesTest {
         GoDashboardPipelines goDashboardPipelines = new GoDashboardPipelines(new HashMap<>(), provider);
         assertThat(goDashboardPipelines.lastUpdatedTimeStamp(), is(100L));
     }
+
+    @Test
+    public void shouldKnowWhichPipelinesChangedSinceAnEarlierVersion() {
+        TimeStampBasedCounter provider = mock(TimeStampBasedCounter.class);
+        when(provider.getNext()).thenReturn(100L, 101L, 102L, 103L);
+        Map<CaseInsensitiveString, GoDashboardPipeline> initial = new HashMap<>();
+        initial.put(new CaseInsensitiveString("p1"), pipeline("p1"));
+        initial.put(new CaseInsensitiveString("p2"), pipeline("p2"));
+        initial.put(new CaseInsensitiveString("p3"), pipeline("p3"));
+
+        GoDashboardPipelines version100 = new GoDashboardPipelines(initial, provider);
+        GoDashboardPipelines version101 = version100.with(pipeline("p2"), provider);
+        GoDashboardPipelines version102 = version101.with(pipeline("p4"), provider);
+        GoDashboardPipelines version103 = version102.without(new CaseInsensitiveString("p4"), provider);
+
+        assertThat(version102.lastUpdatedTimeStamp(), is(102L));
+        assertFalse(version102.hasChangedSince(new CaseInsensitiveString("p1"), 100L));
+        assertTrue(version102.hasChangedSince(new CaseInsensitiveString("p1"), 99L));
+        assertTrue(version102.hasChangedSince(new CaseInsensitiveString("p2"), 100L));
+        assertFalse(version102.hasChangedSince(new CaseInsensitiveString("P2"), 101L));
+        assertTrue(version102.hasChangedSince(new CaseInsensitiveString("p4"), 101L));
+        assertFalse(version102.hasChangedSince(new CaseInsensitiveString("p4"), 102L));
+        assertNull(version103.find(new CaseInsensitiveString("p4")));
+        assertFalse(version103.hasChangedSince(new CaseInsensitiveString("p2"), 101L));
+    }
+
+    @Test
+    public void shouldTreatEveryPipelineAsChangedForAVersionItDoesNotKnowAbout() {
+        TimeStampBasedCounter provider = mock(TimeStampBasedCounter.class);
+        when(provider.getNext()).thenReturn(100L);
+        Map<CaseInsensitiveString, GoDashboardPipeline> initial = new HashMap<>();
+        initial.put(new CaseInsensitiveString("p1"), pipeline("p1"));
+
+        GoDashboardPipelines pipelines = new GoDashboardPipelines(initial, provider);
+
+        assertTrue(pipelines.hasChangedSince(new CaseInsensitiveString("p1"), 5000L));
+    }
 }
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2020 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.materials;
+
+import com.thoughtworks.go.config.materials.ScmMaterial;
+import com.thoughtworks.go.domain.materials.Material;
+import com.thoughtworks.go.util.TestingClock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Collections.singleton;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class MaterialUpdateSchedulerTest {
+    private MaterialUpdateQueue queue;
+    private TestingClock clock;
+    private List<Material> failedToDispatch;
+
+    @BeforeEach
+    void setUp() {
+        queue = mock(MaterialUpdateQueue.class);
+        clock = new TestingClock();
+        failedToDispatch = new ArrayList<>();
+    }
+
+    @Test
+    void shouldKeepUpdatesBeyondTheNumberOfListenersWaitingUntilAnUpdateCompletes() {
+        MaterialUpdateScheduler scheduler = scheduler(2, 0);
+        Material first = material("https://example.com/first.git");
+        Material second = material("https://example.com/second.git");
+        Material third = material("https://example.com/third.git");
+
+        scheduler.schedule(message(first));
+        scheduler.schedule(message(second));
+        scheduler.schedule(message(third));
+
+        assertThat(postedMaterials()).containsExactly(first, second);
+        assertThat(scheduler.waiting()).isEqualTo(1);
+
+        scheduler.completed(second);
+
+        assertThat(postedMaterials()).containsExactly(first, second, third);
+        assertThat(scheduler.waiting()).isZero();
+    }
+
+    @Test
+    void shouldPickTheMaterialThatIsExpectedToBeQuickerBeforeOneThatIsKnownToBeSlow() {
+        MaterialUpdateScheduler scheduler = scheduler(1, 0);
+        Material slow = material("https://example.com/slow.git");
+        Material fast = material("https://example.com/fast.git");
+        Material blocker = material("https://example.com/blocker.git");
+
+        scheduler.schedule(message(slow));
+        clock.addMillis(60_000);
+        scheduler.completed(slow);
+        scheduler.schedule(message(fast));
+        clock.addMillis(100);
+        scheduler.completed(fast);
+
+        scheduler.schedule(message(blocker));
+        scheduler.schedule(message(slow));
+        scheduler.schedule(message(fast));
+        scheduler.completed(blocker);
+
+        assertThat(postedMaterials()).containsExactly(slow, fast, blocker, fast);
+    }
+
+    @Test
+    void shouldLimitTheNumberOfUpdatesRunningAgainstTheSameHost() {
+        MaterialUpdateScheduler scheduler = scheduler(10, 1);
+        Material first = material("https://example.com/first.git");
+        Material second = material("git@example.com:second.git");
+        Material elsewhere = material("svn://svn.example.org/trunk");
+
+        scheduler.schedule(message(first));
+        scheduler.schedule(message(second));
+        scheduler.schedule(message(elsewhere));
+
+        assertThat(postedMaterials()).containsExactly(first, elsewhere);
+
+        scheduler.completed(first);
+
+        assertThat(postedMaterials()).containsExactly(first, elsewhere, second);
+    }
+
+    @Test
+    void shouldRecordTheTimeSpentWaitingAndUpdatingForEveryMaterial() {
+        MaterialUpdateScheduler scheduler = scheduler(1, 0);
+        Material first = material("https://example.com/first.git");
+        Material second = material("https://example.com/second.git");
+
+        scheduler.schedule(message(first));
+        scheduler.schedule(message(second));
+        clock.addMillis(500);
+        scheduler.completed(first);
+        clock.addMillis(200);
+        scheduler.completed(second);
+
+        List<MaterialUpdateScheduler.MaterialStatistics> statistics = scheduler.statistics();
+        assertThat(statistics).extracting(MaterialUpdateScheduler.MaterialStatistics::getMaterial).containsExactly(first, second);
+        assertThat(statistics.get(0).getLastWaitMillis()).isZero();
+        assertThat(statistics.get(0).getLastDurationMillis()).isEqualTo(500);
+        assertThat(statistics.get(1).getLastWaitMillis()).isEqualTo(500);
+        assertThat(statistics.get(1).getLastDurationMillis()).isEqualTo(200);
+        assertThat(statistics.get(1).getUpdates()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldForgetTheStatisticsOfMaterialsThatAreNoLongerConfiguredOnceTheyAreNotBusy() {
+        MaterialUpdateScheduler scheduler = scheduler(1, 0);
+        Material kept = material("https://example.com/kept.git");
+        Material removed = material("https://example.com/removed.git");
+        Material inFlight = material("https://example.com/in-flight.git");
+        Material waiting = material("https://example.com/waiting.git");
+        scheduler.schedule(message(kept));
+        scheduler.completed(kept);
+        scheduler.schedule(message(removed));
+        scheduler.completed(removed);
+        scheduler.schedule(message(inFlight));
+        scheduler.schedule(message(waiting));
+
+        scheduler.retainMaterials(singleton(kept.getFingerprint()));
+
+        assertThat(scheduler.statistics()).extracting(MaterialUpdateScheduler.MaterialStatistics::getMaterial).containsExactlyInAnyOrder(kept, inFlight, waiting);
+
+        scheduler.completed(inFlight);
+        scheduler.completed(waiting);
+        scheduler.retainMaterials(singleton(kept.getFingerprint()));
+
+        assertThat(scheduler.statistics()).extracting(MaterialUpdateScheduler.MaterialStatistics::getMaterial).containsExactly(kept);
+    }
+
+    @Test
+    void shouldIgnoreCompletionOfMaterialsThatWereNotScheduledHere() {
+        MaterialUpdateScheduler scheduler = scheduler(1, 0);
+        Material scheduled = material("https://example.com/scheduled.git");
+        Material waiting = material("https://example.com/waiting.git");
+        scheduler.schedule(message(scheduled));
+        scheduler.schedule(message(waiting));
+
+        scheduler.completed(material("https://example.com/other.git"));
+
+        assertThat(postedMaterials()).containsExactly(scheduled);
+    }
+
+    @Test
+    void shouldThrowAndForgetTheUpdateIfItCannotBePostedStraightAway() {
+        MaterialUpdateScheduler scheduler = scheduler(1, 0);
+        Material material = material("https://example.com/first.git");
+        doThrow(new RuntimeException("failed")).when(queue).post(any(MaterialUpdateMessage.class));
+
+        assertThatThrownBy(() -> scheduler.schedule(message(material))).hasMessage("failed");
+
+        assertThat(scheduler.waiting()).isZero();
+        assertThat(failedToDispatch).isEmpty();
+    }
+
+    @Test
+    void shouldReportWaitingUpdatesThatCouldNotBePostedLater() {
+        MaterialUpdateScheduler scheduler = scheduler(1, 0);
+        Material first = material("https://example.com/first.git");
+        Material second = material("https://example.com/second.git");
+        scheduler.schedule(message(first));
+        scheduler.schedule(message(second));
+        doThrow(new RuntimeException("failed")).when(queue).post(any(MaterialUpdateMessage.class));
+
+        scheduler.completed(first);
+
+        assertThat(failedToDispatch).containsExactly(second);
+        assertThat(scheduler.waiting()).isZero();
+    }
+
+    @Test
+    void shouldFindTheHostOfAMaterial() {
+        assertThat(MaterialUpdateScheduler.hostOf(material("https://user@GitHub.com/gocd/gocd.git"))).isEqualTo("github.com");
+        assertThat(MaterialUpdateScheduler.hostOf(material("git@github.com:gocd/gocd.git"))).isEqualTo("github.com");
+        assertThat(MaterialUpdateScheduler.hostOf(material("/var/repos/local"))).isEqualTo("/var/repos/local");
+        assertThat(MaterialUpdateScheduler.hostOf(material(null))).isEmpty();
+    }
+
+    private MaterialUpdateScheduler scheduler(int maxInFlight, int maxInFlightPerHost) {
+        return new MaterialUpdateScheduler(queue, maxInFlight, maxInFlightPerHost, clock, failedToDispatch::add);
+    }
+
+    private List<Material> postedMaterials() {
+        ArgumentCaptor<MaterialUpdateMessage> captor = ArgumentCaptor.forClass(MaterialUpdateMessage.class);
+        verify(queue, atLeast(0)).post(captor.capture());
+        List<Material> materials = new ArrayList<>();
+        for (MaterialUpdateMessage message : captor.getAllValues()) {
+            materials.add(message.getMaterial());
+        }
+        return materials;
+    }
+
+    private static MaterialUpdateMessage message(Material material) {
+        return new MaterialUpdateMessage(material, 0);
+    }
+
+    private static Material material(String uri) {
+        ScmMaterial material = mock(ScmMaterial.class);
+        when(material.getUriForDisplay()).thenReturn(uri);
+        when(material.getFingerprint()).thenReturn(uri);
+        return material;
+    }
+}
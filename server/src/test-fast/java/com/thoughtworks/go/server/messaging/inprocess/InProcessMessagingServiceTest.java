@@ -0,0 +1,238 @@
+/*
+ * Copyright 2020 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.messaging.inprocess;
+
+import com.thoughtworks.go.server.messaging.*;
+import com.thoughtworks.go.server.messaging.inprocess.InProcessMessagingService.DestinationStatistics;
+import com.thoughtworks.go.server.service.support.DaemonThreadStatsCollector;
+import com.thoughtworks.go.util.TestingClock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InProcessMessagingServiceTest {
+    private TestingClock clock;
+    private InProcessMessagingService messaging;
+
+    @BeforeEach
+    void setUp() {
+        clock = new TestingClock();
+        messaging = new InProcessMessagingService(new DaemonThreadStatsCollector(), Executors.newCachedThreadPool(), clock, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        messaging.stop();
+    }
+
+    @Test
+    void shouldDeliverEachQueuedMessageToOneListenerWhileAnotherIsBusy() throws Exception {
+        GoMessageQueue<GoTextMessage> queue = new GoMessageQueue<>(messaging, "queue");
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch received = new CountDownLatch(4);
+        RecordingListener hanging = new RecordingListener(new CountDownLatch(1)) {
+            @Override
+            public void onMessage(GoTextMessage message) {
+                super.onMessage(message);
+                await(release);
+            }
+        };
+        RecordingListener fast = new RecordingListener(received);
+        queue.addListener(hanging);
+        queue.post(new GoTextMessage("1"));
+        hanging.latch.await(5, TimeUnit.SECONDS);
+        queue.addListener(fast);
+
+        for (int i = 2; i <= 5; i++) {
+            queue.post(new GoTextMessage(String.valueOf(i)));
+        }
+
+        assertThat(received.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(hanging.texts()).containsExactly("1");
+        assertThat(fast.texts()).containsExactly("2", "3", "4", "5");
+        release.countDown();
+    }
+
+    @Test
+    void shouldDeliverEveryTopicMessageToEachSubscriber() throws Exception {
+        GoMessageTopic<GoTextMessage> topic = new GoMessageTopic<>(messaging, "topic");
+        topic.post(new GoTextMessage("before anyone listens"));
+
+        RecordingListener first = new RecordingListener(new CountDownLatch(2));
+        RecordingListener second = new RecordingListener(new CountDownLatch(2));
+        topic.addListener(first);
+        topic.addListener(second);
+
+        topic.post(new GoTextMessage("1"));
+        topic.post(new GoTextMessage("2"));
+
+        assertThat(first.latch.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(second.latch.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(first.texts()).containsExactly("1", "2");
+        assertThat(second.texts()).containsExactly("1", "2");
+    }
+
+    @Test
+    void shouldKeepDeliveringAfterAListenerThrows() throws Exception {
+        GoMessageQueue<GoTextMessage> queue = new GoMessageQueue<>(messaging, "queue");
+        RecordingListener listener = new RecordingListener(new CountDownLatch(3)) {
+            @Override
+            public void onMessage(GoTextMessage message) {
+                super.onMessage(message);
+                throw new RuntimeException(message.getText());
+            }
+        };
+        queue.addListener(listener);
+
+        queue.post(new GoTextMessage("1"));
+        queue.post(new GoTextMessage("2"));
+        queue.post(new GoTextMessage("3"));
+
+        assertThat(listener.latch.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(listener.texts()).containsExactly("1", "2", "3");
+    }
+
+    @Test
+    void shouldNeverCallTheSameListenerConcurrently() throws Exception {
+        GoMessageQueue<GoTextMessage> queue = new GoMessageQueue<>(messaging, "queue");
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger maxConcurrent = new AtomicInteger();
+        CountDownLatch received = new CountDownLatch(50);
+        queue.addListener(message -> {
+            maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+            Thread.yield();
+            concurrent.decrementAndGet();
+            received.countDown();
+        });
+
+        List<Thread> senders = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Thread sender = new Thread(() -> {
+                for (int j = 0; j < 10; j++) {
+                    queue.post(new GoTextMessage("message"));
+                }
+            });
+            sender.start();
+            senders.add(sender);
+        }
+        for (Thread sender : senders) {
+            sender.join();
+        }
+
+        assertThat(received.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(maxConcurrent.get()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldDropMessagesWhoseTimeToLiveRanOutBeforeAListenerPickedThemUp() throws Exception {
+        GoMessageQueue<GoTextMessage> queue = new GoMessageQueue<>(messaging, "queue");
+        queue.post(new GoTextMessage("expired"), 1000L);
+        queue.post(new GoTextMessage("kept"));
+        clock.addSeconds(2);
+
+        RecordingListener listener = new RecordingListener(new CountDownLatch(1));
+        queue.addListener(listener);
+
+        assertThat(listener.latch.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(listener.texts()).containsExactly("kept");
+
+        DestinationStatistics statistics = messaging.statistics().get(0);
+        assertThat(statistics.getSent()).isEqualTo(2);
+        assertThat(statistics.getExpired()).isEqualTo(1);
+        assertThat(statistics.getDelivered()).isEqualTo(1);
+        assertThat(statistics.getMaxWaitMillis()).isEqualTo(2000L);
+    }
+
+    @Test
+    void shouldReportMessagesWaitingForAListener() {
+        GoMessageQueue<GoTextMessage> queue = new GoMessageQueue<>(messaging, "queue");
+        queue.post(new GoTextMessage("1"));
+        queue.post(new GoTextMessage("2"));
+
+        DestinationStatistics statistics = messaging.statistics().get(0);
+        assertThat(statistics.getName()).isEqualTo("queue");
+        assertThat(statistics.getType()).isEqualTo("Queue");
+        assertThat(statistics.getDepth()).isEqualTo(2);
+        assertThat(statistics.getListeners()).isEmpty();
+    }
+
+    @Test
+    void shouldNotDeliverToAListenerOnceItIsStopped() throws Exception {
+        GoMessageQueue<GoTextMessage> queue = new GoMessageQueue<>(messaging, "queue");
+        RecordingListener stopped = new RecordingListener(new CountDownLatch(1));
+        RecordingListener running = new RecordingListener(new CountDownLatch(2));
+        MessageListenerHandle handle = queue.addListener(stopped);
+        handle.stop();
+        queue.addListener(running);
+
+        queue.post(new GoTextMessage("1"));
+        queue.post(new GoTextMessage("2"));
+
+        assertThat(running.latch.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(stopped.texts()).isEmpty();
+    }
+
+    @Test
+    void shouldDropPendingMessagesWhenAQueueIsRemoved() throws Exception {
+        GoMessageQueue<GoTextMessage> queue = new GoMessageQueue<>(messaging, "queue");
+        queue.post(new GoTextMessage("dropped"));
+        queue.stop();
+
+        RecordingListener listener = new RecordingListener(new CountDownLatch(1));
+        queue.addListener(listener);
+        queue.post(new GoTextMessage("delivered"));
+
+        assertThat(listener.latch.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(listener.texts()).containsExactly("delivered");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class RecordingListener implements GoMessageListener<GoTextMessage> {
+        private final List<String> texts = Collections.synchronizedList(new ArrayList<>());
+        private final CountDownLatch latch;
+
+        private RecordingListener(CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        @Override
+        public void onMessage(GoTextMessage message) {
+            texts.add(message.getText());
+            latch.countDown();
+        }
+
+        List<String> texts() {
+            return new ArrayList<>(texts);
+        }
+    }
+}
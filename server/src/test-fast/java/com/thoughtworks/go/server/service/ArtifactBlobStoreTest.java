@@ -0,0 +1,155 @@
+/*
+ * Copyright 2020 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.service;
+
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static com.thoughtworks.go.util.CachedDigestUtils.md5Hex;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisabledOnOs(OS.WINDOWS)
+class ArtifactBlobStoreTest {
+    @TempDir
+    File artifactsDir;
+    private SystemEnvironment systemEnvironment;
+    private ArtifactsDirHolder artifactsDirHolder;
+    private ArtifactBlobStore blobStore;
+
+    @BeforeEach
+    void setUp() {
+        systemEnvironment = mock(SystemEnvironment.class);
+        when(systemEnvironment.get(SystemEnvironment.ARTIFACTS_DEDUPLICATION)).thenReturn(true);
+        artifactsDirHolder = mock(ArtifactsDirHolder.class);
+        when(artifactsDirHolder.getArtifactsDir()).thenReturn(artifactsDir);
+        blobStore = new ArtifactBlobStore(artifactsDirHolder, systemEnvironment);
+    }
+
+    @Test
+    void shouldStoreIdenticalArtifactsOnce() throws IOException {
+        File first = artifact("pipelines/p/1/s/1/job/lib/app.jar", "jar contents");
+        File second = artifact("pipelines/p/2/s/1/job/lib/app.jar", "jar contents");
+
+        blobStore.deduplicate(first.getParentFile());
+        blobStore.deduplicate(second.getParentFile());
+
+        assertThat(Files.isSameFile(first.toPath(), second.toPath())).isTrue();
+        assertThat(Files.isSameFile(first.toPath(), blob("jar contents").toPath())).isTrue();
+        assertThat(FileUtils.readFileToString(second, UTF_8)).isEqualTo("jar contents");
+    }
+
+    @Test
+    void shouldKeepArtifactsWithDifferentContentApart() throws IOException {
+        File first = artifact("pipelines/p/1/s/1/job/app.jar", "version 1");
+        File second = artifact("pipelines/p/2/s/1/job/app.jar", "version 2");
+
+        blobStore.deduplicate(first);
+        blobStore.deduplicate(second);
+
+        assertThat(Files.isSameFile(first.toPath(), second.toPath())).isFalse();
+        assertThat(FileUtils.readFileToString(first, UTF_8)).isEqualTo("version 1");
+        assertThat(FileUtils.readFileToString(second, UTF_8)).isEqualTo("version 2");
+    }
+
+    @Test
+    void shouldNotShareFilesThatAreAppendedTo() throws IOException {
+        File consoleLog = artifact("pipelines/p/1/s/1/job/cruise-output/console.log", "output");
+
+        blobStore.deduplicate(consoleLog.getParentFile().getParentFile());
+
+        assertThat(blob("output")).doesNotExist();
+    }
+
+    @Test
+    void shouldNotDeduplicateWhenTurnedOff() throws IOException {
+        when(systemEnvironment.get(SystemEnvironment.ARTIFACTS_DEDUPLICATION)).thenReturn(false);
+        blobStore = new ArtifactBlobStore(artifactsDirHolder, systemEnvironment);
+        File artifact = artifact("pipelines/p/1/s/1/job/app.jar", "jar contents");
+
+        blobStore.deduplicate(artifact);
+
+        assertThat(blobStore.isInUse()).isFalse();
+        assertThat(blob("jar contents")).doesNotExist();
+    }
+
+    @Test
+    void shouldCopySharedArtifactBeforeItIsWrittenTo() throws IOException {
+        File first = artifact("pipelines/p/1/s/1/job/report.txt", "line 1\n");
+        File second = artifact("pipelines/p/2/s/1/job/report.txt", "line 1\n");
+        blobStore.deduplicate(first);
+        blobStore.deduplicate(second);
+
+        blobStore.detach(second);
+        FileUtils.writeStringToFile(second, "line 2\n", UTF_8, true);
+
+        assertThat(FileUtils.readFileToString(first, UTF_8)).isEqualTo("line 1\n");
+        assertThat(FileUtils.readFileToString(blob("line 1\n"), UTF_8)).isEqualTo("line 1\n");
+        assertThat(FileUtils.readFileToString(second, UTF_8)).isEqualTo("line 1\nline 2\n");
+    }
+
+    @Test
+    void shouldReleaseBlobsOnceNoArtifactLinksToThem() throws IOException {
+        File first = artifact("pipelines/p/1/s/1/job/app.jar", "jar contents");
+        File second = artifact("pipelines/p/2/s/1/job/app.jar", "jar contents");
+        blobStore.deduplicate(first);
+        blobStore.deduplicate(second);
+        File checksums = artifact("pipelines/p/1/s/1/job/cruise-output/md5.checksum", "app.jar=" + md5Hex("jar contents") + "\n");
+
+        FileUtils.forceDelete(first);
+        blobStore.release(checksums);
+        assertThat(blob("jar contents")).exists();
+
+        FileUtils.forceDelete(second);
+        blobStore.release(checksums);
+        assertThat(blob("jar contents")).doesNotExist();
+    }
+
+    @Test
+    void shouldRemoveAllUnreferencedBlobs() throws IOException {
+        File kept = artifact("pipelines/p/1/s/1/job/kept.jar", "kept");
+        File purged = artifact("pipelines/p/1/s/1/job/purged.jar", "purged");
+        blobStore.deduplicate(kept.getParentFile());
+
+        FileUtils.forceDelete(purged);
+        blobStore.removeUnreferencedBlobs();
+
+        assertThat(blob("kept")).exists();
+        assertThat(blob("purged")).doesNotExist();
+    }
+
+    private File artifact(String path, String content) throws IOException {
+        File file = new File(artifactsDir, path);
+        FileUtils.writeStringToFile(file, content, UTF_8);
+        return file;
+    }
+
+    private File blob(String content) {
+        String md5 = md5Hex(content);
+        return new File(artifactsDir, ArtifactBlobStore.BLOBS_FOLDER + "/" + md5.substring(0, 2) + "/" + md5);
+    }
+}
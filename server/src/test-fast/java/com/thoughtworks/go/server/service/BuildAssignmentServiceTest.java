@@ -45,6 +45,7 @@ import org.springframework.transaction.PlatformTransactionManager;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.UUID;
 
 import static com.thoughtworks.go.server.service.BuildAssignmentService.GO_AGENT_RESOURCES;
@@ -218,24 +219,20 @@ class BuildAssignmentServiceTest {
         JobPlan jobPlan2 = getJobPlan(pipeline.getName(), pipeline.get(1).name(), pipeline.get(1).getJobs().first());
         JobPlan jobPlan3 = getJobPlan(irrelevantPipeline.getName(), irrelevantPipeline.get(0).name(), irrelevantPipeline.get(0).getJobs().first());
 
-        //need to get hold of original jobPlans in the tests
-        jobPlans = (ArrayList<JobPlan>) buildAssignmentService.jobPlans();
-
         jobPlans.add(jobPlan1);
         jobPlans.add(jobPlan2);
         jobPlans.add(jobPlan3);
+        buildAssignmentService.onTimer();
 
         //delete a stage
         pipeline.remove(1);
 
-        assertThat(jobPlans.size()).isEqualTo(3);
+        assertThat(buildAssignmentService.jobPlans().size()).isEqualTo(3);
 
         when(goConfigService.hasPipelineNamed(pipeline.getName())).thenReturn(true);
         buildAssignmentService.pipelineConfigChangedListener().onEntityConfigChange(pipeline);
 
-        assertThat(jobPlans.size()).isEqualTo(2);
-        assertThat(jobPlans.get(0)).isEqualTo(jobPlan1);
-        assertThat(jobPlans.get(1)).isEqualTo(jobPlan3);
+        assertThat(buildAssignmentService.jobPlans()).containsExactly(jobPlan1, jobPlan3);
     }
 
     @Test
@@ -254,18 +251,48 @@ class BuildAssignmentServiceTest {
         JobPlan jobPlan2 = getJobPlan(pipeline.getName(), pipeline.get(1).name(), pipeline.get(1).getJobs().first());
         JobPlan jobPlan3 = getJobPlan(irrelevantPipeline.getName(), irrelevantPipeline.get(0).name(), irrelevantPipeline.get(0).getJobs().first());
 
-        //need to get hold of original jobPlans in the tests
-        jobPlans = (ArrayList<JobPlan>) buildAssignmentService.jobPlans();
-
         jobPlans.add(jobPlan1);
         jobPlans.add(jobPlan2);
         jobPlans.add(jobPlan3);
+        buildAssignmentService.onTimer();
 
         when(goConfigService.hasPipelineNamed(pipeline.getName())).thenReturn(false);
         buildAssignmentService.pipelineConfigChangedListener().onEntityConfigChange(pipeline);
 
-        assertThat(jobPlans.size()).isEqualTo(1);
-        assertThat(jobPlans.get(0)).isEqualTo(jobPlan3);
+        assertThat(buildAssignmentService.jobPlans()).containsExactly(jobPlan3);
+    }
+
+    @Test
+    void shouldNotMatchAJobThatHasAlreadyBeenClaimedByAnotherAgent() {
+        PipelineConfig pipeline = PipelineConfigMother.pipelineConfig(UUID.randomUUID().toString());
+        pipeline.first().getJobs().add(JobConfigMother.jobWithNoResourceRequirement());
+        JobPlan jobPlan = new InstanceFactory().createJobPlan(pipeline.first().getJobs().first(), schedulingContext);
+        jobPlans.add(jobPlan);
+        buildAssignmentService.onTimer();
+
+        when(environmentConfigService.filterJobsByAgent(any(), any())).thenReturn(singletonList(jobPlan));
+
+        assertThat(buildAssignmentService.findMatchingJob(regularAgentInstance)).isEqualTo(jobPlan);
+        assertThat(buildAssignmentService.findMatchingJob(regularAgentInstance)).isNull();
+        assertThat(buildAssignmentService.jobPlans()).isEmpty();
+    }
+
+    @Test
+    void shouldNotAskForAnotherElasticAgentForAJobClaimedAcrossAReload() {
+        PipelineConfig pipeline = PipelineConfigMother.pipelineConfig(UUID.randomUUID().toString());
+        pipeline.first().getJobs().add(JobConfigMother.jobWithNoResourceRequirement());
+        JobPlan jobPlan = new InstanceFactory().createJobPlan(pipeline.first().getJobs().first(), schedulingContext);
+        List<JobPlan> firstReload = new ArrayList<>(singletonList(jobPlan));
+        List<JobPlan> secondReload = new ArrayList<>(singletonList(jobPlan));
+        when(jobInstanceService.orderedScheduledBuilds()).thenReturn(firstReload, secondReload);
+        when(environmentConfigService.filterJobsByAgent(any(), any())).thenReturn(singletonList(jobPlan));
+
+        buildAssignmentService.onTimer();
+        assertThat(buildAssignmentService.findMatchingJob(regularAgentInstance)).isEqualTo(jobPlan);
+        buildAssignmentService.onTimer();
+
+        verify(elasticAgentPluginService).createAgentsFor(firstReload, secondReload);
+        assertThat(buildAssignmentService.jobPlans()).isEmpty();
     }
 
     @Nested
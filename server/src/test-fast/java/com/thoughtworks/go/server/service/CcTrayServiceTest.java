@@ -27,8 +27,10 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.mockito.Mock;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
-import java.util.concurrent.atomic.AtomicReference;
 
 import static com.thoughtworks.go.server.newsecurity.SessionUtilsHelper.loginAs;
 import static com.thoughtworks.go.util.DataStructureUtils.s;
@@ -57,11 +59,10 @@ public class CcTrayServiceTest {
     @Test
     public void shouldGenerateCcTrayXMLForAnyUserWhenSecurityIsDisabled() throws Exception {
         when(goConfigService.isSecurityEnabled()).thenReturn(false);
-        when(ccTrayCache.allEntriesInOrder()).thenReturn(asList(statusFor("proj1", "user1"), statusFor("proj2", "user1")));
+        when(ccTrayCache.snapshot()).thenReturn(new CcTrayCache.Snapshot(1L, asList(statusFor("proj1", "user1"), statusFor("proj2", "user1"))));
         loginAs("other_user");
 
-        String xml = ccTrayService.renderCCTrayXML("some-prefix", Username.ANONYMOUS.getUsername().toString(), new StringBuilder(), etag -> {
-        }).toString();
+        String xml = xmlOf(ccTrayService.feedFor("some-prefix", Username.ANONYMOUS.getUsername().toString()));
 
         assertCcTrayXmlFor(xml, "some-prefix", "proj1", "proj2");
     }
@@ -69,54 +70,48 @@ public class CcTrayServiceTest {
     @Test
     public void shouldGenerateCcTrayXMLForCurrentUserWhenSecurityIsEnabled() throws Exception {
         when(goConfigService.isSecurityEnabled()).thenReturn(true);
-        when(ccTrayCache.allEntriesInOrder()).thenReturn(asList(statusFor("proj1", "user1"), statusFor("proj2", "user2")));
+        when(ccTrayCache.snapshot()).thenReturn(new CcTrayCache.Snapshot(1L, asList(statusFor("proj1", "user1"), statusFor("proj2", "user2"))));
 
         loginAs("USER1");
-        String xml = ccTrayService.renderCCTrayXML("some-prefix", "USER1", new StringBuilder(), etag -> {
-        }).toString();
+        String xml = xmlOf(ccTrayService.feedFor("some-prefix", "USER1"));
         assertCcTrayXmlFor(xml, "some-prefix", "proj1");
 
         loginAs("uSEr2");
-        xml = ccTrayService.renderCCTrayXML("some-prefix", "uSEr2", new StringBuilder(), etag -> {
-        }).toString();
+        xml = xmlOf(ccTrayService.feedFor("some-prefix", "uSEr2"));
         assertCcTrayXmlFor(xml, "some-prefix", "proj2");
     }
 
     @Test
     public void shouldGenerateEmptyCcTrayXMLWhenCurrentUserIsNotAuthorizedToViewAnyProjects() throws Exception {
         when(goConfigService.isSecurityEnabled()).thenReturn(true);
-        when(ccTrayCache.allEntriesInOrder()).thenReturn(asList(statusFor("proj1", "user1"), statusFor("proj2", "user2")));
+        when(ccTrayCache.snapshot()).thenReturn(new CcTrayCache.Snapshot(1L, asList(statusFor("proj1", "user1"), statusFor("proj2", "user2"))));
 
         loginAs("some-user-without-permissions");
-        String xml = ccTrayService.renderCCTrayXML("some-prefix", "some-user-without-permissions", new StringBuilder(), etag -> {
-        }).toString();
+        String xml = xmlOf(ccTrayService.feedFor("some-prefix", "some-user-without-permissions"));
         assertCcTrayXmlFor(xml, "some-prefix");
     }
 
     @Test
     public void shouldAllowSiteURLPrefixToBeChangedPerCall() throws Exception {
         when(goConfigService.isSecurityEnabled()).thenReturn(true);
-        when(ccTrayCache.allEntriesInOrder()).thenReturn(asList(statusFor("proj1", "user1"), statusFor("proj2", "user2")));
+        when(ccTrayCache.snapshot()).thenReturn(new CcTrayCache.Snapshot(1L, asList(statusFor("proj1", "user1"), statusFor("proj2", "user2"))));
 
         loginAs("user1");
-        String xml = ccTrayService.renderCCTrayXML("prefix1", "user1", new StringBuilder(), etag -> {
-        }).toString();
+        String xml = xmlOf(ccTrayService.feedFor("prefix1", "user1"));
         assertCcTrayXmlFor(xml, "prefix1", "proj1");
 
         loginAs("user2");
-        xml = ccTrayService.renderCCTrayXML("prefix2", "user2", new StringBuilder(), etag -> {
-        }).toString();
+        xml = xmlOf(ccTrayService.feedFor("prefix2", "user2"));
         assertCcTrayXmlFor(xml, "prefix2", "proj2");
     }
 
     @Test
     public void shouldNotAppendNewLinesForNullProjectStatusesInList() throws Exception {
         when(goConfigService.isSecurityEnabled()).thenReturn(true);
-        when(ccTrayCache.allEntriesInOrder()).thenReturn(asList(statusFor("proj1", "user1"), new ProjectStatus.NullProjectStatus("proj1").updateViewers(viewers("user1"))));
+        when(ccTrayCache.snapshot()).thenReturn(new CcTrayCache.Snapshot(1L, asList(statusFor("proj1", "user1"), new ProjectStatus.NullProjectStatus("proj1").updateViewers(viewers("user1")))));
 
         loginAs("user1");
-        String xml = ccTrayService.renderCCTrayXML("prefix1", "user1", new StringBuilder(), etag -> {
-        }).toString();
+        String xml = xmlOf(ccTrayService.feedFor("prefix1", "user1"));
 
         assertThat(xml).isEqualTo("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n" +
                 "<Projects>\n" +
@@ -127,42 +122,56 @@ public class CcTrayServiceTest {
     @Test
     public void shouldChangeEtagIfSitePrefixChanges() throws Exception {
         when(goConfigService.isSecurityEnabled()).thenReturn(true);
-        when(ccTrayCache.allEntriesInOrder()).thenReturn(asList(statusFor("proj1", "user1"), new ProjectStatus.NullProjectStatus("proj1").updateViewers(viewers("user1"))));
+        when(ccTrayCache.snapshot()).thenReturn(new CcTrayCache.Snapshot(1L, asList(statusFor("proj1", "user1"), new ProjectStatus.NullProjectStatus("proj1").updateViewers(viewers("user1")))));
 
-        AtomicReference<String> originalEtag = new AtomicReference<>();
-        String originalXML = ccTrayService.renderCCTrayXML("prefix1", "user1", new StringBuilder(), etag -> {
-            originalEtag.set(etag);
-        }).toString();
+        CcTrayService.Feed originalFeed = ccTrayService.feedFor("prefix1", "user1");
+        CcTrayService.Feed newFeed = ccTrayService.feedFor("prefix2", "user1");
 
-        AtomicReference<String> newEtag = new AtomicReference<>();
-        String newXML = ccTrayService.renderCCTrayXML("prefix2", "user1", new StringBuilder(), etag -> {
-            newEtag.set(etag);
-        }).toString();
-
-        assertThat(originalEtag.get()).isNotEqualTo(newEtag.get());
-        assertThat(originalXML).isNotEqualTo(newXML);
+        assertThat(originalFeed.etag()).isNotEqualTo(newFeed.etag());
+        assertThat(xmlOf(originalFeed)).isNotEqualTo(xmlOf(newFeed));
     }
 
     @Test
     public void shouldChangeEtagIfProjectStatusChanges() throws Exception {
         when(goConfigService.isSecurityEnabled()).thenReturn(true);
-        when(ccTrayCache.allEntriesInOrder())
-                .thenReturn(asList(statusFor("proj1", "user1"), new ProjectStatus.NullProjectStatus("proj1").updateViewers(viewers("user1"))))
-                .thenReturn(asList(statusFor("proj2", "user1"), new ProjectStatus.NullProjectStatus("proj1").updateViewers(viewers("user1"))));
+        when(ccTrayCache.snapshot())
+                .thenReturn(new CcTrayCache.Snapshot(1L, asList(statusFor("proj1", "user1"), new ProjectStatus.NullProjectStatus("proj1").updateViewers(viewers("user1")))))
+                .thenReturn(new CcTrayCache.Snapshot(2L, asList(statusFor("proj2", "user1"), new ProjectStatus.NullProjectStatus("proj1").updateViewers(viewers("user1")))));
+
+        CcTrayService.Feed originalFeed = ccTrayService.feedFor("prefix1", "user1");
+        CcTrayService.Feed newFeed = ccTrayService.feedFor("prefix1", "user1");
 
-        AtomicReference<String> originalEtag = new AtomicReference<>();
-        String originalXML = ccTrayService.renderCCTrayXML("prefix1", "user1", new StringBuilder(), etag -> {
-            originalEtag.set(etag);
-        }).toString();
+        assertThat(originalFeed.etag()).isNotEqualTo(newFeed.etag());
+        assertThat(xmlOf(originalFeed)).isNotEqualTo(xmlOf(newFeed));
+    }
 
+    @Test
+    public void shouldRenderTheFeedOnceForUsersWhoCanSeeTheSameProjects() throws Exception {
+        when(goConfigService.isSecurityEnabled()).thenReturn(true);
+        when(ccTrayCache.snapshot()).thenReturn(new CcTrayCache.Snapshot(1L, asList(statusFor("proj1", "user1", "user2"), statusFor("proj2", "user3"))));
 
-        AtomicReference<String> newEtag = new AtomicReference<>();
-        String newXML = ccTrayService.renderCCTrayXML("prefix1", "user1", new StringBuilder(), etag -> {
-            newEtag.set(etag);
-        }).toString();
+        CcTrayService.Feed feedForUser1 = ccTrayService.feedFor("prefix1", "user1");
 
-        assertThat(originalEtag.get()).isNotEqualTo(newEtag.get());
-        assertThat(originalXML).isNotEqualTo(newXML);
+        assertThat(ccTrayService.feedFor("prefix1", "user2")).isSameAs(feedForUser1);
+        assertThat(ccTrayService.feedFor("prefix1", "user3")).isNotSameAs(feedForUser1);
+        assertThat(ccTrayService.feedFor("prefix2", "user1")).isNotSameAs(feedForUser1);
+    }
+
+    @Test
+    public void shouldRenderTheFeedAgainOnceTheCacheChanges() throws Exception {
+        when(goConfigService.isSecurityEnabled()).thenReturn(false);
+        ProjectStatus status = statusFor("proj1", "user1");
+        when(ccTrayCache.snapshot())
+                .thenReturn(new CcTrayCache.Snapshot(1L, asList(status)))
+                .thenReturn(new CcTrayCache.Snapshot(1L, asList(status)))
+                .thenReturn(new CcTrayCache.Snapshot(2L, asList(status)));
+
+        CcTrayService.Feed feed = ccTrayService.feedFor("prefix1", "user1");
+        assertThat(ccTrayService.feedFor("prefix1", "user1")).isSameAs(feed);
+
+        CcTrayService.Feed feedAfterChange = ccTrayService.feedFor("prefix1", "user1");
+        assertThat(feedAfterChange).isNotSameAs(feed);
+        assertThat(feedAfterChange.etag()).isEqualTo(feed.etag());
     }
 
     private ProjectStatus statusFor(String projectName, String... allowedUsers) throws Exception {
@@ -171,6 +180,12 @@ public class CcTrayServiceTest {
         return status;
     }
 
+    private String xmlOf(CcTrayService.Feed feed) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        feed.writeTo(out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
     private void assertCcTrayXmlFor(String actualXml, final String siteUrlPrefix, final String... projects) {
         StringBuilder expectedXml = new StringBuilder("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<Projects>\n");
         for (String project : projects) {
@@ -15,6 +15,7 @@
  */
 package com.thoughtworks.go.server.service;
 
+import com.thoughtworks.go.domain.ConsoleLogIndex;
 import com.thoughtworks.go.domain.JobIdentifier;
 import com.thoughtworks.go.helper.JobIdentifierMother;
 import com.thoughtworks.go.server.view.artifacts.ArtifactDirectoryChooser;
@@ -24,6 +25,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 
 import static com.thoughtworks.go.util.ArtifactLogUtil.getConsoleOutputFolderAndFileName;
@@ -138,4 +140,23 @@ public class ConsoleServiceTest {
         assertThat(finalConsoleLog.exists(), is(true));
     }
 
+    @Test
+    public void shouldIndexTemporaryConsoleLogWhileRunningAndDiscardIndexOnMove() throws Exception {
+        JobIdentifier jobIdentifier = JobIdentifierMother.anyBuildIdentifier();
+
+        File temporaryConsoleLog = new File(testFolder.getRoot(), "temporary_console.log");
+        File finalConsoleLog = new File(testFolder.getRoot(), "final_console.log");
+
+        when(chooser.temporaryConsoleFile(jobIdentifier)).thenReturn(temporaryConsoleLog);
+        when(chooser.findArtifact(jobIdentifier, getConsoleOutputFolderAndFileName())).thenReturn(finalConsoleLog);
+
+        service.updateConsoleLog(temporaryConsoleLog, new ByteArrayInputStream("first\nsecond\n".getBytes()));
+        assertThat(ConsoleLogIndex.indexFor(temporaryConsoleLog.toPath()).toFile().exists(), is(true));
+
+        service.moveConsoleArtifacts(jobIdentifier);
+
+        assertThat(ConsoleLogIndex.indexFor(temporaryConsoleLog.toPath()).toFile().exists(), is(false));
+        assertThat(ConsoleLogIndex.indexFor(finalConsoleLog.toPath()).toFile().exists(), is(false));
+        assertThat(finalConsoleLog.exists(), is(true));
+    }
 }
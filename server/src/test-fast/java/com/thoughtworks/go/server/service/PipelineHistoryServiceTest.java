@@ -33,6 +33,7 @@ import com.thoughtworks.go.server.domain.PipelineTimeline;
 import com.thoughtworks.go.server.domain.Username;
 import com.thoughtworks.go.server.persistence.MaterialRepository;
 import com.thoughtworks.go.server.scheduling.TriggerMonitor;
+import com.thoughtworks.go.server.service.result.HttpLocalizedOperationResult;
 import com.thoughtworks.go.server.service.result.HttpOperationResult;
 import com.thoughtworks.go.server.service.result.ServerHealthStateOperationResult;
 import com.thoughtworks.go.server.service.support.toggle.FeatureToggleService;
@@ -48,6 +49,7 @@ import org.mockito.Mock;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 
 import static com.thoughtworks.go.presentation.pipelinehistory.PipelineInstanceModels.createPipelineInstanceModels;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -97,6 +99,8 @@ class PipelineHistoryServiceTest {
     @Mock
     public PipelinePauseService pipelinePauseService;
     @Mock
+    private PipelineInstanceSearchIndex pipelineInstanceSearchIndex;
+    @Mock
     public FeatureToggleService featureToggleService;
     private PipelineHistoryService pipelineHistoryService;
     private PipelineConfig config;
@@ -110,7 +114,7 @@ class PipelineHistoryServiceTest {
             mock(MaterialRepository.class),
             mock(TriggerMonitor.class),
             pipelineTimeline,
-            pipelineUnlockService, schedulingCheckerService, pipelineLockService, pipelinePauseService);
+            pipelineUnlockService, schedulingCheckerService, pipelineLockService, pipelinePauseService, pipelineInstanceSearchIndex);
         config = CRUISE_CONFIG.pipelineConfigByName(new CaseInsensitiveString("pipeline"));
     }
 
@@ -685,6 +689,34 @@ class PipelineHistoryServiceTest {
         }
     }
 
+    @Test
+    void shouldOnlyLookForMatchingPipelineInstancesAmongTheCandidatesFromTheSearchIndex() {
+        Username username = new Username(new CaseInsensitiveString("bob"));
+        ensureHasPermission(username, "pipeline");
+        when(goConfigService.pipelineConfigNamed(new CaseInsensitiveString("pipeline"))).thenReturn(config);
+        when(pipelineInstanceSearchIndex.candidates("pipeline", "fix_it")).thenReturn(Optional.of(Arrays.asList(5L, 2L)));
+        when(pipelineDao.findMatchingPipelineInstancesAmong("pipeline", "fix\\_it", 2 * 10, Arrays.asList(5L, 2L))).thenReturn(createPipelineInstanceModels());
+
+        pipelineHistoryService.findMatchingPipelineInstances("pipeline", " fix_it ", 10, username, new HttpLocalizedOperationResult());
+
+        verify(pipelineDao).findMatchingPipelineInstancesAmong("pipeline", "fix\\_it", 2 * 10, Arrays.asList(5L, 2L));
+        verify(pipelineDao, never()).findMatchingPipelineInstances(anyString(), anyString(), anyInt());
+    }
+
+    @Test
+    void shouldSearchAllPipelineInstancesWhenThePatternIsTooShortForTheSearchIndex() {
+        Username username = new Username(new CaseInsensitiveString("bob"));
+        ensureHasPermission(username, "pipeline");
+        when(goConfigService.pipelineConfigNamed(new CaseInsensitiveString("pipeline"))).thenReturn(config);
+        when(pipelineInstanceSearchIndex.candidates("pipeline", "ab")).thenReturn(Optional.empty());
+        when(pipelineDao.findMatchingPipelineInstances("pipeline", "ab", 2 * 10)).thenReturn(createPipelineInstanceModels());
+
+        pipelineHistoryService.findMatchingPipelineInstances("pipeline", "ab", 10, username, new HttpLocalizedOperationResult());
+
+        verify(pipelineDao).findMatchingPipelineInstances("pipeline", "ab", 2 * 10);
+        verify(pipelineDao, never()).findMatchingPipelineInstancesAmong(anyString(), anyString(), anyInt(), anyList());
+    }
+
     private void stubConfigServiceToReturnPipeline(String blahPipelineName, PipelineConfig blahPipelineConfig) {
         when(goConfigService.pipelineConfigNamed(new CaseInsensitiveString(blahPipelineName))).thenReturn(blahPipelineConfig);
         when(goConfigService.findFirstStageOfPipeline(new CaseInsensitiveString(blahPipelineName))).thenReturn(blahPipelineConfig.get(0));
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2020 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.service;
+
+import com.thoughtworks.go.domain.PipelineRunIdInfo;
+import com.thoughtworks.go.server.dao.PipelineDao;
+import com.thoughtworks.go.server.dao.PipelineSearchText;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class PipelineInstanceSearchIndexTest {
+    private PipelineDao pipelineDao;
+    private PipelineInstanceSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        pipelineDao = mock(PipelineDao.class);
+        index = new PipelineInstanceSearchIndex(pipelineDao, 2);
+    }
+
+    @Test
+    void shouldNotUseTheIndexForPatternsShorterThanAGram() {
+        assertThat(index.candidates("up42", "ab")).isEmpty();
+        verifyZeroInteractions(pipelineDao);
+    }
+
+    @Test
+    void shouldFindInstancesContainingEveryGramOfThePatternLatestFirst() {
+        when(pipelineDao.getOldestAndLatestPipelineId("up42")).thenReturn(new PipelineRunIdInfo(4L, 1L));
+        when(pipelineDao.getPipelineSearchTexts("up42", 0L, PipelineInstanceSearchIndex.LOAD_BATCH_SIZE)).thenReturn(Arrays.asList(
+                text(1L, "1", "Fix the build", "bob", "abc123"),
+                text(1L, "1", "Update readme", "alice", "def456"),
+                text(2L, "2", "Fixes #42", "BOB", "aaa111"),
+                text(4L, "4", null, null, null)
+        ));
+
+        assertThat(index.candidates("up42", "FIX")).contains(Arrays.asList(2L, 1L));
+        assertThat(index.candidates("up42", "readme")).contains(Collections.singletonList(1L));
+        assertThat(index.candidates("up42", "bob")).contains(Arrays.asList(2L, 1L));
+        assertThat(index.candidates("up42", "ix #4")).contains(Collections.singletonList(2L));
+        assertThat(index.candidates("up42", "missing")).contains(Collections.emptyList());
+    }
+
+    @Test
+    void shouldCatchUpWithInstancesScheduledSinceTheLastSearch() {
+        when(pipelineDao.getOldestAndLatestPipelineId("up42")).thenReturn(new PipelineRunIdInfo(1L, 1L));
+        when(pipelineDao.getPipelineSearchTexts("up42", 0L, PipelineInstanceSearchIndex.LOAD_BATCH_SIZE)).thenReturn(Collections.singletonList(text(1L, "1", "first", "bob", "abc")));
+        assertThat(index.candidates("up42", "second")).contains(Collections.emptyList());
+
+        when(pipelineDao.getOldestAndLatestPipelineId("up42")).thenReturn(new PipelineRunIdInfo(2L, 1L));
+        when(pipelineDao.getPipelineSearchTexts("up42", 1L, PipelineInstanceSearchIndex.LOAD_BATCH_SIZE)).thenReturn(Collections.singletonList(text(2L, "2", "second", "bob", "def")));
+
+        assertThat(index.candidates("up42", "second")).contains(Collections.singletonList(2L));
+        assertThat(index.candidates("up42", "bob")).contains(Arrays.asList(2L, 1L));
+        verify(pipelineDao, times(1)).getPipelineSearchTexts("up42", 0L, PipelineInstanceSearchIndex.LOAD_BATCH_SIZE);
+        verify(pipelineDao, times(1)).getPipelineSearchTexts("up42", 1L, PipelineInstanceSearchIndex.LOAD_BATCH_SIZE);
+    }
+
+    @Test
+    void shouldRebuildTheIndexWhenTheHistoryWasRemoved() {
+        when(pipelineDao.getOldestAndLatestPipelineId("up42")).thenReturn(new PipelineRunIdInfo(5L, 5L));
+        when(pipelineDao.getPipelineSearchTexts("up42", 0L, PipelineInstanceSearchIndex.LOAD_BATCH_SIZE)).thenReturn(Collections.singletonList(text(5L, "5", "old", "bob", "abc")));
+        assertThat(index.candidates("up42", "bob")).contains(Collections.singletonList(5L));
+
+        when(pipelineDao.getOldestAndLatestPipelineId("up42")).thenReturn(null);
+
+        assertThat(index.candidates("up42", "bob")).contains(Collections.emptyList());
+    }
+
+    @Test
+    void shouldOnlyKeepTheMostRecentlySearchedPipelinesIndexed() {
+        index.candidates("first", "abc");
+        index.candidates("second", "abc");
+        index.candidates("third", "abc");
+
+        assertThat(index.indexedPipelines()).isEqualTo(2);
+    }
+
+    private PipelineSearchText text(long pipelineId, String label, String comment, String userName, String revision) {
+        return new PipelineSearchText(pipelineId, label, null, comment, userName, revision, null);
+    }
+}
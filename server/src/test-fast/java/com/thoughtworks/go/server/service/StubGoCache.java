@@ -48,6 +48,25 @@ public class StubGoCache extends GoCache {
         return true;
     }
 
+    @Override
+    public void put(String key, String subKey, Object value) {
+        map.put(subKeyOf(key, subKey), value);
+    }
+
+    @Override
+    public Object get(String key, String subKey) {
+        return map.get(subKeyOf(key, subKey));
+    }
+
+    @Override
+    public void remove(String key, String subKey) {
+        map.remove(subKeyOf(key, subKey));
+    }
+
+    private String subKeyOf(String key, String subKey) {
+        return key + "/" + subKey;
+    }
+
     @Override
     public void clear() {
         map.clear();
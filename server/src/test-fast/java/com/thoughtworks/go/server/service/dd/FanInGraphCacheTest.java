@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.service.dd;
+
+import com.thoughtworks.go.config.BasicCruiseConfig;
+import com.thoughtworks.go.config.BasicPipelineConfigs;
+import com.thoughtworks.go.config.CaseInsensitiveString;
+import com.thoughtworks.go.config.CruiseConfig;
+import com.thoughtworks.go.config.PipelineConfig;
+import com.thoughtworks.go.config.materials.MaterialConfigs;
+import com.thoughtworks.go.config.materials.dependency.DependencyMaterialConfig;
+import com.thoughtworks.go.config.materials.git.GitMaterialConfig;
+import com.thoughtworks.go.domain.materials.MaterialConfig;
+import com.thoughtworks.go.helper.PipelineConfigMother;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Set;
+
+import static com.thoughtworks.go.helper.MaterialConfigsMother.git;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class FanInGraphCacheTest {
+    private GitMaterialConfig git;
+    private DependencyMaterialConfig p1Dep;
+    private PipelineConfig p1;
+    private PipelineConfig p2;
+    private FanInGraphCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        git = git("giturl", "dest");
+        p1 = PipelineConfigMother.pipelineConfig("p1", new MaterialConfigs(git));
+        p1Dep = new DependencyMaterialConfig(p1.name(), p1.get(0).name());
+        p2 = PipelineConfigMother.pipelineConfig("p2", new MaterialConfigs(p1Dep, git));
+        cache = new FanInGraphCache();
+    }
+
+    @Test
+    public void shouldReuseTheIndexOfAPipelineUntilTheConfigChanges() {
+        CruiseConfig cruiseConfig = new BasicCruiseConfig(new BasicPipelineConfigs(p1, p2));
+
+        DependencyGraphIndex index = cache.indexFor(cruiseConfig, new CaseInsensitiveString("p2"));
+
+        assertThat(cache.indexFor(cruiseConfig, new CaseInsensitiveString("P2")), is(sameInstance(index)));
+        assertThat(cache.indexFor(cruiseConfig, new CaseInsensitiveString("p1")), is(not(sameInstance(index))));
+
+        CruiseConfig changedConfig = new BasicCruiseConfig(new BasicPipelineConfigs(p1, p2));
+        assertThat(cache.indexFor(changedConfig, new CaseInsensitiveString("p2")), is(not(sameInstance(index))));
+    }
+
+    @Test
+    public void shouldIndexTheScmMaterialsThatEachUpstreamPipelineIsBuiltFrom() {
+        CruiseConfig cruiseConfig = new BasicCruiseConfig(new BasicPipelineConfigs(p1, p2));
+
+        DependencyGraphIndex index = cache.indexFor(cruiseConfig, new CaseInsensitiveString("p2"));
+
+        assertThat(index.materialsOf(new CaseInsensitiveString("p2")), contains((MaterialConfig) p1Dep, git));
+        assertThat(index.materialsOf(new CaseInsensitiveString("p1")), contains((MaterialConfig) git));
+        assertThat(index.pipelineScmDepMap.get(p1Dep), is(Collections.singleton(git)));
+        assertThat(index.pipelineScmDepMap.get(new DependencyMaterialConfig(p2.name(), p2.get(0).name())), is(Collections.singleton(git)));
+    }
+
+    @Test
+    public void shouldBuildANewGraphFromTheSameIndexEachTime() {
+        CruiseConfig cruiseConfig = new BasicCruiseConfig(new BasicPipelineConfigs(p1, p2));
+        DependencyGraphIndex index = cache.indexFor(cruiseConfig, new CaseInsensitiveString("p2"));
+
+        FanInGraph first = new FanInGraph(index, null, null, null, null);
+        FanInGraph second = new FanInGraph(index, null, null, null, null);
+
+        assertThat(first.getScmMaterials(), contains(git));
+        assertThat(second.getScmMaterials(), contains(git));
+        Set<MaterialConfig> scmMaterialsOfP1 = first.getPipelineScmDepMap().get(p1Dep);
+        assertThat(scmMaterialsOfP1, is(Collections.singleton(git)));
+    }
+}
@@ -17,6 +17,7 @@ package com.thoughtworks.go.server.service.dd;
 
 import com.thoughtworks.go.config.BasicCruiseConfig;
 import com.thoughtworks.go.config.BasicPipelineConfigs;
+import com.thoughtworks.go.config.CaseInsensitiveString;
 import com.thoughtworks.go.config.CruiseConfig;
 import com.thoughtworks.go.config.PipelineConfig;
 import com.thoughtworks.go.config.materials.MaterialConfigs;
@@ -24,17 +25,32 @@ import com.thoughtworks.go.config.materials.ScmMaterialConfig;
 import com.thoughtworks.go.config.materials.dependency.DependencyMaterialConfig;
 import com.thoughtworks.go.config.materials.git.GitMaterialConfig;
 import com.thoughtworks.go.config.materials.mercurial.HgMaterialConfig;
+import com.thoughtworks.go.domain.MaterialRevision;
+import com.thoughtworks.go.domain.MaterialRevisions;
+import com.thoughtworks.go.domain.PipelineTimelineEntry;
+import com.thoughtworks.go.domain.StageIdentifier;
+import com.thoughtworks.go.server.dao.PipelineDao;
+import com.thoughtworks.go.server.domain.PipelineTimeline;
+import com.thoughtworks.go.server.persistence.MaterialRepository;
+import com.thoughtworks.go.server.service.MaterialConfigConverter;
+import com.thoughtworks.go.util.SystemEnvironment;
 
 import static com.thoughtworks.go.helper.MaterialConfigsMother.hg;
 import com.thoughtworks.go.helper.PipelineConfigMother;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 
 import static com.thoughtworks.go.helper.MaterialConfigsMother.git;
+import static com.thoughtworks.go.helper.ModificationsMother.dependencyMaterialRevision;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
 
 public class FanInGraphTest {
     @Test
@@ -59,4 +75,105 @@ public class FanInGraphTest {
         assertThat(scmMaterialUrls.contains("giturl"), is(true));
         assertThat(scmMaterialUrls.contains("hgurl"), is(true));
     }
+
+    @Test
+    public void shouldReuseTheLastResolutionWhileTheRevisionsAndThePipelineTimelineStayTheSame() {
+        UpstreamOfP2 upstream = new UpstreamOfP2();
+
+        MaterialRevisions first = upstream.newGraph().computeRevisions(upstream.revisionsWithP1At(1), upstream.timelineAt(11L));
+        MaterialRevisions second = upstream.newGraph().computeRevisions(upstream.revisionsWithP1At(1), upstream.timelineAt(11L));
+
+        assertThat(second.getMaterialRevision(0).getLatestRevisionString(), is(first.getMaterialRevision(0).getLatestRevisionString()));
+        verify(upstream.pipelineDao, times(1)).latestPassedStageIdentifier(11L, "mingle");
+    }
+
+    @Test
+    public void shouldResolveAgainWhenAPipelineHasRunSinceTheLastResolution() {
+        UpstreamOfP2 upstream = new UpstreamOfP2();
+
+        upstream.newGraph().computeRevisions(upstream.revisionsWithP1At(1), upstream.timelineAt(11L));
+        upstream.newGraph().computeRevisions(upstream.revisionsWithP1At(1), upstream.timelineAt(12L));
+
+        verify(upstream.pipelineDao, times(2)).latestPassedStageIdentifier(11L, "mingle");
+    }
+
+    @Test
+    public void shouldResolveAgainWhenTheMaterialsAreAtOtherRevisions() {
+        UpstreamOfP2 upstream = new UpstreamOfP2();
+
+        upstream.newGraph().computeRevisions(upstream.revisionsWithP1At(1), upstream.timelineAt(11L));
+        upstream.newGraph().computeRevisions(upstream.revisionsWithP1At(2), upstream.timelineAt(11L));
+
+        verify(upstream.pipelineDao, times(2)).latestPassedStageIdentifier(11L, "mingle");
+    }
+
+    @Test
+    public void shouldNeverUseTheLastResolutionWhenSomeoneIsListeningToTheIterations() {
+        UpstreamOfP2 upstream = new UpstreamOfP2();
+        FanInEventListener listener = mock(FanInEventListener.class);
+
+        upstream.newGraph().computeRevisions(upstream.revisionsWithP1At(1), upstream.timelineAt(11L));
+        FanInGraph graph = upstream.newGraph();
+        graph.setFanInEventListener(listener);
+        graph.computeRevisions(upstream.revisionsWithP1At(1), upstream.timelineAt(11L));
+
+        verify(upstream.pipelineDao, times(2)).latestPassedStageIdentifier(11L, "mingle");
+        verify(listener).iterationComplete(eq(0), anyList());
+    }
+
+    @Test
+    public void shouldRememberTheScmRevisionsUpstreamOfAPipelineInstanceWhenResolvingAgain() {
+        UpstreamOfP2 upstream = new UpstreamOfP2();
+
+        upstream.newGraph().computeRevisions(upstream.revisionsWithP1At(1), upstream.timelineAt(11L));
+        upstream.newGraph().computeRevisions(upstream.revisionsWithP1At(1), upstream.timelineAt(12L));
+
+        verify(upstream.pipelineTimeline, times(1)).getEntryFor(new CaseInsensitiveString("p0"), 1);
+    }
+
+    /**
+     * git -> p0 -> p1 -> p2, where p0 and p1 have run once.
+     */
+    private static class UpstreamOfP2 {
+        private final PipelineDao pipelineDao = mock(PipelineDao.class);
+        private final MaterialRepository materialRepository = mock(MaterialRepository.class);
+        private final PipelineTimeline pipelineTimeline = mock(PipelineTimeline.class);
+        private final DependencyGraphIndex index;
+
+        UpstreamOfP2() {
+            GitMaterialConfig git = git("giturl", "dest");
+            PipelineConfig p0 = PipelineConfigMother.pipelineConfig("p0", new MaterialConfigs(git));
+            DependencyMaterialConfig p0Dep = new DependencyMaterialConfig(p0.name(), p0.get(0).name());
+            PipelineConfig p1 = PipelineConfigMother.pipelineConfig("p1", new MaterialConfigs(p0Dep));
+            DependencyMaterialConfig p1Dep = new DependencyMaterialConfig(p1.name(), p1.get(0).name());
+            PipelineConfig p2 = PipelineConfigMother.pipelineConfig("p2", new MaterialConfigs(p1Dep));
+            index = new DependencyGraphIndex(new BasicCruiseConfig(new BasicPipelineConfigs(p0, p1, p2)), p2.name());
+
+            PipelineTimelineEntry p0Instance = new PipelineTimelineEntry("p0", 10L, 1,
+                    Collections.singletonMap(git.getFingerprint(), Collections.singletonList(new PipelineTimelineEntry.Revision(new Date(), "abc", "", 1L))));
+            PipelineTimelineEntry p1Instance = new PipelineTimelineEntry("p1", 11L, 1,
+                    Collections.singletonMap(p0Dep.getFingerprint(), Collections.singletonList(new PipelineTimelineEntry.Revision(new Date(), "p0/1/mingle/1", "", 10L))));
+            when(pipelineTimeline.instanceCount(p1.name())).thenReturn(1);
+            when(pipelineTimeline.instanceFor(p1.name(), 0)).thenReturn(p1Instance);
+            when(pipelineTimeline.getEntryFor(p0.name(), 1)).thenReturn(p0Instance);
+
+            StageIdentifier p1Stage = new StageIdentifier("p1", 1, "mingle", "1");
+            when(pipelineDao.latestPassedStageIdentifier(11L, "mingle")).thenReturn(p1Stage);
+            when(materialRepository.modificationFor(p1Stage)).thenReturn(revisionsWithP1At(1).getMaterialRevision(0).getModifications());
+        }
+
+        FanInGraph newGraph() {
+            return new FanInGraph(index, materialRepository, pipelineDao, new SystemEnvironment(), new MaterialConfigConverter());
+        }
+
+        PipelineTimeline timelineAt(long maximumId) {
+            when(pipelineTimeline.maximumId()).thenReturn(maximumId);
+            return pipelineTimeline;
+        }
+
+        MaterialRevisions revisionsWithP1At(int counter) {
+            MaterialRevision p1Revision = dependencyMaterialRevision("p1", counter, "label-" + counter, "mingle", 1, new Date());
+            return new MaterialRevisions(p1Revision);
+        }
+    }
 }
@@ -18,6 +18,7 @@ package com.thoughtworks.go.server.web;
 import com.thoughtworks.go.domain.JobIdentifier;
 import com.thoughtworks.go.server.cache.ZipArtifactCache;
 import com.thoughtworks.go.server.view.artifacts.PreparingArtifactFile;
+import com.thoughtworks.go.server.view.artifacts.StreamingArtifactZip;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -53,6 +54,15 @@ public class ZipArtifactFolderViewFactoryTest {
         assertThat(modelAndView.getView(), is(instanceOf(PreparingArtifactFile.class)));
     }
 
+    @Test public void shouldStreamZipWhileTheCacheIsBeingCreated() throws Exception {
+        folderViewFactory = new ZipArtifactFolderViewFactory(cacheBeingCreated());
+
+        ArtifactFolder artifactFolder = new ArtifactFolder(JOB_IDENTIFIER, folder, "dir");
+        ModelAndView modelAndView = folderViewFactory.createView(JOB_IDENTIFIER, artifactFolder);
+        assertThat(modelAndView.getView(), is(instanceOf(StreamingArtifactZip.class)));
+        assertThat(((StreamingArtifactZip) modelAndView.getView()).getArtifactFolder(), is(artifactFolder));
+    }
+
     @Test public void shouldViewCachedZipArtifactIfAlreadyCreated() throws Exception {
         folderViewFactory = new ZipArtifactFolderViewFactory(cacheAlreadyCreated());
 
@@ -76,6 +86,20 @@ public class ZipArtifactFolderViewFactoryTest {
         };
     }
 
+    private ZipArtifactCache cacheBeingCreated() {
+        return new ZipArtifactCache(null, null) {
+            @Override
+            public boolean cacheCreated(ArtifactFolder artifactFolder) {
+                return false;
+            }
+
+            @Override
+            public boolean currentlyCreatingCache(ArtifactFolder artifactFolder) {
+                return true;
+            }
+        };
+    }
+
     private ZipArtifactCache cacheNotCreated() {
         return new ZipArtifactCache(null, null) {
             @Override
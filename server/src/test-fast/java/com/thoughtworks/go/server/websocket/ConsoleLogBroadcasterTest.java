@@ -0,0 +1,149 @@
+/*
+ * Copyright 2020 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.websocket;
+
+import com.thoughtworks.go.domain.ConsoleStreamer;
+import com.thoughtworks.go.domain.JobIdentifier;
+import com.thoughtworks.go.helper.JobIdentifierMother;
+import com.thoughtworks.go.server.dao.JobInstanceDao;
+import com.thoughtworks.go.server.service.ConsoleService;
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.*;
+
+public class ConsoleLogBroadcasterTest {
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private ConsoleService consoleService;
+    private JobInstanceDao jobInstanceDao;
+    private ScheduledExecutorService executor;
+    private ConsoleLogBroadcaster broadcaster;
+    private JobIdentifier jobIdentifier;
+    private File console;
+
+    @Before
+    public void setUp() throws Exception {
+        consoleService = mock(ConsoleService.class);
+        jobInstanceDao = mock(JobInstanceDao.class);
+        executor = mock(ScheduledExecutorService.class);
+        SystemEnvironment systemEnvironment = mock(SystemEnvironment.class);
+        when(systemEnvironment.consoleLogCharsetAsCharset()).thenReturn(UTF_8);
+        doReturn(mock(ScheduledFuture.class)).when(executor).scheduleWithFixedDelay(any(Runnable.class), anyLong(), anyLong(), any(TimeUnit.class));
+
+        broadcaster = new ConsoleLogBroadcaster(consoleService, jobInstanceDao, systemEnvironment, executor);
+        jobIdentifier = JobIdentifierMother.anyBuildIdentifier();
+        console = temporaryFolder.newFile("console.log");
+        when(consoleService.getStreamer(anyLong(), eq(jobIdentifier))).then(invocation -> new ConsoleStreamer(console.toPath(), (Long) invocation.getArgument(0)));
+    }
+
+    @Test
+    public void shouldTailTheLogOnceAndShareFramesBetweenSubscribers() throws Exception {
+        ConsoleLogBroadcaster.Subscription first = broadcaster.subscribe(jobIdentifier, 0L);
+        ConsoleLogBroadcaster.Subscription second = broadcaster.subscribe(jobIdentifier, 0L);
+        Runnable tail = scheduledTail();
+
+        append("first\nsecond\n");
+        tail.run();
+
+        ConsoleLogBroadcaster.Frame frame = first.poll();
+        assertThat(frame, is(sameInstance(second.poll())));
+        assertThat(new String(frame.bytes(), UTF_8), is("first\nsecond\n"));
+        assertThat(frame.firstLine(), is(0L));
+        assertThat(frame.endLine(), is(2L));
+        verify(consoleService, times(1)).getStreamer(anyLong(), eq(jobIdentifier));
+        verify(executor, times(1)).scheduleWithFixedDelay(any(Runnable.class), anyLong(), anyLong(), any(TimeUnit.class));
+    }
+
+    @Test
+    public void shouldAskLateSubscribersToCatchUpOnLinesAlreadyTailed() throws Exception {
+        broadcaster.subscribe(jobIdentifier, 0L);
+        Runnable tail = scheduledTail();
+        append("first\nsecond\n");
+        tail.run();
+
+        ConsoleLogBroadcaster.Subscription late = broadcaster.subscribe(jobIdentifier, 1L);
+
+        assertThat(late.catchUpUntil(), is(2L));
+        assertThat(late.poll(), is(nullValue()));
+    }
+
+    @Test
+    public void shouldDropPendingFramesOfSlowSubscribersAndAskThemToCatchUp() throws Exception {
+        ConsoleLogBroadcaster.Subscription slow = broadcaster.subscribe(jobIdentifier, 0L);
+        Runnable tail = scheduledTail();
+
+        for (int i = 0; i <= ConsoleLogBroadcaster.MAX_PENDING_FRAMES; i++) {
+            append("line " + i + "\n");
+            tail.run();
+        }
+
+        assertThat(slow.poll(), is(nullValue()));
+        assertThat(slow.catchUpUntil(), is((long) ConsoleLogBroadcaster.MAX_PENDING_FRAMES + 1));
+    }
+
+    @Test
+    public void shouldFinishSubscriptionsAndStopTailingOnceTheJobCompletes() throws Exception {
+        ConsoleLogBroadcaster.Subscription subscription = broadcaster.subscribe(jobIdentifier, 0L);
+        Runnable tail = scheduledTail();
+        append("first\n");
+        when(jobInstanceDao.isJobCompleted(jobIdentifier)).thenReturn(true);
+
+        tail.run();
+
+        assertThat(subscription.await(0L, 0L), is(true));
+        assertThat(subscription.poll().endLine(), is(1L));
+        assertThat(subscription.await(1L, 0L), is(false));
+        assertThat(broadcaster.activeTails(), is(0));
+    }
+
+    @Test
+    public void shouldStopTailingWhenThereAreNoSubscribers() throws Exception {
+        ConsoleLogBroadcaster.Subscription subscription = broadcaster.subscribe(jobIdentifier, 0L);
+        Runnable tail = scheduledTail();
+
+        broadcaster.unsubscribe(jobIdentifier, subscription);
+        tail.run();
+
+        assertThat(broadcaster.activeTails(), is(0));
+        verify(consoleService, never()).getStreamer(anyLong(), eq(jobIdentifier));
+    }
+
+    private Runnable scheduledTail() {
+        ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+        verify(executor, atLeastOnce()).scheduleWithFixedDelay(captor.capture(), anyLong(), anyLong(), any(TimeUnit.class));
+        return captor.getValue();
+    }
+
+    private void append(String text) throws Exception {
+        Files.write(console.toPath(), text.getBytes(UTF_8), StandardOpenOption.APPEND);
+    }
+}
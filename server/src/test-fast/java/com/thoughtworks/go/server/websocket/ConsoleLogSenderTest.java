@@ -59,7 +59,7 @@ public class ConsoleLogSenderTest {
         when(socket.isOpen()).thenReturn(true);
         systemEnvironment = mock(SystemEnvironment.class);
         when(systemEnvironment.consoleLogCharsetAsCharset()).thenReturn(UTF_8);
-        consoleLogSender = new ConsoleLogSender(consoleService, jobInstanceDao, systemEnvironment);
+        consoleLogSender = new ConsoleLogSender(consoleService, jobInstanceDao, new ConsoleLogBroadcaster(consoleService, jobInstanceDao, systemEnvironment), systemEnvironment);
         jobIdentifier = mock(JobIdentifier.class);
     }
 
@@ -123,7 +123,7 @@ public class ConsoleLogSenderTest {
 
         when(consoleService.getStreamer(0L, jobIdentifier))
                 .thenReturn(new FakeConsoleStreamer("First Output", "Second Output"));
-        when(consoleService.getStreamer(1L, jobIdentifier))
+        when(consoleService.getStreamer(2L, jobIdentifier))
                 .thenReturn(new FakeConsoleStreamer("More Output"));
 
         consoleLogSender.process(socket, jobIdentifier, 0L);
@@ -144,7 +144,7 @@ public class ConsoleLogSenderTest {
 
         consoleLogSender.process(socket, jobIdentifier, 0L);
 
-        verify(jobInstanceDao, times(3)).isJobCompleted(jobIdentifier);
+        verify(jobInstanceDao, times(2)).isJobCompleted(jobIdentifier);
         verify(socket, times(1)).send(anyObject());
     }
 
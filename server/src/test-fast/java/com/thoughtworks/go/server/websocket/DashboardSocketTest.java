@@ -0,0 +1,107 @@
+/*
+ * Copyright 2020 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.websocket;
+package com.thoughtworks.go.server.websocket;
+
+import com.google.gson.Gson;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.*;
+
+public class DashboardSocketTest {
+    private Session session;
+    private RemoteEndpoint remote;
+    private DashboardSocket socket;
+
+    @Before
+    public void setUp() {
+        session = mock(Session.class);
+        remote = mock(RemoteEndpoint.class);
+        when(session.isOpen()).thenReturn(true);
+        when(session.getRemote()).thenReturn(remote);
+        socket = new DashboardSocket("bob", mock(DashboardUpdatesBroadcaster.class), mock(SocketHealthService.class));
+        socket.onConnect(session);
+    }
+
+    @Test
+    public void shouldMergeChangesThatComeInWhileAMessageIsInFlightIntoTheNextMessage() {
+        socket.pipelinesChanged(1, singletonList("p1"));
+        socket.pipelinesChanged(2, singletonList("p2"));
+        socket.pipelinesChanged(3, asList("p1", "p3"));
+
+        ArgumentCaptor<String> messages = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<WriteCallback> callbacks = ArgumentCaptor.forClass(WriteCallback.class);
+        verify(remote, times(1)).sendString(messages.capture(), callbacks.capture());
+        assertMessage(messages.getValue(), 1, "p1");
+
+        callbacks.getValue().writeSuccess();
+
+        verify(remote, times(2)).sendString(messages.capture(), callbacks.capture());
+        assertMessage(messages.getValue(), 3, "p2", "p1", "p3");
+
+        callbacks.getValue().writeSuccess();
+        verify(remote, times(2)).sendString(anyString(), any(WriteCallback.class));
+    }
+
+    @Test
+    public void shouldKeepTheChangesOfAFailedMessageAndCloseTheSessionSoThatTheBrowserCatchesUp() {
+        socket.pipelinesChanged(1, singletonList("p1"));
+        socket.pipelinesChanged(2, singletonList("p2"));
+
+        ArgumentCaptor<WriteCallback> callback = ArgumentCaptor.forClass(WriteCallback.class);
+        verify(remote).sendString(anyString(), callback.capture());
+        callback.getValue().writeFailed(new IOException("broken pipe"));
+
+        verify(session).close(eq(StatusCode.SERVER_ERROR), anyString());
+
+        socket.pipelinesChanged(3, singletonList("p3"));
+
+        ArgumentCaptor<String> messages = ArgumentCaptor.forClass(String.class);
+        verify(remote, times(2)).sendString(messages.capture(), any(WriteCallback.class));
+        assertMessage(messages.getValue(), 3, "p1", "p2", "p3");
+    }
+
+    @Test
+    public void shouldNotSendAnythingOnceTheSessionIsClosed() {
+        when(session.isOpen()).thenReturn(false);
+
+        socket.pipelinesChanged(1, singletonList("p1"));
+
+        verify(remote, never()).sendString(anyString(), any(WriteCallback.class));
+    }
+
+    private void assertMessage(String json, long version, String... pipelines) {
+        Map message = new Gson().fromJson(json, Map.class);
+        assertThat(message.get("type"), is("pipelines_changed"));
+        assertThat(((Number) message.get("version")).longValue(), is(version));
+        assertThat((List<String>) message.get("pipelines"), contains(pipelines));
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2020 ThoughtWorks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.websocket;
+
+import com.thoughtworks.go.config.CaseInsensitiveString;
+import com.thoughtworks.go.config.security.Permissions;
+import com.thoughtworks.go.config.security.users.AllowedUsers;
+import com.thoughtworks.go.config.security.users.Everyone;
+import com.thoughtworks.go.server.dashboard.GoDashboardCache;
+import com.thoughtworks.go.server.dashboard.TimeStampBasedCounter;
+import com.thoughtworks.go.util.SystemTimeClock;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.thoughtworks.go.server.dashboard.GoDashboardPipelineMother.pipeline;
+import static java.util.Collections.emptySet;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.*;
+
+public class DashboardUpdatesBroadcasterTest {
+    private GoDashboardCache cache;
+    private ScheduledExecutorService executor;
+    private DashboardUpdatesBroadcaster broadcaster;
+
+    @Before
+    public void setUp() {
+        cache = new GoDashboardCache(new TimeStampBasedCounter(new SystemTimeClock()));
+        cache.replaceAllEntriesInCacheWith(Arrays.asList(pipeline("p1"), pipeline("p2")));
+        executor = mock(ScheduledExecutorService.class);
+        broadcaster = new DashboardUpdatesBroadcaster(cache, executor);
+    }
+
+    @Test
+    public void shouldOnlyStartPollingTheCacheOnceSomeoneSubscribes() {
+        verifyZeroInteractions(executor);
+
+        broadcaster.subscribe(subscriber("bob"));
+        broadcaster.subscribe(subscriber("alice"));
+
+        verify(executor, times(1)).scheduleWithFixedDelay(eq(broadcaster), anyLong(), eq((long) DashboardUpdatesBroadcaster.PUSH_INTERVAL), eq(TimeUnit.MILLISECONDS));
+        assertThat(broadcaster.subscriberCount(), is(2));
+    }
+
+    @Test
+    public void shouldSendOnlyThePipelinesThatChangedSinceTheLastBroadcastAlongWithTheNewVersion() {
+        DashboardUpdatesBroadcaster.Subscriber bob = subscriber("bob");
+        broadcaster.subscribe(bob);
+
+        cache.put(pipeline("p2"));
+        cache.put(pipeline("p3"));
+        broadcaster.run();
+
+        ArgumentCaptor<Collection> changes = ArgumentCaptor.forClass(Collection.class);
+        verify(bob).pipelinesChanged(eq(cache.allEntries().lastUpdatedTimeStamp()), changes.capture());
+        assertThat(changes.getValue(), containsInAnyOrder("p2", "p3"));
+
+        broadcaster.run();
+        verify(bob, times(1)).pipelinesChanged(anyLong(), anyCollection());
+    }
+
+    @Test
+    public void shouldSendRemovedPipelines() {
+        DashboardUpdatesBroadcaster.Subscriber bob = subscriber("bob");
+        broadcaster.subscribe(bob);
+
+        cache.remove(new CaseInsensitiveString("p1"));
+        broadcaster.run();
+
+        verify(bob).pipelinesChanged(cache.allEntries().lastUpdatedTimeStamp(), Collections.singletonList("p1"));
+    }
+
+    @Test
+    public void shouldOnlyTellSubscribersAboutPipelinesTheyCanView() {
+        DashboardUpdatesBroadcaster.Subscriber bob = subscriber("bob");
+        DashboardUpdatesBroadcaster.Subscriber bobInAnotherTab = subscriber("bob");
+        DashboardUpdatesBroadcaster.Subscriber alice = subscriber("alice");
+        broadcaster.subscribe(bob);
+        broadcaster.subscribe(bobInAnotherTab);
+        broadcaster.subscribe(alice);
+
+        Permissions onlyBob = new Permissions(new AllowedUsers(Collections.singleton("bob"), emptySet()), Everyone.INSTANCE, Everyone.INSTANCE, Everyone.INSTANCE);
+        cache.put(pipeline("secret", "group1", onlyBob));
+        broadcaster.run();
+
+        ArgumentCaptor<Collection> bobsChanges = ArgumentCaptor.forClass(Collection.class);
+        ArgumentCaptor<Collection> bobsOtherChanges = ArgumentCaptor.forClass(Collection.class);
+        verify(bob).pipelinesChanged(anyLong(), bobsChanges.capture());
+        verify(bobInAnotherTab).pipelinesChanged(anyLong(), bobsOtherChanges.capture());
+        assertThat(bobsChanges.getValue(), contains("secret"));
+        assertThat(bobsOtherChanges.getValue(), is(sameInstance(bobsChanges.getValue())));
+        verify(alice, never()).pipelinesChanged(anyLong(), any());
+    }
+
+    @Test
+    public void shouldStopSendingToSubscribersThatUnsubscribed() {
+        DashboardUpdatesBroadcaster.Subscriber bob = subscriber("bob");
+        broadcaster.subscribe(bob);
+        broadcaster.unsubscribe(bob);
+
+        cache.put(pipeline("p1"));
+        broadcaster.run();
+
+        verify(bob, never()).pipelinesChanged(anyLong(), any());
+        assertThat(broadcaster.subscriberCount(), is(0));
+    }
+
+    private DashboardUpdatesBroadcaster.Subscriber subscriber(String userName) {
+        DashboardUpdatesBroadcaster.Subscriber subscriber = mock(DashboardUpdatesBroadcaster.Subscriber.class);
+        when(subscriber.userName()).thenReturn(userName);
+        return subscriber;
+    }
+}
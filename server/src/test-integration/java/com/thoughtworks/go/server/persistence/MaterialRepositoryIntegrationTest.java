@@ -56,6 +56,7 @@ import com.thoughtworks.go.server.service.MaterialExpansionService;
 import com.thoughtworks.go.server.transaction.TransactionSynchronizationManager;
 import com.thoughtworks.go.server.transaction.TransactionTemplate;
 import com.thoughtworks.go.server.util.Pagination;
+import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.TestUtils;
 import com.thoughtworks.go.util.TimeProvider;
 import com.thoughtworks.go.util.json.JsonHelper;
@@ -1316,6 +1317,40 @@ public class MaterialRepositoryIntegrationTest {
         assertThat(repo.getTotalModificationsFor(materialInstance), is(new Long(count + 1)));
     }
 
+    @Test
+    public void shouldSaveModificationsAndTheirFilesAcrossSeveralBatches() {
+        GitMaterial material = new GitMaterial(UUID.randomUUID().toString(), "branch");
+        final MaterialInstance materialInstance = repo.findOrCreateFrom(material);
+        int count = new SystemEnvironment().get(SystemEnvironment.MODIFICATIONS_INSERT_BATCH_SIZE) * 2 + 1;
+        final ArrayList<Modification> modifications = getModifications(count);
+        for (Modification modification : modifications) {
+            modification.createModifiedFile("added-in-" + modification.getRevision(), "folder", ModifiedAction.added);
+            modification.createModifiedFile("deleted-in-" + modification.getRevision(), null, ModifiedAction.deleted);
+        }
+
+        transactionTemplate.execute(new TransactionCallback() {
+            @Override
+            public Object doInTransaction(TransactionStatus status) {
+                repo.saveModifications(materialInstance, modifications);
+                return null;
+            }
+        });
+
+        assertThat(repo.getTotalModificationsFor(materialInstance), is((long) count));
+        for (Modification modification : modifications) {
+            assertThat(modification.hasId(), is(true));
+            for (ModifiedFile file : modification.getModifiedFiles()) {
+                assertThat(file.hasId(), is(true));
+            }
+        }
+
+        Modification last = modifications.get(count - 1);
+        Modification fromDb = repo.findModificationWithRevision(material, last.getRevision());
+        assertThat(fromDb.getId(), is(last.getId()));
+        assertThat(fromDb.getModifiedFiles(), is(last.getModifiedFiles()));
+        assertThat(fromDb.getModifiedFiles().get(0).getId(), is(last.getModifiedFiles().get(0).getId()));
+    }
+
     private ArrayList<Modification> getModifications(int count) {
         final ArrayList<Modification> modifications = new ArrayList<>();
         for (int i = 0; i < count; i++) {
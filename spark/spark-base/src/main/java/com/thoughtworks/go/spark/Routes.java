@@ -731,6 +731,7 @@ public class Routes {
     public class Support {
         public static final String BASE = "/api/support";
         public static final String PROCESS_LIST = "/process_list";
+        public static final String CACHE_STATISTICS = "/cache_statistics";
     }
 
     public class ClusterProfiles {